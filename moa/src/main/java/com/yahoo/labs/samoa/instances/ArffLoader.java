@@ -61,6 +61,13 @@ public class ArffLoader {
 
     protected Range range;
 
+    /**
+     * Instantiates a new arff loader for subclasses that read the header
+     * themselves.
+     */
+    protected ArffLoader() {
+    }
+
     /**
      * Instantiates a new arff loader.
      *
@@ -0,0 +1,257 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.io.Serializable;
+
+/**
+ * The Class CompactDenseInstanceData. Dense instance data packed into a byte
+ * array holding the values of nominal attributes with at most 255 values and
+ * a float array holding the other values, indexed as given by the layout of
+ * the header. Numeric values are rounded to float precision. The values are
+ * copied into a double array the first time a value can not be packed, or an
+ * attribute is deleted.
+ */
+public class CompactDenseInstanceData implements InstanceData {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The byte standing for a missing nominal value. */
+    protected static final int MISSING_NOMINAL = 0xFF;
+
+    /** The packed values of a layout without values of one kind. */
+    protected static final byte[] NO_NOMINAL_VALUES = new byte[0];
+
+    protected static final float[] NO_NUMERIC_VALUES = new float[0];
+
+    /**
+     * The positions of the values of the attributes of a header in the packed
+     * values, shared by all the instances of the header.
+     */
+    public static class Layout implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The position of the value of every attribute in the float values,
+         * or the bitwise complement of its position in the byte values.
+         */
+        protected int[] positions;
+
+        /** The number of values stored in a single byte. */
+        protected int numNominalValues;
+
+        /** The number of values stored in a float. */
+        protected int numNumericValues;
+
+        /**
+         * Instantiates the layout of the instances of a header.
+         *
+         * @param header the header
+         */
+        public Layout(Instances header) {
+            int numAttributes = header.numAttributes();
+            this.positions = new int[numAttributes];
+            for (int i = 0; i < numAttributes; i++) {
+                Attribute attribute = header.attribute(i);
+                if (attribute.isNominal() && attribute.numValues() <= MISSING_NOMINAL) {
+                    this.positions[i] = ~this.numNominalValues++;
+                } else {
+                    this.positions[i] = this.numNumericValues++;
+                }
+            }
+        }
+
+        public int numAttributes() {
+            return this.positions.length;
+        }
+
+        /**
+         * Makes a compact copy of a dense instance of the header. Sparse
+         * instances are copied as they are, as they are smaller already.
+         *
+         * @param inst the instance
+         * @return the compact copy
+         */
+        public Instance compact(Instance inst) {
+            if (inst.numValues() < inst.numAttributes()) {
+                return inst.copy();
+            }
+            Instance compactInst = new InstanceImpl(inst.weight(),
+                    new CompactDenseInstanceData(this, inst));
+            if (inst.dataset() != null) {
+                compactInst.setDataset(inst.dataset());
+            }
+            return compactInst;
+        }
+    }
+
+    /** The layout of the packed values. */
+    protected Layout layout;
+
+    /** The packed nominal values, null once they are copied. */
+    protected byte[] nominalValues;
+
+    /** The packed numeric values, null once they are copied. */
+    protected float[] numericValues;
+
+    /** The attribute values, once copied out of the packed values. */
+    protected double[] attributeValues;
+
+    /**
+     * Instantiates a new compact dense instance data with all values zero.
+     *
+     * @param layout the layout
+     */
+    public CompactDenseInstanceData(Layout layout) {
+        this.layout = layout;
+        this.nominalValues = layout.numNominalValues > 0
+                ? new byte[layout.numNominalValues] : NO_NOMINAL_VALUES;
+        this.numericValues = layout.numNumericValues > 0
+                ? new float[layout.numNumericValues] : NO_NUMERIC_VALUES;
+    }
+
+    /**
+     * Instantiates a new compact dense instance data with the values of an
+     * instance.
+     *
+     * @param layout the layout
+     * @param inst the instance
+     */
+    public CompactDenseInstanceData(Layout layout, Instance inst) {
+        this(layout);
+        for (int i = 0, n = layout.numAttributes(); i < n; i++) {
+            setValue(i, inst.value(i));
+        }
+    }
+
+    protected CompactDenseInstanceData(CompactDenseInstanceData toCopy) {
+        this.layout = toCopy.layout;
+        if (toCopy.attributeValues == null) {
+            this.nominalValues = toCopy.nominalValues.length > 0
+                    ? toCopy.nominalValues.clone() : NO_NOMINAL_VALUES;
+            this.numericValues = toCopy.numericValues.length > 0
+                    ? toCopy.numericValues.clone() : NO_NUMERIC_VALUES;
+        } else {
+            this.attributeValues = toCopy.attributeValues.clone();
+        }
+    }
+
+    @Override
+    public int numAttributes() {
+        return this.attributeValues != null ? this.attributeValues.length
+                : this.layout.numAttributes();
+    }
+
+    @Override
+    public double value(int indexAttribute) {
+        if (this.attributeValues != null) {
+            return this.attributeValues[indexAttribute];
+        }
+        int position = this.layout.positions[indexAttribute];
+        if (position < 0) {
+            int value = this.nominalValues[~position] & 0xFF;
+            return value == MISSING_NOMINAL ? Double.NaN : value;
+        }
+        return this.numericValues[position];
+    }
+
+    @Override
+    public boolean isMissing(int indexAttribute) {
+        return Double.isNaN(this.value(indexAttribute));
+    }
+
+    @Override
+    public int numValues() {
+        return numAttributes();
+    }
+
+    @Override
+    public int index(int indexAttribute) {
+        return indexAttribute;
+    }
+
+    @Override
+    public double valueSparse(int indexAttribute) {
+        return value(indexAttribute);
+    }
+
+    @Override
+    public boolean isMissingSparse(int indexAttribute) {
+        return isMissing(indexAttribute);
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        if (this.attributeValues != null) {
+            return this.attributeValues.clone();
+        }
+        double[] values = new double[numAttributes()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value(i);
+        }
+        return values;
+    }
+
+    @Override
+    public void setValue(int attributeIndex, double d) {
+        if (this.attributeValues != null) {
+            this.attributeValues[attributeIndex] = d;
+            return;
+        }
+        int position = this.layout.positions[attributeIndex];
+        if (position < 0) {
+            if (Double.isNaN(d)) {
+                this.nominalValues[~position] = (byte) MISSING_NOMINAL;
+            } else if (d >= 0 && d < MISSING_NOMINAL && d == (int) d) {
+                this.nominalValues[~position] = (byte) d;
+            } else {
+                unpack();
+                this.attributeValues[attributeIndex] = d;
+            }
+            return;
+        }
+        this.numericValues[position] = (float) d;
+    }
+
+    @Override
+    public void deleteAttributeAt(int index) {
+        unpack();
+        double[] newValues = new double[this.attributeValues.length - 1];
+        System.arraycopy(this.attributeValues, 0, newValues, 0, index);
+        if (index < this.attributeValues.length - 1) {
+            System.arraycopy(this.attributeValues, index + 1, newValues, index,
+                    this.attributeValues.length - (index + 1));
+        }
+        this.attributeValues = newValues;
+    }
+
+    /**
+     * Copies the values out of the packed values.
+     */
+    protected void unpack() {
+        if (this.attributeValues == null) {
+            this.attributeValues = toDoubleArray();
+            this.nominalValues = null;
+            this.numericValues = null;
+        }
+    }
+
+    @Override
+    public InstanceData copy() {
+        return new CompactDenseInstanceData(this);
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Class FastArffLoader. Loads an Arff file with sparse or dense format
+ * working directly on the bytes of the file, instead of going through a
+ * StreamTokenizer.
+ *
+ * <p>Numbers are parsed by hand, falling back to Double.parseDouble only when
+ * the result could not be exactly rounded, and nominal values are looked up
+ * in a hash table of the encoded attribute values, so no String is created
+ * per value. The file is expected to be encoded in UTF-8.</p>
+ */
+public class FastArffLoader extends ArffLoader {
+
+    protected static final int TT_EOF = -1;
+
+    protected static final int TT_EOL = '\n';
+
+    protected static final int TT_WORD = -3;
+
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+    protected static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+    protected static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * Hash table from the encoded values of a nominal attribute to their
+     * indices, looked up directly on the bytes of a token.
+     */
+    protected static class NominalTable {
+
+        protected byte[][] keys;
+
+        protected int[] indices;
+
+        protected int mask;
+
+        public NominalTable(List<String> values) {
+            int capacity = 4;
+            while (capacity < 2 * values.size()) {
+                capacity <<= 1;
+            }
+            this.keys = new byte[capacity][];
+            this.indices = new int[capacity];
+            this.mask = capacity - 1;
+            for (int i = 0; i < values.size(); i++) {
+                byte[] key = values.get(i).getBytes(UTF8);
+                int slot = hash(key, 0, key.length) & this.mask;
+                while (this.keys[slot] != null && !Arrays.equals(this.keys[slot], key)) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = key;
+                this.indices[slot] = i;
+            }
+        }
+
+        public int indexOf(byte[] bytes, int start, int end) {
+            int slot = hash(bytes, start, end) & this.mask;
+            byte[] key;
+            while ((key = this.keys[slot]) != null) {
+                if (key.length == end - start && equals(key, bytes, start)) {
+                    return this.indices[slot];
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            return -1;
+        }
+
+        protected static boolean equals(byte[] key, byte[] bytes, int start) {
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != bytes[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        protected static int hash(byte[] bytes, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + bytes[i];
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    protected InputStream input;
+
+    protected byte[] buffer = new byte[1 << 16];
+
+    protected int position;
+
+    protected int limit;
+
+    /**
+     * Start of the token being read, kept in the buffer when it is refilled,
+     * or -1.
+     */
+    protected int mark = -1;
+
+    protected int tokenStart;
+
+    protected int tokenEnd;
+
+    protected boolean tokenEscaped;
+
+    protected int lineNumber = 1;
+
+    protected NominalTable[] nominalTables;
+
+    protected int[] sparseIndices = new int[16];
+
+    protected double[] sparseValues = new double[16];
+
+    /**
+     * Instantiates a new fast arff loader, reading the header.
+     *
+     * @param input the input stream
+     * @param classAttribute the class attribute, -1 for the last one
+     */
+    public FastArffLoader(InputStream input, int classAttribute) {
+        this(input, (Range) null);
+        if (classAttribute < 0) {
+            this.instanceInformation.setClassIndex(this.instanceInformation.numAttributes() - 1);
+        } else if (classAttribute > 0) {
+            this.instanceInformation.setClassIndex(classAttribute - 1);
+        }
+    }
+
+    /**
+     * Instantiates a new fast arff loader, reading the header.
+     *
+     * @param input the input stream
+     * @param range the output attributes, or null if there is a single class
+     * attribute
+     */
+    public FastArffLoader(InputStream input, Range range) {
+        this.input = input;
+        this.range = range;
+        try {
+            this.instanceInformation = readHeader();
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read arff header.", ex);
+        }
+        if (range != null) {
+            this.range.setUpper(this.instanceInformation.numAttributes());
+            this.instanceInformation.setRangeOutputIndices(range);
+        }
+        this.nominalTables = new NominalTable[this.instanceInformation.numAttributes()];
+        for (int i = 0; i < this.nominalTables.length; i++) {
+            Attribute attribute = this.instanceInformation.attribute(i);
+            if (attribute.isNominal()) {
+                this.nominalTables[i] = new NominalTable(attribute.getAttributeValues());
+            }
+        }
+    }
+
+    /**
+     * Reads instance. It detects if it is dense or sparse.
+     *
+     * @return the instance, or null at the end of the file
+     */
+    @Override
+    public Instance readInstance() {
+        try {
+            int type;
+            do {
+                type = nextToken();
+            } while (type == TT_EOL);
+            if (type == TT_EOF) {
+                return null;
+            }
+            if (type == '{') {
+                return readSparse();
+            }
+            return readDense(type);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read instance at line " + this.lineNumber + ".", ex);
+        }
+    }
+
+    @Override
+    public Instance readInstanceDense() {
+        return readInstance();
+    }
+
+    protected Instance readDense(int type) throws IOException {
+        int numAttributes = this.instanceInformation.numAttributes();
+        double[] values = new double[numAttributes];
+        int numAttribute = 0;
+        while (type != TT_EOL && type != TT_EOF) {
+            if (type == TT_WORD) {
+                if (numAttribute >= numAttributes) {
+                    throw new RuntimeException("Too many values at line " + this.lineNumber + ".");
+                }
+                values[numAttribute] = parseValue(numAttribute);
+                numAttribute++;
+            }
+            type = nextToken();
+        }
+        return new DenseInstance(1.0, values);
+    }
+
+    protected Instance readSparse() throws IOException {
+        int numAttributes = this.instanceInformation.numAttributes();
+        int numValues = 0;
+        int type = nextToken();
+        while (type != '}' && type != TT_EOL && type != TT_EOF) {
+            if (type == TT_WORD) {
+                int numAttribute = parseIndex();
+                if (numAttribute < 0 || numAttribute >= numAttributes) {
+                    throw new RuntimeException("Attribute index out of range at line "
+                            + this.lineNumber + ": " + numAttribute);
+                }
+                if (nextToken() != TT_WORD) {
+                    throw new RuntimeException("Missing sparse value at line " + this.lineNumber + ".");
+                }
+                if (numValues == this.sparseIndices.length) {
+                    this.sparseIndices = Arrays.copyOf(this.sparseIndices, 2 * numValues);
+                    this.sparseValues = Arrays.copyOf(this.sparseValues, 2 * numValues);
+                }
+                this.sparseIndices[numValues] = numAttribute;
+                this.sparseValues[numValues] = parseValue(numAttribute);
+                numValues++;
+            }
+            type = nextToken();
+        }
+        while (type != TT_EOL && type != TT_EOF) {
+            type = nextToken();
+        }
+        return new SparseInstance(1.0, Arrays.copyOf(this.sparseValues, numValues),
+                Arrays.copyOf(this.sparseIndices, numValues), numAttributes);
+    }
+
+    /**
+     * Parses the current token as the value of an attribute.
+     */
+    protected double parseValue(int numAttribute) {
+        if (this.tokenEnd - this.tokenStart == 1 && this.buffer[this.tokenStart] == '?') {
+            return Double.NaN;
+        }
+        NominalTable table = this.nominalTables[numAttribute];
+        if (this.tokenEscaped) {
+            return table != null
+                    ? this.instanceInformation.attribute(numAttribute).indexOfValue(tokenString())
+                    : Double.parseDouble(tokenString());
+        }
+        if (table != null) {
+            return table.indexOf(this.buffer, this.tokenStart, this.tokenEnd);
+        }
+        return parseNumber(this.buffer, this.tokenStart, this.tokenEnd);
+    }
+
+    protected int parseIndex() {
+        int value = 0;
+        for (int i = this.tokenStart; i < this.tokenEnd; i++) {
+            int digit = this.buffer[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - 9) / 10) {
+                return Integer.parseInt(tokenString());
+            }
+            value = 10 * value + digit;
+        }
+        if (this.tokenEnd == this.tokenStart) {
+            return Integer.parseInt(tokenString());
+        }
+        return value;
+    }
+
+    /**
+     * Parses a decimal number. Numbers with at most 18 significant digits and
+     * a small exponent are computed with a single exactly rounded operation;
+     * anything else is left to Double.parseDouble.
+     *
+     * @param bytes the buffer
+     * @param start the start of the number
+     * @param end the end of the number
+     * @return the number
+     */
+    public static double parseNumber(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int numDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean exact = true;
+        while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+            if (numDigits < 18) {
+                mantissa = 10 * mantissa + (bytes[i] - '0');
+                if (mantissa != 0) {
+                    numDigits++;
+                }
+            } else {
+                exact &= bytes[i] == '0';
+                exponent++;
+            }
+            anyDigit = true;
+            i++;
+        }
+        if (i < end && bytes[i] == '.') {
+            i++;
+            while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+                if (numDigits < 18) {
+                    mantissa = 10 * mantissa + (bytes[i] - '0');
+                    if (mantissa != 0) {
+                        numDigits++;
+                    }
+                    exponent--;
+                } else {
+                    exact &= bytes[i] == '0';
+                }
+                anyDigit = true;
+                i++;
+            }
+        }
+        if (anyDigit && i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+            int exponentValue = 0;
+            boolean anyExponentDigit = false;
+            while (i < end && bytes[i] >= '0' && bytes[i] <= '9' && exponentValue < 10000) {
+                exponentValue = 10 * exponentValue + (bytes[i] - '0');
+                anyExponentDigit = true;
+                i++;
+            }
+            exact &= anyExponentDigit;
+            exponent += negativeExponent ? -exponentValue : exponentValue;
+        }
+        if (!anyDigit || i != end || !exact) {
+            return Double.parseDouble(new String(bytes, start, end - start, LATIN1));
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (mantissa > (1L << 53) || exponent < -22 || exponent > 22) {
+            return Double.parseDouble(new String(bytes, start, end - start, LATIN1));
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Returns the current token as a String, removing escape characters.
+     */
+    protected String tokenString() {
+        String token = new String(this.buffer, this.tokenStart,
+                this.tokenEnd - this.tokenStart, UTF8);
+        if (!this.tokenEscaped) {
+            return token;
+        }
+        StringBuilder sb = new StringBuilder(token.length());
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '\\' && i + 1 < token.length()) {
+                c = token.charAt(++i);
+                switch (c) {
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Refills the buffer, keeping the token being read.
+     *
+     * @return false at the end of the input
+     */
+    protected boolean fill() throws IOException {
+        int keep = this.mark >= 0 ? this.mark : this.position;
+        int remaining = this.limit - keep;
+        if (keep > 0) {
+            System.arraycopy(this.buffer, keep, this.buffer, 0, remaining);
+        } else if (remaining == this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, 2 * this.buffer.length);
+        }
+        if (this.mark >= 0) {
+            this.mark -= keep;
+        }
+        this.position -= keep;
+        this.limit = remaining;
+        int read = this.input.read(this.buffer, this.limit, this.buffer.length - this.limit);
+        if (read <= 0) {
+            return false;
+        }
+        this.limit += read;
+        return true;
+    }
+
+    protected static boolean isWordByte(int b) {
+        return (b > ' ' || b < 0) && b != ',' && b != '{' && b != '}'
+                && b != '%' && b != '\'' && b != '"';
+    }
+
+    /**
+     * Reads the next token. Values are separated by commas or white space,
+     * comments start with '%' and quoted values may use ' or ".
+     *
+     * @return the type of the token: TT_EOF, TT_EOL, TT_WORD, '{' or '}'
+     */
+    protected int nextToken() throws IOException {
+        while (true) {
+            if (this.position == this.limit && !fill()) {
+                return TT_EOF;
+            }
+            byte b = this.buffer[this.position];
+            if (b == '\n' || b == '\r') {
+                this.position++;
+                this.lineNumber++;
+                if (b == '\r' && (this.position < this.limit || fill())
+                        && this.buffer[this.position] == '\n') {
+                    this.position++;
+                }
+                return TT_EOL;
+            }
+            if ((b <= ' ' && b >= 0) || b == ',') {
+                this.position++;
+            } else if (b == '%') {
+                while ((this.position < this.limit || fill())
+                        && this.buffer[this.position] != '\n' && this.buffer[this.position] != '\r') {
+                    this.position++;
+                }
+            } else if (b == '{' || b == '}') {
+                this.position++;
+                return b;
+            } else if (b == '\'' || b == '"') {
+                this.position++;
+                this.mark = this.position;
+                this.tokenEscaped = false;
+                while ((this.position < this.limit || fill())) {
+                    byte c = this.buffer[this.position];
+                    if (c == b || c == '\n' || c == '\r') {
+                        break;
+                    }
+                    if (c == '\\') {
+                        this.tokenEscaped = true;
+                        this.position++;
+                        if (this.position == this.limit && !fill()) {
+                            break;
+                        }
+                    }
+                    this.position++;
+                }
+                this.tokenStart = this.mark;
+                this.tokenEnd = this.position;
+                this.mark = -1;
+                if (this.position < this.limit && this.buffer[this.position] == b) {
+                    this.position++;
+                }
+                return TT_WORD;
+            } else {
+                this.mark = this.position;
+                this.tokenEscaped = false;
+                this.position++;
+                while ((this.position < this.limit || fill())
+                        && isWordByte(this.buffer[this.position])) {
+                    this.position++;
+                }
+                this.tokenStart = this.mark;
+                this.tokenEnd = this.position;
+                this.mark = -1;
+                return TT_WORD;
+            }
+        }
+    }
+
+    protected InstanceInformation readHeader() throws IOException {
+        String relation = "file stream";
+        this.auxAttributes = new ArrayList<Attribute>();
+        int type = nextToken();
+        while (type != TT_EOF) {
+            if (type == TT_WORD && this.tokenEnd > this.tokenStart
+                    && this.buffer[this.tokenStart] == '@') {
+                String token = tokenString().toUpperCase();
+                if (token.startsWith("@RELATION")) {
+                    if (nextToken() == TT_WORD) {
+                        relation = tokenString();
+                    }
+                } else if (token.startsWith("@ATTRIBUTE")) {
+                    nextToken();
+                    String name = tokenString();
+                    type = nextToken();
+                    if (type == '{') {
+                        List<String> attributeLabels = new ArrayList<String>();
+                        type = nextToken();
+                        while (type != '}' && type != TT_EOF) {
+                            if (type == TT_WORD) {
+                                attributeLabels.add(tokenString());
+                            }
+                            type = nextToken();
+                        }
+                        this.auxAttributes.add(new Attribute(name, attributeLabels));
+                    } else {
+                        this.auxAttributes.add(new Attribute(name));
+                    }
+                } else if (token.startsWith("@DATA")) {
+                    break;
+                }
+            }
+            type = nextToken();
+        }
+        return new InstanceInformation(relation, this.auxAttributes);
+    }
+}
@@ -360,7 +360,12 @@ public class InstanceImpl implements MultiLabelInstance {
      */
     @Override
     public void setDataset(Instances dataset) {
-        this.instanceHeader = new InstancesHeader(dataset);
+        // headers are shared, as a new one indexes the names of all the attributes
+        if (dataset instanceof InstancesHeader && dataset.numInstances() == 0) {
+            this.instanceHeader = (InstancesHeader) dataset;
+        } else {
+            this.instanceHeader = new InstancesHeader(dataset);
+        }
     }
 
     /**
@@ -72,6 +72,20 @@ public class InstanceInformation implements Serializable {
         this.attributesInformation = new AttributesInformation(input, input.size());
     }
 
+    /**
+     * Instantiates a new instance information that stores only the given
+     * attributes, the other ones being numeric.
+     *
+     * @param st the st
+     * @param input the attributes
+     * @param indexValues the indices of the attributes, in increasing order
+     * @param numberAttributes the number of attributes
+     */
+    public InstanceInformation(String st, List<Attribute> input, List<Integer> indexValues, int numberAttributes) {
+        this.relationName = st;
+        this.attributesInformation = new AttributesInformation(input, indexValues, numberAttributes);
+    }
+
     /**
      * Instantiates a new instance information.
      */
@@ -92,6 +92,18 @@ public class Instances implements Serializable {
         this.computeAttributesIndices();
     }
 
+    /**
+     * Instantiates a new instances that reads its instances from a loader.
+     *
+     * @param loader the loader, with its header already read
+     */
+    public Instances(ArffLoader loader) {
+        this.arff = loader;
+        this.instanceInformation = loader.getStructure();
+        this.instances = new ArrayList<Instance>();
+        this.computeAttributesIndices();
+    }
+
     /**
      * Instantiates a new instances.
      *
@@ -133,6 +145,22 @@ public class Instances implements Serializable {
         this.computeAttributesIndices();
     }
 
+    /**
+     * Instantiates a new instances that stores only the given attributes, the
+     * other ones being numeric.
+     *
+     * @param st the st
+     * @param v the attributes
+     * @param indexValues the indices of the attributes, in increasing order
+     * @param numberAttributes the number of attributes
+     * @param capacity the capacity
+     */
+    public Instances(String st, List<Attribute> v, List<Integer> indexValues, int numberAttributes, int capacity) {
+        this.instanceInformation = new InstanceInformation(st, v, indexValues, numberAttributes);
+        this.instances = new ArrayList<Instance>(capacity);
+        this.computeAttributesIndices();
+    }
+
     /**
      * Instantiates a new instances.
      *
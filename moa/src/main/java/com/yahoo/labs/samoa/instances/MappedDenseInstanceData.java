@@ -0,0 +1,147 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+
+package com.yahoo.labs.samoa.instances;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The Class MappedDenseInstanceData. Dense instance data read directly from a
+ * buffer, usually a memory-mapped file, without copying the values. The
+ * values are copied into an array the first time they are changed.
+ */
+public class MappedDenseInstanceData implements InstanceData {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The buffer holding the values, null once they are copied. */
+    protected transient ByteBuffer buffer;
+
+    /** The position of the first value in the buffer. */
+    protected int offset;
+
+    protected int numAttributes;
+
+    /** The attribute values, once copied out of the buffer. */
+    protected double[] attributeValues;
+
+    /**
+     * Instantiates a new mapped dense instance data.
+     *
+     * @param buffer the buffer
+     * @param offset the position of the first value in the buffer
+     * @param numAttributes the number of attributes
+     */
+    public MappedDenseInstanceData(ByteBuffer buffer, int offset, int numAttributes) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.numAttributes = numAttributes;
+    }
+
+    @Override
+    public int numAttributes() {
+        return this.numAttributes;
+    }
+
+    @Override
+    public double value(int indexAttribute) {
+        if (this.attributeValues != null) {
+            return this.attributeValues[indexAttribute];
+        }
+        if (indexAttribute < 0 || indexAttribute >= this.numAttributes) {
+            throw new ArrayIndexOutOfBoundsException(indexAttribute);
+        }
+        return this.buffer.getDouble(this.offset + 8 * indexAttribute);
+    }
+
+    @Override
+    public boolean isMissing(int indexAttribute) {
+        return Double.isNaN(this.value(indexAttribute));
+    }
+
+    @Override
+    public int numValues() {
+        return numAttributes();
+    }
+
+    @Override
+    public int index(int indexAttribute) {
+        return indexAttribute;
+    }
+
+    @Override
+    public double valueSparse(int indexAttribute) {
+        return value(indexAttribute);
+    }
+
+    @Override
+    public boolean isMissingSparse(int indexAttribute) {
+        return isMissing(indexAttribute);
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        if (this.attributeValues != null) {
+            return this.attributeValues.clone();
+        }
+        double[] values = new double[this.numAttributes];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.buffer.getDouble(this.offset + 8 * i);
+        }
+        return values;
+    }
+
+    /**
+     * Copies the values out of the buffer, so they can be changed.
+     */
+    protected void detach() {
+        if (this.attributeValues == null) {
+            this.attributeValues = toDoubleArray();
+            this.buffer = null;
+        }
+    }
+
+    @Override
+    public void setValue(int attributeIndex, double d) {
+        detach();
+        this.attributeValues[attributeIndex] = d;
+    }
+
+    @Override
+    public void deleteAttributeAt(int index) {
+        detach();
+        double[] newValues = new double[this.attributeValues.length - 1];
+        System.arraycopy(this.attributeValues, 0, newValues, 0, index);
+        if (index < this.attributeValues.length - 1) {
+            System.arraycopy(this.attributeValues, index + 1, newValues, index,
+                    this.attributeValues.length - (index + 1));
+        }
+        this.attributeValues = newValues;
+        this.numAttributes--;
+    }
+
+    @Override
+    public InstanceData copy() {
+        return new DenseInstanceData(toDoubleArray());
+    }
+
+    /**
+     * Serializes as a plain dense instance data, as the buffer can not be.
+     */
+    protected Object writeReplace() {
+        return new DenseInstanceData(toDoubleArray());
+    }
+}
@@ -19,6 +19,9 @@
  */
 package moa;
 
+import java.util.IdentityHashMap;
+
+import moa.core.DirectCopyable;
 import moa.core.SerializeUtils;
 import moa.core.SizeOf;
 
@@ -54,12 +57,20 @@ public abstract class AbstractMOAObject implements MOAObject {
     }
 
     /**
-     * This method produces a copy of an object.
+     * This method produces a copy of an object, directly if it implements
+     * {@link DirectCopyable} and else by serialization.
      *
      * @param obj object to copy
      * @return a copy of the object
      */
     public static MOAObject copy(MOAObject obj) {
+        if (obj instanceof DirectCopyable) {
+            MOAObject copy = SerializeUtils.copyDirectly(obj,
+                    new IdentityHashMap<Object, Object>());
+            if (copy != null) {
+                return copy;
+            }
+        }
         try {
             return (MOAObject) SerializeUtils.copyObject(obj);
         } catch (Exception e) {
@@ -104,6 +104,15 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     @Override
     public abstract double[] getVotesForInstance(Instance inst);
 
+    @Override
+    public double[][] getVotesForInstances(Instance[] insts, int numInstances) {
+        double[][] votes = new double[numInstances][];
+        for (int i = 0; i < numInstances; i++) {
+            votes[i] = getVotesForInstance(insts[i]);
+        }
+        return votes;
+    }
+
     @Override
     public Prediction getPredictionForInstance(Example<Instance> example){
 		return getPredictionForInstance(example.getData());
@@ -146,6 +155,11 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         }
     }
 
+    @Override
+    public boolean retainsInstances() {
+        return true;
+    }
+
     @Override
     public boolean trainingHasStarted() {
         return this.trainingWeightSeenByModel > 0.0;
@@ -178,6 +192,13 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         }
     }
 
+    @Override
+    public void trainOnInstances(Instance[] insts, int numInstances) {
+        for (int i = 0; i < numInstances; i++) {
+            trainOnInstance(insts[i]);
+        }
+    }
+
     @Override
     public Measurement[] getModelMeasurements() {
         List<Measurement> measurementList = new LinkedList<Measurement>();
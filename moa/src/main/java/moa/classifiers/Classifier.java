@@ -76,6 +76,27 @@ public interface Classifier extends Learner<Example<Instance>> {
      * test instance in each class
      */
     public double[] getVotesForInstance(Instance inst);
+
+    /**
+     * Predicts the class memberships for the first numInstances instances of
+     * a block. Equivalent to calling getVotesForInstance on each instance in
+     * order, which is what the default implementation does.
+     *
+     * @param insts the block of instances to be classified
+     * @param numInstances the number of instances of the block to classify
+     * @return an array containing the votes of every classified instance
+     */
+    public double[][] getVotesForInstances(Instance[] insts, int numInstances);
+
+    /**
+     * Trains this learner incrementally on the first numInstances instances
+     * of a block, in order. Equivalent to calling trainOnInstance on each
+     * instance, which is what the default implementation does.
+     *
+     * @param insts the block of instances to be used for training
+     * @param numInstances the number of instances of the block to train on
+     */
+    public void trainOnInstances(Instance[] insts, int numInstances);
     
     /**
      * Sets the reference to the header of the data stream. The header of the
@@ -0,0 +1,53 @@
+/*
+ *    SnapshotClassifier.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers;
+
+/**
+ * Interface for classifiers that publish snapshots of their model, so that
+ * other threads can predict while the classifier keeps training.
+ *
+ * <p>The thread training the classifier publishes copies of its model,
+ * prepared to be read by several threads at once, and any thread gets the
+ * latest one without locking. Neither the readers nor the training thread
+ * wait for each other. A snapshot must only be used for prediction.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public interface SnapshotClassifier extends Classifier {
+
+    /**
+     * Gets the latest snapshot published. Can be called from any thread.
+     *
+     * @return the snapshot, or null if none has been published
+     */
+    Classifier getSnapshot();
+
+    /**
+     * Publishes a snapshot of the current model. Must be called from the
+     * thread training the classifier.
+     */
+    void publishSnapshot();
+
+    /**
+     * Computes the state that is computed lazily when predicting, so that a
+     * model that is no longer trained can be used for prediction by several
+     * threads at once.
+     */
+    void prepareForConcurrentReads();
+}
@@ -56,10 +56,13 @@ public class NaiveBayes extends AbstractClassifier {
 
     protected AutoExpandVector<AttributeClassObserver> attributeObservers;
 
+    protected transient NaiveBayesScorer scorer;
+
     @Override
     public void resetLearningImpl() {
         this.observedClassDistribution = new DoubleVector();
         this.attributeObservers = new AutoExpandVector<AttributeClassObserver>();
+        this.scorer = null;
     }
 
     @Override
@@ -79,8 +82,11 @@ public class NaiveBayes extends AbstractClassifier {
 
     @Override
     public double[] getVotesForInstance(Instance inst) {
-        return doNaiveBayesPrediction(inst, this.observedClassDistribution,
-                this.attributeObservers);
+        if (this.scorer == null) {
+            this.scorer = new NaiveBayesScorer();
+        }
+        return this.scorer.getVotesForInstance(inst,
+                this.observedClassDistribution, this.attributeObservers);
     }
 
     @Override
@@ -119,6 +125,11 @@ public class NaiveBayes extends AbstractClassifier {
         return false;
     }
 
+    @Override
+    public boolean retainsInstances() {
+        return false;
+    }
+
     protected AttributeClassObserver newNominalClassObserver() {
         return new NominalAttributeClassObserver();
     }
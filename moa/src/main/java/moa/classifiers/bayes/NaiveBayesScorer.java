@@ -0,0 +1,344 @@
+/*
+ *    NaiveBayesScorer.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.bayes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
+import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
+import moa.core.DoubleVector;
+import moa.core.GaussianEstimator;
+import moa.core.SizeOf;
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Class for computing the naive Bayes votes of a class distribution and its
+ * attribute observers from cached likelihood tables.
+ *
+ * <p>For every class, the probabilities of the values of the nominal
+ * attributes, and the mean and coefficients of the logarithm of the density
+ * of the numeric attributes, are kept in one array. The array of a class is
+ * only computed again when the weight observed for the class has changed,
+ * as the observers of a learner are updated together with its class
+ * distribution, or when the distribution of a nominal observer has grown,
+ * which instances of zero weight do without changing any weight. The densities are summed in log space, without calls to
+ * exp, while the probabilities are multiplied, and scaled back into range
+ * whenever the product gets small, so that the array of a class that has
+ * just been trained on is cheap to compute again.</p>
+ *
+ * <p>The votes are those of {@link NaiveBayes#doNaiveBayesPrediction},
+ * except for rounding, unless all of them underflow: then they are scaled
+ * to make the largest one 1. Observers other than
+ * {@link NominalAttributeClassObserver} and
+ * {@link GaussianNumericAttributeClassObserver} are asked for the
+ * probability of every value scored. A scorer is not thread safe, unless
+ * it has been brought up to date with statistics that no longer change.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class NaiveBayesScorer implements Serializable, ByteSizeEstimable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final byte SKIP = 0;
+
+    protected static final byte NOMINAL = 1;
+
+    protected static final byte GAUSSIAN = 2;
+
+    protected static final byte OTHER = 3;
+
+    /** Product of probabilities under which it is scaled back. */
+    protected static final double MIN_PRODUCT = 1e-100;
+
+    protected static final double PRODUCT_SCALE = 1e100;
+
+    protected static final double LOG_PRODUCT_SCALE = Math.log(PRODUCT_SCALE);
+
+    protected AutoExpandVector<AttributeClassObserver> attributeObservers;
+
+    protected AttributeClassObserver[] observers = new AttributeClassObserver[0];
+
+    protected byte[] attKinds = new byte[0];
+
+    /** Weight of every class when its table was computed. */
+    protected double[] classWeights = new double[0];
+
+    /** Table of every class, with the entries of each attribute in turn. */
+    protected double[][] classTables = new double[0][];
+
+    /** Offset of the entries of every attribute in the table of a class. */
+    protected int[][] classOffsets = new int[0][];
+
+    /** Number of growths of every nominal observer when the tables were computed. */
+    protected int[] observerGrowths = new int[0];
+
+    /**
+     * Computes the naive Bayes votes for an instance, updating the tables
+     * of the classes whose weight or observers have changed.
+     *
+     * @param inst the instance
+     * @param observedClassDistribution the class distribution observed
+     * @param attributeObservers the observers of the attributes
+     * @return the votes for every class
+     */
+    public double[] getVotesForInstance(Instance inst,
+            DoubleVector observedClassDistribution,
+            AutoExpandVector<AttributeClassObserver> attributeObservers) {
+        update(observedClassDistribution, attributeObservers);
+        int numAtts = Math.min(this.attKinds.length, inst.numAttributes() - 1);
+        double[] values = new double[numAtts];
+        for (int i = 0; i < numAtts; i++) {
+            int instAttIndex = inst.classIndex() > i ? i : i + 1;
+            values[i] = inst.isMissing(instAttIndex) ? Double.NaN
+                    : inst.value(instAttIndex);
+        }
+        double[] votes = new double[this.classWeights.length];
+        double[] logFactors = new double[votes.length];
+        double observedClassSum = observedClassDistribution.sumOfValues();
+        double maxVote = 0.0;
+        for (int classIndex = 0; classIndex < votes.length; classIndex++) {
+            // the vote is the product times the exp of the log factor
+            double product = this.classWeights[classIndex] / observedClassSum;
+            double logFactor = 0.0;
+            double[] table = this.classTables[classIndex];
+            int[] offsets = this.classOffsets[classIndex];
+            for (int i = 0; i < numAtts; i++) {
+                double value = values[i];
+                if (this.attKinds[i] == SKIP || Double.isNaN(value)) {
+                    continue;
+                }
+                int offset = offsets[i];
+                switch (this.attKinds[i]) {
+                    case NOMINAL:
+                        // the entry of values not observed comes first
+                        int valueIndex = (int) value + 1;
+                        product *= valueIndex < offsets[i + 1] - offset
+                                ? table[offset + valueIndex] : table[offset];
+                        break;
+                    case GAUSSIAN:
+                        double coefficient = table[offset + 1];
+                        if (Double.isNaN(coefficient)) {
+                            // no deviation, or no observations at all
+                            if (value != table[offset]) {
+                                product = 0.0;
+                            }
+                        } else {
+                            double diff = value - table[offset];
+                            logFactor += table[offset + 2]
+                                    - diff * diff * coefficient;
+                        }
+                        break;
+                    default:
+                        product *= this.observers[i].probabilityOfAttributeValueGivenClass(
+                                value, classIndex);
+                }
+                if (product < MIN_PRODUCT && product > 0.0) {
+                    product *= PRODUCT_SCALE;
+                    logFactor -= LOG_PRODUCT_SCALE;
+                }
+            }
+            votes[classIndex] = product;
+            logFactors[classIndex] = logFactor;
+        }
+        double[] products = votes.clone();
+        for (int classIndex = 0; classIndex < votes.length; classIndex++) {
+            votes[classIndex] = logFactors[classIndex] != 0.0
+                    ? products[classIndex] * Math.exp(logFactors[classIndex])
+                    : products[classIndex];
+            if (votes[classIndex] > maxVote) {
+                maxVote = votes[classIndex];
+            }
+        }
+        if (maxVote < Double.MIN_NORMAL) {
+            rescaleUnderflowingVotes(votes, products, logFactors);
+        }
+        return votes;
+    }
+
+    /**
+     * Scales votes that all underflow to make the largest one 1, if any of
+     * them is not 0 before rounding.
+     */
+    protected static void rescaleUnderflowingVotes(double[] votes,
+            double[] products, double[] logFactors) {
+        double maxLogVote = Double.NEGATIVE_INFINITY;
+        for (int classIndex = 0; classIndex < votes.length; classIndex++) {
+            logFactors[classIndex] += Math.log(products[classIndex]);
+            if (logFactors[classIndex] > maxLogVote) {
+                maxLogVote = logFactors[classIndex];
+            }
+        }
+        if (maxLogVote > Double.NEGATIVE_INFINITY
+                && maxLogVote < Double.POSITIVE_INFINITY) {
+            for (int classIndex = 0; classIndex < votes.length; classIndex++) {
+                votes[classIndex] = Math.exp(logFactors[classIndex] - maxLogVote);
+            }
+        }
+    }
+
+    /**
+     * Brings the tables up to date with a class distribution and its
+     * observers. Once up to date with statistics that no longer change, the
+     * scorer only reads its tables, and can be used by several threads.
+     *
+     * @param observedClassDistribution the class distribution observed
+     * @param attributeObservers the observers of the attributes
+     */
+    public void update(DoubleVector observedClassDistribution,
+            AutoExpandVector<AttributeClassObserver> attributeObservers) {
+        int numClasses = observedClassDistribution.numValues();
+        if (attributeObservers != this.attributeObservers
+                || attributeObservers.size() != this.observers.length
+                || numClasses != this.classWeights.length
+                || observersReplaced(attributeObservers)) {
+            this.attributeObservers = attributeObservers;
+            this.observers = attributeObservers.toArray(
+                    new AttributeClassObserver[attributeObservers.size()]);
+            this.attKinds = new byte[this.observers.length];
+            for (int i = 0; i < this.observers.length; i++) {
+                this.attKinds[i] = kindOf(this.observers[i]);
+            }
+            this.classWeights = new double[numClasses];
+            Arrays.fill(this.classWeights, Double.NaN);
+            this.classTables = new double[numClasses][];
+            this.classOffsets = new int[numClasses][];
+            this.observerGrowths = new int[this.observers.length];
+        }
+        if (observersGrew()) {
+            Arrays.fill(this.classWeights, Double.NaN);
+        }
+        for (int classIndex = 0; classIndex < numClasses; classIndex++) {
+            double classWeight = observedClassDistribution.getValue(classIndex);
+            if (classWeight != this.classWeights[classIndex]) {
+                computeTable(classIndex);
+                this.classWeights[classIndex] = classWeight;
+            }
+        }
+    }
+
+    protected boolean observersReplaced(
+            AutoExpandVector<AttributeClassObserver> attributeObservers) {
+        for (int i = 0; i < this.observers.length; i++) {
+            if (attributeObservers.get(i) != this.observers[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected boolean observersGrew() {
+        boolean grew = false;
+        for (int i = 0; i < this.observers.length; i++) {
+            if (this.attKinds[i] == NOMINAL) {
+                int growths = ((NominalAttributeClassObserver) this.observers[i]).getNumDistributionGrowths();
+                if (growths != this.observerGrowths[i]) {
+                    this.observerGrowths[i] = growths;
+                    grew = true;
+                }
+            }
+        }
+        return grew;
+    }
+
+    protected static byte kindOf(AttributeClassObserver obs) {
+        if (obs == null) {
+            return SKIP;
+        }
+        if (obs.getClass() == NominalAttributeClassObserver.class) {
+            return NOMINAL;
+        }
+        if (obs.getClass() == GaussianNumericAttributeClassObserver.class) {
+            return GAUSSIAN;
+        }
+        return OTHER;
+    }
+
+    protected void computeTable(int classIndex) {
+        int[] offsets = new int[this.observers.length + 1];
+        for (int i = 0; i < this.observers.length; i++) {
+            int numEntries = 0;
+            if (this.attKinds[i] == NOMINAL) {
+                DoubleVector valDist = ((NominalAttributeClassObserver) this.observers[i]).attValDistPerClass.get(classIndex);
+                numEntries = 1 + (valDist != null ? valDist.numValues() : 0);
+            } else if (this.attKinds[i] == GAUSSIAN) {
+                numEntries = 3;
+            }
+            offsets[i + 1] = offsets[i] + numEntries;
+        }
+        double[] table = new double[offsets[this.observers.length]];
+        for (int i = 0; i < this.observers.length; i++) {
+            int offset = offsets[i];
+            if (this.attKinds[i] == NOMINAL) {
+                DoubleVector valDist = ((NominalAttributeClassObserver) this.observers[i]).attValDistPerClass.get(classIndex);
+                if (valDist != null) {
+                    // as NominalAttributeClassObserver.probabilityOfAttributeValueGivenClass
+                    int numValues = valDist.numValues();
+                    double total = valDist.sumOfValues() + numValues;
+                    table[offset] = 1.0 / total;
+                    for (int v = 0; v < numValues; v++) {
+                        table[offset + 1 + v] = (valDist.getValue(v) + 1.0) / total;
+                    }
+                }
+            } else if (this.attKinds[i] == GAUSSIAN) {
+                // as GaussianEstimator.probabilityDensity: the mean, the
+                // coefficient of the squared difference and the log of
+                // the normalization factor
+                GaussianEstimator estimator = ((GaussianNumericAttributeClassObserver) this.observers[i]).getEstimator(classIndex);
+                if (estimator == null || !(estimator.getTotalWeightObserved() > 0.0)) {
+                    // no value has a density
+                    table[offset] = Double.NaN;
+                    table[offset + 1] = Double.NaN;
+                } else {
+                    double stdDev = estimator.getStdDev();
+                    table[offset] = estimator.getMean();
+                    if (stdDev > 0.0) {
+                        table[offset + 1] = 1.0 / (2.0 * stdDev * stdDev);
+                        table[offset + 2] = -Math.log(GaussianEstimator.NORMAL_CONSTANT * stdDev);
+                    } else {
+                        table[offset + 1] = Double.NaN;
+                    }
+                }
+            }
+        }
+        this.classTables[classIndex] = table;
+        this.classOffsets[classIndex] = offsets;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        // the list of observers, owned by the learner, and the six arrays
+        long size = SizeOf.estimateObjectSize(7, 0)
+                + SizeOf.estimateArraySize(this.observers.length, SizeOf.REFERENCE_BYTES)
+                + SizeOf.estimateArraySize(this.attKinds.length, 1)
+                + SizeOf.estimateArraySize(this.classWeights.length, 8)
+                + SizeOf.estimateArraySize(this.observerGrowths.length, 4)
+                + 2 * SizeOf.estimateArraySize(this.classTables.length, SizeOf.REFERENCE_BYTES);
+        for (int i = 0; i < this.classTables.length; i++) {
+            if (this.classTables[i] != null) {
+                size += SizeOf.estimateArraySize(this.classTables[i].length, 8)
+                        + SizeOf.estimateArraySize(this.classOffsets[i].length, 4);
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *    ParallelSplitEvaluator.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.ParallelUtils;
+
+/**
+ * Class for evaluating the best split of every attribute observed at a
+ * tree leaf, in parallel on the shared pools of {@link ParallelUtils}.
+ *
+ * <p>Every task evaluates a contiguous block of attributes, and the
+ * suggestions are returned in the order of the attributes, so that the
+ * split chosen from them is the one of a sequential evaluation. Each
+ * observer is only used by one task, while the split criterion and the
+ * distribution before the split are shared and must not be modified.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class ParallelSplitEvaluator {
+
+    /**
+     * Evaluates the best split of every attribute.
+     *
+     * @param observers the observers of the attributes, possibly null
+     * @param criterion the split criterion
+     * @param preSplitDist the distribution before the split
+     * @param binaryOnly whether only binary splits are allowed
+     * @param numCores the number of cores to use (1 = sequential, 0 = all
+     * available)
+     * @return the best suggestion of every attribute, null for attributes
+     * without observer or suggestion
+     */
+    public static AttributeSplitSuggestion[] getBestEvaluatedSplitSuggestions(
+            final List<? extends AttributeClassObserver> observers,
+            final SplitCriterion criterion, final double[] preSplitDist,
+            final boolean binaryOnly, int numCores) {
+        final AttributeSplitSuggestion[] suggestions = new AttributeSplitSuggestion[observers.size()];
+        int numTasks = Math.min(ParallelUtils.resolveNumThreads(numCores),
+                observers.size());
+        if (numTasks < 2 || ParallelUtils.inPoolThread()) {
+            evaluate(observers, criterion, preSplitDist, binaryOnly, 0,
+                    observers.size(), suggestions);
+            return suggestions;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(numTasks);
+        for (int t = 0; t < numTasks; t++) {
+            final int start = (int) ((long) observers.size() * t / numTasks);
+            final int end = (int) ((long) observers.size() * (t + 1) / numTasks);
+            tasks.add(new Callable<Void>() {
+
+                @Override
+                public Void call() {
+                    evaluate(observers, criterion, preSplitDist, binaryOnly,
+                            start, end, suggestions);
+                    return null;
+                }
+            });
+        }
+        ParallelUtils.invokeAll(ParallelUtils.getSharedPool(numCores), tasks);
+        return suggestions;
+    }
+
+    protected static void evaluate(List<? extends AttributeClassObserver> observers,
+            SplitCriterion criterion, double[] preSplitDist, boolean binaryOnly,
+            int start, int end, AttributeSplitSuggestion[] suggestions) {
+        for (int i = start; i < end; i++) {
+            AttributeClassObserver obs = observers.get(i);
+            if (obs != null) {
+                suggestions[i] = obs.getBestEvaluatedSplitSuggestion(criterion,
+                        preSplitDist, i, binaryOnly);
+            }
+        }
+    }
+}
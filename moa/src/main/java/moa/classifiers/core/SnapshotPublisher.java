@@ -0,0 +1,122 @@
+/*
+ *    SnapshotPublisher.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core;
+
+import java.io.Serializable;
+import moa.classifiers.Classifier;
+import moa.classifiers.SnapshotClassifier;
+
+/**
+ * Class for publishing the snapshots of a {@link SnapshotClassifier}.
+ *
+ * <p>A snapshot is a copy of the classifier, made directly without
+ * serialization where possible, and prepared for concurrent reads before it
+ * is published through a volatile reference. The snapshot is not copied
+ * along with the classifier. A classifier can also publish snapshots it
+ * copies itself, sharing with the previous snapshot the parts of the model
+ * that did not change, so that publishing does not take longer as the
+ * model grows.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class SnapshotPublisher implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected transient volatile Classifier snapshot;
+
+    protected long numInstancesSincePublication;
+
+    public Classifier getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Counts an instance the classifier has trained on, and publishes a
+     * snapshot once it has trained on a number of instances since the last
+     * one.
+     *
+     * @param classifier the classifier
+     * @param period the number of instances between snapshots, 0 for none
+     */
+    public void instanceTrained(SnapshotClassifier classifier, int period) {
+        if (period > 0 && ++this.numInstancesSincePublication >= period) {
+            classifier.publishSnapshot();
+        }
+    }
+
+    public void publish(SnapshotClassifier classifier) {
+        SnapshotClassifier copy = (SnapshotClassifier) classifier.copy();
+        copy.prepareForConcurrentReads();
+        publishPrepared(copy);
+    }
+
+    /**
+     * Publishes a snapshot copied by the classifier, and already prepared
+     * for concurrent reads.
+     *
+     * @param snapshot the snapshot
+     */
+    public void publishPrepared(Classifier snapshot) {
+        this.numInstancesSincePublication = 0;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Gets snapshots of the models of an ensemble, published by the models
+     * that are snapshot classifiers, which may not copy their whole model,
+     * and copied for the others, which are assumed to compute no state when
+     * predicting.
+     *
+     * @param models the models
+     * @return the snapshots
+     */
+    public static Classifier[] snapshotsOf(Classifier[] models) {
+        Classifier[] snapshots = new Classifier[models.length];
+        for (int i = 0; i < models.length; i++) {
+            if (models[i] instanceof SnapshotClassifier) {
+                ((SnapshotClassifier) models[i]).publishSnapshot();
+                snapshots[i] = ((SnapshotClassifier) models[i]).getSnapshot();
+            } else {
+                snapshots[i] = models[i].copy();
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Prepares the models of an ensemble snapshot for concurrent reads. The
+     * models that are not snapshot classifiers are assumed to compute no
+     * state when predicting.
+     *
+     * @param models the models
+     */
+    public static void prepareForConcurrentReads(Classifier[] models) {
+        for (Classifier model : models) {
+            if (model instanceof SnapshotClassifier) {
+                ((SnapshotClassifier) model).prepareForConcurrentReads();
+            }
+        }
+    }
+
+    public void clear() {
+        this.snapshot = null;
+        this.numInstancesSincePublication = 0;
+    }
+}
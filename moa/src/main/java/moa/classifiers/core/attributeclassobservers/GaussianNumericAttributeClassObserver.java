@@ -23,6 +23,7 @@ import moa.core.ObjectRepository;
 import moa.tasks.TaskMonitor;
 import moa.core.Utils;
 
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import moa.classifiers.core.AttributeSplitSuggestion;
@@ -30,8 +31,12 @@ import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 
 import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
+import moa.core.DirectCopyable;
 import moa.core.DoubleVector;
 import moa.core.GaussianEstimator;
+import moa.core.SerializeUtils;
+import moa.core.SizeOf;
 import moa.options.AbstractOptionHandler;
 import com.github.javacliparser.IntOption;
 
@@ -44,7 +49,8 @@ import com.github.javacliparser.IntOption;
  * @version $Revision: 7 $
  */
 public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
-        implements NumericAttributeClassObserver {
+        implements NumericAttributeClassObserver, DirectCopyable,
+        ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -86,6 +92,16 @@ public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
         return obs != null ? obs.probabilityDensity(attVal) : 0.0;
     }
 
+    /**
+     * Gets the estimator of the values observed with a class.
+     *
+     * @param classVal the class
+     * @return the estimator, or null if the class has not been observed
+     */
+    public GaussianEstimator getEstimator(int classVal) {
+        return this.attValDistPerClass.get(classVal);
+    }
+
     @Override
     public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
             SplitCriterion criterion, double[] preSplitDist, int attIndex,
@@ -164,6 +180,30 @@ public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
         // TODO Auto-generated method stub
     }
 
+    @Override
+    public Object copyDirectly(Map<Object, Object> copies) {
+        if (getClass() != GaussianNumericAttributeClassObserver.class) {
+            return null;
+        }
+        GaussianNumericAttributeClassObserver copy = new GaussianNumericAttributeClassObserver();
+        copy.minValueObservedPerClass = SerializeUtils.copyDirectly(this.minValueObservedPerClass, copies);
+        copy.maxValueObservedPerClass = SerializeUtils.copyDirectly(this.maxValueObservedPerClass, copies);
+        copy.attValDistPerClass = SerializeUtils.copyDirectly(this.attValDistPerClass, copies);
+        copy.numBinsOption.setValue(this.numBinsOption.getValue());
+        return copy.minValueObservedPerClass != null && copy.maxValueObservedPerClass != null
+                && copy.attValDistPerClass != null ? copy : null;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        // the options handler, the statistics and the option, whose name
+        // and purpose are shared, with a char and four int values
+        return SizeOf.estimateObjectSize(5, 0) + SizeOf.estimateObjectSize(2, 18)
+                + this.minValueObservedPerClass.estimateByteSize()
+                + this.maxValueObservedPerClass.estimateByteSize()
+                + this.attValDistPerClass.estimateByteSize();
+    }
+
     @Override
     protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
         // TODO Auto-generated method stub
@@ -0,0 +1,253 @@
+/*
+ *    HistogramNumericAttributeClassObserver.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.util.Arrays;
+import java.util.Map;
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.ByteSizeEstimable;
+import moa.core.DirectCopyable;
+import moa.core.ObjectRepository;
+import moa.core.SizeOf;
+import moa.core.Utils;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+import com.github.javacliparser.IntOption;
+
+/**
+ * Class for observing the class data distribution for a numeric attribute
+ * using a histogram with a bounded number of bins.
+ *
+ * <p>Every distinct value observed gets a bin, holding the weight of every
+ * class, until the maximum number of bins is reached. From then on, the two
+ * adjacent bins closest to each other are merged into one, whose value is
+ * their weighted mean. The bins are kept sorted in parallel arrays, and the
+ * class weights of all bins in a single array. While no bins have been
+ * merged, the splits evaluated are exactly those of
+ * {@link BinaryTreeNumericAttributeClassObserver}.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class HistogramNumericAttributeClassObserver extends AbstractOptionHandler
+        implements NumericAttributeClassObserver, DirectCopyable,
+        ByteSizeEstimable {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numBinsOption = new IntOption("numBins", 'n',
+            "The maximum number of bins.", 100, 2, Integer.MAX_VALUE);
+
+    protected int numBins;
+
+    protected int numClasses;
+
+    /** Values of the bins, in increasing order. */
+    protected double[] binValues = new double[0];
+
+    /** Total weight of every bin. */
+    protected double[] binWeights = new double[0];
+
+    /** Weight of every class in every bin, numClasses values per bin. */
+    protected double[] binClassWeights = new double[0];
+
+    /** Weight of every class in all bins. */
+    protected double[] classWeights = new double[0];
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+            return;
+        }
+        if (classVal >= this.numClasses) {
+            growClasses(classVal + 1);
+        }
+        int bin = Arrays.binarySearch(this.binValues, 0, this.numBins, attVal);
+        if (bin < 0) {
+            bin = -bin - 1;
+            insertBin(bin, attVal);
+        }
+        this.binWeights[bin] += weight;
+        this.binClassWeights[bin * this.numClasses + classVal] += weight;
+        this.classWeights[classVal] += weight;
+        if (this.numBins > this.numBinsOption.getValue()) {
+            mergeClosestBins();
+        }
+    }
+
+    protected void growClasses(int numClasses) {
+        double[] grown = new double[this.binValues.length * numClasses];
+        for (int i = 0; i < this.numBins; i++) {
+            System.arraycopy(this.binClassWeights, i * this.numClasses, grown,
+                    i * numClasses, this.numClasses);
+        }
+        this.binClassWeights = grown;
+        this.classWeights = Arrays.copyOf(this.classWeights, numClasses);
+        this.numClasses = numClasses;
+    }
+
+    protected void insertBin(int bin, double value) {
+        if (this.numBins == this.binValues.length) {
+            // the bins grow up to one over the maximum, before a merge
+            int capacity = Math.min(Math.max(2 * this.numBins, 4),
+                    this.numBinsOption.getValue() + 1);
+            this.binValues = Arrays.copyOf(this.binValues, capacity);
+            this.binWeights = Arrays.copyOf(this.binWeights, capacity);
+            this.binClassWeights = Arrays.copyOf(this.binClassWeights,
+                    capacity * this.numClasses);
+        }
+        int numMoved = this.numBins - bin;
+        System.arraycopy(this.binValues, bin, this.binValues, bin + 1, numMoved);
+        System.arraycopy(this.binWeights, bin, this.binWeights, bin + 1, numMoved);
+        System.arraycopy(this.binClassWeights, bin * this.numClasses,
+                this.binClassWeights, (bin + 1) * this.numClasses,
+                numMoved * this.numClasses);
+        this.binValues[bin] = value;
+        this.binWeights[bin] = 0.0;
+        Arrays.fill(this.binClassWeights, bin * this.numClasses,
+                (bin + 1) * this.numClasses, 0.0);
+        this.numBins++;
+    }
+
+    protected void mergeClosestBins() {
+        int closest = 0;
+        double closestGap = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < this.numBins - 1; i++) {
+            double gap = this.binValues[i + 1] - this.binValues[i];
+            if (gap < closestGap) {
+                closestGap = gap;
+                closest = i;
+            }
+        }
+        int next = closest + 1;
+        double weight = this.binWeights[closest] + this.binWeights[next];
+        if (weight > 0.0) {
+            this.binValues[closest] = (this.binValues[closest] * this.binWeights[closest]
+                    + this.binValues[next] * this.binWeights[next]) / weight;
+        }
+        this.binWeights[closest] = weight;
+        for (int c = 0; c < this.numClasses; c++) {
+            this.binClassWeights[closest * this.numClasses + c] += this.binClassWeights[next * this.numClasses + c];
+        }
+        int numMoved = this.numBins - next - 1;
+        System.arraycopy(this.binValues, next + 1, this.binValues, next, numMoved);
+        System.arraycopy(this.binWeights, next + 1, this.binWeights, next, numMoved);
+        System.arraycopy(this.binClassWeights, (next + 1) * this.numClasses,
+                this.binClassWeights, next * this.numClasses,
+                numMoved * this.numClasses);
+        this.numBins--;
+    }
+
+    public int getNumBins() {
+        return this.numBins;
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        if (this.numBins == 0 || classVal >= this.numClasses
+                || this.classWeights[classVal] <= 0.0) {
+            return 0.0;
+        }
+        // the fraction of the weight of the class in the closest bin
+        int bin = Arrays.binarySearch(this.binValues, 0, this.numBins, attVal);
+        if (bin < 0) {
+            bin = -bin - 1;
+            if (bin == this.numBins || (bin > 0
+                    && attVal - this.binValues[bin - 1] < this.binValues[bin] - attVal)) {
+                bin--;
+            }
+        }
+        return this.binClassWeights[bin * this.numClasses + classVal]
+                / this.classWeights[classVal];
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        AttributeSplitSuggestion bestSuggestion = null;
+        double[] leftDist = new double[this.numClasses];
+        double[] rightDist = this.classWeights.clone();
+        double[][] postSplitDists = new double[][]{leftDist, rightDist};
+        for (int i = 0; i < this.numBins; i++) {
+            // values equal to the value of the bin go to the left
+            for (int c = 0; c < this.numClasses; c++) {
+                double weight = this.binClassWeights[i * this.numClasses + c];
+                leftDist[c] += weight;
+                rightDist[c] -= weight;
+            }
+            double merit = criterion.getMeritOfSplit(preSplitDist,
+                    postSplitDists);
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex,
+                        this.binValues[i], true), new double[][]{
+                            leftDist.clone(), rightDist.clone()}, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        sb.append("Histogram of ").append(this.numBins).append(" bins, at most ")
+                .append(this.numBinsOption.getValue()).append(", over ")
+                .append(this.numClasses).append(" classes");
+    }
+
+    @Override
+    public Object copyDirectly(Map<Object, Object> copies) {
+        if (getClass() != HistogramNumericAttributeClassObserver.class) {
+            return null;
+        }
+        HistogramNumericAttributeClassObserver copy = new HistogramNumericAttributeClassObserver();
+        copy.numBinsOption.setValue(this.numBinsOption.getValue());
+        copy.numBins = this.numBins;
+        copy.numClasses = this.numClasses;
+        copy.binValues = this.binValues.clone();
+        copy.binWeights = this.binWeights.clone();
+        copy.binClassWeights = this.binClassWeights.clone();
+        copy.classWeights = this.classWeights.clone();
+        return copy;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        // the options handler, the four arrays and the option, whose name
+        // and purpose are shared, with a char and four int values
+        return SizeOf.estimateObjectSize(6, 8) + SizeOf.estimateObjectSize(2, 18)
+                + SizeOf.estimateArraySize(this.binValues.length, 8)
+                + SizeOf.estimateArraySize(this.binWeights.length, 8)
+                + SizeOf.estimateArraySize(this.binClassWeights.length, 8)
+                + SizeOf.estimateArraySize(this.classWeights.length, 8);
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+        // the number of bins is read when it is used
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException(
+                "Observes the classes of a classification, not regression targets.");
+    }
+}
@@ -19,6 +19,8 @@
  */
 package moa.classifiers.core.attributeclassobservers;
 
+import java.util.Map;
+
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
 import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
@@ -28,7 +30,11 @@ import moa.tasks.TaskMonitor;
 import moa.core.Utils;
 
 import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
+import moa.core.DirectCopyable;
 import moa.core.DoubleVector;
+import moa.core.SerializeUtils;
+import moa.core.SizeOf;
 import moa.options.AbstractOptionHandler;
 
 /**
@@ -40,7 +46,7 @@ import moa.options.AbstractOptionHandler;
  * @version $Revision: 7 $
  */
 public class NominalAttributeClassObserver extends AbstractOptionHandler implements
-        DiscreteAttributeClassObserver {
+        DiscreteAttributeClassObserver, DirectCopyable, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -50,6 +56,12 @@ public class NominalAttributeClassObserver extends AbstractOptionHandler impleme
 
     public AutoExpandVector<DoubleVector> attValDistPerClass = new AutoExpandVector<DoubleVector>();
 
+    /**
+     * Number of times the distribution of a class was created or grew,
+     * which instances of zero weight do without changing any weight.
+     */
+    protected int numDistributionGrowths = 0;
+
     @Override
     public void observeAttributeClass(double attVal, int classVal, double weight) {
         if (Utils.isMissingValue(attVal)) {
@@ -60,6 +72,10 @@ public class NominalAttributeClassObserver extends AbstractOptionHandler impleme
             if (valDist == null) {
                 valDist = new DoubleVector();
                 this.attValDistPerClass.set(classVal, valDist);
+                this.numDistributionGrowths++;
+            }
+            if (attValInt >= valDist.numValues()) {
+                this.numDistributionGrowths++;
             }
             valDist.addToValue(attValInt, weight);
         }
@@ -74,6 +90,17 @@ public class NominalAttributeClassObserver extends AbstractOptionHandler impleme
                 / (obs.sumOfValues() + obs.numValues()) : 0.0;
     }
 
+    /**
+     * Gets the number of times the distribution of a class was created or
+     * grew, so that tables computed from the distributions can tell when
+     * they are out of date.
+     *
+     * @return the number of growths of the distributions
+     */
+    public int getNumDistributionGrowths() {
+        return this.numDistributionGrowths;
+    }
+
     public double totalWeightOfClassObservations() {
         return this.totalWeightObserved;
     }
@@ -165,6 +192,26 @@ public class NominalAttributeClassObserver extends AbstractOptionHandler impleme
         // TODO Auto-generated method stub
     }
 
+    @Override
+    public Object copyDirectly(Map<Object, Object> copies) {
+        if (getClass() != NominalAttributeClassObserver.class) {
+            return null;
+        }
+        NominalAttributeClassObserver copy = new NominalAttributeClassObserver();
+        copy.totalWeightObserved = this.totalWeightObserved;
+        copy.missingWeightObserved = this.missingWeightObserved;
+        copy.numDistributionGrowths = this.numDistributionGrowths;
+        copy.attValDistPerClass = SerializeUtils.copyDirectly(this.attValDistPerClass, copies);
+        return copy.attValDistPerClass != null ? copy : null;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        // the options handler and the distributions, with the double total
+        // and missing weights and the int number of growths
+        return SizeOf.estimateObjectSize(2, 2 * 8 + 4) + this.attValDistPerClass.estimateByteSize();
+    }
+
     @Override
     protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
         // TODO Auto-generated method stub
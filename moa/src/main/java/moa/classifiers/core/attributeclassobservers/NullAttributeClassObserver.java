@@ -19,9 +19,14 @@
  */
 package moa.classifiers.core.attributeclassobservers;
 
+import java.util.Map;
+
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.ByteSizeEstimable;
+import moa.core.DirectCopyable;
 import moa.core.ObjectRepository;
+import moa.core.SizeOf;
 import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
 
@@ -34,7 +39,7 @@ import moa.tasks.TaskMonitor;
  * @version $Revision: 7 $
  */
 public class NullAttributeClassObserver extends AbstractOptionHandler implements
-        AttributeClassObserver {
+        AttributeClassObserver, DirectCopyable, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -68,6 +73,17 @@ public class NullAttributeClassObserver extends AbstractOptionHandler implements
         return null;
     }
 
+    @Override
+    public Object copyDirectly(Map<Object, Object> copies) {
+        return getClass() == NullAttributeClassObserver.class ? new NullAttributeClassObserver() : null;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        // the options handler
+        return SizeOf.estimateObjectSize(1, 0);
+    }
+
     @Override
     protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
         // TODO Auto-generated method stub
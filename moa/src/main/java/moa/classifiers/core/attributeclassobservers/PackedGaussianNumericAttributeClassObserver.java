@@ -0,0 +1,285 @@
+/*
+ *    PackedGaussianNumericAttributeClassObserver.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.util.Arrays;
+import java.util.Map;
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.ByteSizeEstimable;
+import moa.core.DirectCopyable;
+import moa.core.GaussianEstimator;
+import moa.core.ObjectRepository;
+import moa.core.SizeOf;
+import moa.core.Statistics;
+import moa.core.Utils;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+import com.github.javacliparser.IntOption;
+
+/**
+ * Class for observing the class data distribution for a numeric attribute
+ * using gaussian estimators, packed in a single array.
+ *
+ * <p>Holds the same statistics and suggests the same splits as
+ * {@link GaussianNumericAttributeClassObserver}, but keeps the weight, mean,
+ * variance sum, minimum and maximum value of every class next to each other
+ * in one array of doubles, instead of in a vector of estimators and two
+ * vectors of bounds.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class PackedGaussianNumericAttributeClassObserver extends AbstractOptionHandler
+        implements NumericAttributeClassObserver, DirectCopyable,
+        ByteSizeEstimable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int WEIGHT = 0;
+
+    protected static final int MEAN = 1;
+
+    protected static final int VARIANCE_SUM = 2;
+
+    protected static final int MIN = 3;
+
+    protected static final int MAX = 4;
+
+    protected static final int STATS_PER_CLASS = 5;
+
+    /**
+     * Statistics of every class, STATS_PER_CLASS values after each other.
+     * The minimum of a class not observed yet is NaN.
+     */
+    protected double[] classStats = new double[0];
+
+    public IntOption numBinsOption = new IntOption("numBins", 'n',
+            "The number of bins.", 10, 1, Integer.MAX_VALUE);
+
+    protected int numClasses() {
+        return this.classStats.length / STATS_PER_CLASS;
+    }
+
+    protected boolean isObserved(int classVal) {
+        return !Double.isNaN(this.classStats[classVal * STATS_PER_CLASS + MIN]);
+    }
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+            return;
+        }
+        if (classVal >= numClasses()) {
+            int oldLength = this.classStats.length;
+            this.classStats = Arrays.copyOf(this.classStats, (classVal + 1) * STATS_PER_CLASS);
+            for (int i = oldLength + MIN; i < this.classStats.length; i += STATS_PER_CLASS) {
+                this.classStats[i] = Double.NaN;
+            }
+        }
+        double[] stats = this.classStats;
+        int offset = classVal * STATS_PER_CLASS;
+        if (Double.isNaN(stats[offset + MIN])) {
+            stats[offset + MIN] = attVal;
+            stats[offset + MAX] = attVal;
+        } else {
+            if (attVal < stats[offset + MIN]) {
+                stats[offset + MIN] = attVal;
+            }
+            if (attVal > stats[offset + MAX]) {
+                stats[offset + MAX] = attVal;
+            }
+        }
+        // as GaussianEstimator.addObservation
+        if (Double.isInfinite(attVal)) {
+            return;
+        }
+        double weightSum = stats[offset + WEIGHT];
+        if (weightSum > 0.0) {
+            weightSum += weight;
+            stats[offset + WEIGHT] = weightSum;
+            double lastMean = stats[offset + MEAN];
+            double mean = lastMean + weight * (attVal - lastMean) / weightSum;
+            stats[offset + MEAN] = mean;
+            stats[offset + VARIANCE_SUM] += weight * (attVal - lastMean) * (attVal - mean);
+        } else {
+            stats[offset + MEAN] = attVal;
+            stats[offset + WEIGHT] = weight;
+        }
+    }
+
+    protected double getStdDev(int offset) {
+        double weightSum = this.classStats[offset + WEIGHT];
+        return Math.sqrt(weightSum > 1.0
+                ? this.classStats[offset + VARIANCE_SUM] / (weightSum - 1.0) : 0.0);
+    }
+
+    protected double probabilityDensity(int offset, double value) {
+        if (this.classStats[offset + WEIGHT] > 0.0) {
+            double stdDev = getStdDev(offset);
+            double mean = this.classStats[offset + MEAN];
+            if (stdDev > 0.0) {
+                double diff = value - mean;
+                return (1.0 / (GaussianEstimator.NORMAL_CONSTANT * stdDev))
+                        * Math.exp(-(diff * diff / (2.0 * stdDev * stdDev)));
+            }
+            return value == mean ? 1.0 : 0.0;
+        }
+        return 0.0;
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        return classVal < numClasses() && isObserved(classVal)
+                ? probabilityDensity(classVal * STATS_PER_CLASS, attVal) : 0.0;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        AttributeSplitSuggestion bestSuggestion = null;
+        double[] suggestedSplitValues = getSplitPointSuggestions();
+        for (double splitValue : suggestedSplitValues) {
+            double[][] postSplitDists = getClassDistsResultingFromBinarySplit(splitValue);
+            double merit = criterion.getMeritOfSplit(preSplitDist,
+                    postSplitDists);
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex, splitValue,
+                        true), postSplitDists, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    public double[] getSplitPointSuggestions() {
+        double minValue = Double.POSITIVE_INFINITY;
+        double maxValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numClasses(); i++) {
+            if (isObserved(i)) {
+                int offset = i * STATS_PER_CLASS;
+                if (this.classStats[offset + MIN] < minValue) {
+                    minValue = this.classStats[offset + MIN];
+                }
+                if (this.classStats[offset + MAX] > maxValue) {
+                    maxValue = this.classStats[offset + MAX];
+                }
+            }
+        }
+        if (!(minValue < Double.POSITIVE_INFINITY)) {
+            return new double[0];
+        }
+        int numBins = this.numBinsOption.getValue();
+        double[] suggestions = new double[numBins];
+        int numSuggestions = 0;
+        double range = maxValue - minValue;
+        for (int i = 0; i < numBins; i++) {
+            double splitValue = range / (numBins + 1.0) * (i + 1) + minValue;
+            // the values only increase, so duplicates follow each other
+            if ((splitValue > minValue) && (splitValue < maxValue)
+                    && (numSuggestions == 0
+                    || Double.compare(suggestions[numSuggestions - 1], splitValue) != 0)) {
+                suggestions[numSuggestions++] = splitValue;
+            }
+        }
+        return numSuggestions < numBins ? Arrays.copyOf(suggestions, numSuggestions)
+                : suggestions;
+    }
+
+    // assume all values equal to splitValue go to lhs
+    public double[][] getClassDistsResultingFromBinarySplit(double splitValue) {
+        int numClasses = numClasses();
+        double[] lhsDist = new double[numClasses];
+        double[] rhsDist = new double[numClasses];
+        int lhsLength = 0;
+        int rhsLength = 0;
+        for (int i = 0; i < numClasses; i++) {
+            if (isObserved(i)) {
+                int offset = i * STATS_PER_CLASS;
+                double weightSum = this.classStats[offset + WEIGHT];
+                if (splitValue < this.classStats[offset + MIN]) {
+                    rhsDist[i] += weightSum;
+                    rhsLength = i + 1;
+                } else if (splitValue >= this.classStats[offset + MAX]) {
+                    lhsDist[i] += weightSum;
+                    lhsLength = i + 1;
+                } else {
+                    // as GaussianEstimator.estimatedWeight_LessThan_EqualTo_GreaterThan_Value
+                    double mean = this.classStats[offset + MEAN];
+                    double equalToWeight = probabilityDensity(offset, splitValue) * weightSum;
+                    double stdDev = getStdDev(offset);
+                    double lessThanWeight = stdDev > 0.0
+                            ? Statistics.normalProbability((splitValue - mean) / stdDev)
+                            * weightSum - equalToWeight
+                            : (splitValue < mean ? weightSum - equalToWeight : 0.0);
+                    double greaterThanWeight = weightSum - equalToWeight
+                            - lessThanWeight;
+                    if (greaterThanWeight < 0.0) {
+                        greaterThanWeight = 0.0;
+                    }
+                    lhsDist[i] += lessThanWeight + equalToWeight;
+                    rhsDist[i] += greaterThanWeight;
+                    lhsLength = i + 1;
+                    rhsLength = i + 1;
+                }
+            }
+        }
+        return new double[][]{Arrays.copyOf(lhsDist, lhsLength),
+            Arrays.copyOf(rhsDist, rhsLength)};
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        sb.append("Gaussian estimators of ").append(numClasses())
+                .append(" classes, suggesting ").append(this.numBinsOption.getValue())
+                .append(" split points");
+    }
+
+    @Override
+    public Object copyDirectly(Map<Object, Object> copies) {
+        if (getClass() != PackedGaussianNumericAttributeClassObserver.class) {
+            return null;
+        }
+        PackedGaussianNumericAttributeClassObserver copy = new PackedGaussianNumericAttributeClassObserver();
+        copy.classStats = this.classStats.clone();
+        copy.numBinsOption.setValue(this.numBinsOption.getValue());
+        return copy;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        // the options handler, the statistics and the option, whose name
+        // and purpose are shared, with a char and four int values
+        return SizeOf.estimateObjectSize(3, 0) + SizeOf.estimateObjectSize(2, 18)
+                + SizeOf.estimateArraySize(this.classStats.length, 8);
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+        // the number of bins is read when it is used
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException(
+                "Observes the classes of a classification, not regression targets.");
+    }
+}
@@ -21,6 +21,8 @@ package moa.classifiers.core.conditionaltests;
 
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.core.ByteSizeEstimable;
+import moa.core.SizeOf;
 
 /**
  * Nominal binary conditional test for instances to use to split nodes in Hoeffding trees.
@@ -28,7 +30,8 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class NominalAttributeBinaryTest extends InstanceConditionalBinaryTest {
+public class NominalAttributeBinaryTest extends InstanceConditionalBinaryTest
+        implements ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -65,8 +68,18 @@ public class NominalAttributeBinaryTest extends InstanceConditionalBinaryTest {
         // TODO Auto-generated method stub
     }
 
+    @Override
+    public long estimateByteSize() {
+        // the int attribute index and value
+        return SizeOf.estimateObjectSize(0, 2 * 4);
+    }
+
     @Override
     public int[] getAttsTestDependsOn() {
         return new int[]{this.attIndex};
     }
+
+    public int getSplitValue() {
+        return this.attValue;
+    }
 }
@@ -21,6 +21,8 @@ package moa.classifiers.core.conditionaltests;
 
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.core.ByteSizeEstimable;
+import moa.core.SizeOf;
 
 /**
  * Nominal multi way conditional test for instances to use to split nodes in Hoeffding trees.
@@ -28,7 +30,8 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class NominalAttributeMultiwayTest extends InstanceConditionalTest {
+public class NominalAttributeMultiwayTest extends InstanceConditionalTest
+        implements ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -63,6 +66,12 @@ public class NominalAttributeMultiwayTest extends InstanceConditionalTest {
         // TODO Auto-generated method stub
     }
 
+    @Override
+    public long estimateByteSize() {
+        // the int attribute index
+        return SizeOf.estimateObjectSize(0, 4);
+    }
+
     @Override
     public int[] getAttsTestDependsOn() {
         return new int[]{this.attIndex};
@@ -21,6 +21,8 @@ package moa.classifiers.core.conditionaltests;
 
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.core.ByteSizeEstimable;
+import moa.core.SizeOf;
 
 /**
  * Numeric binary conditional test for instances to use to split nodes in Hoeffding trees.
@@ -28,7 +30,8 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class NumericAttributeBinaryTest extends InstanceConditionalBinaryTest {
+public class NumericAttributeBinaryTest extends InstanceConditionalBinaryTest
+        implements ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -80,6 +83,12 @@ public class NumericAttributeBinaryTest extends InstanceConditionalBinaryTest {
         // TODO Auto-generated method stub
     }
 
+    @Override
+    public long estimateByteSize() {
+        // the int attribute index, the double value and the boolean flag
+        return SizeOf.estimateObjectSize(0, 4 + 8 + 1);
+    }
+
     @Override
     public int[] getAttsTestDependsOn() {
         return new int[]{this.attIndex};
@@ -88,4 +97,8 @@ public class NumericAttributeBinaryTest extends InstanceConditionalBinaryTest {
     public double getSplitValue() {
         return this.attValue;
     }
+
+    public boolean isEqualsPassesTest() {
+        return this.equalsPassesTest;
+    }
 }
@@ -19,7 +19,10 @@
  */
 package moa.classifiers.core.driftdetection;
 
+import java.util.Map;
+
 import moa.AbstractMOAObject;
+import moa.core.DirectCopyable;
 
 /**
  * ADaptive sliding WINdow method. This method is a change detector and estimator.
@@ -32,7 +35,7 @@ import moa.AbstractMOAObject;
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
  */
-public class ADWIN extends AbstractMOAObject {
+public class ADWIN extends AbstractMOAObject implements DirectCopyable, Cloneable {
 
     private class List extends AbstractMOAObject {
 
@@ -283,40 +286,40 @@ public class ADWIN extends AbstractMOAObject {
 
     public static final double DELTA = .002; //.1;
 
-    private static final int mintMinimLongitudWindow = 10; //10
+    protected static final int mintMinimLongitudWindow = 10; //10
 
-    private double mdbldelta = .002; //.1;
+    protected double mdbldelta = .002; //.1;
 
-    private int mintTime = 0;
+    protected int mintTime = 0;
 
-    private int mintClock = 32;
+    protected int mintClock = 32;
 
-    private double mdblWidth = 0; // Mean of Width = mdblWidth/Number of items
+    protected double mdblWidth = 0; // Mean of Width = mdblWidth/Number of items
     //BUCKET
 
     public static final int MAXBUCKETS = 5;
 
-    private int lastBucketRow = 0;
+    protected int lastBucketRow = 0;
 
-    private double TOTAL = 0;
+    protected double TOTAL = 0;
 
-    private double VARIANCE = 0;
+    protected double VARIANCE = 0;
 
-    private int WIDTH = 0;
+    protected int WIDTH = 0;
 
-    private int BucketNumber = 0;
+    protected int BucketNumber = 0;
 
-    private int Detect = 0;
+    protected int Detect = 0;
 
-    private int numberDetections = 0;
+    protected int numberDetections = 0;
 
-    private int DetectTwice = 0;
+    protected int DetectTwice = 0;
 
-    private boolean blnBucketDeleted = false;
+    protected boolean blnBucketDeleted = false;
 
-    private int BucketNumberMAX = 0;
+    protected int BucketNumberMAX = 0;
 
-    private int mintMinWinLength = 5;
+    protected int mintMinWinLength = 5;
 
     private List listRowBuckets;
 
@@ -372,7 +375,7 @@ public class ADWIN extends AbstractMOAObject {
         return mdblWidth;
     }
 
-    private void initBuckets() {
+    protected void initBuckets() {
         //Init buckets
         listRowBuckets = new List();
         lastBucketRow = 0;
@@ -382,7 +385,7 @@ public class ADWIN extends AbstractMOAObject {
         BucketNumber = 0;
     }
 
-    private void insertElement(double Value) {
+    protected void insertElement(double Value) {
         WIDTH++;
         insertElementBucket(0, Value, listRowBuckets.head());
         double incVariance = 0;
@@ -403,7 +406,7 @@ public class ADWIN extends AbstractMOAObject {
         }
     }
 
-    private int bucketSize(int Row) {
+    protected int bucketSize(int Row) {
         return (int) Math.pow(2, Row);
     }
 
@@ -558,7 +561,7 @@ public class ADWIN extends AbstractMOAObject {
         return blnChange;
     }
 
-    private boolean blnCutexpression(int n0, int n1, double u0, double u1, double v0, double v1, double absvalue, double delta) {
+    protected boolean blnCutexpression(int n0, int n1, double u0, double u1, double v0, double v1, double absvalue, double delta) {
         int n = getWidth();
         double dd = Math.log(2 * Math.log(n) / delta);     // -- ull perque el ln n va al numerador.
         // Formula Gener 2008
@@ -595,6 +598,38 @@ public class ADWIN extends AbstractMOAObject {
         mintClock = cl;
     }
 
+    @Override
+    public Object copyDirectly(Map<Object, Object> copies) {
+        return getClass() == ADWIN.class ? copyFields() : null;
+    }
+
+    /**
+     * Copies the fields of this detector, rebuilding the list of buckets so
+     * that it belongs to the copy.
+     *
+     * @return the copy
+     */
+    protected ADWIN copyFields() {
+        ADWIN copy;
+        try {
+            copy = (ADWIN) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+        if (this.listRowBuckets != null) {
+            copy.listRowBuckets = copy.new List();
+            copy.listRowBuckets.clear();
+            for (ListItem item = this.listRowBuckets.head(); item != null; item = item.next()) {
+                copy.listRowBuckets.addToTail();
+                ListItem itemCopy = copy.listRowBuckets.tail();
+                itemCopy.bucketSizeRow = item.bucketSizeRow;
+                itemCopy.bucketTotal = item.bucketTotal.clone();
+                itemCopy.bucketVariance = item.bucketVariance.clone();
+            }
+        }
+        return copy;
+    }
+
     public String getEstimatorInfo() {
         return "ADWIN;;";
     }
@@ -18,6 +18,7 @@
  */
 package moa.classifiers.core.driftdetection;
 
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import moa.core.ObjectRepository;
 import moa.tasks.TaskMonitor;
@@ -40,6 +41,9 @@ public class ADWINChangeDetector extends AbstractChangeDetector {
     public FloatOption deltaAdwinOption = new FloatOption("deltaAdwin", 'a',
             "Delta of Adwin change detection", 0.002, 0.0, 1.0);
 
+    public FlagOption arrayAdwinOption = new FlagOption("arrayAdwin", 'b',
+            "Keep the buckets of ADWIN in arrays, with the same results.");
+
     @Override
     public void input(double inputValue) {
         if (this.adwin == null) {
@@ -53,7 +57,11 @@ public class ADWINChangeDetector extends AbstractChangeDetector {
 
     @Override
     public void resetLearning() {
-        adwin = new ADWIN((double) this.deltaAdwinOption.getValue());
+        if (this.arrayAdwinOption.isSet()) {
+            adwin = new ArrayADWIN((double) this.deltaAdwinOption.getValue());
+        } else {
+            adwin = new ADWIN((double) this.deltaAdwinOption.getValue());
+        }
     }
 
     @Override
@@ -0,0 +1,292 @@
+/*
+ *    ArrayADWIN.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.driftdetection;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * ADWIN keeping its exponential histogram in primitive arrays instead of a
+ * linked list of rows. Every row of buckets is a ring buffer of
+ * MAXBUCKETS + 1 slots in two flat arrays, so no object is allocated per
+ * bucket or per row, and the window is scanned by index. It computes
+ * exactly the same results as {@link ADWIN}.
+ *
+ * @version $Revision: 7 $
+ */
+public class ArrayADWIN extends ADWIN {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Number of slots of a row. */
+    protected static final int ROW_LENGTH = MAXBUCKETS + 1;
+
+    /** Totals of the buckets, row after row. */
+    protected double[] bucketTotal;
+
+    /** Variances of the buckets, row after row. */
+    protected double[] bucketVariance;
+
+    /** Slot of the oldest bucket of every row. */
+    protected int[] rowStart;
+
+    /** Number of buckets of every row. */
+    protected int[] rowCount;
+
+    public ArrayADWIN() {
+        super();
+    }
+
+    public ArrayADWIN(double d) {
+        super(d);
+    }
+
+    public ArrayADWIN(int cl) {
+        super(cl);
+    }
+
+    @Override
+    public Object copyDirectly(Map<Object, Object> copies) {
+        if (getClass() != ArrayADWIN.class) {
+            return null;
+        }
+        ArrayADWIN copy = (ArrayADWIN) copyFields();
+        copy.bucketTotal = this.bucketTotal.clone();
+        copy.bucketVariance = this.bucketVariance.clone();
+        copy.rowStart = this.rowStart.clone();
+        copy.rowCount = this.rowCount.clone();
+        return copy;
+    }
+
+    @Override
+    protected void initBuckets() {
+        int numRows = 8;
+        this.bucketTotal = new double[numRows * ROW_LENGTH];
+        this.bucketVariance = new double[numRows * ROW_LENGTH];
+        this.rowStart = new int[numRows];
+        this.rowCount = new int[numRows];
+        lastBucketRow = 0;
+        TOTAL = 0;
+        VARIANCE = 0;
+        WIDTH = 0;
+        BucketNumber = 0;
+    }
+
+    /**
+     * Gets the index in the bucket arrays of the k-th oldest bucket of a row.
+     */
+    protected int slot(int row, int k) {
+        int s = this.rowStart[row] + k;
+        if (s >= ROW_LENGTH) {
+            s -= ROW_LENGTH;
+        }
+        return row * ROW_LENGTH + s;
+    }
+
+    /**
+     * Appends a bucket as the newest of a row.
+     */
+    protected void addBucket(int row, double total, double variance) {
+        int index = slot(row, this.rowCount[row]);
+        this.bucketTotal[index] = total;
+        this.bucketVariance[index] = variance;
+        this.rowCount[row]++;
+    }
+
+    /**
+     * Removes the oldest buckets of a row.
+     */
+    protected void removeBuckets(int row, int numBuckets) {
+        this.rowStart[row] = (this.rowStart[row] + numBuckets) % ROW_LENGTH;
+        this.rowCount[row] -= numBuckets;
+    }
+
+    /**
+     * Adds an empty row after the last one, growing the arrays if needed.
+     */
+    protected void addRow() {
+        lastBucketRow++;
+        if (lastBucketRow == this.rowCount.length) {
+            int numRows = 2 * this.rowCount.length;
+            this.bucketTotal = Arrays.copyOf(this.bucketTotal, numRows * ROW_LENGTH);
+            this.bucketVariance = Arrays.copyOf(this.bucketVariance, numRows * ROW_LENGTH);
+            this.rowStart = Arrays.copyOf(this.rowStart, numRows);
+            this.rowCount = Arrays.copyOf(this.rowCount, numRows);
+        }
+        this.rowStart[lastBucketRow] = 0;
+        this.rowCount[lastBucketRow] = 0;
+    }
+
+    @Override
+    protected int bucketSize(int Row) {
+        return 1 << Row;
+    }
+
+    @Override
+    protected void insertElement(double Value) {
+        WIDTH++;
+        addBucket(0, Value, 0);
+        BucketNumber++;
+        if (BucketNumber > BucketNumberMAX) {
+            BucketNumberMAX = BucketNumber;
+        }
+        double incVariance = 0;
+        if (WIDTH > 1) {
+            incVariance = (WIDTH - 1) * (Value - TOTAL / (WIDTH - 1)) * (Value - TOTAL / (WIDTH - 1)) / WIDTH;
+        }
+        VARIANCE += incVariance;
+        TOTAL += Value;
+        compressBuckets();
+    }
+
+    @Override
+    public int deleteElement() {
+        int row = lastBucketRow;
+        int index = slot(row, 0);
+        int n1 = bucketSize(row);
+        WIDTH -= n1;
+        TOTAL -= this.bucketTotal[index];
+        double u1 = this.bucketTotal[index] / n1;
+        double incVariance = this.bucketVariance[index] + n1 * WIDTH * (u1 - TOTAL / WIDTH) * (u1 - TOTAL / WIDTH) / (n1 + WIDTH);
+        VARIANCE -= incVariance;
+
+        removeBuckets(row, 1);
+        BucketNumber--;
+        if (this.rowCount[row] == 0) {
+            lastBucketRow--;
+        }
+        return n1;
+    }
+
+    @Override
+    public void compressBuckets() {
+        int n1, n2;
+        double u2, u1, incVariance;
+        for (int i = 0; i <= lastBucketRow; i++) {
+            if (this.rowCount[i] != MAXBUCKETS + 1) {
+                break;
+            }
+            if (i == lastBucketRow) {
+                addRow();
+            }
+            int first = slot(i, 0);
+            int second = slot(i, 1);
+            n1 = bucketSize(i);
+            n2 = bucketSize(i);
+            u1 = this.bucketTotal[first] / n1;
+            u2 = this.bucketTotal[second] / n2;
+            incVariance = n1 * n2 * (u1 - u2) * (u1 - u2) / (n1 + n2);
+
+            addBucket(i + 1, this.bucketTotal[first] + this.bucketTotal[second],
+                    this.bucketVariance[first] + this.bucketVariance[second] + incVariance);
+            BucketNumber++;
+            removeBuckets(i, 2);
+            if (this.rowCount[i + 1] <= MAXBUCKETS) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public boolean setInput(double intEntrada, double delta) {
+        boolean blnChange = false;
+        boolean blnExit = false;
+        mintTime++;
+
+        //1,2)Increment window in one element
+        insertElement(intEntrada);
+        blnBucketDeleted = false;
+        //3)Reduce  window
+        if (mintTime % mintClock == 0 && getWidth() > mintMinimLongitudWindow) {
+            boolean blnReduceWidth = true;
+
+            while (blnReduceWidth) {
+                blnReduceWidth = false;
+                blnExit = false;
+                int n0 = 0;
+                int n1 = WIDTH;
+                double u0 = 0;
+                double u1 = getTotal();
+                double v0 = 0;
+                double v1 = VARIANCE;
+                double n2 = 0;
+                double u2 = 0;
+
+                int i = lastBucketRow;
+                do {
+                    int count = this.rowCount[i];
+                    for (int k = 0; k <= (count - 1); k++) {
+                        int index = slot(i, k);
+                        double total = this.bucketTotal[index];
+                        double variance = this.bucketVariance[index];
+                        n2 = bucketSize(i);
+                        u2 = total;
+                        if (n0 > 0) {
+                            v0 += variance + (double) n0 * n2 * (u0 / n0 - u2 / n2) * (u0 / n0 - u2 / n2) / (n0 + n2);
+                        }
+                        if (n1 > 0) {
+                            v1 -= variance + (double) n1 * n2 * (u1 / n1 - u2 / n2) * (u1 / n1 - u2 / n2) / (n1 + n2);
+                        }
+
+                        n0 += bucketSize(i);
+                        n1 -= bucketSize(i);
+                        u0 += total;
+                        u1 -= total;
+
+                        if (i == 0 && k == count - 1) {
+                            blnExit = true;
+                            break;
+                        }
+                        double absvalue = (double) (u0 / n0) - (u1 / n1);
+                        if ((n1 > mintMinWinLength + 1 && n0 > mintMinWinLength + 1)
+                                && blnCutexpression(n0, n1, u0, u1, v0, v1, absvalue, delta)) {
+                            blnBucketDeleted = true;
+                            Detect = mintTime;
+
+                            if (Detect == 0) {
+                                Detect = mintTime;
+                            } else if (DetectTwice == 0) {
+                                DetectTwice = mintTime;
+                            }
+                            blnReduceWidth = true;
+                            blnChange = true;
+                            if (getWidth() > 0) { //Reduce width of the window
+                                n0 -= deleteElement();
+                                blnExit = true;
+                                break;
+                            }
+                        }
+                    }
+                    i--;
+                } while (!blnExit && i >= 0);
+            }
+        }
+
+        mdblWidth += getWidth();
+        if (blnChange) {
+            numberDetections++;
+        }
+        return blnChange;
+    }
+
+    @Override
+    public String getEstimatorInfo() {
+        return "ArrayADWIN;;";
+    }
+}
@@ -27,8 +27,8 @@
 package moa.classifiers.functions;
 
 import moa.classifiers.AbstractClassifier;
-import moa.core.DoubleVector;
 import moa.core.Measurement;
+import moa.core.ScaledDoubleVector;
 import moa.core.StringUtils;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.MultiChoiceOption;
@@ -75,9 +75,9 @@ public class AdaGrad extends SGD{
             'p', "epsilon parameter.",
             1e-8, 0.00, 1);
 
-    /** Stores the weights (+ bias in the last element) */
-    protected DoubleVector m_gradients;
-    protected DoubleVector m_velocity;
+    /** Stores the gradients of the loss for the attributes of an instance */
+    protected double[] m_gradients;
+    protected double[] m_velocity;
     protected double m_biasVelocity;
 
     /**
@@ -116,19 +116,17 @@ public class AdaGrad extends SGD{
     public void trainOnInstanceImpl(Instance instance) {
 
         if (m_weights == null) {
-            m_weights = new DoubleVector();
-            m_gradients = new DoubleVector();
-            m_velocity = new DoubleVector();
-
             //Allocate the weights
-            m_weights.setValue(instance.numAttributes(), 0);
+            m_weights = new ScaledDoubleVector(instance.numAttributes() + 1);
+            m_gradients = new double[instance.numAttributes() + 1];
+            m_velocity = new double[instance.numAttributes() + 1];
         }
 
         if (instance.classIsMissing()) {
             return;
         }
    
-        double z = dotProd(instance, m_weights, instance.classIndex()) + m_bias;
+        double z = m_weights.dotProduct(instance) + m_bias;
 
         double y;
         double yhat;
@@ -161,30 +159,42 @@ public class AdaGrad extends SGD{
             dldz = z - y;
         }
 
-
-        for (int i = 0; i < m_weights.numValues(); i++) {
-            //L2 Weight decay
-            m_gradients.setValue(i, (m_lambda / m_t) * m_weights.getValue(i));
-        }
-
-        int n = instance.numValues();
-
-        for(int i = 0; i < n; i++)
-        {
-            //Loss function gradient (sans regularisation)
-            m_gradients.addToValue(instance.index(i), instance.valueSparse(i) * dldz);
-        }
-
         //Weight update for the bias
         double biasGradient = dldz;
         m_biasVelocity += biasGradient * biasGradient;
         m_bias -= (m_learningRate / (Math.sqrt(m_biasVelocity) + m_epsilon)) * biasGradient;
 
-        for(int i = 0; i < m_weights.numValues(); i++) {
-            //Weight update
-            double g = m_gradients.getValue(i);
-            m_velocity.addToValue(i, g * g);
-            m_weights.addToValue(i, -(m_learningRate / (Math.sqrt(m_velocity.getValue(i)) + m_epsilon)) * g);
+        int n = instance.numValues();
+        int classIndex = instance.classIndex();
+
+        if (m_lambda == 0.0) {
+            //Without weight decay only the attributes of the instance have a gradient
+            for (int p = 0; p < n; p++) {
+                int i = instance.index(p);
+                if (i != classIndex && !instance.isMissingSparse(p)) {
+                    double g = instance.valueSparse(p) * dldz;
+                    m_velocity[i] += g * g;
+                    m_weights.addToValue(i, -(m_learningRate / (Math.sqrt(m_velocity[i]) + m_epsilon)) * g);
+                }
+            }
+        } else {
+            for (int p = 0; p < n; p++) {
+                int i = instance.index(p);
+                if (i != classIndex && !instance.isMissingSparse(p)) {
+                    //Loss function gradient (sans regularisation)
+                    m_gradients[i] = instance.valueSparse(p) * dldz;
+                }
+            }
+            double decay = m_lambda / m_t;
+            for (int i = 0; i < m_weights.numValues(); i++) {
+                //L2 Weight decay
+                double g = decay * m_weights.getValue(i) + m_gradients[i];
+                m_velocity[i] += g * g;
+                m_weights.addToValue(i, -(m_learningRate / (Math.sqrt(m_velocity[i]) + m_epsilon)) * g);
+            }
+            for (int p = 0; p < n; p++) {
+                m_gradients[instance.index(p)] = 0.0;
+            }
         }
 
         m_t += 1.0;
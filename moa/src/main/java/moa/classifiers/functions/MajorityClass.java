@@ -80,4 +80,9 @@ public class MajorityClass extends AbstractClassifier {
     public boolean isRandomizable() {
         return false;
     }
+
+    @Override
+    public boolean retainsInstances() {
+        return false;
+    }
 }
@@ -84,16 +84,31 @@ public class Perceptron extends AbstractClassifier {
         double learningRatio = learningRatioOption.getValue();
 
         int actualClass = (int) inst.classValue();
+        int classIndex = inst.classIndex();
+        int n = inst.numValues();
         for (int i = 0; i < inst.numClasses(); i++) {
             double actual = (i == actualClass) ? 1.0 : 0.0;
             double delta = (actual - preds[i]) * preds[i] * (1 - preds[i]);
-            for (int j = 0; j < inst.numAttributes() - 1; j++) {
-                this.weightAttribute[i][j] += learningRatio * delta * inst.valueInputAttribute(j);
+            // only the values present in the instance change the weights
+            double[] weights = this.weightAttribute[i];
+            for (int p = 0; p < n; p++) {
+                int index = inst.index(p);
+                if (index != classIndex) {
+                    weights[inputAttributeIndex(index, classIndex)] += learningRatio * delta * inst.valueSparse(p);
+                }
             }
-            this.weightAttribute[i][inst.numAttributes() - 1] += learningRatio * delta;
+            weights[inst.numAttributes() - 1] += learningRatio * delta;
         }
     }
 
+    /**
+     * Returns the index of an attribute among the input attributes, which
+     * leave out the class.
+     */
+    protected static int inputAttributeIndex(int attributeIndex, int classIndex) {
+        return attributeIndex < classIndex ? attributeIndex : attributeIndex - 1;
+    }
+
     public void setWeights(double[][] w) {
         //Perceptron Hoeffding Tree
         this.weightAttribute = w;
@@ -116,10 +131,15 @@ public class Perceptron extends AbstractClassifier {
 
     public double prediction(Instance inst, int classVal) {
         double sum = 0.0;
-        for (int i = 0; i < inst.numAttributes() - 1; i++) {
-            sum += weightAttribute[classVal][i] * inst.valueInputAttribute(i);
+        double[] weights = weightAttribute[classVal];
+        int classIndex = inst.classIndex();
+        for (int p = 0, n = inst.numValues(); p < n; p++) {
+            int index = inst.index(p);
+            if (index != classIndex) {
+                sum += weights[inputAttributeIndex(index, classIndex)] * inst.valueSparse(p);
+            }
         }
-        sum += weightAttribute[classVal][inst.numAttributes() - 1];
+        sum += weights[inst.numAttributes() - 1];
         return 1.0 / (1.0 + Math.exp(-sum));
     }
 
@@ -152,4 +172,9 @@ public class Perceptron extends AbstractClassifier {
     public boolean isRandomizable() {
         return true;
     }
+
+    @Override
+    public boolean retainsInstances() {
+        return false;
+    }
 }
@@ -28,8 +28,8 @@
 package moa.classifiers.functions;
 
 import moa.classifiers.AbstractClassifier;
-import moa.core.DoubleVector;
 import moa.core.Measurement;
+import moa.core.ScaledDoubleVector;
 import moa.core.StringUtils;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.MultiChoiceOption;
@@ -68,8 +68,8 @@ public class SGD extends AbstractClassifier implements Regressor{
             'r', "Learning rate parameter.",
             0.0001, 0.00, Integer.MAX_VALUE);
 
-    /** Stores the weights (+ bias in the last element) */
-    protected DoubleVector m_weights;
+    /** Stores the weights, decayed lazily through their scale factor */
+    protected ScaledDoubleVector m_weights;
     
     protected double m_bias;
 
@@ -177,30 +177,6 @@ public class SGD extends AbstractClassifier implements Regressor{
         return z;
     }
 
-    protected static double dotProd(Instance inst1, DoubleVector weights, int classIndex) {
-        double result = 0;
-
-        int n1 = inst1.numValues();
-        int n2 = weights.numValues();
-
-        for (int p1 = 0, p2 = 0; p1 < n1 && p2 < n2;) {
-            int ind1 = inst1.index(p1);
-            int ind2 = p2;
-            if (ind1 == ind2) {
-                if (ind1 != classIndex && !inst1.isMissingSparse(p1)) {
-                    result += inst1.valueSparse(p1) * weights.getValue(p2);
-                }
-                p1++;
-                p2++;
-            } else if (ind1 > ind2) {
-                p2++;
-            } else {
-                p1++;
-            }
-        }
-        return (result);
-    }
-
     @Override
     public void resetLearningImpl() {
         reset();
@@ -218,13 +194,13 @@ public class SGD extends AbstractClassifier implements Regressor{
     public void trainOnInstanceImpl(Instance instance) {
 
         if (m_weights == null) {
-            m_weights = new DoubleVector(); 
+            m_weights = new ScaledDoubleVector();
             m_bias = 0.0;
         }
 
         if (!instance.classIsMissing()) {
 
-            double wx = dotProd(instance, m_weights, instance.classIndex());
+            double wx = m_weights.dotProduct(instance);
 
             double y;
             double z;
@@ -244,9 +220,7 @@ public class SGD extends AbstractClassifier implements Regressor{
             } else {
                 multiplier = 1.0 - (m_learningRate * m_lambda) / m_numInstances;
             }
-            for (int i = 0; i < m_weights.numValues(); i++) {
-                m_weights.setValue(i,m_weights.getValue (i) * multiplier);
-            }
+            m_weights.scaleValues(multiplier);
 
             // Only need to do the following if the loss is non-zero
             if (m_loss != HINGE || (z < 1)) {
@@ -255,13 +229,7 @@ public class SGD extends AbstractClassifier implements Regressor{
                 double factor = m_learningRate * y * dloss(z);
 
                 // Update coefficients for attributes
-                int n1 = instance.numValues();
-                for (int p1 = 0; p1 < n1; p1++) {
-                    int indS = instance.index(p1);
-                    if (indS != instance.classIndex() && !instance.isMissingSparse(p1)) {
-                        m_weights.addToValue(indS, factor * instance.valueSparse(p1));
-                    }
-                }
+                m_weights.addInstance(instance, factor);
 
                 // update the bias
                 m_bias += factor;
@@ -288,7 +256,7 @@ public class SGD extends AbstractClassifier implements Regressor{
                 : new double[1];
 
 
-        double wx = dotProd(inst, m_weights, inst.classIndex());// * m_wScale;
+        double wx = m_weights.dotProduct(inst);
         double z = (wx + m_bias);
 
         if (inst.classAttribute().isNumeric()) {
@@ -29,8 +29,8 @@ package moa.classifiers.functions;
 
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Regressor;
-import moa.core.DoubleVector;
 import moa.core.Measurement;
+import moa.core.ScaledDoubleVector;
 import moa.core.StringUtils;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.MultiChoiceOption;
@@ -69,8 +69,8 @@ public class SGDMultiClass extends AbstractClassifier implements Regressor{
             'r', "Learning rate parameter.",
             0.0001, 0.00, Integer.MAX_VALUE);
 
-    /** Stores the weights (+ bias in the last element) */
-    protected DoubleVector[] m_weights;
+    /** Stores the weights of every class, decayed lazily through their scale factors */
+    protected ScaledDoubleVector[] m_weights;
     
     protected double[] m_bias;
 
@@ -178,30 +178,6 @@ public class SGDMultiClass extends AbstractClassifier implements Regressor{
         return z;
     }
 
-    protected static double dotProd(Instance inst1, DoubleVector weights, int classIndex) {
-        double result = 0;
-
-        int n1 = inst1.numValues();
-        int n2 = weights.numValues();
-
-        for (int p1 = 0, p2 = 0; p1 < n1 && p2 < n2;) {
-            int ind1 = inst1.index(p1);
-            int ind2 = p2;
-            if (ind1 == ind2) {
-                if (ind1 != classIndex && !inst1.isMissingSparse(p1)) {
-                    result += inst1.valueSparse(p1) * weights.getValue(p2);
-                }
-                p1++;
-                p2++;
-            } else if (ind1 > ind2) {
-                p2++;
-            } else {
-                p1++;
-            }
-        }
-        return (result);
-    }
-
     @Override
     public void resetLearningImpl() {
         reset();
@@ -225,10 +201,10 @@ public class SGDMultiClass extends AbstractClassifier implements Regressor{
              } else {
                  length = 1;
              }
-            m_weights = new DoubleVector[length];
+            m_weights = new ScaledDoubleVector[length];
             m_bias = new double[length];
             for (int i = 0; i < m_weights.length; i++){
-                m_weights[i] = new DoubleVector(); 
+                m_weights[i] = new ScaledDoubleVector();
                 m_bias[i] = 0.0;
             }
         }
@@ -240,7 +216,7 @@ public class SGDMultiClass extends AbstractClassifier implements Regressor{
     public void trainOnInstanceImpl(Instance instance, int classLabel) {    
         if (!instance.classIsMissing()) {
 
-            double wx = dotProd(instance, m_weights[classLabel], instance.classIndex());
+            double wx = m_weights[classLabel].dotProduct(instance);
 
             double y;
             double z;
@@ -260,9 +236,7 @@ public class SGDMultiClass extends AbstractClassifier implements Regressor{
             } else {
                 multiplier = 1.0 - (m_learningRate * m_lambda) / m_numInstances;
             }
-            for (int i = 0; i < m_weights[classLabel].numValues(); i++) {
-                m_weights[classLabel].setValue(i,m_weights[classLabel].getValue (i) * multiplier);
-            }
+            m_weights[classLabel].scaleValues(multiplier);
 
             // Only need to do the following if the loss is non-zero
             if (m_loss != HINGE || (z < 1)) {
@@ -271,13 +245,7 @@ public class SGDMultiClass extends AbstractClassifier implements Regressor{
                 double factor = m_learningRate * y * dloss(z);
 
                 // Update coefficients for attributes
-                int n1 = instance.numValues();
-                for (int p1 = 0; p1 < n1; p1++) {
-                    int indS = instance.index(p1);
-                    if (indS != instance.classIndex() && !instance.isMissingSparse(p1)) {
-                        m_weights[classLabel].addToValue(indS, factor * instance.valueSparse(p1));
-                    }
-                }
+                m_weights[classLabel].addInstance(instance, factor);
 
                 // update the bias
                 m_bias[classLabel] += factor;
@@ -304,14 +272,14 @@ public class SGDMultiClass extends AbstractClassifier implements Regressor{
                 : new double[1];
         
         if (inst.classAttribute().isNumeric()) {
-            double wx = dotProd(inst, m_weights[0], inst.classIndex());// * m_wScale;
+            double wx = m_weights[0].dotProduct(inst);
             double z = (wx + m_bias[0]);
             result[0] = z;
             return result;
         }
 
         for (int i = 0; i < m_weights.length; i++){
-            double wx = dotProd(inst, m_weights[i], inst.classIndex());// * m_wScale;
+            double wx = m_weights[i].dotProduct(inst);
             double z = (wx + m_bias[i]);
             if (z <= 0) {
                 //  z = 0;
@@ -27,6 +27,7 @@ package moa.classifiers.functions;
 
 import moa.classifiers.AbstractClassifier;
 import moa.core.Measurement;
+import moa.core.ScaledDoubleVector;
 import moa.core.StringUtils;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.MultiChoiceOption;
@@ -93,9 +94,11 @@ public class SPegasos extends AbstractClassifier {
                 "Log loss (logistic regression)"}, 0);
 
     /**
-     * Stores the weights (+ bias in the last element)
+     * Stores the weights, scaled lazily through their scale factor
      */
-    protected double[] m_weights;
+    protected ScaledDoubleVector m_weights;
+
+    protected double m_bias;
 
     /**
      * Holds the current iteration number
@@ -146,30 +149,6 @@ public class SPegasos extends AbstractClassifier {
         m_weights = null;
     }
 
-    protected static double dotProd(Instance inst1, double[] weights, int classIndex) {
-        double result = 0;
-
-        int n1 = inst1.numValues();
-        int n2 = weights.length - 1;
-
-        for (int p1 = 0, p2 = 0; p1 < n1 && p2 < n2;) {
-            int ind1 = inst1.index(p1);
-            int ind2 = p2;
-            if (ind1 == ind2) {
-                if (ind1 != classIndex && !inst1.isMissingSparse(p1)) {
-                    result += inst1.valueSparse(p1) * weights[p2];
-                }
-                p1++;
-                p2++;
-            } else if (ind1 > ind2) {
-                p2++;
-            } else {
-                p1++;
-            }
-        }
-        return (result);
-    }
-
     protected double dloss(double z) {
         if (m_loss == HINGE) {
             return (z < 1) ? 1 : 0;
@@ -200,7 +179,8 @@ public class SPegasos extends AbstractClassifier {
     public void trainOnInstanceImpl(Instance instance) {
 
         if (m_weights == null) {
-            m_weights = new double[instance.numAttributes() + 1];
+            m_weights = new ScaledDoubleVector(instance.numAttributes());
+            m_bias = 0.0;
         }
         if (!instance.classIsMissing()) {
 
@@ -208,45 +188,24 @@ public class SPegasos extends AbstractClassifier {
             //double scale = 1.0 - learningRate * m_lambda;
             double scale = 1.0 - 1.0 / m_t;
             double y = (instance.classValue() == 0) ? -1 : 1;
-            double wx = dotProd(instance, m_weights, instance.classIndex());
-            double z = y * (wx + m_weights[m_weights.length - 1]);
+            double wx = m_weights.dotProduct(instance);
+            double z = y * (wx + m_bias);
 
-            for (int j = 0; j < m_weights.length - 1; j++) {
-                if (j != instance.classIndex()) {
-                    m_weights[j] *= scale;
-                }
-            }
+            m_weights.scaleValues(scale);
 
             if (m_loss == LOGLOSS || (z < 1)) {
                 double loss = dloss(z);
-                int n1 = instance.numValues();
-                for (int p1 = 0; p1 < n1; p1++) {
-                    int indS = instance.index(p1);
-                    if (indS != instance.classIndex() && !instance.isMissingSparse(p1)) {
-                        double m = learningRate * loss * (instance.valueSparse(p1) * y);
-                        m_weights[indS] += m;
-                    }
-                }
+                m_weights.addInstance(instance, learningRate * loss * y);
 
                 // update the bias
-                m_weights[m_weights.length - 1] += learningRate * loss * y;
+                m_bias += learningRate * loss * y;
             }
 
-            double norm = 0;
-            for (int k = 0; k < m_weights.length - 1; k++) {
-                if (k != instance.classIndex()) {
-                    norm += (m_weights[k] * m_weights[k]);
-                }
-            }
+            double norm = m_weights.sumOfSquares();
 
             double scale2 = Math.min(1.0, (1.0 / (m_lambda * norm)));
             if (scale2 < 1.0) {
-                scale2 = Math.sqrt(scale2);
-                for (int j = 0; j < m_weights.length - 1; j++) {
-                    if (j != instance.classIndex()) {
-                        m_weights[j] *= scale2;
-                    }
-                }
+                m_weights.scaleValues(Math.sqrt(scale2));
             }
             m_t++;
         }
@@ -268,8 +227,8 @@ public class SPegasos extends AbstractClassifier {
 
         double[] result = new double[2];
 
-        double wx = dotProd(inst, m_weights, inst.classIndex());// * m_wScale;
-        double z = (wx + m_weights[m_weights.length - 1]);
+        double wx = m_weights.dotProduct(inst);
+        double z = (wx + m_bias);
         //System.out.print("" + z + ": ");
         // System.out.println(1.0 / (1.0 + Math.exp(-z)));
         if (z <= 0) {
@@ -316,7 +275,7 @@ public class SPegasos extends AbstractClassifier {
         }
         int printed = 0;
 
-        for (int i = 0; i < m_weights.length - 1; i++) {
+        for (int i = 0; i < m_weights.numValues(); i++) {
             //   if (i != m_data.classIndex()) {
             if (printed > 0) {
                 buff.append(" + ");
@@ -324,7 +283,7 @@ public class SPegasos extends AbstractClassifier {
                 buff.append("   ");
             }
 
-            buff.append(Utils.doubleToString(m_weights[i], 12, 4) + " "
+            buff.append(Utils.doubleToString(m_weights.getValue(i), 12, 4) + " "
                     //+ m_data.attribute(i).name()
                     + "\n");
 
@@ -332,10 +291,10 @@ public class SPegasos extends AbstractClassifier {
         }
         //}
 
-        if (m_weights[m_weights.length - 1] > 0) {
-            buff.append(" + " + Utils.doubleToString(m_weights[m_weights.length - 1], 12, 4));
+        if (m_bias > 0) {
+            buff.append(" + " + Utils.doubleToString(m_bias, 12, 4));
         } else {
-            buff.append(" - " + Utils.doubleToString(-m_weights[m_weights.length - 1], 12, 4));
+            buff.append(" - " + Utils.doubleToString(-m_bias, 12, 4));
         }
 
         return buff.toString();
@@ -20,12 +20,15 @@ package moa.classifiers.lazy;
 import java.io.StringReader;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.lazy.neighboursearch.KDTree;
-import moa.classifiers.lazy.neighboursearch.LinearNNSearch;
 import moa.classifiers.lazy.neighboursearch.NearestNeighbourSearch;
+import moa.classifiers.lazy.neighboursearch.SlidingWindowKDTree;
+import moa.classifiers.lazy.neighboursearch.SlidingWindowLinearNNSearch;
 import moa.core.Measurement;
+import com.yahoo.labs.samoa.instances.CompactDenseInstanceData;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 
@@ -49,11 +52,14 @@ public class kNN extends AbstractClassifier {
 
         public MultiChoiceOption nearestNeighbourSearchOption = new MultiChoiceOption(
             "nearestNeighbourSearch", 'n', "Nearest Neighbour Search to use", new String[]{
-                "LinearNN", "KDTree"},
-            new String[]{"Brute force search algorithm for nearest neighbour search. ",
-                "KDTree search algorithm for nearest neighbour search"
+                "LinearNN", "KDTree", "SlidingWindowKDTree"},
+            new String[]{"Brute force search algorithm for nearest neighbour search, normalizing the window incrementally. ",
+                "KDTree search algorithm for nearest neighbour search",
+                "KDTree updated with the window instead of rebuilt for every prediction"
             }, 0);
 
+        public FlagOption compactWindowOption = new FlagOption("compactWindow", 'c',
+            "Store nominal values in bytes and numeric values in floats in the window.");
 
 	int C = 0;
 
@@ -64,11 +70,23 @@ public class kNN extends AbstractClassifier {
 
     protected Instances window; 
 
+    /**
+     * The window, when it is kept by the search across predictions, in a
+     * SlidingWindowLinearNNSearch or a SlidingWindowKDTree.
+     */
+    protected SlidingWindowKDTree windowIndex;
+
+    /** The layout of the instances of the window, when they are compact. */
+    protected CompactDenseInstanceData.Layout windowLayout;
+
 	@Override
 	public void setModelContext(InstancesHeader context) {
 		try {
 			this.window = new Instances(context,0); //new StringReader(context.toString())
 			this.window.setClassIndex(context.classIndex());
+			if (usesWindowIndex()) {
+				this.windowIndex = newWindowIndex(this.window);
+			}
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
 			e.printStackTrace();
@@ -79,32 +97,101 @@ public class kNN extends AbstractClassifier {
     @Override
     public void resetLearningImpl() {
 		this.window = null;
+		this.windowIndex = null;
+		this.windowLayout = null;
     }
 
     @Override
     public void trainOnInstanceImpl(Instance inst) {
 		if (inst.classValue() > C)
 			C = (int)inst.classValue();
-		if (this.window == null) {
-			this.window = new Instances(inst.dataset());
+		if (this.limitOption.getValue() <= windowSize()) {
+			deleteFromWindow(0);
 		}
-		if (this.limitOption.getValue() <= this.window.numInstances()) {
-			this.window.delete(0);
-		}
-		this.window.add(inst);
+		addToWindow(inst);
+    }
+
+    /**
+     * Whether the window is kept by the search, instead of being given to a
+     * new search at every prediction.
+     */
+    protected boolean usesWindowIndex() {
+        return this.nearestNeighbourSearchOption.getChosenIndex() != 1;
+    }
+
+    /**
+     * Creates the empty window of the chosen search.
+     */
+    protected SlidingWindowKDTree newWindowIndex(Instances dataset) {
+        if (this.nearestNeighbourSearchOption.getChosenIndex() == 0) {
+            return new SlidingWindowLinearNNSearch(dataset);
+        }
+        return new SlidingWindowKDTree(dataset);
+    }
+
+    /**
+     * Gets the number of instances in the window.
+     */
+    protected int windowSize() {
+        if (usesWindowIndex()) {
+            return this.windowIndex == null ? 0 : this.windowIndex.numInstances();
+        }
+        return this.window == null ? 0 : this.window.numInstances();
+    }
+
+    /**
+     * Adds an instance to the window, creating the window if needed.
+     */
+    protected void addToWindow(Instance inst) {
+        if (this.compactWindowOption.isSet()) {
+            if (this.windowLayout == null) {
+                this.windowLayout = new CompactDenseInstanceData.Layout(inst.dataset());
+            }
+            inst = this.windowLayout.compact(inst);
+        }
+        if (usesWindowIndex()) {
+            if (this.windowIndex == null) {
+                this.windowIndex = newWindowIndex(inst.dataset());
+            }
+            this.windowIndex.add(inst);
+        } else {
+            if (this.window == null) {
+                this.window = new Instances(inst.dataset());
+            }
+            this.window.add(inst);
+        }
+    }
+
+    /**
+     * Deletes the instance at the given position of the window, the oldest
+     * one being at position 0.
+     */
+    protected void deleteFromWindow(int index) {
+        if (usesWindowIndex()) {
+            this.windowIndex.delete(index);
+        } else {
+            this.window.delete(index);
+        }
     }
 
 	@Override
     public double[] getVotesForInstance(Instance inst) {
 		double v[] = new double[C+1];
 		try {
-			NearestNeighbourSearch search;
-			if (this.nearestNeighbourSearchOption.getChosenIndex()== 0) {
-				search = new LinearNNSearch(this.window);  
-			} else {
-				search = new KDTree();
-				search.setInstances(this.window);
-			}	
+			if (usesWindowIndex()) {
+				if (this.windowIndex == null) {
+					return new double[inst.numClasses()];
+				}
+				if (windowSize() > 0) {
+					Instances neighbours = this.windowIndex.kNearestNeighbours(inst, Math.min(kOption.getValue(), windowSize()));
+					for(int i = 0; i < neighbours.numInstances(); i++) {
+						v[(int)neighbours.instance(i).classValue()]++;
+					}
+				}
+				return v;
+			}
+			NearestNeighbourSearch search = new KDTree();
+			search.setInstances(this.window);
 			if (this.window.numInstances()>0) {	
 				Instances neighbours = search.kNearestNeighbours(inst,Math.min(kOption.getValue(),this.window.numInstances()));
 				for(int i = 0; i < neighbours.numInstances(); i++) {
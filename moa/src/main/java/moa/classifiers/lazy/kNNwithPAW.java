@@ -19,7 +19,6 @@ package moa.classifiers.lazy;
 
 import moa.classifiers.core.driftdetection.ADWIN;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
 
 /**
  * k Nearest Neighbor ADAPTIVE with PAW.<p>
@@ -48,6 +47,8 @@ public class kNNwithPAW extends kNN {
     @Override
     public void resetLearningImpl() {
         this.window = null;
+        this.windowIndex = null;
+        this.windowLayout = null;
         this.prob = Math.pow(2.0, -1.0 / this.limitOption.getValue());
     }
 
@@ -56,16 +57,13 @@ public class kNNwithPAW extends kNN {
         if (inst.classValue() > C) {
             C = (int) inst.classValue();
         }
-        if (this.window == null) {
-            this.window = new Instances(inst.dataset());
-        }
 
-        for (int i = 0; i < this.window.size(); i++) {
+        for (int i = 0; i < windowSize(); i++) {
             if (this.classifierRandom.nextDouble() > this.prob) {
-                this.window.delete(i);
+                deleteFromWindow(i);
             }
         }
-        this.window.add(inst);
+        addToWindow(inst);
 
     }
 
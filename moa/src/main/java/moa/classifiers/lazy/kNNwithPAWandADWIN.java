@@ -20,7 +20,6 @@ package moa.classifiers.lazy;
 import java.util.ArrayList;
 import moa.classifiers.core.driftdetection.ADWIN;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
 
 /**
  * k Nearest Neighbor ADAPTIVE with ADWIN+PAW.<p>
@@ -53,6 +52,8 @@ public class kNNwithPAWandADWIN extends kNN {
     @Override
     public void resetLearningImpl() {
         this.window = null;
+        this.windowIndex = null;
+        this.windowLayout = null;
         this.adwin = new ADWIN();
         this.prob = Math.pow(2.0, -1.0 / this.limitOption.getValue());
         this.time = 0;
@@ -66,29 +67,25 @@ public class kNNwithPAWandADWIN extends kNN {
             C = (int) inst.classValue();
         }
         // ADWIN
-        if (this.window == null) {
-            this.window = new Instances(inst.dataset());
-        }
-
         if (this.timeStamp == null) {
             this.timeStamp = new ArrayList<Integer>(10);
         }
-        for (int i = 0; i < this.window.size(); i++) {
+        for (int i = 0; i < windowSize(); i++) {
             if (this.classifierRandom.nextDouble() > this.prob) {
-                this.window.delete(i);
+                deleteFromWindow(i);
                 this.timeStamp.remove(i);
             }
         }
-        this.window.add(inst);
+        addToWindow(inst);
         this.timeStamp.add(this.time);
         this.time++;
         boolean correctlyClassifies = this.correctlyClassifies(inst);
         if (this.adwin.setInput(correctlyClassifies ? 0 : 1)) {
             //Change
             int size = (int) this.adwin.getWidth();
-            for (int i = 0; i < this.window.size(); i++) {
+            for (int i = 0; i < windowSize(); i++) {
                 if (this.timeStamp.get(i) < this.time - size) {
-                    this.window.delete(i);
+                    deleteFromWindow(i);
                     this.timeStamp.remove(i);
                 }
             }
@@ -79,6 +79,10 @@ public class EuclideanDistance
   /** for serialization. */
   private static final long serialVersionUID = 1068606253458807903L;
 
+  /** Number of values between two checks against the cut off value in 
+   * squaredDistance(double[], int, double[], int, int, double). */
+  protected static final int BLOCK_SIZE = 16;
+
   /**
    * Constructs an Euclidean Distance object, Instances must be still set.
    */
@@ -209,6 +213,105 @@ public class EuclideanDistance
     return pointList[bestPoint];
   }
   
+  /**
+   * Returns whether distances can be computed with 
+   * squaredDistance(double[], int, double[], int, int, double) on normalized
+   * values, that is whether all the attributes used are numeric.
+   * 
+   * @return 		true if the attributes used are numeric
+   */
+  public boolean canNormalizeValues() {
+    validate();
+    for (int i = 0; i < m_Data.numAttributes(); i++) {
+      if (i != m_Data.classIndex() && m_ActiveIndices[i]
+          && !m_Data.attribute(i).isNumeric())
+        return false;
+    }
+    return true;
+  }
+  
+  /**
+   * Writes the normalized values of an instance, as difference(int, double,
+   * double) normalizes them, with 0 for the class and the attributes not
+   * used. The squared distance between two instances is then the sum of the
+   * squared differences of their normalized values, in the same order and so
+   * with the same result.
+   * 
+   * @param instance 	the instance to normalize
+   * @param values 	the array to write the values to
+   * @param offset 	the position of the first value in the array
+   * @return 		false if the instance has a missing value, whose
+   * 			difference is computed otherwise
+   */
+  public boolean normalizeValues(Instance instance, double[] values, 
+      				 int offset) {
+    validate();
+    int numAttributes = m_Data.numAttributes();
+    int classIndex = m_Data.classIndex();
+    for (int i = 0; i < numAttributes; i++) {
+      if (i == classIndex || !m_ActiveIndices[i]) {
+        values[offset + i] = 0;
+        continue;
+      }
+      double value = instance.value(i);
+      if (isMissingValue(value))
+        return false;
+      values[offset + i] = (!m_DontNormalize) ? norm(value, i) : value;
+    }
+    return true;
+  }
+  
+  /**
+   * Normalizes all instances into one block, one row of numAttributes()
+   * values after the other.
+   * 
+   * @param instances 	the instances to normalize
+   * @return 		the block of normalized values, or null if an attribute
+   * 			used is not numeric or an instance has a missing value
+   */
+  public double[] normalizeValues(Instances instances) {
+    if (!canNormalizeValues())
+      return null;
+    int numAttributes = m_Data.numAttributes();
+    double[] values = new double[instances.numInstances() * numAttributes];
+    for (int i = 0; i < instances.numInstances(); i++) {
+      if (!normalizeValues(instances.instance(i), values, i * numAttributes))
+        return null;
+    }
+    return values;
+  }
+  
+  /**
+   * Computes the squared distance between two rows of normalized values,
+   * like distance(Instance, Instance, double) does for the instances they
+   * were normalized from. The loop only checks the cut off value every 
+   * BLOCK_SIZE values, so that its body is a plain pass over the arrays.
+   * 
+   * @param first 	the values of the first instance
+   * @param firstOffset the position of the first value of the first instance
+   * @param second 	the values of the second instance
+   * @param secondOffset the position of the first value of the second instance
+   * @param length 	the number of values
+   * @param cutOffValue the value above which the distance is not needed
+   * @return 		the squared distance, or Double.POSITIVE_INFINITY if it 
+   * 			is larger than cutOffValue
+   */
+  public static double squaredDistance(double[] first, int firstOffset, 
+      double[] second, int secondOffset, int length, double cutOffValue) {
+    double distance = 0;
+    int i = 0;
+    while (i < length) {
+      int end = Math.min(i + BLOCK_SIZE, length);
+      for (; i < end; i++) {
+        double diff = first[firstOffset + i] - second[secondOffset + i];
+        distance += diff * diff;
+      }
+      if (distance > cutOffValue)
+        return Double.POSITIVE_INFINITY;
+    }
+    return distance;
+  }
+  
   /**
    * Returns true if the value of the given dimension is smaller or equal the
    * value to be compared with.
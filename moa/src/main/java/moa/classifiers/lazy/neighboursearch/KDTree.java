@@ -112,6 +112,12 @@ public class KDTree
    */
   protected double[] m_DistanceList;
 
+  /**
+   * The normalized values of the target during kNearestNeighbours(), or null
+   * if its distances are computed by the distance function.
+   */
+  protected double[] m_TargetValues;
+
   /**
    * Indexlist of the instances of this kdtree. Instances get sorted according
    * to the splits. the nodes of the KDTree just hold their start and end
@@ -176,6 +182,7 @@ public class KDTree
       m_EuclideanDistance.setInstances(instances);
 
     m_Instances = instances;
+    invalidateNormalizedValues();
     int numInst = m_Instances.numInstances();
 
     // Make the global index list
@@ -266,13 +273,13 @@ public class KDTree
                                                               // cross-validation
           continue;
         if (heap.size() < k) {
-          distance = m_EuclideanDistance.distance(target, m_Instances
-              .instance(m_InstList[idx]), Double.POSITIVE_INFINITY);
+          distance = distance(target, m_TargetValues, m_InstList[idx],
+              Double.POSITIVE_INFINITY);
           heap.put(m_InstList[idx], distance);
         } else {
           MyHeapElement temp = heap.peek();
-          distance = m_EuclideanDistance.distance(target, m_Instances
-              .instance(m_InstList[idx]), temp.distance);
+          distance = distance(target, m_TargetValues, m_InstList[idx],
+              temp.distance);
           if (distance < temp.distance) {
             heap.putBySubstitute(m_InstList[idx], distance);
           } else if (distance == temp.distance) {
@@ -329,7 +336,9 @@ public class KDTree
     checkMissing(target);
     
     MyHeap heap = new MyHeap(k);
+    m_TargetValues = normalizeTarget(target);
     findNearestNeighbours(target, m_Root, k, heap, 0.0);
+    m_TargetValues = null;
 
     Instances neighbours = new Instances(m_Instances, (heap.size() + heap
         .noOfKthNearest()));
@@ -518,6 +527,7 @@ public class KDTree
    */
   public void addInstanceInfo(Instance instance) {
     m_EuclideanDistance.updateRanges(instance);
+    invalidateNormalizedValues();
   }
 
   /**
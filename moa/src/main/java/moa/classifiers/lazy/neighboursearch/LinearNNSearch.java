@@ -149,6 +149,7 @@ public class LinearNNSearch
     boolean print=false;
  
     MyHeap heap = new MyHeap(kNN);
+    double[] targetValues = normalizeTarget(target);
     double distance; int firstkNN=0;
     for(int i=0; i<m_Instances.numInstances(); i++) {
       if(target == m_Instances.instance(i)) //for hold-one-out cross-validation
@@ -156,7 +157,7 @@ public class LinearNNSearch
       if(firstkNN<kNN) {
         if(print)
           System.out.println("K(a): "+(heap.size()+heap.noOfKthNearest()));
-        distance = m_DistanceFunction.distance(target, m_Instances.instance(i), Double.POSITIVE_INFINITY);
+        distance = distance(target, targetValues, i, Double.POSITIVE_INFINITY);
         if(distance == 0.0 && m_SkipIdentical)
           if(i<m_Instances.numInstances()-1)
             continue;
@@ -169,7 +170,7 @@ public class LinearNNSearch
         MyHeapElement temp = heap.peek();
         if(print)
           System.out.println("K(b): "+(heap.size()+heap.noOfKthNearest()));
-        distance = m_DistanceFunction.distance(target, m_Instances.instance(i), temp.distance);
+        distance = distance(target, targetValues, i, temp.distance);
         if(distance == 0.0 && m_SkipIdentical)
           continue;
         if(distance < temp.distance) {
@@ -243,6 +244,7 @@ public class LinearNNSearch
   public void setInstances(Instances insts) throws Exception {
     m_Instances = insts;
     m_DistanceFunction.setInstances(insts);
+    invalidateNormalizedValues();
   }
   
   /** 
@@ -261,6 +263,7 @@ public class LinearNNSearch
       throw new Exception("No instances supplied yet. Cannot update without"+
                           "supplying a set of instances first.");
     m_DistanceFunction.update(ins);
+    invalidateNormalizedValues();
   }
   
   /** 
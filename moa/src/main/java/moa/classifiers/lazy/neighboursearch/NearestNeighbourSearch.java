@@ -492,6 +492,14 @@ public abstract class NearestNeighbourSearch
   
   /** Should we measure Performance. */
   protected boolean m_MeasurePerformance = false;
+
+  /** The normalized values of the instances, one row after the other, or 
+   * null if the distances can not be computed from them. */
+  protected double[] m_NormalizedValues;
+  
+  /** Whether m_NormalizedValues is up to date with the instances and the 
+   * ranges of the distance function. */
+  protected boolean m_NormalizedValuesValid = false;
   
   /**
    * Constructor.
@@ -550,6 +558,7 @@ public abstract class NearestNeighbourSearch
    */
   public void setDistanceFunction(DistanceFunction df) throws Exception {
     m_DistanceFunction = df;
+    invalidateNormalizedValues();
   }
 
   /** 
@@ -631,6 +640,63 @@ public abstract class NearestNeighbourSearch
    */
   public void setInstances(Instances insts) throws Exception {
     m_Instances = insts;
+    invalidateNormalizedValues();
+  }
+  
+  /**
+   * Discards the normalized values of the instances, after the instances or
+   * the ranges of the distance function changed.
+   */
+  protected void invalidateNormalizedValues() {
+    m_NormalizedValues = null;
+    m_NormalizedValuesValid = false;
+  }
+  
+  /**
+   * Normalizes the target to compute its distances with 
+   * distance(Instance, double[], int, double), normalizing the instances 
+   * first if needed. This is only done for the EuclideanDistance, when all
+   * the attributes used are numeric and there are no missing values.
+   * 
+   * @param target	the target instance
+   * @return		the normalized values of the target, or null if the
+   * 			distances have to be computed by the distance function
+   */
+  protected double[] normalizeTarget(Instance target) {
+    if (m_Instances == null || m_DistanceFunction == null
+        || m_DistanceFunction.getClass() != EuclideanDistance.class)
+      return null;
+    EuclideanDistance df = (EuclideanDistance) m_DistanceFunction;
+    if (!m_NormalizedValuesValid) {
+      m_NormalizedValues = df.normalizeValues(m_Instances);
+      m_NormalizedValuesValid = true;
+    }
+    if (m_NormalizedValues == null)
+      return null;
+    double[] targetValues = new double[m_Instances.numAttributes()];
+    return df.normalizeValues(target, targetValues, 0) ? targetValues : null;
+  }
+  
+  /**
+   * Computes the distance from the target to an instance, from the 
+   * normalized values if the target could be normalized. The result is the
+   * same as the one of the distance function.
+   * 
+   * @param target	the target instance
+   * @param targetValues	the normalized values of the target, or null
+   * @param index	the index of the instance
+   * @param cutOffValue	the value above which the distance is not needed
+   * @return		the distance, or Double.POSITIVE_INFINITY if it is 
+   * 			larger than cutOffValue
+   */
+  protected double distance(Instance target, double[] targetValues, int index,
+      			    double cutOffValue) {
+    if (targetValues == null)
+      return m_DistanceFunction.distance(target, m_Instances.instance(index),
+	  cutOffValue);
+    return EuclideanDistance.squaredDistance(targetValues, 0, 
+	m_NormalizedValues, index * targetValues.length, targetValues.length, 
+	cutOffValue);
   }
   
   /** 
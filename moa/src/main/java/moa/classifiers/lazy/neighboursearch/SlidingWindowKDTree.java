@@ -0,0 +1,793 @@
+/*
+ *    SlidingWindowKDTree.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.lazy.neighboursearch;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ * Window of instances with a KD-tree index that is updated as instances are
+ * added and deleted, for nearest neighbour search over a sliding window.
+ *
+ * <p>The instances are kept in insertion order in a ring buffer, so deleting
+ * the oldest instance takes constant time. A new instance is inserted in the
+ * leaf of the tree it falls in, splitting the leaf when it grows too large,
+ * and a deleted instance is removed from its leaf. The bounding boxes of the
+ * nodes are only widened by updates, and the tree is rebuilt lazily, at the
+ * next search after as many updates as there are instances in the window.
+ * The ranges used to normalize the distance are maintained incrementally as
+ * well.</p>
+ *
+ * <p>The search returns the same neighbours as {@link LinearNNSearch} over
+ * the same window: the k nearest instances under the normalized
+ * {@link EuclideanDistance}, and all instances at the same distance as the
+ * k-th one. Nodes are pruned with a lower bound on the distance computed
+ * with the same arithmetic as the distance, so no neighbour is lost to
+ * rounding.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class SlidingWindowKDTree implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Maximum number of instances of a leaf before it is split. */
+    protected static final int LEAF_SIZE = 32;
+
+    /** Node of the tree. Internal nodes have two children and no instances. */
+    protected static class Node implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Smallest values of the instances of the node, NaN if none. */
+        protected double[] lo;
+
+        /** Largest values of the instances of the node, NaN if none. */
+        protected double[] hi;
+
+        /** Whether an instance of the node has a missing value. */
+        protected boolean[] missing;
+
+        protected int splitAttribute = -1;
+
+        protected double splitValue;
+
+        protected Node left;
+
+        protected Node right;
+
+        /** The slots of the instances of a leaf. */
+        protected int[] slots;
+
+        protected int numSlots;
+
+        /** Number of instances above which the leaf is split. */
+        protected int capacity = LEAF_SIZE;
+
+        protected Node(int numAttributes) {
+            this.lo = new double[numAttributes];
+            this.hi = new double[numAttributes];
+            this.missing = new boolean[numAttributes];
+            Arrays.fill(this.lo, Double.NaN);
+            Arrays.fill(this.hi, Double.NaN);
+        }
+
+        protected boolean isLeaf() {
+            return this.left == null;
+        }
+
+        /**
+         * Widens the bounding box to include the given values.
+         */
+        protected void include(double[] values) {
+            for (int j = 0; j < values.length; j++) {
+                double v = values[j];
+                if (Double.isNaN(v)) {
+                    this.missing[j] = true;
+                } else {
+                    if (!(v >= this.lo[j])) {
+                        this.lo[j] = v;
+                    }
+                    if (!(v <= this.hi[j])) {
+                        this.hi[j] = v;
+                    }
+                }
+            }
+        }
+
+        protected void addSlot(int slot) {
+            if (this.slots == null) {
+                this.slots = new int[LEAF_SIZE + 1];
+            } else if (this.numSlots == this.slots.length) {
+                this.slots = Arrays.copyOf(this.slots, 2 * this.slots.length);
+            }
+            this.slots[this.numSlots++] = slot;
+        }
+
+        protected void removeSlot(int slot) {
+            for (int i = 0; i < this.numSlots; i++) {
+                if (this.slots[i] == slot) {
+                    this.slots[i] = this.slots[--this.numSlots];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Euclidean distance using the ranges of the window, which are maintained
+     * by the tree instead of being computed from a dataset.
+     */
+    protected static class WindowDistance extends EuclideanDistance {
+
+        private static final long serialVersionUID = 1L;
+
+        public WindowDistance(Instances header, double[][] ranges) {
+            super(header);
+            validate();
+            m_Ranges = ranges;
+        }
+    }
+
+    protected Instances header;
+
+    protected int numAttributes;
+
+    protected int classIndex;
+
+    protected boolean[] nominal;
+
+    protected WindowDistance distance;
+
+    /** Ranges of the attributes in the window, as NormalizableDistance keeps them. */
+    protected double[][] ranges;
+
+    /** Whether the range of an attribute has to be computed again. */
+    protected boolean[] rangeDirty;
+
+    /** The instances in their slots, null for a free slot. */
+    protected Instance[] instances;
+
+    /** The values of the instances in their slots, NaN when missing. */
+    protected double[][] values;
+
+    /** The leaf of the instance in a slot. */
+    protected Node[] leafOf;
+
+    /** Whether all attributes are numeric, so that distances can be computed from normalized values. */
+    protected boolean normalizable;
+
+    /** The normalized values of the instances, one row of numAttributes values per slot. */
+    protected double[] normalized;
+
+    /** Whether the instance in a slot has a missing value, and so no normalized values. */
+    protected boolean[] hasMissing;
+
+    /** Whether the normalized values of an attribute have to be computed again. */
+    protected boolean[] columnDirty;
+
+    protected int[] freeSlots;
+
+    protected int numFreeSlots;
+
+    /** The slots in insertion order, as a ring buffer. */
+    protected int[] order;
+
+    protected int orderStart;
+
+    protected int numInstances;
+
+    protected Node root;
+
+    protected int updatesSinceBuild;
+
+    // search state
+    protected transient Instance target;
+
+    protected transient double[] targetValues;
+
+    /** The normalized values of the target, null if it has a missing value. */
+    protected transient double[] targetNormalized;
+
+    /** Max-heap of the distances of the k nearest instances found so far. */
+    protected transient double[] heap;
+
+    protected transient int heapSize;
+
+    protected transient int[] candidateSlots;
+
+    protected transient double[] candidateDistances;
+
+    protected transient int numCandidates;
+
+    /**
+     * Creates an empty window.
+     *
+     * @param dataset the header of the instances
+     */
+    public SlidingWindowKDTree(Instances dataset) {
+        this.header = new Instances(dataset, 0);
+        this.numAttributes = this.header.numAttributes();
+        this.classIndex = this.header.classIndex();
+        this.nominal = new boolean[this.numAttributes];
+        this.ranges = new double[this.numAttributes][3];
+        for (int j = 0; j < this.numAttributes; j++) {
+            this.nominal[j] = this.header.attribute(j).isNominal();
+            this.ranges[j][NormalizableDistance.R_MIN] = Double.POSITIVE_INFINITY;
+            this.ranges[j][NormalizableDistance.R_MAX] = Double.NEGATIVE_INFINITY;
+            this.ranges[j][NormalizableDistance.R_WIDTH] = Double.POSITIVE_INFINITY;
+        }
+        this.rangeDirty = new boolean[this.numAttributes];
+        this.distance = new WindowDistance(this.header, this.ranges);
+        this.normalizable = this.distance.canNormalizeValues();
+        this.columnDirty = new boolean[this.numAttributes];
+        int capacity = 16;
+        this.instances = new Instance[capacity];
+        this.values = new double[capacity][];
+        this.leafOf = new Node[capacity];
+        this.normalized = new double[capacity * this.numAttributes];
+        this.hasMissing = new boolean[capacity];
+        this.freeSlots = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.freeSlots[i] = capacity - 1 - i;
+        }
+        this.numFreeSlots = capacity;
+        this.order = new int[capacity];
+    }
+
+    public int numInstances() {
+        return this.numInstances;
+    }
+
+    public int size() {
+        return this.numInstances;
+    }
+
+    /**
+     * Gets an instance by its position in insertion order.
+     */
+    public Instance instance(int index) {
+        return this.instances[orderSlot(index)];
+    }
+
+    protected int orderSlot(int index) {
+        if (index < 0 || index >= this.numInstances) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.numInstances);
+        }
+        int position = this.orderStart + index;
+        if (position >= this.order.length) {
+            position -= this.order.length;
+        }
+        return this.order[position];
+    }
+
+    /**
+     * Adds a copy of an instance after the newest one, as
+     * {@link Instances#add(Instance)} does.
+     */
+    public void add(Instance inst) {
+        if (this.numFreeSlots == 0) {
+            grow();
+        }
+        int slot = this.freeSlots[--this.numFreeSlots];
+        inst = inst.copy();
+        this.instances[slot] = inst;
+        double[] v = this.values[slot];
+        if (v == null) {
+            v = new double[this.numAttributes];
+            this.values[slot] = v;
+        }
+        boolean missing = false;
+        for (int j = 0; j < this.numAttributes; j++) {
+            v[j] = inst.isMissing(j) ? Double.NaN : inst.value(j);
+            if (Double.isNaN(v[j])) {
+                missing |= j != this.classIndex;
+            } else if (!this.rangeDirty[j]) {
+                double[] range = this.ranges[j];
+                if (v[j] < range[NormalizableDistance.R_MIN]) {
+                    range[NormalizableDistance.R_MIN] = v[j];
+                    this.columnDirty[j] = true;
+                }
+                if (v[j] > range[NormalizableDistance.R_MAX]) {
+                    range[NormalizableDistance.R_MAX] = v[j];
+                    this.columnDirty[j] = true;
+                }
+                range[NormalizableDistance.R_WIDTH] = range[NormalizableDistance.R_MAX]
+                        - range[NormalizableDistance.R_MIN];
+            }
+        }
+        this.hasMissing[slot] = missing;
+        if (this.normalizable && !missing) {
+            this.distance.normalizeValues(inst, this.normalized, slot * this.numAttributes);
+        }
+        int position = this.orderStart + this.numInstances;
+        if (position >= this.order.length) {
+            position -= this.order.length;
+        }
+        this.order[position] = slot;
+        this.numInstances++;
+        if (this.root != null) {
+            insert(slot);
+        }
+        this.updatesSinceBuild++;
+    }
+
+    /**
+     * Deletes the instance at the given position in insertion order. Deleting
+     * the oldest instance takes constant time.
+     */
+    public void delete(int index) {
+        int slot = orderSlot(index);
+        if (index == 0) {
+            this.orderStart++;
+            if (this.orderStart == this.order.length) {
+                this.orderStart = 0;
+            }
+        } else {
+            for (int i = index; i < this.numInstances - 1; i++) {
+                int from = this.orderStart + i + 1;
+                int to = this.orderStart + i;
+                this.order[to >= this.order.length ? to - this.order.length : to] =
+                        this.order[from >= this.order.length ? from - this.order.length : from];
+            }
+        }
+        this.numInstances--;
+        double[] v = this.values[slot];
+        for (int j = 0; j < this.numAttributes; j++) {
+            if (v[j] == this.ranges[j][NormalizableDistance.R_MIN]
+                    || v[j] == this.ranges[j][NormalizableDistance.R_MAX]) {
+                this.rangeDirty[j] = true;
+            }
+        }
+        if (this.leafOf[slot] != null) {
+            this.leafOf[slot].removeSlot(slot);
+            this.leafOf[slot] = null;
+        }
+        this.instances[slot] = null;
+        this.freeSlots[this.numFreeSlots++] = slot;
+        this.updatesSinceBuild++;
+    }
+
+    /**
+     * Doubles the number of slots. The ring buffer is unrolled on the way.
+     */
+    protected void grow() {
+        int capacity = this.instances.length;
+        int newCapacity = 2 * capacity;
+        this.instances = Arrays.copyOf(this.instances, newCapacity);
+        this.values = Arrays.copyOf(this.values, newCapacity);
+        this.leafOf = Arrays.copyOf(this.leafOf, newCapacity);
+        this.normalized = Arrays.copyOf(this.normalized, newCapacity * this.numAttributes);
+        this.hasMissing = Arrays.copyOf(this.hasMissing, newCapacity);
+        int[] newOrder = new int[newCapacity];
+        for (int i = 0; i < this.numInstances; i++) {
+            newOrder[i] = orderSlot(i);
+        }
+        this.order = newOrder;
+        this.orderStart = 0;
+        this.freeSlots = new int[newCapacity];
+        for (int i = newCapacity - 1; i >= capacity; i--) {
+            this.freeSlots[this.numFreeSlots++] = i;
+        }
+    }
+
+    /**
+     * Computes again the ranges of the attributes whose minimum or maximum
+     * instance was deleted.
+     */
+    protected void updateRanges() {
+        for (int j = 0; j < this.numAttributes; j++) {
+            if (this.rangeDirty[j]) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < this.numInstances; i++) {
+                    double v = this.values[orderSlot(i)][j];
+                    if (v < min) {
+                        min = v;
+                    }
+                    if (v > max) {
+                        max = v;
+                    }
+                }
+                this.ranges[j][NormalizableDistance.R_MIN] = min;
+                this.ranges[j][NormalizableDistance.R_MAX] = max;
+                this.ranges[j][NormalizableDistance.R_WIDTH] = min == Double.POSITIVE_INFINITY
+                        ? Double.POSITIVE_INFINITY : max - min;
+                this.rangeDirty[j] = false;
+                this.columnDirty[j] = true;
+            }
+        }
+    }
+
+    /**
+     * Normalizes again the values of the attributes whose range changed.
+     * Ranges change rarely once the window is full, so this is cheaper than
+     * normalizing the values at every distance.
+     */
+    protected void updateNormalized() {
+        for (int j = 0; j < this.numAttributes; j++) {
+            if (this.columnDirty[j]) {
+                if (this.normalizable && j != this.classIndex) {
+                    for (int i = 0; i < this.numInstances; i++) {
+                        int slot = orderSlot(i);
+                        if (!this.hasMissing[slot]) {
+                            this.normalized[slot * this.numAttributes + j] =
+                                    this.distance.norm(this.values[slot][j], j);
+                        }
+                    }
+                }
+                this.columnDirty[j] = false;
+            }
+        }
+    }
+
+    /**
+     * Builds the tree again, after as many updates as there are instances in
+     * the window.
+     */
+    protected void updateIndex() {
+        if (this.root == null || this.updatesSinceBuild >= Math.max(this.numInstances, LEAF_SIZE)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Visits the instances of the leaves whose boxes may hold one of the k
+     * nearest instances.
+     */
+    protected void searchIndex() {
+        search(this.root);
+    }
+
+    /**
+     * Builds the tree again from the instances in the window.
+     */
+    protected void rebuild() {
+        int[] slots = new int[this.numInstances];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = orderSlot(i);
+        }
+        this.root = build(slots, 0, slots.length);
+        this.updatesSinceBuild = 0;
+    }
+
+    protected Node build(int[] slots, int from, int to) {
+        Node node = new Node(this.numAttributes);
+        for (int i = from; i < to; i++) {
+            node.include(this.values[slots[i]]);
+        }
+        int attribute = to - from > LEAF_SIZE ? chooseSplitAttribute(node) : -1;
+        if (attribute < 0) {
+            node.slots = Arrays.copyOfRange(slots, from, Math.max(to, from + LEAF_SIZE + 1));
+            node.numSlots = to - from;
+            node.capacity = Math.max(LEAF_SIZE, to - from);
+            for (int i = from; i < to; i++) {
+                this.leafOf[slots[i]] = node;
+            }
+            return node;
+        }
+        int mid = (from + to) >>> 1;
+        select(slots, from, to - 1, mid, attribute);
+        node.splitAttribute = attribute;
+        node.splitValue = key(slots[mid], attribute);
+        node.left = build(slots, from, mid);
+        node.right = build(slots, mid, to);
+        return node;
+    }
+
+    /**
+     * Chooses the attribute with the widest spread relative to its range in
+     * the window, or -1 if no attribute spreads.
+     */
+    protected int chooseSplitAttribute(Node node) {
+        int best = -1;
+        double bestSpread = 0.0;
+        for (int j = 0; j < this.numAttributes; j++) {
+            if (j == this.classIndex) {
+                continue;
+            }
+            double spread = node.hi[j] - node.lo[j];
+            double width = this.ranges[j][NormalizableDistance.R_WIDTH];
+            if (width > 0.0 && width < Double.POSITIVE_INFINITY) {
+                spread /= width;
+            }
+            if (spread > bestSpread) {
+                bestSpread = spread;
+                best = j;
+            }
+        }
+        return best;
+    }
+
+    /** Value used to order instances on an attribute, missing values first. */
+    protected double key(int slot, int attribute) {
+        double v = this.values[slot][attribute];
+        return Double.isNaN(v) ? Double.NEGATIVE_INFINITY : v;
+    }
+
+    /**
+     * Partially sorts the slots between left and right, both included, so
+     * that the slot at position k has the k-th smallest value of the
+     * attribute.
+     */
+    protected void select(int[] slots, int left, int right, int k, int attribute) {
+        while (right > left) {
+            double pivot = key(slots[(left + right) >>> 1], attribute);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (key(slots[i], attribute) < pivot) {
+                    i++;
+                }
+                while (key(slots[j], attribute) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = slots[i];
+                    slots[i] = slots[j];
+                    slots[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Inserts the instance in a slot in the leaf it falls in, widening the
+     * boxes on the way, and splits the leaf if it is full.
+     */
+    protected void insert(int slot) {
+        double[] v = this.values[slot];
+        Node node = this.root;
+        node.include(v);
+        while (!node.isLeaf()) {
+            node = key(slot, node.splitAttribute) < node.splitValue ? node.left : node.right;
+            node.include(v);
+        }
+        node.addSlot(slot);
+        this.leafOf[slot] = node;
+        if (node.numSlots > node.capacity) {
+            Node split = build(node.slots, 0, node.numSlots);
+            if (split.isLeaf()) {
+                // nothing to split on, wait until the leaf is twice as large
+                node.capacity = 2 * node.numSlots;
+                for (int i = 0; i < node.numSlots; i++) {
+                    this.leafOf[node.slots[i]] = node;
+                }
+            } else {
+                node.splitAttribute = split.splitAttribute;
+                node.splitValue = split.splitValue;
+                node.left = split.left;
+                node.right = split.right;
+                node.slots = null;
+                node.numSlots = 0;
+            }
+        }
+    }
+
+    /**
+     * Gets a lower bound of the distance from the target to any instance of
+     * a node. Every term is the squared difference to the nearest point of
+     * the box, computed like the distance, or zero when it can not be bound.
+     */
+    protected double lowerBound(Node node) {
+        double bound = 0.0;
+        for (int j = 0; j < this.numAttributes; j++) {
+            if (j == this.classIndex || node.missing[j]) {
+                continue;
+            }
+            double q = this.targetValues[j];
+            if (Double.isNaN(q) || Double.isNaN(node.lo[j])) {
+                continue;
+            }
+            if (this.nominal[j]) {
+                // values are whole, so a value outside the box differs from all
+                if (q < node.lo[j] || q > node.hi[j]) {
+                    bound += 1.0;
+                }
+                continue;
+            }
+            double nearest = q < node.lo[j] ? node.lo[j] : (q > node.hi[j] ? node.hi[j] : q);
+            bound += this.distance.sqDifference(j, q, nearest);
+        }
+        return bound;
+    }
+
+    /** Distance of the k-th nearest instance found so far. */
+    protected double kthDistance() {
+        return this.heapSize < this.heap.length ? Double.POSITIVE_INFINITY : this.heap[0];
+    }
+
+    /**
+     * Computes the distance from the target to the instance in a slot, and
+     * keeps it if it is one of the k nearest found so far.
+     */
+    protected void visit(int slot) {
+        Instance inst = this.instances[slot];
+        if (inst == this.target) {
+            return;
+        }
+        double kth = kthDistance();
+        double d = this.targetNormalized != null && !this.hasMissing[slot]
+                ? EuclideanDistance.squaredDistance(this.targetNormalized, 0,
+                        this.normalized, slot * this.numAttributes, this.numAttributes, kth)
+                : this.distance.distance(this.target, inst, kth);
+        if (d <= kth) {
+            if (d < kth || this.heapSize < this.heap.length) {
+                offer(d);
+            }
+            addCandidate(slot, d);
+        }
+    }
+
+    protected void search(Node node) {
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.numSlots; i++) {
+                visit(node.slots[i]);
+            }
+            return;
+        }
+        double leftBound = lowerBound(node.left);
+        double rightBound = lowerBound(node.right);
+        Node first = node.left;
+        Node second = node.right;
+        double secondBound = rightBound;
+        if (rightBound < leftBound) {
+            first = node.right;
+            second = node.left;
+            secondBound = leftBound;
+        }
+        if (Math.min(leftBound, rightBound) <= kthDistance()) {
+            search(first);
+        }
+        if (secondBound <= kthDistance()) {
+            search(second);
+        }
+    }
+
+    /**
+     * Adds a distance to the heap of the k nearest, replacing the largest
+     * one when the heap is full.
+     */
+    protected void offer(double d) {
+        double[] h = this.heap;
+        int i;
+        if (this.heapSize < h.length) {
+            i = this.heapSize++;
+            while (i > 0 && h[(i - 1) >>> 1] < d) {
+                h[i] = h[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            h[i] = d;
+        } else {
+            i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= this.heapSize) {
+                    break;
+                }
+                if (child + 1 < this.heapSize && h[child + 1] > h[child]) {
+                    child++;
+                }
+                if (h[child] <= d) {
+                    break;
+                }
+                h[i] = h[child];
+                i = child;
+            }
+            h[i] = d;
+        }
+    }
+
+    protected void addCandidate(int slot, double d) {
+        if (this.numCandidates == this.candidateSlots.length) {
+            this.candidateSlots = Arrays.copyOf(this.candidateSlots, 2 * this.numCandidates);
+            this.candidateDistances = Arrays.copyOf(this.candidateDistances, 2 * this.numCandidates);
+        }
+        this.candidateSlots[this.numCandidates] = slot;
+        this.candidateDistances[this.numCandidates] = d;
+        this.numCandidates++;
+    }
+
+    /**
+     * Whether the target has a value for a numeric attribute that is missing
+     * in the whole window. Its normalized value, and so every distance, is
+     * then NaN.
+     */
+    protected boolean hasUndefinedDistances() {
+        for (int j = 0; j < this.numAttributes; j++) {
+            if (j != this.classIndex && !this.nominal[j] && !Double.isNaN(this.targetValues[j])
+                    && this.ranges[j][NormalizableDistance.R_MIN] == Double.POSITIVE_INFINITY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the k nearest instances of the window to the target, and all
+     * instances at the same distance as the k-th one.
+     *
+     * @param target the target instance
+     * @param k the number of neighbours
+     * @return the neighbours
+     */
+    public Instances kNearestNeighbours(Instance target, int k) {
+        updateRanges();
+        updateIndex();
+        this.target = target;
+        if (this.targetValues == null) {
+            this.targetValues = new double[this.numAttributes];
+            this.candidateSlots = new int[2 * LEAF_SIZE];
+            this.candidateDistances = new double[2 * LEAF_SIZE];
+        }
+        for (int j = 0; j < this.numAttributes; j++) {
+            this.targetValues[j] = target.isMissing(j) ? Double.NaN : target.value(j);
+        }
+        if (hasUndefinedDistances()) {
+            // every distance is NaN, and the linear search keeps the first k
+            Instances neighbours = new Instances(this.header, k);
+            for (int i = 0; i < this.numInstances && neighbours.numInstances() < k; i++) {
+                Instance inst = instance(i);
+                if (inst != target) {
+                    neighbours.add(inst);
+                }
+            }
+            this.target = null;
+            return neighbours;
+        }
+        updateNormalized();
+        this.targetNormalized = null;
+        if (this.normalizable) {
+            double[] normalizedValues = new double[this.numAttributes];
+            if (this.distance.normalizeValues(target, normalizedValues, 0)) {
+                this.targetNormalized = normalizedValues;
+            }
+        }
+        if (this.heap == null || this.heap.length != k) {
+            this.heap = new double[k];
+        }
+        this.heapSize = 0;
+        this.numCandidates = 0;
+        if (k > 0) {
+            searchIndex();
+        }
+        double kth = kthDistance();
+        Instances neighbours = new Instances(this.header, Math.min(this.numCandidates, k + 8));
+        for (int i = 0; i < this.numCandidates; i++) {
+            if (this.candidateDistances[i] <= kth) {
+                neighbours.add(this.instances[this.candidateSlots[i]]);
+            }
+        }
+        this.target = null;
+        this.targetNormalized = null;
+        return neighbours;
+    }
+}
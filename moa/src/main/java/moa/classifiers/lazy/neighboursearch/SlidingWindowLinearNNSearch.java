@@ -0,0 +1,64 @@
+/*
+ *    SlidingWindowLinearNNSearch.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.lazy.neighboursearch;
+
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ * Window of instances searched by brute force, for nearest neighbour search
+ * over a sliding window.
+ *
+ * <p>Unlike {@link LinearNNSearch}, which normalizes all the instances again
+ * for every search, the window keeps the normalized values of its instances
+ * from one search to the next, as {@link SlidingWindowKDTree} does: the
+ * values of an instance are normalized when it is added, and an attribute is
+ * normalized again only when its range in the window changes. The tree of
+ * {@link SlidingWindowKDTree} is never built, and every search computes the
+ * distances to all instances in insertion order, stopping a distance as soon
+ * as it exceeds the k-th nearest one found so far.</p>
+ *
+ * <p>The search returns the same neighbours as {@link LinearNNSearch} over
+ * the same window.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class SlidingWindowLinearNNSearch extends SlidingWindowKDTree {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates an empty window.
+     *
+     * @param dataset the header of the instances
+     */
+    public SlidingWindowLinearNNSearch(Instances dataset) {
+        super(dataset);
+    }
+
+    @Override
+    protected void updateIndex() {
+    }
+
+    @Override
+    protected void searchIndex() {
+        for (int i = 0; i < this.numInstances; i++) {
+            visit(orderSlot(i));
+        }
+    }
+}
@@ -26,9 +26,11 @@ import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
 import moa.options.ClassOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import moa.tasks.TaskMonitor;
+import com.yahoo.labs.samoa.instances.CompactDenseInstanceData;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import moa.core.Utils;
@@ -93,6 +95,11 @@ public class AccuracyWeightedEnsemble extends AbstractClassifier {
      */
     public IntOption numFoldsOption = new IntOption("numFolds", 'f', "Number of cross-validation folds for candidate classifier testing.", 10, 1, Integer.MAX_VALUE);
 
+    /**
+     * Whether the instances of the chunk are stored compactly.
+     */
+    public FlagOption compactChunkOption = new FlagOption("compactChunk", 'x', "Store nominal values in bytes and numeric values in floats in the chunk.");
+
     protected long[] classDistributions;
 
     protected Classifier[] ensemble;
@@ -121,6 +128,9 @@ public class AccuracyWeightedEnsemble extends AbstractClassifier {
 
     protected Instances currentChunk;
 
+    /** The layout of the instances of the chunk, when they are compact. */
+    protected CompactDenseInstanceData.Layout chunkLayout;
+
     @Override
     public void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
         this.maxMemberCount = (int) memberCountOption.getValue();
@@ -141,6 +151,7 @@ public class AccuracyWeightedEnsemble extends AbstractClassifier {
     @Override
     public void resetLearningImpl() {
         this.currentChunk = null;
+        this.chunkLayout = null;
         this.classDistributions = null;
         this.processedInstances = 0;
         this.ensemble = new Classifier[0];
@@ -155,7 +166,7 @@ public class AccuracyWeightedEnsemble extends AbstractClassifier {
         this.initVariables();
 
         this.classDistributions[(int) inst.classValue()]++;
-        this.currentChunk.add(inst);
+        this.currentChunk.add(this.chunkLayout != null ? this.chunkLayout.compact(inst) : inst);
         this.processedInstances++;
 
         if (this.processedInstances % this.chunkSize == 0) {
@@ -171,6 +182,10 @@ public class AccuracyWeightedEnsemble extends AbstractClassifier {
             this.currentChunk = new Instances(this.getModelContext());
         }
 
+        if (this.chunkLayout == null && this.compactChunkOption.isSet()) {
+            this.chunkLayout = new CompactDenseInstanceData.Layout(this.getModelContext());
+        }
+
         if (this.classDistributions == null) {
             this.classDistributions = new long[this.getModelContext().classAttribute().numValues()];
 
@@ -19,12 +19,18 @@
  */
 package moa.classifiers.meta;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.FlagOption;
 import moa.options.ClassOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.ArrayADWIN;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -32,6 +38,7 @@ import com.yahoo.labs.samoa.instances.Instance;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.ParallelUtils;
 import moa.options.*;
 
 /**
@@ -42,6 +49,12 @@ import moa.options.*;
  * Leveraging Bagging for Evolving Data Streams Machine Learning and Knowledge
  * Discovery in Databases, European Conference, ECML PKDD}, 2010.</p>
  *
+ * <p>With more than one core (-c option), the models are trained and scored in
+ * parallel, each one drawing its weights from its own seeded Random and
+ * training on its own copy of the instance. Results then do not depend on how
+ * many cores are used, but differ from the sequential results with one core,
+ * where all models draw from the random generator of the ensemble.</p>
+ *
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
  */
@@ -80,8 +93,17 @@ public class LeveragingBag extends AbstractClassifier {
                 "Leveraging Subagging using resampling without replacement."
             }, 0);
 
+    public IntOption numCoresOption = new IntOption("numCores", 'c',
+            "The number of cores used to train and score the models in parallel (1 = sequential, 0 = all available).",
+            1, 0, Integer.MAX_VALUE);
+
+    public FlagOption arrayAdwinOption = new FlagOption("arrayAdwin", 'b',
+            "Keep the buckets of ADWIN in arrays, with the same results.");
+
     protected Classifier[] ensemble;
 
+    protected Random[] memberRandom;
+
     protected ADWIN[] ADError;
 
     protected int numberOfChangesDetected;
@@ -100,12 +122,33 @@ public class LeveragingBag extends AbstractClassifier {
         }
         this.ADError = new ADWIN[this.ensemble.length];
         for (int i = 0; i < this.ensemble.length; i++) {
-            this.ADError[i] = new ADWIN((double) this.deltaAdwinOption.getValue());
+            this.ADError[i] = newADWIN();
         }
         this.numberOfChangesDetected = 0;
         if (this.outputCodesOption.isSet()) {
             this.initMatrixCodes = true;
         }
+        this.memberRandom = null;
+        if (isParallel()) {
+            this.memberRandom = new Random[this.ensemble.length];
+            for (int i = 0; i < this.ensemble.length; i++) {
+                this.memberRandom[i] = new Random(this.classifierRandom.nextInt());
+            }
+        }
+    }
+
+    protected ADWIN newADWIN() {
+        if (this.arrayAdwinOption.isSet()) {
+            return new ArrayADWIN((double) this.deltaAdwinOption.getValue());
+        }
+        return new ADWIN((double) this.deltaAdwinOption.getValue());
+    }
+
+    /**
+     * Returns true if the models are trained and scored on more than one core.
+     */
+    protected boolean isParallel() {
+        return this.numCoresOption.getValue() != 1;
     }
 
     @Override
@@ -143,45 +186,14 @@ public class LeveragingBag extends AbstractClassifier {
 
 
         boolean Change = false;
-        Instance weightedInst = (Instance) inst.copy();
-        double w = this.weightShrinkOption.getValue();
 
-        //Train ensemble of classifiers
-        for (int i = 0; i < this.ensemble.length; i++) {
-            double k = 0.0;
-            switch (this.leveraginBagAlgorithmOption.getChosenIndex()) {
-                case 0: //LeveragingBag
-                    k = MiscUtils.poisson(w, this.classifierRandom);
-                    break;
-                case 1: //LeveragingBagME
-                    double error = this.ADError[i].getEstimation();
-                    k = !this.ensemble[i].correctlyClassifies(weightedInst) ? 1.0 : (this.classifierRandom.nextDouble() < (error / (1.0 - error)) ? 1.0 : 0.0);
-                    break;
-                case 2: //LeveragingBagHalf
-                    w = 1.0;
-                    k = this.classifierRandom.nextBoolean() ? 0.0 : w;
-                    break;
-                case 3: //LeveragingBagWT
-                    w = 1.0;
-                    k = 1.0 + MiscUtils.poisson(w, this.classifierRandom);
-                    break;
-                case 4: //LeveragingSubag
-                    w = 1.0;
-                    k = MiscUtils.poisson(1, this.classifierRandom);
-                    k = (k > 0) ? w : 0;
-                    break;
-            }
-            if (k > 0) {
-                if (this.outputCodesOption.isSet()) {
-                    weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
-                }
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
-            }
-            boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
+        //Train ensemble of classifiers, on the shared pool with more than one core
+        if (this.memberRandom != null) {
+            Change = trainMembersParallel(inst);
+        } else {
+            Instance weightedInst = (Instance) inst.copy();
+            for (int i = 0; i < this.ensemble.length; i++) {
+                if (trainMember(i, inst, weightedInst, this.classifierRandom)) {
                     Change = true;
                 }
             }
@@ -199,19 +211,105 @@ public class LeveragingBag extends AbstractClassifier {
             if (imax != -1) {
                 this.ensemble[imax].resetLearning();
                 //this.ensemble[imax].trainOnInstance(inst);
-                this.ADError[imax] = new ADWIN((double) this.deltaAdwinOption.getValue());
+                this.ADError[imax] = newADWIN();
             }
         }
     }
 
+    /**
+     * Trains every model and updates its ADWIN on the shared pool, returning
+     * true if the error of some model increased.
+     */
+    protected boolean trainMembersParallel(final Instance inst) {
+        List<Callable<Boolean>> tasks = new ArrayList<>(this.ensemble.length);
+        for (int i = 0; i < this.ensemble.length; i++) {
+            final int member = i;
+            tasks.add(new Callable<Boolean>() {
+
+                @Override
+                public Boolean call() {
+                    return trainMember(member, inst, (Instance) inst.copy(),
+                            memberRandom[member]);
+                }
+            });
+        }
+        boolean change = false;
+        for (Boolean memberChange : ParallelUtils.invokeAll(
+                ParallelUtils.getSharedPool(this.numCoresOption.getValue()), tasks)) {
+            change |= memberChange;
+        }
+        return change;
+    }
+
+    /**
+     * Trains one model on a weighted copy of the instance and updates its
+     * ADWIN, returning true if the error of the model increased. The copy
+     * is given the class of the output code of the model first.
+     *
+     * @param i the index of the model
+     * @param inst the instance
+     * @param weightedInst the copy of the instance to weight
+     * @param random the random generator to draw the weight from
+     * @return true if the error of the model increased
+     */
+    protected boolean trainMember(int i, Instance inst, Instance weightedInst,
+            Random random) {
+        if (this.outputCodesOption.isSet()) {
+            weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
+        }
+        double k = memberWeight(i, weightedInst, random);
+        if (k > 0) {
+            weightedInst.setWeight(inst.weight() * k);
+            this.ensemble[i].trainOnInstance(weightedInst);
+        }
+        boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
+        double ErrEstim = this.ADError[i].getEstimation();
+        return this.ADError[i].setInput(correctlyClassifies ? 0 : 1)
+                && this.ADError[i].getEstimation() > ErrEstim;
+    }
+
+    /**
+     * Draws the weight of an instance for a model, as the chosen leveraging
+     * bagging algorithm does.
+     *
+     * @param i the index of the model
+     * @param inst the instance, with the class of the model
+     * @param random the random generator to draw the weight from
+     * @return the weight, 0 to not train the model
+     */
+    protected double memberWeight(int i, Instance inst, Random random) {
+        double k = 0.0;
+        switch (this.leveraginBagAlgorithmOption.getChosenIndex()) {
+            case 0: //LeveragingBag
+                k = MiscUtils.poisson(this.weightShrinkOption.getValue(), random);
+                break;
+            case 1: //LeveragingBagME
+                double error = this.ADError[i].getEstimation();
+                k = !this.ensemble[i].correctlyClassifies(inst) ? 1.0 : (random.nextDouble() < (error / (1.0 - error)) ? 1.0 : 0.0);
+                break;
+            case 2: //LeveragingBagHalf
+                k = random.nextBoolean() ? 0.0 : 1.0;
+                break;
+            case 3: //LeveragingBagWT
+                k = 1.0 + MiscUtils.poisson(1.0, random);
+                break;
+            case 4: //LeveragingSubag
+                k = MiscUtils.poisson(1, random) > 0 ? 1.0 : 0.0;
+                break;
+        }
+        return k;
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.outputCodesOption.isSet()) {
             return getVotesForInstanceBinary(inst);
         }
         DoubleVector combinedVote = new DoubleVector();
+        double[][] memberVotes = OzaBag.getMemberVotes(this.ensemble, inst,
+                this.numCoresOption.getValue());
         for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
+            DoubleVector vote = new DoubleVector(memberVotes[i]);
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
                 combinedVote.addValues(vote);
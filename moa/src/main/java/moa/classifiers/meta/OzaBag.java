@@ -19,13 +19,21 @@
  */
 package moa.classifiers.meta;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
+import moa.classifiers.SnapshotClassifier;
+import moa.classifiers.core.SnapshotPublisher;
 import com.yahoo.labs.samoa.instances.Instance;
 
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.ParallelUtils;
 import moa.options.ClassOption;
 import com.github.javacliparser.IntOption;
 
@@ -44,12 +52,20 @@ import com.github.javacliparser.IntOption;
  *
  * <p>Parameters:</p> <ul>
  * <li>-l : Classiﬁer to train</li>
- * <li>-s : The number of models in the bag</li> </ul>
+ * <li>-s : The number of models in the bag</li>
+ * <li>-c : The number of cores used to train and score the models in
+ * parallel</li> </ul>
+ *
+ * <p>When more than one core is used, every model draws its Poisson weights
+ * from its own Random, seeded from the random seed of the bag, so results
+ * do not depend on how many cores are used. They differ from the sequential
+ * results with one core, where all models draw from the random generator of
+ * the bag.</p>
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class OzaBag extends AbstractClassifier {
+public class OzaBag extends AbstractClassifier implements SnapshotClassifier {
 
     @Override
     public String getPurposeString() {
@@ -64,35 +80,131 @@ public class OzaBag extends AbstractClassifier {
     public IntOption ensembleSizeOption = new IntOption("ensembleSize", 's',
             "The number of models in the bag.", 10, 1, Integer.MAX_VALUE);
 
+    public IntOption numCoresOption = new IntOption("numCores", 'c',
+            "The number of cores used to train and score the models in parallel (1 = sequential, 0 = all available).",
+            1, 0, Integer.MAX_VALUE);
+
+    public IntOption snapshotPeriodOption = new IntOption("snapshotPeriod", 'w',
+            "The number of instances between the snapshots published for concurrent prediction (0 = none).",
+            0, 0, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
+    protected Random[] memberRandom;
+
+    protected SnapshotPublisher snapshotPublisher = new SnapshotPublisher();
+
     @Override
     public void resetLearningImpl() {
         this.ensemble = new Classifier[this.ensembleSizeOption.getValue()];
+        this.snapshotPublisher.clear();
         Classifier baseLearner = (Classifier) getPreparedClassOption(this.baseLearnerOption);
         baseLearner.resetLearning();
         for (int i = 0; i < this.ensemble.length; i++) {
             this.ensemble[i] = baseLearner.copy();
         }
+        this.memberRandom = null;
+        if (isParallel()) {
+            this.memberRandom = new Random[this.ensemble.length];
+            for (int i = 0; i < this.ensemble.length; i++) {
+                this.memberRandom[i] = new Random(this.classifierRandom.nextInt());
+            }
+        }
+    }
+
+    /**
+     * Returns true if the models are trained and scored on more than one core.
+     */
+    protected boolean isParallel() {
+        return this.numCoresOption.getValue() != 1;
     }
 
     @Override
     public void trainOnInstanceImpl(Instance inst) {
+        if (this.memberRandom != null) {
+            trainOnInstanceParallel(inst);
+        } else {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                int k = MiscUtils.poisson(1.0, this.classifierRandom);
+                if (k > 0) {
+                    Instance weightedInst = (Instance) inst.copy();
+                    weightedInst.setWeight(inst.weight() * k);
+                    this.ensemble[i].trainOnInstance(weightedInst);
+                }
+            }
+        }
+        this.snapshotPublisher.instanceTrained(this, this.snapshotPeriodOption.getValue());
+    }
+
+    protected void trainOnInstanceParallel(final Instance inst) {
+        List<Callable<Void>> tasks = new ArrayList<>(this.ensemble.length);
         for (int i = 0; i < this.ensemble.length; i++) {
-            int k = MiscUtils.poisson(1.0, this.classifierRandom);
-            if (k > 0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+            final Classifier member = this.ensemble[i];
+            final Random random = this.memberRandom[i];
+            tasks.add(new Callable<Void>() {
+
+                @Override
+                public Void call() {
+                    int k = MiscUtils.poisson(1.0, random);
+                    if (k > 0) {
+                        Instance weightedInst = (Instance) inst.copy();
+                        weightedInst.setWeight(inst.weight() * k);
+                        member.trainOnInstance(weightedInst);
+                    }
+                    return null;
+                }
+            });
+        }
+        ParallelUtils.invokeAll(ParallelUtils.getSharedPool(this.numCoresOption.getValue()), tasks);
+    }
+
+    /**
+     * Returns the votes of every model, computed in parallel when more than
+     * one core is used.
+     */
+    protected double[][] getMemberVotes(Instance inst) {
+        return getMemberVotes(this.ensemble, inst, this.numCoresOption.getValue());
+    }
+
+    /**
+     * Returns the votes of every model of an ensemble, computed on the
+     * shared pool unless a single core is used.
+     *
+     * @param ensemble the models
+     * @param inst the instance to score
+     * @param numCores the number of cores (1 = sequential, 0 = all available)
+     * @return the votes of the models, in their order
+     */
+    protected static double[][] getMemberVotes(Classifier[] ensemble,
+            final Instance inst, int numCores) {
+        double[][] votes = new double[ensemble.length][];
+        if (numCores == 1) {
+            for (int i = 0; i < ensemble.length; i++) {
+                votes[i] = ensemble[i].getVotesForInstance(inst);
             }
+            return votes;
         }
+        List<Callable<double[]>> tasks = new ArrayList<>(ensemble.length);
+        for (int i = 0; i < ensemble.length; i++) {
+            final Classifier member = ensemble[i];
+            tasks.add(new Callable<double[]>() {
+
+                @Override
+                public double[] call() {
+                    return member.getVotesForInstance(inst);
+                }
+            });
+        }
+        return ParallelUtils.invokeAll(ParallelUtils.getSharedPool(numCores),
+                tasks).toArray(votes);
     }
 
     @Override
     public double[] getVotesForInstance(Instance inst) {
         DoubleVector combinedVote = new DoubleVector();
+        double[][] memberVotes = getMemberVotes(inst);
         for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
+            DoubleVector vote = new DoubleVector(memberVotes[i]);
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
                 combinedVote.addValues(vote);
@@ -101,11 +213,48 @@ public class OzaBag extends AbstractClassifier {
         return combinedVote.getArrayRef();
     }
 
+    @Override
+    public Classifier getSnapshot() {
+        return this.snapshotPublisher.getSnapshot();
+    }
+
+    /**
+     * Publishes a snapshot made of the snapshots of the members, so that the
+     * members that are snapshot classifiers copy only what changed in their
+     * model since their last snapshot.
+     */
+    @Override
+    public void publishSnapshot() {
+        Classifier[] members = this.ensemble;
+        OzaBag snapshot;
+        this.ensemble = null;
+        try {
+            snapshot = (OzaBag) copy();
+        } finally {
+            this.ensemble = members;
+        }
+        if (members != null) {
+            snapshot.ensemble = SnapshotPublisher.snapshotsOf(members);
+        }
+        this.snapshotPublisher.publishPrepared(snapshot);
+    }
+
+    @Override
+    public void prepareForConcurrentReads() {
+        SnapshotPublisher.prepareForConcurrentReads(this.ensemble);
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
     }
 
+    @Override
+    public boolean retainsInstances() {
+        // members are trained on copies, but are given the instances to predict
+        return ((Classifier) getPreparedClassOption(this.baseLearnerOption)).retainsInstances();
+    }
+
     @Override
     public void getModelDescription(StringBuilder out, int indent) {
         // TODO Auto-generated method stub
@@ -21,6 +21,8 @@ package moa.classifiers.meta;
 
 import moa.options.ClassOption;
 import moa.classifiers.Classifier;
+import moa.classifiers.SnapshotClassifier;
+import moa.classifiers.core.SnapshotPublisher;
 import moa.classifiers.trees.ASHoeffdingTree;
 import moa.core.DoubleVector;
 import moa.core.MiscUtils;
@@ -85,7 +87,7 @@ import moa.core.Utils;
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
  */
-public class OzaBagASHT extends AbstractClassifier {
+public class OzaBagASHT extends AbstractClassifier implements SnapshotClassifier {
 
     private static final long serialVersionUID = 1L;
 
@@ -106,6 +108,10 @@ public class OzaBagASHT extends AbstractClassifier {
     public FlagOption resetTreesOption = new FlagOption("resetTrees",
             'e', "Reset trees when size is higher than the max.");
 
+    public IntOption snapshotPeriodOption = new IntOption("snapshotPeriod", 'w',
+            "The number of instances between the snapshots published for concurrent prediction (0 = none).",
+            0, 0, Integer.MAX_VALUE);
+
         public ClassOption baseLearnerOption = new ClassOption("baseLearner", 'l',
     		"ASHoeffdingTree to train.", ASHoeffdingTree.class,
     		"moa.classifiers.trees.ASHoeffdingTree");
@@ -114,9 +120,12 @@ public class OzaBagASHT extends AbstractClassifier {
     protected double[] error;
     protected double alpha = 0.01;
 
+    protected SnapshotPublisher snapshotPublisher = new SnapshotPublisher();
+
     @Override
     public void resetLearningImpl() {
         this.ensemble = new ASHoeffdingTree[this.ensembleSizeOption.getValue()];
+        this.snapshotPublisher.clear();
         this.error = new double[this.ensembleSizeOption.getValue()];
         Classifier baseLearner = (Classifier) getPreparedClassOption(this.baseLearnerOption);
         baseLearner.resetLearning();
@@ -149,6 +158,7 @@ public class OzaBagASHT extends AbstractClassifier {
                 this.ensemble[i].trainOnInstance(weightedInst);
             }
         }
+        this.snapshotPublisher.instanceTrained(this, this.snapshotPeriodOption.getValue());
     }
 
     public double[] getVotesForInstance(Instance inst) {
@@ -172,6 +182,21 @@ public class OzaBagASHT extends AbstractClassifier {
         // TODO Auto-generated method stub
     }
     
+    @Override
+    public Classifier getSnapshot() {
+        return this.snapshotPublisher.getSnapshot();
+    }
+
+    @Override
+    public void publishSnapshot() {
+        this.snapshotPublisher.publish(this);
+    }
+
+    @Override
+    public void prepareForConcurrentReads() {
+        SnapshotPublisher.prepareForConcurrentReads(this.ensemble);
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
@@ -20,14 +20,18 @@
 package moa.classifiers.meta;
 
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.ArrayADWIN;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
+import moa.classifiers.SnapshotClassifier;
+import moa.classifiers.core.SnapshotPublisher;
 import com.yahoo.labs.samoa.instances.Instance;
 
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
 import moa.options.ClassOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 
 /**
@@ -79,7 +83,7 @@ import com.github.javacliparser.IntOption;
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
  */
-public class OzaBagAdwin extends AbstractClassifier {
+public class OzaBagAdwin extends AbstractClassifier implements SnapshotClassifier {
 
     private static final long serialVersionUID = 1L;
 
@@ -94,13 +98,23 @@ public class OzaBagAdwin extends AbstractClassifier {
     public IntOption ensembleSizeOption = new IntOption("ensembleSize", 's',
             "The number of models in the bag.", 10, 1, Integer.MAX_VALUE);
 
+    public FlagOption arrayAdwinOption = new FlagOption("arrayAdwin", 'b',
+            "Keep the buckets of ADWIN in arrays, with the same results.");
+
+    public IntOption snapshotPeriodOption = new IntOption("snapshotPeriod", 'w',
+            "The number of instances between the snapshots published for concurrent prediction (0 = none).",
+            0, 0, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
     protected ADWIN[] ADError;
 
+    protected SnapshotPublisher snapshotPublisher = new SnapshotPublisher();
+
     @Override
     public void resetLearningImpl() {
         this.ensemble = new Classifier[this.ensembleSizeOption.getValue()];
+        this.snapshotPublisher.clear();
         Classifier baseLearner = (Classifier) getPreparedClassOption(this.baseLearnerOption);
         baseLearner.resetLearning();
         for (int i = 0; i < this.ensemble.length; i++) {
@@ -108,10 +122,17 @@ public class OzaBagAdwin extends AbstractClassifier {
         }
         this.ADError = new ADWIN[this.ensemble.length];
         for (int i = 0; i < this.ensemble.length; i++) {
-            this.ADError[i] = new ADWIN();
+            this.ADError[i] = newADWIN();
         }
     }
 
+    protected ADWIN newADWIN() {
+        if (this.arrayAdwinOption.isSet()) {
+            return new ArrayADWIN();
+        }
+        return new ADWIN();
+    }
+
     @Override
     public void trainOnInstanceImpl(Instance inst) {
         boolean Change = false;
@@ -142,9 +163,10 @@ public class OzaBagAdwin extends AbstractClassifier {
             if (imax != -1) {
                 this.ensemble[imax].resetLearning();
                 //this.ensemble[imax].trainOnInstance(inst);
-                this.ADError[imax] = new ADWIN();
+                this.ADError[imax] = newADWIN();
             }
         }
+        this.snapshotPublisher.instanceTrained(this, this.snapshotPeriodOption.getValue());
     }
 
     @Override
@@ -160,6 +182,37 @@ public class OzaBagAdwin extends AbstractClassifier {
         return combinedVote.getArrayRef();
     }
 
+    @Override
+    public Classifier getSnapshot() {
+        return this.snapshotPublisher.getSnapshot();
+    }
+
+    /**
+     * Publishes a snapshot made of the snapshots of the members, so that the
+     * members that are snapshot classifiers copy only what changed in their
+     * model since their last snapshot.
+     */
+    @Override
+    public void publishSnapshot() {
+        Classifier[] members = this.ensemble;
+        OzaBagAdwin snapshot;
+        this.ensemble = null;
+        try {
+            snapshot = (OzaBagAdwin) copy();
+        } finally {
+            this.ensemble = members;
+        }
+        if (members != null) {
+            snapshot.ensemble = SnapshotPublisher.snapshotsOf(members);
+        }
+        this.snapshotPublisher.publishPrepared(snapshot);
+    }
+
+    @Override
+    public void prepareForConcurrentReads() {
+        SnapshotPublisher.prepareForConcurrentReads(this.ensemble);
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
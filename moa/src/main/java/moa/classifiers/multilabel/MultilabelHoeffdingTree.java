@@ -175,6 +175,7 @@ public class MultilabelHoeffdingTree extends HoeffdingTreeClassifLeaves implemen
 		} else {
 			parent.setChild(parentBranch, newLeaf);
 		}
+		invalidateCompiledTree();
 		this.activeLeafNodeCount--;
 		this.inactiveLeafNodeCount++;
 	}
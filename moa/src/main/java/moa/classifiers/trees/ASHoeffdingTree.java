@@ -91,6 +91,7 @@ public class ASHoeffdingTree extends HoeffdingTree {
     @Override
     public void resetLearningImpl() {
         this.treeRoot = null;
+        invalidateCompiledTree();
         this.decisionNodeCount = 0;
         this.activeLeafNodeCount = 0;
         this.inactiveLeafNodeCount = 0;
@@ -111,6 +112,7 @@ public class ASHoeffdingTree extends HoeffdingTree {
         if (leafNode == null) {
             leafNode = newLearningNode();
             foundNode.parent.setChild(foundNode.parentBranch, leafNode);
+            invalidateCompiledTree();
             this.activeLeafNodeCount++;
         }
         if (leafNode instanceof LearningNode) {
@@ -130,6 +132,7 @@ public class ASHoeffdingTree extends HoeffdingTree {
                         if (this.resetTree == false) {
                             resizeTree(this.treeRoot, ((SplitNode) this.treeRoot).instanceChildIndex(inst));
                             this.treeRoot = ((SplitNode) this.treeRoot).getChild(((SplitNode) this.treeRoot).instanceChildIndex(inst));
+                            invalidateCompiledTree();
                         } else {
                             resetLearningImpl();
                         }
@@ -142,6 +145,7 @@ public class ASHoeffdingTree extends HoeffdingTree {
                 % this.memoryEstimatePeriodOption.getValue() == 0) {
             estimateModelByteSizes();
         }
+        this.snapshotPublisher.instanceTrained(this, this.snapshotPeriodOption.getValue());
     }
 
     //EXTENSION TO ASHT
@@ -0,0 +1,284 @@
+/*
+ *    CompiledTree.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.trees;
+
+import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.trees.HoeffdingAdaptiveTree.AdaSplitNode;
+import moa.classifiers.trees.HoeffdingTree.Node;
+import moa.classifiers.trees.HoeffdingTree.SplitNode;
+import moa.core.DoubleVector;
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Flat encoding of the structure of a Hoeffding tree, used to sort instances
+ * to leaves without allocating objects.
+ *
+ * <p>The nodes are numbered in preorder, and the split attribute, threshold
+ * and child offsets of every node are stored in parallel arrays, so that the
+ * tests of the usual split tests are evaluated inline. Nodes with any other
+ * split test fall back to {@link SplitNode#instanceChildIndex}. Leaves are
+ * not copied, as the votes are still computed by the node reached. A
+ * compiled tree is only valid as long as the structure of the tree does not
+ * change, and must be built again after every split.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class CompiledTree {
+
+    protected static final byte LEAF = 0;
+
+    /** Numeric test where values equal to the threshold go to branch 0. */
+    protected static final byte NUMERIC_LESS_OR_EQUAL = 1;
+
+    /** Numeric test where values equal to the threshold go to branch 1. */
+    protected static final byte NUMERIC_LESS = 2;
+
+    protected static final byte NOMINAL_BINARY = 3;
+
+    protected static final byte NOMINAL_MULTIWAY = 4;
+
+    protected static final byte OTHER_SPLIT = 5;
+
+    protected static final int NO_NODE = -1;
+
+    protected final Node root;
+
+    protected final Node[] nodes;
+
+    protected final byte[] kind;
+
+    protected final int[] attIndex;
+
+    protected final double[] splitValue;
+
+    protected final int[] firstChild;
+
+    protected final int[] numChildren;
+
+    /** Child node numbers of all split nodes, or NO_NODE for no child. */
+    protected final int[] children;
+
+    /** Alternate tree of every node, or NO_NODE if none. */
+    protected final int[] alternate;
+
+    private int numNodes;
+
+    private int numChildLinks;
+
+    public CompiledTree(Node root) {
+        this.root = root;
+        count(root);
+        this.nodes = new Node[this.numNodes];
+        this.kind = new byte[this.numNodes];
+        this.attIndex = new int[this.numNodes];
+        this.splitValue = new double[this.numNodes];
+        this.firstChild = new int[this.numNodes];
+        this.numChildren = new int[this.numNodes];
+        this.alternate = new int[this.numNodes];
+        this.children = new int[this.numChildLinks];
+        this.numNodes = 0;
+        this.numChildLinks = 0;
+        compile(root);
+    }
+
+    private static Node alternateOf(Node node) {
+        return node instanceof AdaSplitNode ? ((AdaSplitNode) node).alternateTree : null;
+    }
+
+    private void count(Node node) {
+        this.numNodes++;
+        if (node instanceof SplitNode) {
+            SplitNode split = (SplitNode) node;
+            this.numChildLinks += split.numChildren();
+            for (int i = 0; i < split.numChildren(); i++) {
+                Node child = split.getChild(i);
+                if (child != null) {
+                    count(child);
+                }
+            }
+            Node alternateTree = alternateOf(node);
+            if (alternateTree != null) {
+                count(alternateTree);
+            }
+        }
+    }
+
+    private int compile(Node node) {
+        int n = this.numNodes++;
+        this.nodes[n] = node;
+        this.alternate[n] = NO_NODE;
+        if (!(node instanceof SplitNode)) {
+            this.kind[n] = LEAF;
+            return n;
+        }
+        SplitNode split = (SplitNode) node;
+        compileTest(n, split);
+        int first = this.numChildLinks;
+        this.firstChild[n] = first;
+        this.numChildren[n] = split.numChildren();
+        this.numChildLinks += split.numChildren();
+        for (int i = 0; i < split.numChildren(); i++) {
+            Node child = split.getChild(i);
+            this.children[first + i] = child != null ? compile(child) : NO_NODE;
+        }
+        Node alternateTree = alternateOf(node);
+        if (alternateTree != null) {
+            this.alternate[n] = compile(alternateTree);
+        }
+        return n;
+    }
+
+    private void compileTest(int n, SplitNode split) {
+        this.kind[n] = OTHER_SPLIT;
+        if (split.getClass() != SplitNode.class
+                && split.getClass() != AdaSplitNode.class) {
+            // the node may choose its branches differently
+            return;
+        }
+        InstanceConditionalTest test = split.splitTest;
+        if (test.getClass() == NumericAttributeBinaryTest.class) {
+            NumericAttributeBinaryTest numericTest = (NumericAttributeBinaryTest) test;
+            this.kind[n] = numericTest.isEqualsPassesTest() ? NUMERIC_LESS_OR_EQUAL
+                    : NUMERIC_LESS;
+            this.attIndex[n] = numericTest.getAttsTestDependsOn()[0];
+            this.splitValue[n] = numericTest.getSplitValue();
+        } else if (test.getClass() == NominalAttributeBinaryTest.class) {
+            NominalAttributeBinaryTest nominalTest = (NominalAttributeBinaryTest) test;
+            this.kind[n] = NOMINAL_BINARY;
+            this.attIndex[n] = nominalTest.getAttsTestDependsOn()[0];
+            this.splitValue[n] = nominalTest.getSplitValue();
+        } else if (test.getClass() == NominalAttributeMultiwayTest.class) {
+            this.kind[n] = NOMINAL_MULTIWAY;
+            this.attIndex[n] = test.getAttsTestDependsOn()[0];
+        }
+    }
+
+    /**
+     * Returns the root of the tree this was compiled from.
+     */
+    public Node getRoot() {
+        return this.root;
+    }
+
+    public int numNodes() {
+        return this.nodes.length;
+    }
+
+    /**
+     * Returns the branch of a split node an instance goes to, or a negative
+     * value if the split attribute of the instance is missing, as done by
+     * the split test of the node.
+     */
+    protected int branchForInstance(int n, Instance inst) {
+        int att = this.attIndex[n];
+        switch (this.kind[n]) {
+            case NUMERIC_LESS_OR_EQUAL:
+                if (inst.isMissing(att)) {
+                    return -1;
+                }
+                return inst.valueInputAttribute(att) <= this.splitValue[n] ? 0 : 1;
+            case NUMERIC_LESS:
+                if (inst.isMissing(att)) {
+                    return -1;
+                }
+                return inst.valueInputAttribute(att) < this.splitValue[n] ? 0 : 1;
+            case NOMINAL_BINARY:
+                att = att < inst.classIndex() ? att : att + 1;
+                if (inst.isMissing(att)) {
+                    return -1;
+                }
+                return (int) inst.value(att) == (int) this.splitValue[n] ? 0 : 1;
+            case NOMINAL_MULTIWAY:
+                return inst.isMissing(att) ? -1 : (int) inst.value(att);
+            default:
+                return ((SplitNode) this.nodes[n]).instanceChildIndex(inst);
+        }
+    }
+
+    /**
+     * Returns the child an instance goes to from a split node, or NO_NODE
+     * if the instance stops at the split node.
+     */
+    protected int childForInstance(int n, Instance inst) {
+        int branch = branchForInstance(n, inst);
+        if (branch < 0 || branch >= this.numChildren[n]) {
+            return NO_NODE;
+        }
+        return this.children[this.firstChild[n] + branch];
+    }
+
+    /**
+     * Sorts an instance down the tree, as
+     * {@link Node#filterInstanceToLeaf} does.
+     *
+     * @return the leaf the instance reaches, or the split node it stops at
+     * when its split attribute is missing or the branch has no child yet
+     */
+    public Node filterInstanceToLeaf(Instance inst) {
+        int n = 0;
+        while (this.kind[n] != LEAF) {
+            int child = childForInstance(n, inst);
+            if (child == NO_NODE) {
+                break;
+            }
+            n = child;
+        }
+        return this.nodes[n];
+    }
+
+    /**
+     * Adds up the votes of all the leaves an instance reaches in the tree
+     * and in its alternate trees, in the order of
+     * {@link HoeffdingAdaptiveTree#filterInstanceToLeaves}.
+     *
+     * @param inst the instance to sort
+     * @param ht the tree the votes are computed for
+     * @param result the vector the votes are added to
+     */
+    public void addVotesOfLeaves(Instance inst, HoeffdingTree ht,
+            DoubleVector result) {
+        addVotesOfLeaves(0, inst, ht, result);
+    }
+
+    private void addVotesOfLeaves(int n, Instance inst, HoeffdingTree ht,
+            DoubleVector result) {
+        if (this.kind[n] == LEAF) {
+            result.addValues(this.nodes[n].getClassVotes(inst, ht));
+            return;
+        }
+        int branch = branchForInstance(n, inst);
+        if (branch >= 0) {
+            int child = branch < this.numChildren[n]
+                    ? this.children[this.firstChild[n] + branch] : NO_NODE;
+            if (child != NO_NODE) {
+                addVotesOfLeaves(child, inst, ht, result);
+            } else {
+                result.addValues(this.nodes[n].getClassVotes(inst, ht));
+            }
+        }
+        int alternateTree = this.alternate[n];
+        if (alternateTree != NO_NODE && this.kind[alternateTree] != LEAF) {
+            // an alternate tree that is a single leaf does not vote
+            addVotesOfLeaves(alternateTree, inst, ht, result);
+        }
+    }
+}
@@ -34,12 +34,14 @@ import moa.options.ClassOption;
 import moa.AbstractMOAObject;
 import moa.classifiers.Regressor;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.ParallelSplitEvaluator;
 import moa.classifiers.core.attributeclassobservers.FIMTDDNumericAttributeClassObserver;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.classifiers.AbstractClassifier;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
+import moa.core.LatencyHistogram;
 import moa.core.Measurement;
 import moa.core.SizeOf;
 import moa.core.StringUtils;
@@ -54,6 +56,8 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 
 	protected Node treeRoot;
 
+	protected LatencyHistogram splitLatencies = new LatencyHistogram();
+
 	protected int leafNodeCount = 0;
 	protected int splitNodeCount = 0;
 
@@ -118,6 +122,13 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 	public FlagOption learningRatioConstOption = new FlagOption(
 			"learningRatioConst", 'p', "Keep learning rate constant instead of decaying.");
 
+	public IntOption splitEvaluationCoresOption = new IntOption(
+			"splitEvaluationCores", 'j', "The number of cores used to evaluate the splits of the attributes in parallel (1 = sequential, 0 = all available).",
+			1, 0, Integer.MAX_VALUE);
+
+	public FlagOption measureSplitLatencyOption = new FlagOption(
+			"measureSplitLatency", 'v', "Measure the latency of split attempts.");
+
 	//endregion ================ OPTIONS ================
 
 	//region ================ CLASSES ================
@@ -324,21 +335,17 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 			// Set the nodeStatistics up as the preSplitDistribution, rather than the observedClassDistribution
 			double[] nodeSplitDist = new double[] {examplesSeen, sumOfValues, sumOfSquares};
 
-			for (int i = 0; i < this.attributeObservers.size(); i++) {
-				FIMTDDNumericAttributeClassObserver obs = this.attributeObservers.get(i);
-				if (obs != null) {
-
-					// AT THIS STAGE NON-NUMERIC ATTRIBUTES ARE IGNORED
-					AttributeSplitSuggestion bestSuggestion = null;
-					if (obs instanceof FIMTDDNumericAttributeClassObserver) {
-						bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion, nodeSplitDist, i, true);
-					}
-
-					if (bestSuggestion != null) {
-						bestSuggestions.add(bestSuggestion);
-					}
+			// AT THIS STAGE NON-NUMERIC ATTRIBUTES ARE IGNORED
+			long startTime = System.nanoTime();
+			for (AttributeSplitSuggestion bestSuggestion : ParallelSplitEvaluator.getBestEvaluatedSplitSuggestions(
+					this.attributeObservers, criterion, nodeSplitDist, true, tree.splitEvaluationCoresOption.getValue())) {
+				if (bestSuggestion != null) {
+					bestSuggestions.add(bestSuggestion);
 				}
 			}
+			if (tree.measureSplitLatencyOption.isSet()) {
+				tree.splitLatencies.addLatency(System.nanoTime() - startTime);
+			}
 			return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
 		}
 
@@ -674,6 +681,7 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 
 	public void resetLearningImpl() {
 		this.treeRoot = null;
+		this.splitLatencies = new LatencyHistogram();
 		this.leafNodeCount = 0;
 		this.splitNodeCount = 0;
 		this.maxID = 0;
@@ -694,9 +702,16 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 	}
 
 	protected Measurement[] getModelMeasurementsImpl() {
-		return new Measurement[]{ 
+		Measurement[] measurements = new Measurement[]{ 
 				new Measurement("tree size (leaves)", this.leafNodeCount)
 		};
+		if (this.measureSplitLatencyOption.isSet()) {
+			Measurement[] latencies = this.splitLatencies.getMeasurements("split attempt latency");
+			measurements = Arrays.copyOf(measurements, measurements.length + latencies.length);
+			System.arraycopy(latencies, 0, measurements,
+					measurements.length - latencies.length, latencies.length);
+		}
+		return measurements;
 	}
 
 	public int calcByteSize() {
@@ -22,7 +22,6 @@ package moa.classifiers.trees;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
-import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.driftdetection.ADWIN;
 import moa.core.DoubleVector;
@@ -132,6 +131,14 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
             this.classifierRandom = new Random(this.randomSeed);
         }
 
+        @Override
+        public void prepareForConcurrentReads() {
+            super.prepareForConcurrentReads();
+            if (this.alternateTree != null) {
+                this.alternateTree.prepareForConcurrentReads();
+            }
+        }
+
         @Override
         public int numberLeaves() {
             int numLeaves = 0;
@@ -198,6 +205,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
             if (this.ErrorChange == true) {//&& this.alternateTree == null) {
                 //Start a new alternative tree : learning node
                 this.alternateTree = ht.newLearningNode();
+                ht.invalidateCompiledTree();
                 //this.alternateTree.isAlternateTree = true;
                 ht.alternateTrees++;
             } // Check condition to replace tree
@@ -221,6 +229,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
                             // Switch root tree
                             ht.treeRoot = ((AdaSplitNode) ht.treeRoot).alternateTree;
                         }
+                        ht.invalidateCompiledTree();
                         ht.switchedAlternateTrees++;
                     } else if (Bound < altErrorRate - oldErrorRate) {
                         // Erase alternate tree
@@ -233,6 +242,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
                         } else {
                             ((AdaSplitNode) this.alternateTree).killTreeChilds(ht);
                         }
+                        ht.invalidateCompiledTree();
                         ht.prunedAlternateTrees++;
                     }
                 }
@@ -406,14 +416,12 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
             if (predictionOption == 0) { //MC
                 dist = this.observedClassDistribution.getArrayCopy();
             } else if (predictionOption == 1) { //NB
-                dist = NaiveBayes.doNaiveBayesPrediction(inst,
-                        this.observedClassDistribution, this.attributeObservers);
+                dist = doNaiveBayesPrediction(inst);
             } else { //NBAdaptive
                 if (this.mcCorrectWeight > this.nbCorrectWeight) {
                     dist = this.observedClassDistribution.getArrayCopy();
                 } else {
-                    dist = NaiveBayes.doNaiveBayesPrediction(inst,
-                            this.observedClassDistribution, this.attributeObservers);
+                    dist = doNaiveBayesPrediction(inst);
                 }
             }
             //New for option votes
@@ -461,9 +469,11 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
     public void trainOnInstanceImpl(Instance inst) {
         if (this.treeRoot == null) {
             this.treeRoot = newLearningNode();
+            invalidateCompiledTree();
             this.activeLeafNodeCount = 1;
         }
         ((NewNode) this.treeRoot).learnFromInstance(inst, this, null, -1);
+        this.snapshotPublisher.instanceTrained(this, this.snapshotPeriodOption.getValue());
     }
 
     //New for options vote
@@ -478,6 +488,11 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.treeRoot != null) {
+            if (this.compiledPredictionOption.isSet()) {
+                DoubleVector result = new DoubleVector();
+                getCompiledTree().addVotesOfLeaves(inst, this, result);
+                return result.getArrayRef();
+            }
             FoundNode[] foundNodes = filterInstanceToLeaves(inst,
                     null, -1, false);
             DoubleVector result = new DoubleVector();
@@ -134,6 +134,7 @@ public class HoeffdingAdaptiveTreeClassifLeaves extends HoeffdingAdaptiveTree {
 		    } else {
 			parent.setChild(parentIndex, newSplit);
 		    }
+		    invalidateCompiledTree();
 		}
 		// manage memory
 		enforceTrackerLimit();
@@ -186,4 +187,8 @@ public class HoeffdingAdaptiveTreeClassifLeaves extends HoeffdingAdaptiveTree {
 
     }
 
+    @Override
+    public boolean retainsInstances() {
+        return ((Classifier) getPreparedClassOption(this.leaveLearnerOption)).retainsInstances();
+    }
 }
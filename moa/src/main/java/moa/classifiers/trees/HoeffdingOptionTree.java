@@ -37,6 +37,7 @@ import moa.AbstractMOAObject;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.ParallelSplitEvaluator;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NullAttributeClassObserver;
@@ -46,6 +47,7 @@ import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
+import moa.core.LatencyHistogram;
 import moa.core.Measurement;
 import moa.core.SizeOf;
 import moa.core.StringUtils;
@@ -175,6 +177,15 @@ public class HoeffdingOptionTree extends AbstractClassifier {
     public IntOption memoryStrategyOption = new IntOption("memStrategy", 'z',
             "Memory strategy to use.", 2);
 
+    public IntOption splitEvaluationCoresOption = new IntOption(
+            "splitEvaluationCores", 'j',
+            "The number of cores used to evaluate the splits of the attributes in parallel (1 = sequential, 0 = all available).",
+            1, 0, Integer.MAX_VALUE);
+
+    public FlagOption measureSplitLatencyOption = new FlagOption(
+            "measureSplitLatency", 'v',
+            "Measure the latency of split attempts.");
+
     public static class FoundNode {
 
         public Node node;
@@ -577,16 +588,17 @@ public class HoeffdingOptionTree extends AbstractClassifier {
                         preSplitDist,
                         new double[][]{preSplitDist})));
             }
-            for (int i = 0; i < this.attributeObservers.size(); i++) {
-                AttributeClassObserver obs = this.attributeObservers.get(i);
-                if (obs != null) {
-                    AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-                            preSplitDist, i, ht.binarySplitsOption.isSet());
-                    if (bestSuggestion != null) {
-                        bestSuggestions.add(bestSuggestion);
-                    }
+            long startTime = System.nanoTime();
+            for (AttributeSplitSuggestion bestSuggestion : ParallelSplitEvaluator.getBestEvaluatedSplitSuggestions(
+                    this.attributeObservers, criterion, preSplitDist,
+                    ht.binarySplitsOption.isSet(), ht.splitEvaluationCoresOption.getValue())) {
+                if (bestSuggestion != null) {
+                    bestSuggestions.add(bestSuggestion);
                 }
             }
+            if (ht.measureSplitLatencyOption.isSet()) {
+                ht.splitLatencies.addLatency(System.nanoTime() - startTime);
+            }
             return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
         }
 
@@ -598,6 +610,8 @@ public class HoeffdingOptionTree extends AbstractClassifier {
 
     protected Node treeRoot;
 
+    protected LatencyHistogram splitLatencies = new LatencyHistogram();
+
     protected int decisionNodeCount;
 
     protected int activeLeafNodeCount;
@@ -628,6 +642,7 @@ public class HoeffdingOptionTree extends AbstractClassifier {
     @Override
     public void resetLearningImpl() {
         this.treeRoot = null;
+        this.splitLatencies = new LatencyHistogram();
         this.decisionNodeCount = 0;
         this.activeLeafNodeCount = 0;
         this.inactiveLeafNodeCount = 0;
@@ -711,7 +726,7 @@ public class HoeffdingOptionTree extends AbstractClassifier {
 
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
-        return new Measurement[]{
+        Measurement[] measurements = new Measurement[]{
                     new Measurement("tree size (nodes)", this.decisionNodeCount
                     + this.activeLeafNodeCount + this.inactiveLeafNodeCount),
                     new Measurement("tree size (leaves)", this.activeLeafNodeCount
@@ -727,6 +742,13 @@ public class HoeffdingOptionTree extends AbstractClassifier {
                     this.byteSizeEstimateOverheadFraction),
                     new Measurement("maximum prediction paths used",
                     this.maxPredictionPaths)};
+        if (this.measureSplitLatencyOption.isSet()) {
+            Measurement[] latencies = this.splitLatencies.getMeasurements("split attempt latency");
+            measurements = Arrays.copyOf(measurements, measurements.length + latencies.length);
+            System.arraycopy(latencies, 0, measurements,
+                    measurements.length - latencies.length, latencies.length);
+        }
+        return measurements;
     }
 
     public int measureTreeDepth() {
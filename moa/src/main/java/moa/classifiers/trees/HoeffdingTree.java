@@ -20,10 +20,13 @@
 package moa.classifiers.trees;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
@@ -31,8 +34,12 @@ import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.AbstractMOAObject;
 import moa.classifiers.AbstractClassifier;
-import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.Classifier;
+import moa.classifiers.SnapshotClassifier;
+import moa.classifiers.bayes.NaiveBayesScorer;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.ParallelSplitEvaluator;
+import moa.classifiers.core.SnapshotPublisher;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NullAttributeClassObserver;
@@ -40,8 +47,12 @@ import moa.classifiers.core.attributeclassobservers.NumericAttributeClassObserve
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
+import moa.core.DirectCopyable;
 import moa.core.DoubleVector;
+import moa.core.LatencyHistogram;
 import moa.core.Measurement;
+import moa.core.SerializeUtils;
 import moa.core.SizeOf;
 import moa.core.StringUtils;
 import moa.core.Utils;
@@ -92,7 +103,7 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class HoeffdingTree extends AbstractClassifier {
+public class HoeffdingTree extends AbstractClassifier implements SnapshotClassifier {
 
     private static final long serialVersionUID = 1L;
 
@@ -129,6 +140,13 @@ public class HoeffdingTree extends AbstractClassifier {
             "How many instances between memory consumption checks.", 1000000,
             0, Integer.MAX_VALUE);
 
+    public MultiChoiceOption byteSizeEstimationOption = new MultiChoiceOption(
+            "byteSizeEstimation", 'k', "How to measure the memory consumed by the tree.",
+            new String[]{"Analytic", "SizeOf", "Checked"},
+            new String[]{"Estimate the size of every node from its structure as it grows",
+                "Measure the nodes with the SizeOf agent",
+                "Estimate the sizes, and also measure them with the SizeOf agent"}, 0);
+
     public IntOption gracePeriodOption = new IntOption(
             "gracePeriod",
             'g',
@@ -162,6 +180,23 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
             "Disable pre-pruning.");
 
+    public FlagOption compiledPredictionOption = new FlagOption(
+            "compiledPrediction", 'f',
+            "Predict with a flat copy of the tree structure, built again after every split.");
+
+    public IntOption splitEvaluationCoresOption = new IntOption(
+            "splitEvaluationCores", 'j',
+            "The number of cores used to evaluate the splits of the attributes in parallel (1 = sequential, 0 = all available).",
+            1, 0, Integer.MAX_VALUE);
+
+    public FlagOption measureSplitLatencyOption = new FlagOption(
+            "measureSplitLatency", 'v',
+            "Measure the latency of split attempts.");
+
+    public IntOption snapshotPeriodOption = new IntOption("snapshotPeriod", 'w',
+            "The number of instances between the snapshots published for concurrent prediction (0 = none).",
+            0, 0, Integer.MAX_VALUE);
+
     public static class FoundNode {
 
         public Node node;
@@ -177,16 +212,43 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         }
     }
 
-    public static class Node extends AbstractMOAObject {
+    public static class Node extends AbstractMOAObject implements DirectCopyable,
+            ByteSizeEstimable {
 
         private static final long serialVersionUID = 1L;
 
         protected DoubleVector observedClassDistribution;
 
+        /**
+         * Class observations of a direct copy, before its class distribution
+         * is copied by {@link #copyClassDistributionTo}.
+         */
+        protected static final double[] NO_CLASS_OBSERVATIONS = new double[0];
+
         public Node(double[] classObservations) {
             this.observedClassDistribution = new DoubleVector(classObservations);
         }
 
+        @Override
+        public Object copyDirectly(Map<Object, Object> copies) {
+            return getClass() == Node.class
+                    ? copyClassDistributionTo(new Node(NO_CLASS_OBSERVATIONS), copies) : null;
+        }
+
+        /**
+         * Gives a direct copy of this node the copy of its class
+         * distribution.
+         *
+         * @param copy the new node
+         * @param copies the copies made so far of the objects of the graph
+         * @return the new node
+         */
+        protected <N extends Node> N copyClassDistributionTo(N copy, Map<Object, Object> copies) {
+            copy.observedClassDistribution = SerializeUtils.copyDirectly(
+                    this.observedClassDistribution, copies);
+            return copy;
+        }
+
         public int calcByteSize() {
             return (int) (SizeOf.sizeOf(this) + SizeOf.fullSizeOf(this.observedClassDistribution));
         }
@@ -195,6 +257,17 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             return calcByteSize();
         }
 
+        /**
+         * Estimates the size of this node, not including its children, from
+         * its structure.
+         */
+        @Override
+        public long estimateByteSize() {
+            // the class distribution
+            return SizeOf.estimateObjectSize(1, 0)
+                    + this.observedClassDistribution.estimateByteSize();
+        }
+
         public boolean isLeaf() {
             return true;
         }
@@ -212,6 +285,13 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             return this.observedClassDistribution.getArrayCopy();
         }
 
+        /**
+         * Computes the state of this node and its subtree that is computed
+         * lazily when predicting.
+         */
+        public void prepareForConcurrentReads() {
+        }
+
         public boolean observedClassDistributionIsPure() {
             return this.observedClassDistribution.numNonZeroEntries() < 2;
         }
@@ -269,6 +349,15 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             return byteSize;
         }
 
+        @Override
+        public long estimateByteSize() {
+            // the class distribution, the split test and the children
+            return SizeOf.estimateObjectSize(3, 0)
+                    + this.observedClassDistribution.estimateByteSize()
+                    + SizeOf.estimateListSize(this.children.size())
+                    + SizeOf.estimateFullSizeOf(this.splitTest);
+        }
+
         public SplitNode(InstanceConditionalTest splitTest,
                 double[] classObservations, int size) {
             super(classObservations);
@@ -284,6 +373,31 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         }
 
 
+        /**
+         * Copies this node and its subtree, sharing the split test which is
+         * never modified.
+         */
+        @Override
+        public Object copyDirectly(Map<Object, Object> copies) {
+            if (getClass() != SplitNode.class) {
+                return null;
+            }
+            SplitNode copy = copyClassDistributionTo(new SplitNode(this.splitTest,
+                    NO_CLASS_OBSERVATIONS, this.children.size()), copies);
+            for (int i = 0; i < this.children.size(); i++) {
+                Node child = this.children.get(i);
+                Node childCopy = null;
+                if (child != null) {
+                    childCopy = SerializeUtils.copyDirectly(child, copies);
+                    if (childCopy == null) {
+                        return null;
+                    }
+                }
+                copy.children.add(childCopy);
+            }
+            return copy;
+        }
+
         public int numChildren() {
             return this.children.size();
         }
@@ -309,6 +423,15 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             return false;
         }
 
+        @Override
+        public void prepareForConcurrentReads() {
+            for (Node child : this.children) {
+                if (child != null) {
+                    child.prepareForConcurrentReads();
+                }
+            }
+        }
+
         @Override
         public FoundNode filterInstanceToLeaf(Instance inst, SplitNode parent,
                 int parentBranch) {
@@ -358,6 +481,9 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
         private static final long serialVersionUID = 1L;
 
+        /** The estimated size of this node counted in the size of the tree. */
+        protected long byteSizeEstimate;
+
         public LearningNode(double[] initialClassObservations) {
             super(initialClassObservations);
         }
@@ -373,10 +499,32 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             super(initialClassObservations);
         }
 
+        @Override
+        public Object copyDirectly(Map<Object, Object> copies) {
+            if (getClass() != InactiveLearningNode.class) {
+                return null;
+            }
+            InactiveLearningNode copy = copyClassDistributionTo(
+                    new InactiveLearningNode(NO_CLASS_OBSERVATIONS), copies);
+            copy.byteSizeEstimate = this.byteSizeEstimate;
+            return copy;
+        }
+
+        @Override
+        public long estimateByteSize() {
+            // the class distribution, with the long byte size estimate
+            return SizeOf.estimateObjectSize(1, 8)
+                    + this.observedClassDistribution.estimateByteSize();
+        }
+
         @Override
         public void learnFromInstance(Instance inst, HoeffdingTree ht) {
+            int numValues = this.observedClassDistribution.numValues();
             this.observedClassDistribution.addToValue((int) inst.classValue(),
                     inst.weight());
+            if (this.observedClassDistribution.numValues() != numValues) {
+                ht.updateByteSizeEstimate(this);
+            }
         }
     }
 
@@ -390,6 +538,8 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         
         protected boolean isInitialized;
 
+        protected int numInstancesLearned;
+
         public ActiveLearningNode(double[] initialClassObservations) {
             super(initialClassObservations);
             this.weightSeenAtLastSplitEvaluation = getWeightSeen();
@@ -402,6 +552,43 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                     + (int) (SizeOf.fullSizeOf(this.attributeObservers));
         }
 
+        @Override
+        public Object copyDirectly(Map<Object, Object> copies) {
+            return getClass() == ActiveLearningNode.class
+                    ? copyStatisticsTo(new ActiveLearningNode(NO_CLASS_OBSERVATIONS), copies)
+                    : null;
+        }
+
+        /**
+         * Copies the statistics of this node to a new node.
+         *
+         * @param copy the new node
+         * @param copies the copies made so far of the objects of the graph
+         * @return the new node, or null if an attribute observer can not be
+         * copied directly
+         */
+        protected ActiveLearningNode copyStatisticsTo(ActiveLearningNode copy,
+                Map<Object, Object> copies) {
+            copyClassDistributionTo(copy, copies);
+            copy.byteSizeEstimate = this.byteSizeEstimate;
+            copy.weightSeenAtLastSplitEvaluation = this.weightSeenAtLastSplitEvaluation;
+            copy.isInitialized = this.isInitialized;
+            copy.numInstancesLearned = this.numInstancesLearned;
+            copy.attributeObservers = SerializeUtils.copyDirectly(this.attributeObservers, copies);
+            return copy.attributeObservers != null ? copy : null;
+        }
+
+        @Override
+        public long estimateByteSize() {
+            // the class distribution and the attribute observers, with the
+            // long byte size estimate, the double weight seen at the last
+            // split evaluation, the int number of instances learned and the
+            // boolean initialized flag
+            return SizeOf.estimateObjectSize(2, 8 + 8 + 4 + 1)
+                    + this.observedClassDistribution.estimateByteSize()
+                    + this.attributeObservers.estimateByteSize();
+        }
+
         @Override
         public void learnFromInstance(Instance inst, HoeffdingTree ht) {
             if (this.isInitialized == false) {
@@ -419,6 +606,13 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                 }
                 obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
             }
+            // the observers grow mostly with the first instances, when they
+            // meet new classes and values, so the size is estimated again
+            // after 1, 2, 4, 8... instances
+            this.numInstancesLearned++;
+            if ((this.numInstancesLearned & (this.numInstancesLearned - 1)) == 0) {
+                ht.updateByteSizeEstimate(this);
+            }
         }
 
         public double getWeightSeen() {
@@ -444,16 +638,17 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                         preSplitDist,
                         new double[][]{preSplitDist})));
             }
-            for (int i = 0; i < this.attributeObservers.size(); i++) {
-                AttributeClassObserver obs = this.attributeObservers.get(i);
-                if (obs != null) {
-                    AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-                            preSplitDist, i, ht.binarySplitsOption.isSet());
-                    if (bestSuggestion != null) {
-                        bestSuggestions.add(bestSuggestion);
-                    }
+            long startTime = System.nanoTime();
+            for (AttributeSplitSuggestion bestSuggestion : ParallelSplitEvaluator.getBestEvaluatedSplitSuggestions(
+                    this.attributeObservers, criterion, preSplitDist,
+                    ht.binarySplitsOption.isSet(), ht.splitEvaluationCoresOption.getValue())) {
+                if (bestSuggestion != null) {
+                    bestSuggestions.add(bestSuggestion);
                 }
             }
+            if (ht.measureSplitLatencyOption.isSet()) {
+                ht.splitLatencies.addLatency(System.nanoTime() - startTime);
+            }
             return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
         }
 
@@ -479,6 +674,231 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     protected boolean growthAllowed;
 
+    protected long estimatedActiveLeafBytes;
+
+    protected long estimatedInactiveLeafBytes;
+
+    protected long estimatedSplitNodeBytes;
+
+    protected transient CompiledTree compiledTree;
+
+    protected LatencyHistogram splitLatencies = new LatencyHistogram();
+
+    protected SnapshotPublisher snapshotPublisher = new SnapshotPublisher();
+
+    /**
+     * The nodes of the last snapshot, by identity of the nodes they were
+     * copied from, or null if no snapshot was published.
+     */
+    protected transient Map<Node, Node> snapshotNodes;
+
+    /** The leaves trained since the last snapshot. */
+    protected transient Set<Node> leavesTrainedSinceSnapshot;
+
+    /**
+     * Discards the compiled form of the tree, after a change of its
+     * structure.
+     */
+    protected void invalidateCompiledTree() {
+        this.compiledTree = null;
+    }
+
+    /**
+     * Returns the compiled form of the tree, compiling it again if the
+     * structure of the tree changed since it was last used.
+     */
+    protected CompiledTree getCompiledTree() {
+        CompiledTree compiled = this.compiledTree;
+        if (compiled == null || compiled.getRoot() != this.treeRoot) {
+            compiled = new CompiledTree(this.treeRoot);
+            this.compiledTree = compiled;
+        }
+        return compiled;
+    }
+
+    @Override
+    public Classifier getSnapshot() {
+        return this.snapshotPublisher.getSnapshot();
+    }
+
+    /**
+     * Publishes a snapshot that shares with the last one the nodes whose
+     * subtree did not change since, so that only the leaves trained since
+     * the last snapshot and the paths from the root to them are copied, and
+     * the pause of the training thread does not grow with the size of the
+     * tree. The statistics of the leaves, which take most of the memory, are
+     * not copied again when they did not change.
+     */
+    @Override
+    public void publishSnapshot() {
+        if (!publishesVersionedSnapshots()) {
+            this.snapshotPublisher.publish(this);
+            return;
+        }
+        Map<Node, Node> nodes = new IdentityHashMap<Node, Node>();
+        Node rootCopy = null;
+        if (this.treeRoot != null) {
+            if (this.snapshotNodes == null) {
+                this.snapshotNodes = new IdentityHashMap<Node, Node>();
+                this.leavesTrainedSinceSnapshot = Collections.newSetFromMap(
+                        new IdentityHashMap<Node, Boolean>());
+            }
+            rootCopy = copyForSnapshot(this.treeRoot, nodes);
+            if (rootCopy == null) {
+                this.snapshotNodes = null;
+                this.leavesTrainedSinceSnapshot = null;
+                this.snapshotPublisher.publish(this);
+                return;
+            }
+        }
+        Node root = this.treeRoot;
+        HoeffdingTree snapshot;
+        this.treeRoot = null;
+        try {
+            snapshot = (HoeffdingTree) copy();
+        } finally {
+            this.treeRoot = root;
+        }
+        snapshot.treeRoot = rootCopy;
+        if (rootCopy != null && this.compiledPredictionOption.isSet()) {
+            snapshot.getCompiledTree();
+        }
+        if (this.snapshotNodes != null) {
+            this.snapshotNodes = nodes;
+            this.leavesTrainedSinceSnapshot.clear();
+        }
+        this.snapshotPublisher.publishPrepared(snapshot);
+    }
+
+    /**
+     * Returns whether the snapshots share the nodes that did not change with
+     * the previous snapshot. Subclasses, which may change their nodes
+     * elsewhere than in trainOnInstanceImpl, publish copies of the whole
+     * tree.
+     */
+    protected boolean publishesVersionedSnapshots() {
+        return getClass() == HoeffdingTree.class;
+    }
+
+    /**
+     * Copies a node for a snapshot, giving the node of the last snapshot if
+     * neither the node nor its subtree changed since. The new leaves are
+     * prepared for concurrent reads.
+     *
+     * @param node the node
+     * @param nodes the nodes of the new snapshot, by identity of their
+     * original
+     * @return the copy, or null if a node can not be copied directly
+     */
+    protected Node copyForSnapshot(Node node, Map<Node, Node> nodes) {
+        Node previous = this.snapshotNodes.get(node);
+        Node copy;
+        if (node instanceof SplitNode) {
+            if (node.getClass() != SplitNode.class) {
+                return null;
+            }
+            SplitNode split = (SplitNode) node;
+            SplitNode previousSplit = (SplitNode) previous;
+            boolean changed = previousSplit == null
+                    || previousSplit.numChildren() != split.numChildren();
+            Node[] childCopies = new Node[split.numChildren()];
+            for (int i = 0; i < childCopies.length; i++) {
+                Node child = split.getChild(i);
+                if (child != null) {
+                    childCopies[i] = copyForSnapshot(child, nodes);
+                    if (childCopies[i] == null) {
+                        return null;
+                    }
+                }
+                changed = changed || previousSplit.getChild(i) != childCopies[i];
+            }
+            if (changed) {
+                SplitNode splitCopy = split.copyClassDistributionTo(new SplitNode(split.splitTest,
+                        Node.NO_CLASS_OBSERVATIONS, childCopies.length),
+                        new IdentityHashMap<Object, Object>());
+                for (Node childCopy : childCopies) {
+                    splitCopy.children.add(childCopy);
+                }
+                copy = splitCopy;
+            } else {
+                copy = previous;
+            }
+        } else if (previous != null && !this.leavesTrainedSinceSnapshot.contains(node)) {
+            copy = previous;
+        } else {
+            copy = SerializeUtils.copyDirectly(node, new IdentityHashMap<Object, Object>());
+            if (copy == null) {
+                return null;
+            }
+            copy.prepareForConcurrentReads();
+        }
+        nodes.put(node, copy);
+        return copy;
+    }
+
+    @Override
+    public void prepareForConcurrentReads() {
+        if (this.treeRoot != null) {
+            this.treeRoot.prepareForConcurrentReads();
+            if (this.compiledPredictionOption.isSet()) {
+                getCompiledTree();
+            }
+        }
+    }
+
+    /**
+     * Returns whether the sizes of the nodes are estimated from their
+     * structure and summed up as the tree grows, so that the size of the tree
+     * is known in constant time. Subclasses, whose nodes hold more state,
+     * measure them with the SizeOf agent.
+     */
+    protected boolean usesByteSizeEstimates() {
+        return getClass() == HoeffdingTree.class
+                && this.byteSizeEstimationOption.getChosenIndex() != 1;
+    }
+
+    /**
+     * Estimates again the size of a learning node of the tree, and updates
+     * the size of the tree.
+     *
+     * @param node the learning node that changed or joined the tree
+     */
+    protected void updateByteSizeEstimate(LearningNode node) {
+        if (usesByteSizeEstimates()) {
+            long byteSize = node.estimateByteSize();
+            addToByteSizeEstimate(node, byteSize - node.byteSizeEstimate);
+            node.byteSizeEstimate = byteSize;
+        }
+    }
+
+    /**
+     * Removes the size of a learning node that leaves the tree.
+     *
+     * @param node the learning node replaced in the tree
+     */
+    protected void removeByteSizeEstimate(LearningNode node) {
+        if (usesByteSizeEstimates()) {
+            addToByteSizeEstimate(node, -node.byteSizeEstimate);
+        }
+    }
+
+    private void addToByteSizeEstimate(LearningNode node, long byteSize) {
+        if (node instanceof ActiveLearningNode) {
+            this.estimatedActiveLeafBytes += byteSize;
+        } else {
+            this.estimatedInactiveLeafBytes += byteSize;
+        }
+    }
+
+    /**
+     * Returns the estimated size of the tree, in constant time. The fields
+     * of the tree itself are only counted with the SizeOf agent.
+     */
+    public long estimateByteSize() {
+        return Math.max(SizeOf.sizeOf(this), 0) + this.estimatedSplitNodeBytes
+                + this.estimatedActiveLeafBytes + this.estimatedInactiveLeafBytes;
+    }
+
     public int calcByteSize() {
         int size = (int) SizeOf.sizeOf(this);
         if (this.treeRoot != null) {
@@ -489,18 +909,26 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     @Override
     public int measureByteSize() {
-        return calcByteSize();
+        return usesByteSizeEstimates() ? (int) estimateByteSize() : calcByteSize();
     }
 
     @Override
     public void resetLearningImpl() {
         this.treeRoot = null;
+        invalidateCompiledTree();
+        this.splitLatencies = new LatencyHistogram();
+        this.snapshotPublisher.clear();
+        this.snapshotNodes = null;
+        this.leavesTrainedSinceSnapshot = null;
         this.decisionNodeCount = 0;
         this.activeLeafNodeCount = 0;
         this.inactiveLeafNodeCount = 0;
         this.inactiveLeafByteSizeEstimate = 0.0;
         this.activeLeafByteSizeEstimate = 0.0;
         this.byteSizeEstimateOverheadFraction = 1.0;
+        this.estimatedActiveLeafBytes = 0;
+        this.estimatedInactiveLeafBytes = 0;
+        this.estimatedSplitNodeBytes = 0;
         this.growthAllowed = true;
         if (this.leafpredictionOption.getChosenIndex()>0) { 
             this.removePoorAttsOption = null;
@@ -510,25 +938,35 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     @Override
     public void trainOnInstanceImpl(Instance inst) {
         if (this.treeRoot == null) {
-            this.treeRoot = newLearningNode();
+            LearningNode root = newLearningNode();
+            this.treeRoot = root;
+            invalidateCompiledTree();
             this.activeLeafNodeCount = 1;
+            updateByteSizeEstimate(root);
         }
         FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
         Node leafNode = foundNode.node;
         if (leafNode == null) {
-            leafNode = newLearningNode();
-            foundNode.parent.setChild(foundNode.parentBranch, leafNode);
+            LearningNode newLeaf = newLearningNode();
+            foundNode.parent.setChild(foundNode.parentBranch, newLeaf);
+            invalidateCompiledTree();
             this.activeLeafNodeCount++;
+            updateByteSizeEstimate(newLeaf);
+            leafNode = newLeaf;
         }
         if (leafNode instanceof LearningNode) {
             LearningNode learningNode = (LearningNode) leafNode;
             learningNode.learnFromInstance(inst, this);
+            if (this.leavesTrainedSinceSnapshot != null) {
+                this.leavesTrainedSinceSnapshot.add(learningNode);
+            }
             if (this.growthAllowed
                     && (learningNode instanceof ActiveLearningNode)) {
                 ActiveLearningNode activeLearningNode = (ActiveLearningNode) learningNode;
                 double weightSeen = activeLearningNode.getWeightSeen();
                 if (weightSeen
                         - activeLearningNode.getWeightSeenAtLastSplitEvaluation() >= this.gracePeriodOption.getValue()) {
+                    updateByteSizeEstimate(activeLearningNode);
                     attemptToSplit(activeLearningNode, foundNode.parent,
                             foundNode.parentBranch);
                     activeLearningNode.setWeightSeenAtLastSplitEvaluation(weightSeen);
@@ -539,11 +977,15 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                 % this.memoryEstimatePeriodOption.getValue() == 0) {
             estimateModelByteSizes();
         }
+        this.snapshotPublisher.instanceTrained(this, this.snapshotPeriodOption.getValue());
     }
 
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.treeRoot != null) {
+            if (this.compiledPredictionOption.isSet()) {
+                return getCompiledTree().filterInstanceToLeaf(inst).getClassVotes(inst, this);
+            }
             FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst,
                     null, -1);
             Node leafNode = foundNode.node;
@@ -559,7 +1001,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
-        return new Measurement[]{
+        Measurement[] measurements = new Measurement[]{
                     new Measurement("tree size (nodes)", this.decisionNodeCount
                     + this.activeLeafNodeCount + this.inactiveLeafNodeCount),
                     new Measurement("tree size (leaves)", this.activeLeafNodeCount
@@ -573,6 +1015,19 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                     this.inactiveLeafByteSizeEstimate),
                     new Measurement("byte size estimate overhead",
                     this.byteSizeEstimateOverheadFraction)};
+        if (usesByteSizeEstimates()
+                && this.byteSizeEstimationOption.getChosenIndex() == 2) {
+            measurements = Arrays.copyOf(measurements, measurements.length + 1);
+            measurements[measurements.length - 1] = new Measurement(
+                    "SizeOf byte size", calcByteSize());
+        }
+        if (this.measureSplitLatencyOption.isSet()) {
+            Measurement[] latencies = this.splitLatencies.getMeasurements("split attempt latency");
+            measurements = Arrays.copyOf(measurements, measurements.length + latencies.length);
+            System.arraycopy(latencies, 0, measurements,
+                    measurements.length - latencies.length, latencies.length);
+        }
+        return measurements;
     }
 
     public int measureTreeDepth() {
@@ -592,6 +1047,11 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return false;
     }
 
+    @Override
+    public boolean retainsInstances() {
+        return false;
+    }
+
     public static double computeHoeffdingBound(double range, double confidence,
             double n) {
         return Math.sqrt(((range * range) * Math.log(1.0 / confidence))
@@ -669,6 +1129,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                     for (int poorAtt : poorAtts) {
                         node.disableAttribute(poorAtt);
                     }
+                    updateByteSizeEstimate(node);
                 }
             }
             if (shouldSplit) {
@@ -679,9 +1140,14 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                 } else {
                     SplitNode newSplit = newSplitNode(splitDecision.splitTest,
                             node.getObservedClassDistribution(),splitDecision.numSplits() );
+                    removeByteSizeEstimate(node);
                     for (int i = 0; i < splitDecision.numSplits(); i++) {
-                        Node newChild = newLearningNode(splitDecision.resultingClassDistributionFromSplit(i));
+                        LearningNode newChild = newLearningNode(splitDecision.resultingClassDistributionFromSplit(i));
                         newSplit.setChild(i, newChild);
+                        updateByteSizeEstimate(newChild);
+                    }
+                    if (usesByteSizeEstimates()) {
+                        this.estimatedSplitNodeBytes += newSplit.estimateByteSize();
                     }
                     this.activeLeafNodeCount--;
                     this.decisionNodeCount++;
@@ -691,6 +1157,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                     } else {
                         parent.setChild(parentIndex, newSplit);
                     }
+                    invalidateCompiledTree();
                 }
                 // manage memory
                 enforceTrackerLimit();
@@ -746,14 +1213,19 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     }
 
     public void estimateModelByteSizes() {
-        FoundNode[] learningNodes = findLearningNodes();
         long totalActiveSize = 0;
         long totalInactiveSize = 0;
-        for (FoundNode foundNode : learningNodes) {
-            if (foundNode.node instanceof ActiveLearningNode) {
-                totalActiveSize += SizeOf.fullSizeOf(foundNode.node);
-            } else {
-                totalInactiveSize += SizeOf.fullSizeOf(foundNode.node);
+        if (usesByteSizeEstimates()) {
+            totalActiveSize = this.estimatedActiveLeafBytes;
+            totalInactiveSize = this.estimatedInactiveLeafBytes;
+        } else {
+            FoundNode[] learningNodes = findLearningNodes();
+            for (FoundNode foundNode : learningNodes) {
+                if (foundNode.node instanceof ActiveLearningNode) {
+                    totalActiveSize += SizeOf.fullSizeOf(foundNode.node);
+                } else {
+                    totalInactiveSize += SizeOf.fullSizeOf(foundNode.node);
+                }
             }
         }
         if (totalActiveSize > 0) {
@@ -788,26 +1260,32 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     protected void deactivateLearningNode(ActiveLearningNode toDeactivate,
             SplitNode parent, int parentBranch) {
-        Node newLeaf = new InactiveLearningNode(toDeactivate.getObservedClassDistribution());
+        LearningNode newLeaf = new InactiveLearningNode(toDeactivate.getObservedClassDistribution());
         if (parent == null) {
             this.treeRoot = newLeaf;
         } else {
             parent.setChild(parentBranch, newLeaf);
         }
+        invalidateCompiledTree();
         this.activeLeafNodeCount--;
         this.inactiveLeafNodeCount++;
+        removeByteSizeEstimate(toDeactivate);
+        updateByteSizeEstimate(newLeaf);
     }
 
     protected void activateLearningNode(InactiveLearningNode toActivate,
             SplitNode parent, int parentBranch) {
-        Node newLeaf = newLearningNode(toActivate.getObservedClassDistribution());
+        LearningNode newLeaf = newLearningNode(toActivate.getObservedClassDistribution());
         if (parent == null) {
             this.treeRoot = newLeaf;
         } else {
             parent.setChild(parentBranch, newLeaf);
         }
+        invalidateCompiledTree();
         this.activeLeafNodeCount++;
         this.inactiveLeafNodeCount--;
+        removeByteSizeEstimate(toActivate);
+        updateByteSizeEstimate(newLeaf);
     }
 
     protected FoundNode[] findLearningNodes() {
@@ -849,16 +1327,60 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
         private static final long serialVersionUID = 1L;
 
+        /**
+         * Tables of the naive Bayes votes, computed again when needed and
+         * not counted in the size of the node.
+         */
+        protected transient NaiveBayesScorer naiveBayesScorer;
+
         public LearningNodeNB(double[] initialClassObservations) {
             super(initialClassObservations);
         }
 
+        /** Brings the naive Bayes tables up to date with the statistics of this node. */
+        @Override
+        public void prepareForConcurrentReads() {
+            if (this.naiveBayesScorer == null) {
+                this.naiveBayesScorer = new NaiveBayesScorer();
+            }
+            this.naiveBayesScorer.update(this.observedClassDistribution,
+                    this.attributeObservers);
+        }
+
+        /**
+         * Computes the naive Bayes votes of the statistics of this node.
+         *
+         * @param inst the instance
+         * @return the votes for every class
+         */
+        protected double[] doNaiveBayesPrediction(Instance inst) {
+            if (this.naiveBayesScorer == null) {
+                this.naiveBayesScorer = new NaiveBayesScorer();
+            }
+            return this.naiveBayesScorer.getVotesForInstance(inst,
+                    this.observedClassDistribution, this.attributeObservers);
+        }
+
+        @Override
+        public long estimateByteSize() {
+            // the fields of an active learning node and the naive Bayes
+            // scorer, whose tables are not counted
+            return SizeOf.estimateObjectSize(3, 8 + 8 + 4 + 1)
+                    + this.observedClassDistribution.estimateByteSize()
+                    + this.attributeObservers.estimateByteSize();
+        }
+
+        @Override
+        public Object copyDirectly(Map<Object, Object> copies) {
+            return getClass() == LearningNodeNB.class
+                    ? copyStatisticsTo(new LearningNodeNB(NO_CLASS_OBSERVATIONS), copies)
+                    : null;
+        }
+
         @Override
         public double[] getClassVotes(Instance inst, HoeffdingTree ht) {
             if (getWeightSeen() >= ht.nbThresholdOption.getValue()) {
-                return NaiveBayes.doNaiveBayesPrediction(inst,
-                        this.observedClassDistribution,
-                        this.attributeObservers);
+                return doNaiveBayesPrediction(inst);
             }
             return super.getClassVotes(inst, ht);
         }
@@ -881,26 +1403,44 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             super(initialClassObservations);
         }
 
+        @Override
+        public Object copyDirectly(Map<Object, Object> copies) {
+            if (getClass() != LearningNodeNBAdaptive.class) {
+                return null;
+            }
+            LearningNodeNBAdaptive copy = new LearningNodeNBAdaptive(NO_CLASS_OBSERVATIONS);
+            copy.mcCorrectWeight = this.mcCorrectWeight;
+            copy.nbCorrectWeight = this.nbCorrectWeight;
+            return copyStatisticsTo(copy, copies);
+        }
+
         @Override
         public void learnFromInstance(Instance inst, HoeffdingTree ht) {
             int trueClass = (int) inst.classValue();
             if (this.observedClassDistribution.maxIndex() == trueClass) {
                 this.mcCorrectWeight += inst.weight();
             }
-            if (Utils.maxIndex(NaiveBayes.doNaiveBayesPrediction(inst,
-                    this.observedClassDistribution, this.attributeObservers)) == trueClass) {
+            if (Utils.maxIndex(doNaiveBayesPrediction(inst)) == trueClass) {
                 this.nbCorrectWeight += inst.weight();
             }
             super.learnFromInstance(inst, ht);
         }
 
+        @Override
+        public long estimateByteSize() {
+            // the fields of a naive Bayes learning node, with the double
+            // weights of the correct majority class and naive Bayes votes
+            return SizeOf.estimateObjectSize(3, 8 + 8 + 4 + 1 + 2 * 8)
+                    + this.observedClassDistribution.estimateByteSize()
+                    + this.attributeObservers.estimateByteSize();
+        }
+
         @Override
         public double[] getClassVotes(Instance inst, HoeffdingTree ht) {
             if (this.mcCorrectWeight > this.nbCorrectWeight) {
                 return this.observedClassDistribution.getArrayCopy();
             }
-            return NaiveBayes.doNaiveBayesPrediction(inst,
-                    this.observedClassDistribution, this.attributeObservers);
+            return doNaiveBayesPrediction(inst);
         }
     }
 
@@ -180,10 +180,16 @@ public class HoeffdingTreeClassifLeaves extends HoeffdingTree {
                     } else {
                         parent.setChild(parentIndex, newSplit);
                     }
+                    invalidateCompiledTree();
                 }
                 // manage memory
                 enforceTrackerLimit();
             }
         }
     }
+
+    @Override
+    public boolean retainsInstances() {
+        return ((Classifier) getPreparedClassOption(this.learnerOption)).retainsInstances();
+    }
 }
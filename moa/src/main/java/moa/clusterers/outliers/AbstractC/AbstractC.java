@@ -67,7 +67,7 @@ public class AbstractC extends AbstractCBase {
         // create fifo
         windowNodes = new Vector<ISBNode>();
         // create ISB
-        ISB = new ISBIndex(m_radius, m_Fraction);
+        ISB = new ISBIndex(m_radius, m_Fraction, CreateRangeIndex(m_radius));
         
         // init statistics
         m_nBothInlierOutlier = 0;
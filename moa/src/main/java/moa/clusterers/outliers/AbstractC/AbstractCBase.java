@@ -25,8 +25,17 @@ import java.util.ArrayList;
 import java.util.Vector;
 import moa.clusterers.outliers.AbstractC.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.clusterers.outliers.utils.GridRangeIndex;
+import moa.clusterers.outliers.utils.MTreeRangeIndex;
+import moa.clusterers.outliers.utils.RangeIndex;
+import com.github.javacliparser.MultiChoiceOption;
 
 public abstract class AbstractCBase extends MyBaseOutlierDetector {    
+    public MultiChoiceOption rangeIndexOption = new MultiChoiceOption("rangeIndex", 'i',
+            "Index of the range queries.", new String[]{"MTree", "Grid"},
+            new String[]{"M-tree of the objects, for objects of many dimensions",
+                "Grid with cells of the size of the radius, for objects of few dimensions"}, 0);
+    
     protected static final Long FIRST_OBJ_ID = 1L;
     
     // object identifier increments with each new data stream object
@@ -44,6 +53,13 @@ public abstract class AbstractCBase extends MyBaseOutlierDetector {
     public int m_nOnlyInlier;
     public int m_nOnlyOutlier;
     
+    // creates the index of the range queries of the chosen type
+    protected RangeIndex<StreamObj> CreateRangeIndex(double radius) {
+        if (rangeIndexOption.getChosenIndex() == 1)
+            return new GridRangeIndex<StreamObj>(radius);
+        return new MTreeRangeIndex<StreamObj>(new MyMTree());
+    }
+    
     @Override
     public String getObjectInfo(Object obj) {
         if (obj == null) return null;
@@ -121,7 +121,7 @@ public class ApproxSTORM extends STORMBase {
         // create fifo
         windowNodes = new Vector<ISBNode>();
         // create ISB
-        ISB = new ISBIndex(m_radius, m_k);
+        ISB = new ISBIndex(m_radius, m_k, CreateRangeIndex(m_radius));
         // create safe_inliers list
         safe_inliers = new HashSet<ISBNode>();
         
@@ -154,7 +154,7 @@ public class ExactSTORM extends STORMBase {
         // create fifo
         windowNodes = new Vector<ISBNode>();
         // create ISB
-        ISB = new ISBIndex(m_radius, m_k);
+        ISB = new ISBIndex(m_radius, m_k, CreateRangeIndex(m_radius));
         
         // init statistics
         m_nBothInlierOutlier = 0;
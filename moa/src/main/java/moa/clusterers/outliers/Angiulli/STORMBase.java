@@ -23,11 +23,20 @@ package moa.clusterers.outliers.Angiulli;
 import java.util.Vector;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.clusterers.outliers.utils.GridRangeIndex;
+import moa.clusterers.outliers.utils.MTreeRangeIndex;
+import moa.clusterers.outliers.utils.RangeIndex;
 import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.MultiChoiceOption;
 
 public abstract class STORMBase extends MyBaseOutlierDetector {   
     public FlagOption waitWinFullOption = new FlagOption("waitWinFull", 'a', "Output outliers when windows is full.");
      
+    public MultiChoiceOption rangeIndexOption = new MultiChoiceOption("rangeIndex", 'i',
+            "Index of the range queries.", new String[]{"MTree", "Grid"},
+            new String[]{"M-tree of the objects, for objects of many dimensions",
+                "Grid with cells of the size of the radius, for objects of few dimensions"}, 0);
+    
     protected static final Long FIRST_OBJ_ID = 1L;
     
     // object identifier increments with each new data stream object
@@ -118,6 +127,13 @@ public abstract class STORMBase extends MyBaseOutlierDetector {
         node.nInlier++; // update statistics
     }
     
+    // creates the index of the range queries of the chosen type
+    protected RangeIndex<StreamObj> CreateRangeIndex(double radius) {
+        if (rangeIndexOption.getChosenIndex() == 1)
+            return new GridRangeIndex<StreamObj>(radius);
+        return new MTreeRangeIndex<StreamObj>(new MyMTree());
+    }
+    
     protected void UpdateStatistics(ISBNode node) {
         if ((node.nInlier > 0) && (node.nOutlier > 0))
             m_nBothInlierOutlier++;
@@ -30,6 +30,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
+import moa.clusterers.outliers.utils.MTreeRangeIndex;
+import moa.clusterers.outliers.utils.RangeIndex;
+import moa.clusterers.outliers.utils.RangeResults;
 import com.yahoo.labs.samoa.instances.Instance;
 
 
@@ -145,13 +148,19 @@ public class ISBIndex {
         }
     }
     
-    MTreeStreamObjects mtree;
+    RangeIndex<StreamObj> index;
+    RangeResults<StreamObj> rangeResults;
     Map<Integer, Set<ISBNode>> mapNodes;
     double m_radius;
     int m_k; // k nearest neighbors
     
     public ISBIndex(double radius, int k) {
-        mtree = new MTreeStreamObjects();
+        this(radius, k, new MTreeRangeIndex<StreamObj>(new MTreeStreamObjects()));
+    }
+    
+    public ISBIndex(double radius, int k, RangeIndex<StreamObj> index) {
+        this.index = index;
+        rangeResults = new RangeResults<StreamObj>();
         mapNodes = new HashMap<Integer, Set<ISBNode>>();
         m_radius = radius;
         m_k = k;
@@ -184,12 +193,14 @@ public class ISBIndex {
         Vector<ISBSearchResult> results = new Vector<ISBSearchResult>();
         StreamObj obj;
         double d;
-        MTreeStreamObjects.Query query = mtree.getNearestByRange(node.obj, radius);
-        for (MTreeStreamObjects.ResultItem q : query) {
+        // execute range search at the index
+        rangeResults.clear();
+        index.rangeQuery(node.obj, radius, rangeResults);
+        for (int j = 0; j < rangeResults.size(); j++) {
             // get next obj found within range
-            obj = q.data;
+            obj = rangeResults.get(j);
             // get distance of obj from query
-            d = q.distance;
+            d = rangeResults.getDistance(j);
             // get all nodes referencing obj
             Vector<ISBNode> nodes = MapGetNodes(obj);
             for (int i = 0; i < nodes.size(); i++)
@@ -199,8 +210,9 @@ public class ISBIndex {
     }
     
     public void Insert(ISBNode node) {
-        // insert object of node at mtree
-        mtree.add(node.obj);
+        // insert object of node at the index, unless other nodes reference it
+        if (MapCountObjRefs(node.obj) <= 0)
+            index.add(node.obj);
         // insert node at map
         MapInsert(node);    
     }
@@ -208,10 +220,10 @@ public class ISBIndex {
     public void Remove(ISBNode node) {
         // remove from map
         MapDelete(node);
-        // check if stream object at mtree is still being referenced
+        // check if stream object at the index is still being referenced
         if (MapCountObjRefs(node.obj) <= 0) {
-            // delete stream object from mtree
-            mtree.remove(node.obj);
+            // delete stream object from the index
+            index.remove(node.obj);
         }
     }
     
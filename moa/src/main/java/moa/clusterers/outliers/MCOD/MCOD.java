@@ -66,7 +66,7 @@ public class MCOD extends MCODBase {
         // create nodes list of window
         windowNodes = new Vector<ISBNode>();
         // create ISB
-        ISB_PD = new ISBIndex(m_radius, m_k);
+        ISB_PD = new ISBIndex(m_radius, m_k, CreateRangeIndex(m_radius));
         // create helper sets for micro-cluster management
         setMC = new TreeSet<MicroCluster>();
         // micro-cluster index
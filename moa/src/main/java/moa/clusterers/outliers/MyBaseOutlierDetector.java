@@ -32,7 +32,9 @@ import moa.cluster.Clustering;
 import moa.cluster.SphereCluster;
 import moa.clusterers.AbstractClusterer;
 import moa.core.Measurement;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.CompactDenseInstanceData;
 import com.yahoo.labs.samoa.instances.Instance;
 
 public abstract class MyBaseOutlierDetector extends AbstractClusterer { 
@@ -75,6 +77,9 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
     
     public IntOption windowSizeOption = new IntOption("windowSize", 'w', "Size of the window.", 1000);
     
+    public FlagOption compactWindowOption = new FlagOption("compactWindow", 'x',
+            "Store nominal values in bytes and numeric values in floats in the window.");
+    
     public OutlierNotifier outlierNotifier = null;   
     
     protected Random random;
@@ -83,6 +88,9 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
     protected Long nTotalRunTime = 0L;
     protected double nTimePerObj;    
     
+    /** The layout of the instances of the window, when they are compact. */
+    protected CompactDenseInstanceData.Layout windowLayout;
+    
     private Clustering myClusters = null;
     private TreeSet<Outlier> outliersFound;
     private Long m_timePreObjSum;
@@ -126,6 +134,7 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
     
     @Override
     public void resetLearningImpl() {        
+        windowLayout = null;
         Init();
     }
     
@@ -154,6 +163,12 @@ public abstract class MyBaseOutlierDetector extends AbstractClusterer {
     public void processNewInstanceImpl(Instance inst) {        
         Long nsNow = System.nanoTime(); 
         
+        if (compactWindowOption.isSet()) {
+            if (windowLayout == null) {
+                windowLayout = new CompactDenseInstanceData.Layout(inst.dataset());
+            }
+            inst = windowLayout.compact(inst);
+        }
         ProcessNewStreamObj(inst);
         
         UpdateMaxMemUsage();
@@ -62,7 +62,7 @@ public class SimpleCOD extends SimpleCODBase {
         // create nodes list of window
         windowNodes = new Vector<ISBNode>();
         // create ISB
-        ISB = new ISBIndex(m_radius, m_k);
+        ISB = new ISBIndex(m_radius, m_k, CreateRangeIndex(m_radius));
         // create event queue
         eventQueue = new EventQueue();
         
@@ -0,0 +1,145 @@
+/*
+ *    TestMTreeSpeed.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.clusterers.outliers;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.Set;
+import moa.clusterers.outliers.MCOD.StreamObj;
+import moa.clusterers.outliers.utils.GridRangeIndex;
+import moa.clusterers.outliers.utils.MTreeRangeIndex;
+import moa.clusterers.outliers.utils.RangeIndex;
+import moa.clusterers.outliers.utils.RangeResults;
+import moa.clusterers.outliers.utils.mtree.ComposedSplitFunction;
+import moa.clusterers.outliers.utils.mtree.DistanceFunction;
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions;
+import moa.clusterers.outliers.utils.mtree.MTree;
+import moa.clusterers.outliers.utils.mtree.PartitionFunctions;
+import moa.clusterers.outliers.utils.mtree.PromotionFunction;
+import moa.clusterers.outliers.utils.mtree.utils.Pair;
+import moa.clusterers.outliers.utils.mtree.utils.Utils;
+
+/**
+ * Microbenchmark of the range indexes of the outlier detectors. A window of
+ * random objects slides over the stream, and each step inserts the new
+ * object, removes the expired one and runs a range query around the new
+ * one, as the detectors do.
+ */
+public class TestMTreeSpeed {
+    // the M-tree of the detectors, which check it after each update
+    static class DetectorMTree extends MTree<StreamObj> {
+        DetectorMTree() {
+            super(2, DistanceFunctions.EUCLIDEAN,
+                    new ComposedSplitFunction<StreamObj>(
+                    new PromotionFunction<StreamObj>() {
+                        @Override
+                        public Pair<StreamObj> process(Set<StreamObj> dataSet,
+                                DistanceFunction<? super StreamObj> distanceFunction) {
+                            return Utils.minMax(dataSet);
+                        }
+                    },
+                    new PartitionFunctions.BalancedPartition<StreamObj>()));
+        }
+
+        @Override
+        public void add(StreamObj data) {
+            super.add(data);
+            _check();
+        }
+
+        @Override
+        public boolean remove(StreamObj data) {
+            boolean result = super.remove(data);
+            _check();
+            return result;
+        }
+    }
+
+    public static void main(String[] args) {
+        int[] windowSizes = { 1000, 5000, 20000 };
+        int[] dimensions = { 2, 10 };
+        int numSteps = 20000;
+
+        for (int d : dimensions) {
+            for (int windowSize : windowSizes) {
+                // about 20 neighbours within the radius on average
+                double radius = Math.pow(20.0 / windowSize, 1.0 / d) / 2;
+                Run("MTree", new MTreeRangeIndex<StreamObj>(new DetectorMTree()),
+                        d, windowSize, radius, numSteps);
+                Run("Grid", new GridRangeIndex<StreamObj>(radius),
+                        d, windowSize, radius, numSteps);
+                Run("MTree query iterator", null, d, windowSize, radius, numSteps);
+            }
+        }
+    }
+
+    static StreamObj NewObj(Random random, int d) {
+        double[] values = new double[d];
+        for (int i = 0; i < d; i++) {
+            values[i] = random.nextDouble();
+        }
+        return new StreamObj(values);
+    }
+
+    // runs the steps with an index, or with the query iterator of an M-tree if index is null
+    static void Run(String name, RangeIndex<StreamObj> index, int d, int windowSize,
+            double radius, int numSteps) {
+        Random random = new Random(1);
+        MTree<StreamObj> mtree = (index == null) ? new DetectorMTree() : null;
+        ArrayDeque<StreamObj> window = new ArrayDeque<StreamObj>();
+        RangeResults<StreamObj> results = new RangeResults<StreamObj>();
+        for (int i = 0; i < windowSize; i++) {
+            StreamObj obj = NewObj(random, d);
+            if (index != null) index.add(obj); else mtree.add(obj);
+            window.addLast(obj);
+        }
+
+        long nsInsert = 0, nsRemove = 0, nsQuery = 0;
+        long nResults = 0;
+        for (int step = 0; step < numSteps; step++) {
+            StreamObj obj = NewObj(random, d);
+            long ns = System.nanoTime();
+            if (index != null) index.add(obj); else mtree.add(obj);
+            nsInsert += System.nanoTime() - ns;
+            window.addLast(obj);
+
+            StreamObj expired = window.removeFirst();
+            ns = System.nanoTime();
+            if (index != null) index.remove(expired); else mtree.remove(expired);
+            nsRemove += System.nanoTime() - ns;
+
+            ns = System.nanoTime();
+            if (index != null) {
+                results.clear();
+                index.rangeQuery(obj, radius, results);
+                nResults += results.size();
+            } else {
+                for (MTree<StreamObj>.ResultItem item : mtree.getNearestByRange(obj, radius)) {
+                    nResults++;
+                }
+            }
+            nsQuery += System.nanoTime() - ns;
+        }
+
+        System.out.println(String.format("%-22s d=%-3d window=%-6d insert=%7.2f us  remove=%7.2f us  query=%7.2f us  (%.1f neighbours)",
+                name, d, windowSize, nsInsert / 1e3 / numSteps, nsRemove / 1e3 / numSteps,
+                nsQuery / 1e3 / numSteps, (double) nResults / numSteps));
+    }
+}
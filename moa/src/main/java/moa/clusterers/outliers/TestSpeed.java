@@ -31,43 +31,53 @@ public class TestSpeed {
     public static void main(String[] args) throws Exception 
     {        
         int numInstances = 2000;        
-        RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
-        stream.prepareForUse();
-        
-        SimpleCOD scod = new SimpleCOD();   
-        MCOD mcod = new MCOD();        
-        ExactSTORM angiulli = new ExactSTORM();   
-        //DistanceOutliersAppr angiulli = new DistanceOutliersAppr(); 
-        AbstractC abstractC = new AbstractC();        
+        String[] indexes = { "MTree", "Grid" };
         
-        angiulli.queryFreqOption.setValue(1);
+        for (String index : indexes) {
+            SimpleCOD scod = new SimpleCOD();   
+            scod.rangeIndexOption.setChosenLabel(index);
+            Run("SimpleCOD", index, scod, numInstances);
+        }
         
-        scod.setModelContext(stream.getHeader());
-        scod.prepareForUse(); 
+        for (String index : indexes) {
+            MCOD mcod = new MCOD();        
+            mcod.rangeIndexOption.setChosenLabel(index);
+            Run("MCOD", index, mcod, numInstances);
+        }
         
-        mcod.setModelContext(stream.getHeader());
-        mcod.prepareForUse(); 
+        for (String index : indexes) {
+            ExactSTORM angiulli = new ExactSTORM();   
+            angiulli.queryFreqOption.setValue(1);
+            angiulli.rangeIndexOption.setChosenLabel(index);
+            Run("ExactSTORM", index, angiulli, numInstances);
+        }
         
-        angiulli.setModelContext(stream.getHeader());
-        angiulli.prepareForUse(); 
+        for (String index : indexes) {
+            AbstractC abstractC = new AbstractC();        
+            abstractC.rangeIndexOption.setChosenLabel(index);
+            Run("AbstractC", index, abstractC, numInstances);
+        }
+    }
+    
+    // runs a detector on a new stream, the same for each detector
+    static void Run(String name, String index, MyBaseOutlierDetector detector, int numInstances) {
+        RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
+        stream.prepareForUse();
         
-        abstractC.setModelContext(stream.getHeader());
-        abstractC.prepareForUse();
+        detector.setModelContext(stream.getHeader());
+        detector.prepareForUse(); 
         
         Long tmStart = System.currentTimeMillis();
         
         int numberSamples = 0;     
         while (stream.hasMoreInstances() && (numberSamples < numInstances)) {               
             Instance newInst = stream.nextInstance().getData();
-            
-            //scod.processNewInstanceImpl(newInst);  
-            mcod.processNewInstanceImpl(newInst);  
-            //angiulli.processNewInstanceImpl(newInst);  
-            //abstractC.processNewInstanceImpl(newInst); 
-            
+            detector.processNewInstanceImpl(newInst);  
             numberSamples++;
         }      
         
-        System.out.println("Total time = " + (System.currentTimeMillis() - tmStart) + " ms");
+        System.out.println(name + " (" + index + "): "
+                + "total time = " + (System.currentTimeMillis() - tmStart) + " ms, "
+                + "outliers = " + detector.GetOutliersFound().size());
     }
 }
@@ -0,0 +1,266 @@
+/*
+ *    GridRangeIndex.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.clusterers.outliers.utils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions;
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+
+/**
+ * Range index that puts the objects in the cells of a uniform grid, which
+ * suits objects of few dimensions. Only the non-empty cells are stored, in
+ * a hash table keyed by their integer coordinates, and a query only looks
+ * at the objects of the cells that overlap the box around the query.
+ *
+ * <p>The objects of a cell are kept in insertion order, so that removing
+ * the oldest object of a cell, as a sliding window does, takes constant
+ * time. A cell size close to the query range works best. All the objects
+ * must have the same number of dimensions.</p>
+ *
+ * @param <T> the type of the stream objects
+ */
+public class GridRangeIndex<T extends EuclideanCoordinate> implements RangeIndex<T> {
+
+    protected static class Cell<T> {
+
+        protected final int[] coords;
+
+        protected final long hash;
+
+        protected final ArrayDeque<T> objects = new ArrayDeque<T>();
+
+        protected Cell(int[] coords, long hash) {
+            this.coords = coords;
+            this.hash = hash;
+        }
+    }
+
+    /** Bound of the cell coordinates, so that ranges of cells cannot overflow. */
+    protected static final int MAX_COORD = 1 << 30;
+
+    protected final double cellSize;
+
+    /** Open addressing table of the non-empty cells, with linear probing. */
+    protected Cell<T>[] cells;
+
+    protected int numCells;
+
+    protected int size;
+
+    protected int[] coordsBuffer = new int[0];
+
+    protected int[] lowBuffer = new int[0];
+
+    protected int[] highBuffer = new int[0];
+
+    public GridRangeIndex(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("The cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.cells = newTable(16);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static <T> Cell<T>[] newTable(int capacity) {
+        return new Cell[capacity];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int numCells() {
+        return this.numCells;
+    }
+
+    @Override
+    public void add(T data) {
+        int[] coords = cellCoords(data);
+        long hash = hash(coords);
+        int slot = slot(coords, hash);
+        Cell<T> cell = this.cells[slot];
+        if (cell == null) {
+            if ((this.numCells + 1) * 4 > this.cells.length * 3) {
+                rehash(this.cells.length * 2);
+                slot = slot(coords, hash);
+            }
+            cell = new Cell<T>(coords.clone(), hash);
+            this.cells[slot] = cell;
+            this.numCells++;
+        }
+        cell.objects.addLast(data);
+        this.size++;
+    }
+
+    @Override
+    public boolean remove(T data) {
+        int[] coords = cellCoords(data);
+        int slot = slot(coords, hash(coords));
+        Cell<T> cell = this.cells[slot];
+        if (cell == null || !cell.objects.removeFirstOccurrence(data)) {
+            return false;
+        }
+        this.size--;
+        if (cell.objects.isEmpty()) {
+            removeSlot(slot);
+        }
+        return true;
+    }
+
+    @Override
+    public void rangeQuery(T query, double range, RangeResults<T> results) {
+        if (this.size == 0 || !(range >= 0)) {
+            return;
+        }
+        int dimensions = query.dimensions();
+        int[] low = this.lowBuffer.length == dimensions ? this.lowBuffer : (this.lowBuffer = new int[dimensions]);
+        int[] high = this.highBuffer.length == dimensions ? this.highBuffer : (this.highBuffer = new int[dimensions]);
+        double numNeighbours = 1;
+        for (int i = 0; i < dimensions; i++) {
+            double value = query.get(i);
+            // widened by a rounding margin, so that no object at the range is missed
+            double margin = 1e-9 * (Math.abs(value) + range);
+            low[i] = coordinate(value - range - margin);
+            high[i] = coordinate(value + range + margin);
+            numNeighbours *= (double) high[i] - low[i] + 1;
+        }
+        if (numNeighbours < this.numCells) {
+            // visit the cells of the box, in the order of an odometer
+            int[] coords = this.coordsBuffer.length == dimensions ? this.coordsBuffer : (this.coordsBuffer = new int[dimensions]);
+            System.arraycopy(low, 0, coords, 0, dimensions);
+            while (true) {
+                Cell<T> cell = this.cells[slot(coords, hash(coords))];
+                if (cell != null) {
+                    search(cell, query, range, results);
+                }
+                int i = 0;
+                while (i < dimensions && coords[i] == high[i]) {
+                    coords[i] = low[i];
+                    i++;
+                }
+                if (i == dimensions) {
+                    break;
+                }
+                coords[i]++;
+            }
+        } else {
+            // there are fewer non-empty cells than cells in the box
+            for (Cell<T> cell : this.cells) {
+                if (cell != null && inBox(cell.coords, low, high)) {
+                    search(cell, query, range, results);
+                }
+            }
+        }
+    }
+
+    protected static boolean inBox(int[] coords, int[] low, int[] high) {
+        for (int i = 0; i < coords.length; i++) {
+            if (coords[i] < low[i] || coords[i] > high[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void search(Cell<T> cell, T query, double range, RangeResults<T> results) {
+        for (T data : cell.objects) {
+            double distance = DistanceFunctions.euclidean(query, data);
+            if (distance <= range) {
+                results.add(data, distance);
+            }
+        }
+    }
+
+    protected int coordinate(double value) {
+        double coordinate = Math.floor(value / this.cellSize);
+        return (int) Math.max(-MAX_COORD, Math.min(MAX_COORD, coordinate));
+    }
+
+    /** Gets the coordinates of the cell of an object, in a shared buffer. */
+    protected int[] cellCoords(T data) {
+        int dimensions = data.dimensions();
+        if (this.coordsBuffer.length != dimensions) {
+            this.coordsBuffer = new int[dimensions];
+        }
+        for (int i = 0; i < dimensions; i++) {
+            this.coordsBuffer[i] = coordinate(data.get(i));
+        }
+        return this.coordsBuffer;
+    }
+
+    protected static long hash(int[] coords) {
+        long hash = 1;
+        for (int i = 0; i < coords.length; i++) {
+            hash = (hash + coords[i]) * 0x9E3779B97F4A7C15L;
+        }
+        return hash ^ (hash >>> 29);
+    }
+
+    /** Gets the slot of the cell of the given coordinates, or the empty slot where it would go. */
+    protected int slot(int[] coords, long hash) {
+        int mask = this.cells.length - 1;
+        int slot = (int) hash & mask;
+        Cell<T> cell;
+        while ((cell = this.cells[slot]) != null
+                && (cell.hash != hash || !Arrays.equals(cell.coords, coords))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes the cell of a slot, moving back the cells that follow it in its
+     * run of occupied slots so that no tombstones are needed.
+     */
+    protected void removeSlot(int slot) {
+        int mask = this.cells.length - 1;
+        this.numCells--;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (this.cells[next] != null) {
+            int home = (int) this.cells[next].hash & mask;
+            // the cell can fill the hole unless its home lies in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.cells[hole] = this.cells[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.cells[hole] = null;
+    }
+
+    protected void rehash(int capacity) {
+        Cell<T>[] oldCells = this.cells;
+        this.cells = newTable(capacity);
+        for (Cell<T> cell : oldCells) {
+            if (cell != null) {
+                this.cells[slot(cell.coords, cell.hash)] = cell;
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(this.cells, null);
+        this.numCells = 0;
+        this.size = 0;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *    MTreeRangeIndex.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.clusterers.outliers.utils;
+
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+import moa.clusterers.outliers.utils.mtree.MTree;
+
+/**
+ * Range index backed by an M-tree, which suits objects of many dimensions.
+ *
+ * @param <T> the type of the stream objects
+ */
+public class MTreeRangeIndex<T extends EuclideanCoordinate> implements RangeIndex<T> {
+
+    protected final MTree<T> mtree;
+
+    public MTreeRangeIndex(MTree<T> mtree) {
+        this.mtree = mtree;
+    }
+
+    @Override
+    public void add(T data) {
+        this.mtree.add(data);
+    }
+
+    @Override
+    public boolean remove(T data) {
+        return this.mtree.remove(data);
+    }
+
+    @Override
+    public void rangeQuery(T query, double range, RangeResults<T> results) {
+        this.mtree.visitRange(query, range, results);
+    }
+}
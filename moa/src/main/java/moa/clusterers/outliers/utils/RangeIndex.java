@@ -0,0 +1,47 @@
+/*
+ *    RangeIndex.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.clusterers.outliers.utils;
+
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+
+/**
+ * Index of the stream objects of a window, which finds the objects within a
+ * given euclidean distance of a query object.
+ *
+ * @param <T> the type of the stream objects
+ */
+public interface RangeIndex<T extends EuclideanCoordinate> {
+
+    void add(T data);
+
+    /**
+     * Removes an object equal to the given one.
+     *
+     * @return whether an object was removed
+     */
+    boolean remove(T data);
+
+    /**
+     * Finds the objects whose distance to the query is at most the range,
+     * and appends them to the results with their distances, in no
+     * particular order.
+     */
+    void rangeQuery(T query, double range, RangeResults<T> results);
+}
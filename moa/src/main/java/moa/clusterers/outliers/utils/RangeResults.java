@@ -0,0 +1,72 @@
+/*
+ *    RangeResults.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.clusterers.outliers.utils;
+
+import java.util.Arrays;
+import moa.clusterers.outliers.utils.mtree.MTree;
+
+/**
+ * Growable list of the objects found by a range query, as parallel arrays
+ * of objects and distances. It is meant to be reused from a query to the
+ * next one, so that queries do not allocate result items.
+ *
+ * @param <T> the type of the stream objects
+ */
+public class RangeResults<T> implements MTree.RangeVisitor<T> {
+
+    protected Object[] objects = new Object[16];
+
+    protected double[] distances = new double[16];
+
+    protected int size;
+
+    public int size() {
+        return this.size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) this.objects[index];
+    }
+
+    public double getDistance(int index) {
+        return this.distances[index];
+    }
+
+    public void add(T data, double distance) {
+        if (this.size == this.objects.length) {
+            this.objects = Arrays.copyOf(this.objects, 2 * this.size);
+            this.distances = Arrays.copyOf(this.distances, 2 * this.size);
+        }
+        this.objects[this.size] = data;
+        this.distances[this.size] = distance;
+        this.size++;
+    }
+
+    @Override
+    public void visit(T data, double distance) {
+        add(data, distance);
+    }
+
+    public void clear() {
+        Arrays.fill(this.objects, 0, this.size, null);
+        this.size = 0;
+    }
+}
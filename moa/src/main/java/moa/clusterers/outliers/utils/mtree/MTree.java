@@ -16,13 +16,10 @@
 
 package moa.clusterers.outliers.utils.mtree;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
 import java.util.Set;
 import moa.clusterers.outliers.utils.mtree.SplitFunction.SplitResult;
 
@@ -30,6 +27,13 @@ import moa.clusterers.outliers.utils.mtree.SplitFunction.SplitResult;
 
 /**
  * The main class that implements the M-Tree.
+ * 
+ * <p>The nodes keep their children in arrays, together with the distance of
+ * each child to the routing object of the node, so that most children are
+ * pruned by the triangle inequality without computing their distance to the
+ * query. Insertions and removals restructure the tree through the values
+ * returned by their helper methods, and the priority queues of the queries
+ * are reused from a query to the next one. The M-Tree is not thread-safe.
  *
  * @param <DATA> The type of data that will be indexed by the M-Tree. Objects of
  *        this type are stored in HashMaps and HashSets, so their
@@ -57,33 +61,23 @@ public class MTree<DATA> {
 	}
 	
 	
-	// Exception classes
-	private static class SplitNodeReplacement extends Exception {
-		// A subclass of Throwable cannot be generic.  :-(
-		// So, we have newNodes declared as Object[] instead of Node[].
-		private Object newNodes[];
-		
-		private SplitNodeReplacement(Object... newNodes) {
-			this.newNodes = newNodes;
-		}
-	}
-	
-	private static class RootNodeReplacement extends Exception {
-		// A subclass of Throwable cannot be generic.  :-(
-		// So, we have newRoot declared as Object instead of Node.
-		private Object newRoot;
+	/**
+	 * An object that receives the data objects found by a
+	 * {@linkplain MTree#visitRange(Object, double, RangeVisitor) range visit}.
+	 *
+	 * @param <T> The type of the data objects.
+	 */
+	public interface RangeVisitor<T> {
 		
-		private RootNodeReplacement(Object newRoot) {
-			this.newRoot = newRoot;
-		}
+		/**
+		 * Receives a data object within the range of the query.
+		 * @param data     The data object.
+		 * @param distance The distance from the data object to the query.
+		 */
+		void visit(T data, double distance);
 	}
-
 	
-	private static class NodeUnderCapacity extends Exception { }
 	
-
-	private static class DataNotFound extends Exception { }
-
 	/**
 	 * An {@link Iterable} class which can be iterated to fetch the results of a
 	 * nearest-neighbors query.
@@ -103,67 +97,28 @@ public class MTree<DATA> {
 
 		private class ResultsIterator implements Iterator<ResultItem> {
 			
-			private class ItemWithDistances <U> implements Comparable<ItemWithDistances<U>> {
-				private U item;
-				private double distance;
-				private double minDistance;
-
-				public ItemWithDistances(U item, double distance, double minDistance) {
-					this.item = item;
-					this.distance = distance;
-					this.minDistance = minDistance;
-				}
-
-				@Override
-				public int compareTo(ItemWithDistances<U> that) {
-					if(this.minDistance < that.minDistance) {
-						return -1;
-					} else if(this.minDistance > that.minDistance) {
-						return +1;
-					} else {
-						return 0;
-					}
-				}
-			}
-			
-			
+			private QueryState state;
 			private ResultItem nextResultItem = null;
-			private boolean finished = false;
-			private PriorityQueue<ItemWithDistances<Node>> pendingQueue = new PriorityQueue<ItemWithDistances<Node>>();
-			private double nextPendingMinDistance;
-			private PriorityQueue<ItemWithDistances<Entry>> nearestQueue = new PriorityQueue<ItemWithDistances<Entry>>();
 			private int yieldedCount;
 			
 			private ResultsIterator() {
+				state = acquireState();
 				if(MTree.this.root == null) {
-					finished = true;
+					finish();
 					return;
 				}
 				
 				double distance = MTree.this.distanceFunction.calculate(Query.this.data, MTree.this.root.data);
-				double minDistance = Math.max(distance - MTree.this.root.radius, 0.0);
-				
-				pendingQueue.add(new ItemWithDistances<Node>(MTree.this.root, distance, minDistance));
-				nextPendingMinDistance = minDistance;
+				state.pending.push(MTree.this.root, distance, minDistance(distance, MTree.this.root.radius));
 			}
 			
 			
 			@Override
 			public boolean hasNext() {
-				if(finished) {
-					return false;
-				}
-				
-				if(nextResultItem == null) {
+				if(nextResultItem == null  &&  state != null) {
 					fetchNext();
 				}
-				
-				if(nextResultItem == null) {
-					finished = true;
-					return false;
-				} else {
-					return true;
-				}
+				return nextResultItem != null;
 			}
 			
 			@Override
@@ -184,66 +139,62 @@ public class MTree<DATA> {
 			
 			
 			private void fetchNext() {
-				assert !finished;
-				
-				if(finished  ||  yieldedCount >= Query.this.limit) {
-					finished = true;
+				if(yieldedCount >= Query.this.limit) {
+					finish();
 					return;
 				}
 				
-				while(!pendingQueue.isEmpty()  ||  !nearestQueue.isEmpty()) {
-					if(prepareNextNearest()) {
+				Heap pending = state.pending;
+				Heap nearest = state.nearest;
+				double range = Query.this.range;
+				while(pending.size > 0  ||  nearest.size > 0) {
+					double nextPendingMinDistance = (pending.size > 0) ? pending.keys[0] : Double.POSITIVE_INFINITY;
+					if(nearest.size > 0  &&  nearest.distances[0] <= nextPendingMinDistance) {
+						@SuppressWarnings("unchecked")
+						DATA data = (DATA) nearest.items[0];
+						nextResultItem = new ResultItem(data, nearest.distances[0]);
+						nearest.pop();
+						++yieldedCount;
 						return;
 					}
 					
-					assert !pendingQueue.isEmpty();
-					
-					ItemWithDistances<Node> pending = pendingQueue.poll();
-					Node node = pending.item;
+					@SuppressWarnings("unchecked")
+					Node node = (Node) pending.items[0];
+					double distance = pending.distances[0];
+					pending.pop();
 					
-					for(IndexItem child : node.children.values()) {
-						if(Math.abs(pending.distance - child.distanceToParent) - child.radius <= Query.this.range) {
+					for(int i = 0; i < node.size; i++) {
+						double childRadius = node.childRadius(i);
+						double lowerBound = Math.abs(distance - node.distances[i]) - childRadius;
+						if(!mayBeWithin(lowerBound, range, distance + node.distances[i] + childRadius)) {
+							continue;
+						}
+						if(node.leaf) {
+							DATA data = node.dataAt(i);
+							double childDistance = MTree.this.distanceFunction.calculate(Query.this.data, data);
+							if(childDistance <= range) {
+								nearest.push(data, childDistance, childDistance);
+							}
+						} else {
+							Node child = node.nodeAt(i);
 							double childDistance = MTree.this.distanceFunction.calculate(Query.this.data, child.data);
-							double childMinDistance = Math.max(childDistance - child.radius, 0.0);
-							if(childMinDistance <= Query.this.range) {
-								if(child instanceof MTree.Entry) {
-									@SuppressWarnings("unchecked")
-									Entry entry = (Entry)child;
-									nearestQueue.add(new ItemWithDistances<Entry>(entry, childDistance, childMinDistance));
-								} else {
-									@SuppressWarnings("unchecked")
-									Node childNode = (Node)child;
-									pendingQueue.add(new ItemWithDistances<Node>(childNode, childDistance, childMinDistance));
-								}
+							if(mayBeWithin(childDistance - child.radius, range, childDistance + child.radius)) {
+								pending.push(child, childDistance, minDistance(childDistance, child.radius));
 							}
 						}
 					}
-					
-					if(pendingQueue.isEmpty()) {
-						nextPendingMinDistance = Double.POSITIVE_INFINITY;
-					} else {
-						nextPendingMinDistance = pendingQueue.peek().minDistance;
-					}
 				}
 
-				finished = true;
+				finish();
 			}
-
 			
-			private boolean prepareNextNearest() {
-				if(!nearestQueue.isEmpty()) {
-					ItemWithDistances<Entry> nextNearest = nearestQueue.peek();
-					if(nextNearest.distance <= nextPendingMinDistance) {
-						nearestQueue.poll();
-						nextResultItem = new ResultItem(nextNearest.item.data, nextNearest.distance);
-						++yieldedCount;
-						return true;
-					}
+			
+			private void finish() {
+				if(state != null) {
+					releaseState(state);
+					state = null;
 				}
-				
-				return false;
 			}
-			
 		}
 		
 		
@@ -272,6 +223,13 @@ public class MTree<DATA> {
 	 * the constructor call.
 	 */
 	public static final int DEFAULT_MIN_NODE_CAPACITY = 50;
+	
+	
+	/**
+	 * The relative tolerance of the pruning tests, so that rounding errors
+	 * cannot prune a data object that lies exactly on the boundary of a node.
+	 */
+	private static final double PRUNING_TOLERANCE = 1e-9;
 
 
 	protected int minNodeCapacity;
@@ -280,6 +238,9 @@ public class MTree<DATA> {
 	protected SplitFunction<DATA> splitFunction;
 	protected Node root;
 	
+	/** The states of the finished queries, to be reused by the next ones. */
+	private QueryState freeStates;
+	
 	
 	/**
 	 * Constructs an M-Tree with the specified distance function.
@@ -350,26 +311,57 @@ public class MTree<DATA> {
 	 */
 	public void add(DATA data) {
 		if(root == null) {
-			root = new RootLeafNode(data);
-			try {
-				root.addData(data, 0);
-			} catch (SplitNodeReplacement e) {
-				throw new RuntimeException("Should never happen!");
-			}
-		} else {
-			double distance = distanceFunction.calculate(data, root.data);
-			try {
-				root.addData(data, distance);
-			} catch(SplitNodeReplacement e) {
-				Node newRoot = new RootNode(data);
-				root = newRoot;
-				for(int i = 0; i < e.newNodes.length; i++) {
-					@SuppressWarnings("unchecked")
-					Node newNode = (Node) e.newNodes[i];
-					distance = distanceFunction.calculate(root.data, newNode.data);
-					root.addChild(newNode, distance);
+			root = new Node(data, true);
+			root.addChild(data, 0);
+			return;
+		}
+		
+		Node node = root;
+		double distance = distanceFunction.calculate(data, root.data);
+		while(!node.leaf) {
+			// Prefer the nearest child that covers the data, or else the one
+			// whose radius needs the smallest increase
+			int nearest = -1;
+			double nearestDistance = Double.POSITIVE_INFINITY;
+			int minIncrease = -1;
+			double minIncreaseDistance = 0;
+			double minRadiusIncrease = Double.POSITIVE_INFINITY;
+			for(int i = 0; i < node.size; i++) {
+				Node child = node.nodeAt(i);
+				if(nearest >= 0) {
+					// Skip the children that can be neither covering nor nearer
+					double lowerBound = Math.abs(distance - node.distances[i]);
+					if(lowerBound > child.radius  ||  lowerBound >= nearestDistance) {
+						continue;
+					}
+				}
+				double childDistance = distanceFunction.calculate(child.data, data);
+				if(childDistance > child.radius) {
+					double radiusIncrease = childDistance - child.radius;
+					if(radiusIncrease < minRadiusIncrease) {
+						minIncrease = i;
+						minIncreaseDistance = childDistance;
+						minRadiusIncrease = radiusIncrease;
+					}
+				} else if(childDistance < nearestDistance) {
+					nearest = i;
+					nearestDistance = childDistance;
 				}
 			}
+			
+			if(nearest >= 0) {
+				node = node.nodeAt(nearest);
+				distance = nearestDistance;
+			} else {
+				node = node.nodeAt(minIncrease);
+				distance = minIncreaseDistance;
+			}
+		}
+		
+		node.addChild(data, distance);
+		growRadii(node);
+		if(node.size > maxNodeCapacity) {
+			split(node);
 		}
 	}
 
@@ -385,16 +377,32 @@ public class MTree<DATA> {
 		}
 		
 		double distanceToRoot = distanceFunction.calculate(data, root.data);
-		try {
-			root.removeData(data, distanceToRoot);
-		} catch(RootNodeReplacement e) {
-			@SuppressWarnings("unchecked")
-			Node newRoot = (Node) e.newRoot;
-			root = newRoot;
-		} catch(DataNotFound e) {
+		Node leaf = findLeaf(root, data, distanceToRoot);
+		if(leaf == null) {
 			return false;
-		} catch (NodeUnderCapacity e) {
-			throw new RuntimeException("Should have never happened", e);
+		}
+		
+		leaf.removeChild(leaf.indexOfData(data));
+		leaf.updateRadius();
+		Node node = leaf;
+		while(node.parent != null) {
+			Node parent = node.parent;
+			if(node.size < minNodeCapacity  &&  parent.size > 1) {
+				balanceChildren(parent, node);
+			}
+			parent.updateRadius();
+			node = parent;
+		}
+		
+		// Promote the only child of the root
+		while(!root.leaf  &&  root.size == 1) {
+			Node child = root.nodeAt(0);
+			child.parent = null;
+			child.distanceToParent = -1;
+			root = child;
+		}
+		if(root.size == 0) {
+			root = null;
 		}
 		return true;
 	}
@@ -444,590 +452,488 @@ public class MTree<DATA> {
 		return new Query(queryData, Double.POSITIVE_INFINITY, Integer.MAX_VALUE);
 	}
 	
-	
-	protected void _check() {
-		if(root != null) {
-			root._check();
+	/**
+	 * Passes the data objects within a distance of the query data object to a
+	 * visitor, in no particular order. Unlike the {@link Query} iteration, it
+	 * walks the M-Tree depth-first and allocates nothing.
+	 * @param queryData The query data object.
+	 * @param range     The maximum distance from {@code queryData} to visited
+	 *                  data objects.
+	 * @param visitor   The visitor of the data objects found.
+	 */
+	public void visitRange(DATA queryData, double range, RangeVisitor<? super DATA> visitor) {
+		if(root == null) {
+			return;
+		}
+		
+		double distance = distanceFunction.calculate(queryData, root.data);
+		if(mayBeWithin(distance - root.radius, range, distance + root.radius)) {
+			visitRange(root, queryData, distance, range, visitor);
 		}
 	}
 	
-
-	private class IndexItem {
-		DATA data;
-		protected double radius;
-		double distanceToParent;
-
-		private IndexItem(DATA data) {
-			this.data = data;
-			this.radius = 0;
-			this.distanceToParent = -1;
-		}
-
-		int _check() {
-			_checkRadius();
-			_checkDistanceToParent();
-			return 1;
-		}
-
-		private void _checkRadius() {
-			assert radius >= 0;
-		}
-
-		protected void _checkDistanceToParent() {
-			assert !(this instanceof MTree.RootLeafNode);
-			assert !(this instanceof MTree.RootNode);
-			assert distanceToParent >= 0;
+	
+	protected void _check() {
+		boolean assertionsEnabled = false;
+		assert assertionsEnabled = true;
+		// The checks compute distances, so they are skipped without assertions
+		if(assertionsEnabled  &&  root != null) {
+			assert root.parent == null;
+			_check(root);
 		}
 	}
-
 	
 	
-	private abstract class Node extends IndexItem {
-
-		protected Map<DATA, IndexItem> children = new HashMap<DATA, IndexItem>();
-		protected Rootness       rootness;
-		protected Leafness<DATA> leafness;
+	/**
+	 * Checks the invariants of a subtree.
+	 * @return The height of the subtree.
+	 */
+	private int _check(Node node) {
+		assert node.radius >= 0;
+		if(node == root) {
+			assert node.size >= (node.leaf ? 1 : 2);
+		} else {
+			// Splits cannot fill two nodes when the capacities are too close
+			assert node.size >= Math.min(minNodeCapacity, (maxNodeCapacity + 1) / 2);
+		}
 		
-		private
-		<R extends NodeTrait & Rootness, L extends NodeTrait & Leafness<DATA>>
-		Node(DATA data, R rootness, L leafness) {
-			super(data);
-			
-			rootness.thisNode = this;
-			this.rootness = rootness;
+		int childHeight = -1;
+		for(int i = 0; i < node.size; i++) {
+			double distance = distanceFunction.calculate(node.dataAt(i), node.data);
+			assert node.distances[i] == distance;
+			assert node.distances[i] + node.childRadius(i) <= node.radius;
 			
-			leafness.thisNode = this;
-			this.leafness = leafness;
-		}
-
-		private final void addData(DATA data, double distance) throws SplitNodeReplacement {
-			doAddData(data, distance);
-			checkMaxCapacity();
-		}
-
-		int _check() {
-			super._check();
-			_checkMinCapacity();
-			_checkMaxCapacity();
-
-			int childHeight = -1;
-			for(Map.Entry<DATA, IndexItem> e : children.entrySet()) {
-				DATA data = e.getKey();
-				IndexItem child = e.getValue();
-				assert child.data.equals(data);
-
-				_checkChildClass(child);
-				_checkChildMetrics(child);
-
-				int height = child._check();
-				if(childHeight < 0) {
-					childHeight = height;
-				} else {
-					assert childHeight == height;
-				}
+			int height = 0;
+			if(!node.leaf) {
+				Node child = node.nodeAt(i);
+				assert child.parent == node;
+				assert child.leaf == node.nodeAt(0).leaf;
+				assert child.distanceToParent == node.distances[i];
+				height = _check(child);
 			}
-
-			return childHeight + 1;
-		}
-
-		protected void doAddData(DATA data, double distance) {
-			leafness.doAddData(data, distance);
-		}
-
-		protected void doRemoveData(DATA data, double distance) throws DataNotFound {
-			leafness.doRemoveData(data, distance);
-		}
-
-		private final void checkMaxCapacity() throws SplitNodeReplacement {
-			if(children.size() > MTree.this.maxNodeCapacity) {
-				DistanceFunction<? super DATA> cachedDistanceFunction = DistanceFunctions.cached(MTree.this.distanceFunction);
-				SplitResult<DATA> splitResult = MTree.this.splitFunction.process(children.keySet(), cachedDistanceFunction);
-				
-				Node newNode0 = null;
-				Node newNode1 = null;
-				for(int i = 0; i < 2; ++i) {
-					DATA promotedData   = splitResult.promoted.get(i);
-					Set<DATA> partition = splitResult.partitions.get(i);
-					
-					Node newNode = newSplitNodeReplacement(promotedData);
-					for(DATA data : partition) {
-						IndexItem child = children.get(data);
-						children.remove(data);
-						double distance = cachedDistanceFunction.calculate(promotedData, data);
-						newNode.addChild(child, distance);
-					}
-
-					if(i == 0) {
-						newNode0 = newNode;
-					} else {
-						newNode1 = newNode;
-					}
-				}
-				assert children.isEmpty();
-
-				throw new SplitNodeReplacement(newNode0, newNode1);
-			}
-
-		}
-
-		protected Node newSplitNodeReplacement(DATA data) {
-			return leafness.newSplitNodeReplacement(data);
-		}
-
-		protected void addChild(IndexItem child, double distance) {
-			leafness.addChild(child, distance);
-		}
-
-		void removeData(DATA data, double distance) throws RootNodeReplacement, NodeUnderCapacity, DataNotFound {
-			doRemoveData(data, distance);
-			if(children.size() < getMinCapacity()) {
-				throw new NodeUnderCapacity();
+			if(childHeight < 0) {
+				childHeight = height;
+			} else {
+				assert childHeight == height;
 			}
 		}
-
-		protected int getMinCapacity() {
-			return rootness.getMinCapacity();
-		}
-
-		private void updateMetrics(IndexItem child, double distance) {
-			child.distanceToParent = distance;
-			updateRadius(child);
-		}
-
-		private void updateRadius(IndexItem child) {
-                        if (child != null) // ### added by mits
-                            this.radius = Math.max(this.radius, child.distanceToParent + child.radius);
-		}
-
-		void _checkMinCapacity() {
-			rootness._checkMinCapacity();
-		}
-
-		private void _checkMaxCapacity() {
-			assert children.size() <= MTree.this.maxNodeCapacity;
-		}
-
-		private void _checkChildClass(IndexItem child) {
-			leafness._checkChildClass(child);
-		}
-
-		private void _checkChildMetrics(IndexItem child) {
-			double dist = MTree.this.distanceFunction.calculate(child.data, this.data);
-			assert child.distanceToParent == dist;
-
-			double sum = child.distanceToParent + child.radius;
-			assert sum <= this.radius;
-		}
 		
-		protected void _checkDistanceToParent() {
-			rootness._checkDistanceToParent();
-		}
-
-		private MTree<DATA> mtree() {
-			return MTree.this;
-		}
+		return childHeight + 1;
 	}
 	
 	
+	/**
+	 * Whether a lower bound of the distance from the query to the objects of
+	 * a node or to an object allows it to be within the range, up to the
+	 * rounding errors of the distances that the bound is computed from.
+	 */
+	private static boolean mayBeWithin(double lowerBound, double range, double scale) {
+		return lowerBound <= range + PRUNING_TOLERANCE * (scale + range);
+	}
 	
 	
-	private abstract class NodeTrait {
-		protected Node thisNode;
+	/**
+	 * Gets a lower bound of the distance from the query to the objects of a
+	 * node, lowered by the rounding errors so that the objects are fetched in
+	 * order.
+	 */
+	private static double minDistance(double distance, double radius) {
+		return Math.max(distance - radius - PRUNING_TOLERANCE * (distance + radius), 0.0);
 	}
 	
-	private interface Leafness<DATA> {
-		void doAddData(DATA data, double distance);
-		void addChild(MTree<DATA>.IndexItem child, double distance);
-		void doRemoveData(DATA data, double distance) throws DataNotFound;
-		MTree<DATA>.Node newSplitNodeReplacement(DATA data);
-		void _checkChildClass(MTree<DATA>.IndexItem child);
-	}
 	
-	private interface Rootness {
-		int getMinCapacity();
-		void _checkDistanceToParent();
-		void _checkMinCapacity();
+	private void visitRange(Node node, DATA queryData, double distance, double range,
+			RangeVisitor<? super DATA> visitor) {
+		for(int i = 0; i < node.size; i++) {
+			double childRadius = node.childRadius(i);
+			double lowerBound = Math.abs(distance - node.distances[i]) - childRadius;
+			if(!mayBeWithin(lowerBound, range, distance + node.distances[i] + childRadius)) {
+				continue;
+			}
+			if(node.leaf) {
+				DATA data = node.dataAt(i);
+				double childDistance = distanceFunction.calculate(queryData, data);
+				if(childDistance <= range) {
+					visitor.visit(data, childDistance);
+				}
+			} else {
+				Node child = node.nodeAt(i);
+				double childDistance = distanceFunction.calculate(queryData, child.data);
+				if(mayBeWithin(childDistance - child.radius, range, childDistance + child.radius)) {
+					visitRange(child, queryData, childDistance, range, visitor);
+				}
+			}
+		}
 	}
 	
 	
-	
-	private class RootNodeTrait extends NodeTrait implements Rootness {
-		
-		@Override
-		public int getMinCapacity() {
-			throw new RuntimeException("Should not be called!");
-		}
-		
-		@Override
-		public void _checkDistanceToParent() {
-			assert thisNode.distanceToParent == -1;
-		}
-
-		@Override
-		public void _checkMinCapacity() {
-			thisNode._checkMinCapacity();
-		}
-		
-	};
-
-
-	private class NonRootNodeTrait extends NodeTrait implements Rootness {
-		
-		@Override
-		public int getMinCapacity() {
-			return MTree.this.minNodeCapacity;
-		}
-		
-		@Override
-		public void _checkMinCapacity() {
-			assert thisNode.children.size() >= thisNode.mtree().minNodeCapacity;
+	/**
+	 * Finds the leaf that holds a data object.
+	 * @return The leaf, or {@code null} if the data object is not indexed.
+	 */
+	private Node findLeaf(Node node, DATA data, double distance) {
+		if(node.leaf) {
+			return (node.indexOfData(data) >= 0) ? node : null;
 		}
 		
-		@Override
-		public void _checkDistanceToParent() {
-			assert thisNode.distanceToParent >= 0;
+		for(int i = 0; i < node.size; i++) {
+			Node child = node.nodeAt(i);
+			double lowerBound = Math.abs(distance - node.distances[i]) - child.radius;
+			if(mayBeWithin(lowerBound, 0, distance + node.distances[i] + child.radius)) {
+				double childDistance = distanceFunction.calculate(data, child.data);
+				if(mayBeWithin(childDistance - child.radius, 0, childDistance + child.radius)) {
+					Node leaf = findLeaf(child, data, childDistance);
+					if(leaf != null) {
+						return leaf;
+					}
+				}
+			}
 		}
-	};
+		return null;
+	}
 	
 	
-	private class LeafNodeTrait extends NodeTrait implements Leafness<DATA> {
-		
-		public void doAddData(DATA data, double distance) {
-			Entry entry = thisNode.mtree().new Entry(data);
-			assert !thisNode.children.containsKey(data);
-			thisNode.children.put(data, entry);
-			assert thisNode.children.containsKey(data);
-			thisNode.updateMetrics(entry, distance);
-		}
-
-		public void addChild(IndexItem child, double distance) {
-			assert !thisNode.children.containsKey(child.data);
-			thisNode.children.put(child.data, child);
-			assert thisNode.children.containsKey(child.data);
-			thisNode.updateMetrics(child, distance);
-		}
-		
-		public Node newSplitNodeReplacement(DATA data) {
-			return thisNode.mtree().new LeafNode(data);
-		}
-		
-
-		@Override
-		public void doRemoveData(DATA data, double distance) throws DataNotFound {
-			if(thisNode.children.remove(data) == null) {
-				throw new DataNotFound();
+	/**
+	 * Grows the radii of the ancestors of a node, up to the first one that
+	 * already covers the node.
+	 */
+	private void growRadii(Node node) {
+		while(node.parent != null) {
+			Node parent = node.parent;
+			double radius = node.distanceToParent + node.radius;
+			if(radius <= parent.radius) {
+				return;
 			}
-		}
-
-		public void _checkChildClass(IndexItem child) {
-			assert child instanceof MTree.Entry;
+			parent.radius = radius;
+			node = parent;
 		}
 	}
-
-
-	class NonLeafNodeTrait extends NodeTrait implements Leafness<DATA> {
-		
-		public void doAddData(DATA data, double distance) {
-			class CandidateChild {
-				Node node;
-				double distance;
-				double metric;
-				private CandidateChild(Node node, double distance, double metric) {
-					this.node = node;
-					this.distance = distance;
-					this.metric = metric;
-				}
+	
+	
+	/**
+	 * Splits a node over its maximum capacity in two, and then its ancestors
+	 * that get over their maximum capacity in turn.
+	 */
+	private void split(Node node) {
+		while(node.size > maxNodeCapacity) {
+			DistanceFunction<? super DATA> cachedDistanceFunction = DistanceFunctions.cached(distanceFunction);
+			Set<DATA> dataSet = new HashSet<DATA>();
+			for(int i = 0; i < node.size; i++) {
+				dataSet.add(node.dataAt(i));
 			}
 			
-			CandidateChild minRadiusIncreaseNeeded = new CandidateChild(null, -1.0, Double.POSITIVE_INFINITY);
-			CandidateChild nearestDistance         = new CandidateChild(null, -1.0, Double.POSITIVE_INFINITY);
-			
-			for(IndexItem item : thisNode.children.values()) {
-				@SuppressWarnings("unchecked")
-				Node child = (Node)item;
-				double childDistance = thisNode.mtree().distanceFunction.calculate(child.data, data);
-				if(childDistance > child.radius) {
-					double radiusIncrease = childDistance - child.radius;
-					if(radiusIncrease < minRadiusIncreaseNeeded.metric) {
-						minRadiusIncreaseNeeded = new CandidateChild(child, childDistance, radiusIncrease);
-					}
-				} else {
-					if(childDistance < nearestDistance.metric) {
-						nearestDistance = new CandidateChild(child, childDistance, childDistance);
-					}
+			Node newNode0 = null;
+			Node newNode1 = null;
+			if(dataSet.size() > 1) {
+				SplitResult<DATA> splitResult = splitFunction.process(dataSet, cachedDistanceFunction);
+				newNode0 = new Node(splitResult.promoted.first, node.leaf);
+				newNode1 = new Node(splitResult.promoted.second, node.leaf);
+				for(int i = 0; i < node.size; i++) {
+					DATA data = node.dataAt(i);
+					Node newNode = splitResult.partitions.first.contains(data) ? newNode0 : newNode1;
+					newNode.addChild(node.children[i], cachedDistanceFunction.calculate(newNode.data, data));
 				}
 			}
-			
-			CandidateChild chosen = (nearestDistance.node != null)
-			                      ? nearestDistance
-			                      : minRadiusIncreaseNeeded;
-			
-			Node child = chosen.node;
-			try {
-				child.addData(data, chosen.distance);
-				thisNode.updateRadius(child);
-			} catch(SplitNodeReplacement e) {
-				// Replace current child with new nodes
-				IndexItem _ = thisNode.children.remove(child.data);
-				assert _ != null;
-				
-				for(int i = 0; i < e.newNodes.length; ++i) {
-					@SuppressWarnings("unchecked")
-					Node newChild = (Node) e.newNodes[i];
-					distance = thisNode.mtree().distanceFunction.calculate(thisNode.data, newChild.data);
-					thisNode.addChild(newChild, distance);
+			if(newNode0 == null  ||  newNode0.size == 0  ||  newNode1.size == 0) {
+				// The children are all equal, so they are split in halves
+				newNode0 = new Node(node.data, node.leaf);
+				newNode1 = new Node(node.data, node.leaf);
+				for(int i = 0; i < node.size; i++) {
+					Node newNode = (i < node.size / 2) ? newNode0 : newNode1;
+					newNode.addChild(node.children[i], node.distances[i]);
 				}
 			}
-		}
-		
-
-		public void addChild(IndexItem newChild_, double distance) {
-			@SuppressWarnings("unchecked")
-			Node newChild = (Node) newChild_;
+			// Children with equal routing objects go to the same partition,
+			// which can leave the other one under capacity
+			fillSplitNode(newNode0, newNode1);
+			fillSplitNode(newNode1, newNode0);
 			
-			class ChildWithDistance {
-				Node child;
-				double distance;
-				private ChildWithDistance(Node child, double distance) {
-					this.child = child;
-					this.distance = distance;
-				}
+			Node parent = node.parent;
+			if(parent == null) {
+				root = new Node(newNode0.data, false);
+				root.addChild(newNode0, distanceFunction.calculate(root.data, newNode0.data));
+				root.addChild(newNode1, distanceFunction.calculate(root.data, newNode1.data));
+				return;
 			}
 			
-			Deque<ChildWithDistance> newChildren = new ArrayDeque<ChildWithDistance>();
-			newChildren.addFirst(new ChildWithDistance(newChild, distance));
-			
-			while(!newChildren.isEmpty()) {
-				ChildWithDistance cwd = newChildren.removeFirst();
-				
-				newChild = cwd.child;
-				distance = cwd.distance;
-				if(thisNode.children.containsKey(newChild.data)) {
-					@SuppressWarnings("unchecked")
-					Node existingChild = (Node) thisNode.children.get(newChild.data);
-					assert existingChild.data.equals(newChild.data);
-					
-					// Transfer the _children_ of the newChild to the existingChild
-					for(IndexItem grandchild : newChild.children.values()) {
-						existingChild.addChild(grandchild, grandchild.distanceToParent);
-					}
-					newChild.children.clear();
-					
-					try {
-						existingChild.checkMaxCapacity();
-					} catch(SplitNodeReplacement e) {
-						IndexItem _ = thisNode.children.remove(existingChild.data);
-						assert _ != null;
-						
-						for(int i = 0; i < e.newNodes.length; ++i) {
-							@SuppressWarnings("unchecked")
-							Node newNode = (Node) e.newNodes[i];
-							distance = thisNode.mtree().distanceFunction.calculate(thisNode.data, newNode.data);
-							newChildren.addFirst(new ChildWithDistance(newNode, distance));
-						}
-					}
-				} else {
-					thisNode.children.put(newChild.data, newChild);
-					thisNode.updateMetrics(newChild, distance);
-				}
-			}
+			parent.removeChild(parent.indexOfNode(node));
+			parent.addChild(newNode0, distanceFunction.calculate(parent.data, newNode0.data));
+			parent.addChild(newNode1, distanceFunction.calculate(parent.data, newNode1.data));
+			growRadii(parent);
+			node = parent;
 		}
-
-
-		public Node newSplitNodeReplacement(DATA data) {
-			return new InternalNode(data);
-		}
-
-
-		public void doRemoveData(DATA data, double distance) throws DataNotFound {
-			for(IndexItem childItem : thisNode.children.values()) {
-				@SuppressWarnings("unchecked")
-				Node child = (Node)childItem;
-				if(Math.abs(distance - child.distanceToParent) <= child.radius) {
-					double distanceToChild = thisNode.mtree().distanceFunction.calculate(data, child.data);
-					if(distanceToChild <= child.radius) {
-						try {
-							child.removeData(data, distanceToChild);
-							thisNode.updateRadius(child);
-							return;
-						} catch(DataNotFound e) {
-							// If DataNotFound was thrown, then the data was not found in the child
-						} catch(NodeUnderCapacity e) {
-							Node expandedChild = balanceChildren(child);
-							thisNode.updateRadius(expandedChild);
-							return;
-						} catch (RootNodeReplacement e) {
-							throw new RuntimeException("Should never happen!");
-						}
-					}
+	}
+	
+	
+	/**
+	 * Moves children from a new node of a split to the other one, nearest
+	 * first, while the other one is under the minimum capacity.
+	 */
+	private void fillSplitNode(Node node, Node other) {
+		while(node.size < minNodeCapacity  &&  other.size > minNodeCapacity) {
+			int nearest = -1;
+			double nearestDistance = Double.POSITIVE_INFINITY;
+			for(int i = 0; i < other.size; i++) {
+				double distance = distanceFunction.calculate(node.data, other.dataAt(i));
+				if(distance < nearestDistance) {
+					nearestDistance = distance;
+					nearest = i;
 				}
 			}
 			
-			throw new DataNotFound();
+			Object child = other.children[nearest];
+			other.removeChild(nearest);
+			other.updateRadius();
+			node.addChild(child, nearestDistance);
 		}
-
+	}
+	
+	
+	/**
+	 * Restores the minimum capacity of a child, by moving to it the nearest
+	 * grandchild of its nearest sibling that can spare one, or else by merging
+	 * it into its nearest sibling.
+	 */
+	private void balanceChildren(Node parent, Node theChild) {
+		Node nearestDonor = null;
+		double distanceNearestDonor = Double.POSITIVE_INFINITY;
 		
-		private Node balanceChildren(Node theChild) {
-			// Tries to find anotherChild which can donate a grand-child to theChild.
-			
-			Node nearestDonor = null;
-			double distanceNearestDonor = Double.POSITIVE_INFINITY;
+		Node nearestMergeCandidate = null;
+		double distanceNearestMergeCandidate = Double.POSITIVE_INFINITY;
+		
+		for(int i = 0; i < parent.size; i++) {
+			Node anotherChild = parent.nodeAt(i);
+			if(anotherChild == theChild) continue;
 			
-			Node nearestMergeCandidate = null;
-			double distanceNearestMergeCandidate = Double.POSITIVE_INFINITY;
-
-			for(IndexItem child : thisNode.children.values()) {
-				@SuppressWarnings("unchecked")
-				Node anotherChild = (Node)child;
-				if(anotherChild == theChild) continue;
-
-				double distance = thisNode.mtree().distanceFunction.calculate(theChild.data, anotherChild.data);
-				if(anotherChild.children.size() > anotherChild.getMinCapacity()) {
-					if(distance < distanceNearestDonor) {
-						distanceNearestDonor = distance;
-						nearestDonor = anotherChild;
-					}
-				} else {
-					if(distance < distanceNearestMergeCandidate) {
-						distanceNearestMergeCandidate = distance;
-						nearestMergeCandidate = anotherChild;
-					}
-				}
-			}
-
-			if(nearestDonor == null) {
-				// Merge
-				for(IndexItem grandchild : theChild.children.values()) {
-                                    //if (thisNode == null) System.out.println("thisNode is null");
-                                    //if (thisNode.mtree() == null) System.out.println("thisNode.mtree() is null");
-                                    //if (grandchild == null) System.out.println("grandchild is null");
-                                    //if (grandchild.data == null) System.out.println("grandchild.data is null");                                
-                                    //if (nearestMergeCandidate == null) System.out.println("nearestMergeCandidate is null");                                
-                                    //if (nearestMergeCandidate.data == null) System.out.println("nearestMergeCandidate.data is null");
-
-                                    if (nearestMergeCandidate != null) { // ### added by mits
-                                        double distance = thisNode.mtree().distanceFunction.calculate(grandchild.data, nearestMergeCandidate.data);
-                                        nearestMergeCandidate.addChild(grandchild, distance); 
-                                    }                                    
+			double distance = distanceFunction.calculate(theChild.data, anotherChild.data);
+			if(anotherChild.size > minNodeCapacity) {
+				if(distance < distanceNearestDonor) {
+					distanceNearestDonor = distance;
+					nearestDonor = anotherChild;
 				}
-
-				IndexItem removed = thisNode.children.remove(theChild.data);
-				assert removed != null;
-				return nearestMergeCandidate;
 			} else {
-				// Donate
-				// Look for the nearest grandchild
-				IndexItem nearestGrandchild = null;
-				double nearestGrandchildDistance = Double.POSITIVE_INFINITY;
-				for(IndexItem grandchild : nearestDonor.children.values()) {
-					double distance = thisNode.mtree().distanceFunction.calculate(grandchild.data, theChild.data);
-					if(distance < nearestGrandchildDistance) {
-						nearestGrandchildDistance = distance;
-						nearestGrandchild = grandchild;
-					}
+				if(distance < distanceNearestMergeCandidate) {
+					distanceNearestMergeCandidate = distance;
+					nearestMergeCandidate = anotherChild;
 				}
-
-				IndexItem _ = nearestDonor.children.remove(nearestGrandchild.data);
-				assert _ != null;
-				theChild.addChild(nearestGrandchild, nearestGrandchildDistance);
-				return theChild;
 			}
 		}
-
-
-		public void _checkChildClass(IndexItem child) {
-			assert child instanceof MTree.InternalNode
-			    || child instanceof MTree.LeafNode;
+		
+		if(nearestDonor == null) {
+			// Merge
+			for(int i = 0; i < theChild.size; i++) {
+				double distance = distanceFunction.calculate(nearestMergeCandidate.data, theChild.dataAt(i));
+				nearestMergeCandidate.addChild(theChild.children[i], distance);
+			}
+			parent.removeChild(parent.indexOfNode(theChild));
+		} else {
+			// Donate the nearest grandchild
+			int nearestGrandchild = -1;
+			double nearestGrandchildDistance = Double.POSITIVE_INFINITY;
+			for(int i = 0; i < nearestDonor.size; i++) {
+				double distance = distanceFunction.calculate(nearestDonor.dataAt(i), theChild.data);
+				if(distance < nearestGrandchildDistance) {
+					nearestGrandchildDistance = distance;
+					nearestGrandchild = i;
+				}
+			}
+			
+			Object grandchild = nearestDonor.children[nearestGrandchild];
+			nearestDonor.removeChild(nearestGrandchild);
+			nearestDonor.updateRadius();
+			theChild.addChild(grandchild, nearestGrandchildDistance);
 		}
 	}
-
-
-	private class RootLeafNode extends Node {
+	
+	
+	private QueryState acquireState() {
+		QueryState state = freeStates;
+		if(state == null) {
+			return new QueryState();
+		}
+		freeStates = state.next;
+		state.next = null;
+		return state;
+	}
+	
+	private void releaseState(QueryState state) {
+		state.pending.clear();
+		state.nearest.clear();
+		state.next = freeStates;
+		freeStates = state;
+	}
+	
+	
+	
+	/**
+	 * A node of the M-Tree. The children of a leaf are the indexed data
+	 * objects, and the children of an internal node are nodes.
+	 */
+	private class Node {
+		/** The routing object. */
+		private DATA data;
+		/** The covering radius, which bounds the distance to any descendant. */
+		private double radius;
+		private double distanceToParent = -1;
+		private Node parent;
+		private final boolean leaf;
 		
-		private RootLeafNode(DATA data) {
-			super(data, new RootNodeTrait(), new LeafNodeTrait());
+		private int size;
+		private Object[] children;
+		/** The distances from the children to the routing object. */
+		private double[] distances;
+		
+		private Node(DATA data, boolean leaf) {
+			this.data = data;
+			this.leaf = leaf;
+			this.children = new Object[MTree.this.maxNodeCapacity + 1];
+			this.distances = new double[MTree.this.maxNodeCapacity + 1];
 		}
 		
-		void removeData(DATA data, double distance) throws RootNodeReplacement, DataNotFound {
-			try {
-				super.removeData(data, distance);
-			} catch (NodeUnderCapacity e) {
-				assert children.isEmpty();
-				throw new RootNodeReplacement(null);
-			}
+		/** Gets a data object of a leaf, or the routing object of a child node. */
+		@SuppressWarnings("unchecked")
+		private DATA dataAt(int index) {
+			return leaf ? (DATA) children[index] : nodeAt(index).data;
 		}
 		
-		protected int getMinCapacity() {
-			return 1;
+		@SuppressWarnings("unchecked")
+		private Node nodeAt(int index) {
+			return (Node) children[index];
 		}
-
-		void _checkMinCapacity() {
-			assert children.size() >= 1;
+		
+		private double childRadius(int index) {
+			return leaf ? 0 : nodeAt(index).radius;
 		}
-	}
-
-	private class RootNode extends Node {
-
-		private RootNode(DATA data) {
-			super(data, new RootNodeTrait(), new NonLeafNodeTrait());
+		
+		private void addChild(Object child, double distance) {
+			if(size == children.length) {
+				children = Arrays.copyOf(children, 2 * size);
+				distances = Arrays.copyOf(distances, 2 * size);
+			}
+			children[size] = child;
+			distances[size] = distance;
+			if(!leaf) {
+				Node childNode = nodeAt(size);
+				childNode.parent = this;
+				childNode.distanceToParent = distance;
+			}
+			size++;
+			radius = Math.max(radius, distance + childRadius(size - 1));
 		}
 		
-		void removeData(DATA data, double distance) throws RootNodeReplacement, NodeUnderCapacity, DataNotFound {
-			try {
-				super.removeData(data, distance);
-			} catch(NodeUnderCapacity e) {
-				// Promote the only child to root
-				@SuppressWarnings("unchecked")
-				Node theChild = (Node)(children.values().iterator().next());
-				Node newRoot;
-				if(theChild instanceof MTree.InternalNode) {
-					newRoot = new RootNode(theChild.data);
-				} else {
-					assert theChild instanceof MTree.LeafNode;
-					newRoot = new RootLeafNode(theChild.data);
-				}
-
-				for(IndexItem grandchild : theChild.children.values()) {
-					distance = MTree.this.distanceFunction.calculate(newRoot.data, grandchild.data);
-					newRoot.addChild(grandchild, distance);
+		/** Removes a child, putting the last child in its place. */
+		private void removeChild(int index) {
+			size--;
+			children[index] = children[size];
+			distances[index] = distances[size];
+			children[size] = null;
+		}
+		
+		private int indexOfData(DATA data) {
+			for(int i = 0; i < size; i++) {
+				if(data.equals(children[i])) {
+					return i;
 				}
-				theChild.children.clear();
-
-				throw new RootNodeReplacement(newRoot);
 			}
+			return -1;
 		}
 		
-		
-		@Override
-		protected int getMinCapacity() {
-			return 2;
+		private int indexOfNode(Node node) {
+			for(int i = 0; i < size; i++) {
+				if(children[i] == node) {
+					return i;
+				}
+			}
+			return -1;
 		}
 		
-		@Override
-		void _checkMinCapacity() {
-			assert children.size() >= 2;
+		/** Sets the radius to the smallest one that covers the children. */
+		private void updateRadius() {
+			double newRadius = 0;
+			for(int i = 0; i < size; i++) {
+				newRadius = Math.max(newRadius, distances[i] + childRadius(i));
+			}
+			radius = newRadius;
 		}
 	}
-
-
-	private class InternalNode extends Node {
-		private InternalNode(DATA data) {
-			super(data, new NonRootNodeTrait(), new NonLeafNodeTrait());
+	
+	
+	/**
+	 * The priority queues of a query, which are reused by the next queries
+	 * once the query is finished.
+	 */
+	private static class QueryState {
+		private final Heap pending = new Heap();
+		private final Heap nearest = new Heap();
+		private QueryState next;
+	}
+	
+	
+	/**
+	 * A binary min-heap of items with their distances to the query, ordered by
+	 * a key, in parallel arrays.
+	 */
+	private static class Heap {
+		private Object[] items = new Object[16];
+		private double[] distances = new double[16];
+		private double[] keys = new double[16];
+		private int size;
+		
+		private void push(Object item, double distance, double key) {
+			if(size == items.length) {
+				items = Arrays.copyOf(items, 2 * size);
+				distances = Arrays.copyOf(distances, 2 * size);
+				keys = Arrays.copyOf(keys, 2 * size);
+			}
+			int i = size++;
+			while(i > 0) {
+				int parent = (i - 1) >>> 1;
+				if(keys[parent] <= key) {
+					break;
+				}
+				set(i, items[parent], distances[parent], keys[parent]);
+				i = parent;
+			}
+			set(i, item, distance, key);
 		}
-	};
-
-
-	private class LeafNode extends Node {
-
-		public LeafNode(DATA data) {
-			super(data, new NonRootNodeTrait(), new LeafNodeTrait());
+		
+		/** Removes the item with the smallest key. */
+		private void pop() {
+			size--;
+			Object item = items[size];
+			double distance = distances[size];
+			double key = keys[size];
+			items[size] = null;
+			if(size == 0) {
+				return;
+			}
+			int i = 0;
+			while(true) {
+				int child = 2 * i + 1;
+				if(child >= size) {
+					break;
+				}
+				if(child + 1 < size  &&  keys[child + 1] < keys[child]) {
+					child++;
+				}
+				if(key <= keys[child]) {
+					break;
+				}
+				set(i, items[child], distances[child], keys[child]);
+				i = child;
+			}
+			set(i, item, distance, key);
 		}
-	}
-
-
-	private class Entry extends IndexItem {
-		private Entry(DATA data) {
-			super(data);
+		
+		private void set(int i, Object item, double distance, double key) {
+			items[i] = item;
+			distances[i] = distance;
+			keys[i] = key;
+		}
+		
+		private void clear() {
+			Arrays.fill(items, 0, size, null);
+			size = 0;
 		}
 	}
 }
@@ -20,7 +20,10 @@
 package moa.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import moa.AbstractMOAObject;
 import moa.MOAObject;
@@ -31,7 +34,8 @@ import moa.MOAObject;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class AutoExpandVector<T> extends ArrayList<T> implements MOAObject {
+public class AutoExpandVector<T> extends ArrayList<T> implements MOAObject, DirectCopyable,
+        ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -120,6 +124,47 @@ public class AutoExpandVector<T> extends ArrayList<T> implements MOAObject {
         return AbstractMOAObject.copy(this);
     }
 
+    /**
+     * Copies the vector directly when all its elements are null or can be
+     * copied directly.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object copyDirectly(Map<Object, Object> copies) {
+        if (getClass() != AutoExpandVector.class) {
+            return null;
+        }
+        Object[] elements = toArray();
+        for (int i = 0; i < elements.length; i++) {
+            if (elements[i] != null) {
+                if (!(elements[i] instanceof DirectCopyable)) {
+                    return null;
+                }
+                elements[i] = SerializeUtils.copyDirectly(elements[i], copies);
+                if (elements[i] == null) {
+                    return null;
+                }
+            }
+        }
+        AutoExpandVector<T> copy = new AutoExpandVector<T>();
+        copy.addAll((List<T>) Arrays.asList(elements));
+        return copy;
+    }
+
+    /**
+     * Estimates the size of the vector and of its elements, measuring with
+     * the agent the elements that can not estimate their own size. Without
+     * the agent, only the references to such elements are counted.
+     */
+    @Override
+    public long estimateByteSize() {
+        long size = SizeOf.estimateListSize(size());
+        for (int i = 0; i < size(); i++) {
+            size += SizeOf.estimateFullSizeOf(super.get(i));
+        }
+        return size;
+    }
+
     @Override
     public int measureByteSize() {
         return AbstractMOAObject.measureByteSize(this);
@@ -0,0 +1,37 @@
+/*
+ *    ByteSizeEstimable.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+/**
+ * Interface for objects that can estimate their memory footprint from their
+ * own structure, far faster than the graph walk of {@link SizeOf#fullSizeOf}.
+ *
+ * @version $Revision: 7 $
+ */
+public interface ByteSizeEstimable {
+
+    /**
+     * Estimates the memory used by this object and the objects it owns,
+     * with the layout of {@link SizeOf#estimateObjectSize}. The options
+     * handler an object was prepared with is not counted.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateByteSize();
+}
@@ -0,0 +1,49 @@
+/*
+ *    DirectCopyable.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.util.Map;
+
+/**
+ * Interface for objects that can copy themselves without serialization.
+ *
+ * <p>{@link moa.AbstractMOAObject#copy(moa.MOAObject)} copies such an object
+ * directly, and {@link SerializeUtils#copyObject} copies directly the ones
+ * it meets in the object graph it serializes, so that a learner is
+ * serialized without its model. A direct copy must not share any mutable
+ * object with the original. It copies the directly copyable objects it
+ * refers to with {@link SerializeUtils#copyDirectly(Object, Map)}, so that an
+ * object the graph refers to more than once is copied once, and the copy
+ * keeps the same sharing as the original.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public interface DirectCopyable {
+
+    /**
+     * Copies this object without serialization.
+     *
+     * @param copies the copies made so far of the objects of the graph, by
+     * identity of the original
+     * @return a deep copy of this object, or null if it can not be copied
+     * directly, as for a subclass that adds state to a directly copyable
+     * class
+     */
+    public Object copyDirectly(Map<Object, Object> copies);
+}
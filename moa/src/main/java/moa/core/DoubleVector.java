@@ -19,6 +19,8 @@
  */
 package moa.core;
 
+import java.util.Map;
+
 import moa.AbstractMOAObject;
 
 /**
@@ -27,7 +29,7 @@ import moa.AbstractMOAObject;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class DoubleVector extends AbstractMOAObject {
+public class DoubleVector extends AbstractMOAObject implements DirectCopyable, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -46,6 +48,18 @@ public class DoubleVector extends AbstractMOAObject {
         this(toCopy.getArrayRef());
     }
 
+    @Override
+    public Object copyDirectly(Map<Object, Object> copies) {
+        return getClass() == DoubleVector.class ? new DoubleVector(this) : null;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        // the array
+        return SizeOf.estimateObjectSize(1, 0)
+                + SizeOf.estimateArraySize(this.array.length, 8);
+    }
+
     public int numValues() {
         return this.array.length;
     }
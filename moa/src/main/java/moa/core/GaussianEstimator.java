@@ -19,6 +19,8 @@
  */
 package moa.core;
 
+import java.util.Map;
+
 import moa.AbstractMOAObject;
 
 /**
@@ -28,7 +30,7 @@ import moa.AbstractMOAObject;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class GaussianEstimator extends AbstractMOAObject {
+public class GaussianEstimator extends AbstractMOAObject implements DirectCopyable, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -40,6 +42,24 @@ public class GaussianEstimator extends AbstractMOAObject {
 
     public static final double NORMAL_CONSTANT = Math.sqrt(2 * Math.PI);
 
+    @Override
+    public Object copyDirectly(Map<Object, Object> copies) {
+        if (getClass() != GaussianEstimator.class) {
+            return null;
+        }
+        GaussianEstimator copy = new GaussianEstimator();
+        copy.weightSum = this.weightSum;
+        copy.mean = this.mean;
+        copy.varianceSum = this.varianceSum;
+        return copy;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        // the double weight sum, mean and variance sum
+        return SizeOf.estimateObjectSize(0, 3 * 8);
+    }
+
     public void addObservation(double value, double weight) {
         if (Double.isInfinite(value) || Double.isNaN(value)) {
             return;
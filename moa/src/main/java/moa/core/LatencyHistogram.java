@@ -0,0 +1,107 @@
+/*
+ *    LatencyHistogram.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.Serializable;
+
+/**
+ * Histogram of latencies, with buckets of exponentially growing width.
+ *
+ * <p>Bucket 0 counts the latencies under one microsecond, and bucket b
+ * those from 2^(b-1) up to 2^b microseconds, so that percentiles are known
+ * within a factor of two in constant space.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int NUM_BUCKETS = 40;
+
+    protected long[] bucketCounts = new long[NUM_BUCKETS];
+
+    protected long numLatencies;
+
+    protected long totalNanos;
+
+    protected long maxNanos;
+
+    public void addLatency(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros),
+                NUM_BUCKETS - 1);
+        this.bucketCounts[bucket]++;
+        this.numLatencies++;
+        this.totalNanos += nanos;
+        if (nanos > this.maxNanos) {
+            this.maxNanos = nanos;
+        }
+    }
+
+    public long getNumLatencies() {
+        return this.numLatencies;
+    }
+
+    public double getMeanMillis() {
+        return this.numLatencies > 0
+                ? this.totalNanos / 1.0e6 / this.numLatencies : 0.0;
+    }
+
+    public double getMaxMillis() {
+        return this.maxNanos / 1.0e6;
+    }
+
+    /**
+     * Returns an upper bound of a percentile of the latencies: the upper
+     * limit of the bucket holding it, or the maximum if lower.
+     *
+     * @param fraction the fraction of the latencies below the percentile
+     * @return the percentile in milliseconds
+     */
+    public double getPercentileMillis(double fraction) {
+        if (this.numLatencies == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * this.numLatencies));
+        long count = 0;
+        int bucket = 0;
+        while (bucket < NUM_BUCKETS - 1) {
+            count += this.bucketCounts[bucket];
+            if (count >= rank) {
+                break;
+            }
+            bucket++;
+        }
+        return Math.min((1L << bucket) / 1.0e3, getMaxMillis());
+    }
+
+    /**
+     * Returns the number, mean, median, 99th percentile and maximum of the
+     * latencies, as measurements named after the latencies measured.
+     */
+    public Measurement[] getMeasurements(String name) {
+        return new Measurement[]{
+                    new Measurement(name + " count", this.numLatencies),
+                    new Measurement(name + " mean (ms)", getMeanMillis()),
+                    new Measurement(name + " median (ms)", getPercentileMillis(0.5)),
+                    new Measurement(name + " 99th percentile (ms)", getPercentileMillis(0.99)),
+                    new Measurement(name + " max (ms)", getMaxMillis())};
+    }
+}
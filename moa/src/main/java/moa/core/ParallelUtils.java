@@ -0,0 +1,137 @@
+/*
+ *    ParallelUtils.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class implementing utility methods for running learner work on shared
+ * thread pools.
+ *
+ * <p>Pools are shared per thread count, are made of daemon threads and are
+ * never shut down, so learners can keep a pool across instances without
+ * having to release it. Work submitted from inside a pool thread is run on
+ * the calling thread, so nested parallel learners cannot deadlock.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class ParallelUtils {
+
+    protected static final Map<Integer, ExecutorService> sharedPools = new HashMap<>();
+
+    /**
+     * Thread used by the shared pools, so nested submissions can be detected.
+     */
+    protected static class PoolThread extends Thread {
+
+        public PoolThread(Runnable target, String name) {
+            super(target, name);
+            setDaemon(true);
+        }
+    }
+
+    /**
+     * Returns the number of threads to use for a requested value, where a
+     * value lower than one means all available processors.
+     */
+    public static int resolveNumThreads(int requested) {
+        return requested < 1 ? Runtime.getRuntime().availableProcessors() : requested;
+    }
+
+    /**
+     * Returns the shared pool with the given number of threads, creating it
+     * on first use.
+     */
+    public static synchronized ExecutorService getSharedPool(int numThreads) {
+        final int size = resolveNumThreads(numThreads);
+        ExecutorService pool = sharedPools.get(size);
+        if (pool == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(size, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new PoolThread(r, "moa-pool-" + size + "-"
+                            + threadCount.incrementAndGet());
+                }
+            });
+            sharedPools.put(size, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Returns true if the calling thread belongs to one of the shared pools.
+     */
+    public static boolean inPoolThread() {
+        return Thread.currentThread() instanceof PoolThread;
+    }
+
+    /**
+     * Runs all tasks on the pool and waits for them to finish. The results
+     * are returned in the order of the tasks. Tasks are run on the calling
+     * thread if it is itself a pool thread.
+     *
+     * @param pool the pool to run the tasks on
+     * @param tasks the tasks to run
+     * @return the results of the tasks
+     */
+    public static <T> List<T> invokeAll(ExecutorService pool,
+            List<? extends Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            if (inPoolThread() || tasks.size() < 2) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+            } else {
+                for (Future<T> future : pool.invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Parallel processing interrupted.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Error in parallel processing.", cause);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error in parallel processing.", e);
+        }
+        return results;
+    }
+}
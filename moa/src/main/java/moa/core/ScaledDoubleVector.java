@@ -0,0 +1,213 @@
+/*
+ *    ScaledDoubleVector.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import java.util.Arrays;
+import java.util.Map;
+import moa.AbstractMOAObject;
+
+/**
+ * Vector of double numbers stored as a scale factor times an array of
+ * values, for the weights of linear models learnt on sparse instances.
+ *
+ * <p>Scaling the whole vector, as done by weight decay, only changes the
+ * factor, and the products with instances and the updates by instances only
+ * visit the values present in the instances. The array grows by doubling,
+ * so that attributes seen in increasing order take amortised constant time,
+ * and the sum of the squares of the values is kept up to date.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class ScaledDoubleVector extends AbstractMOAObject implements DirectCopyable, ByteSizeEstimable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Scale factor under which the factor is folded into the values. */
+    protected static final double MIN_SCALE = 1e-10;
+
+    protected double[] array;
+
+    protected int numValues;
+
+    protected double scale = 1.0;
+
+    protected double sumOfSquares;
+
+    public ScaledDoubleVector() {
+        this.array = new double[0];
+    }
+
+    public ScaledDoubleVector(int numValues) {
+        this.array = new double[numValues];
+        this.numValues = numValues;
+    }
+
+    public ScaledDoubleVector(ScaledDoubleVector toCopy) {
+        this.array = new double[toCopy.numValues];
+        System.arraycopy(toCopy.array, 0, this.array, 0, toCopy.numValues);
+        this.numValues = toCopy.numValues;
+        this.scale = toCopy.scale;
+        this.sumOfSquares = toCopy.sumOfSquares;
+    }
+
+    @Override
+    public Object copyDirectly(Map<Object, Object> copies) {
+        return getClass() == ScaledDoubleVector.class ? new ScaledDoubleVector(this) : null;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        // the array, with the int number of values and the double scale and
+        // sum of squares
+        return SizeOf.estimateObjectSize(1, 4 + 8 + 8)
+                + SizeOf.estimateArraySize(this.array.length, 8);
+    }
+
+    public int numValues() {
+        return this.numValues;
+    }
+
+    // returns 0.0 for values outside of range
+    public double getValue(int i) {
+        return ((i >= 0) && (i < this.numValues)) ? this.scale * this.array[i] : 0.0;
+    }
+
+    public void setValue(int i, double v) {
+        ensureNumValues(i + 1);
+        double value = v / this.scale;
+        this.sumOfSquares += value * value - this.array[i] * this.array[i];
+        this.array[i] = value;
+    }
+
+    public void addToValue(int i, double v) {
+        ensureNumValues(i + 1);
+        double value = this.array[i] + v / this.scale;
+        this.sumOfSquares += value * value - this.array[i] * this.array[i];
+        this.array[i] = value;
+    }
+
+    /**
+     * Multiplies all the values by a factor, in constant time unless the
+     * scale factor becomes too small and is folded into the values.
+     *
+     * @param multiplier the factor
+     */
+    public void scaleValues(double multiplier) {
+        if (multiplier == 0.0) {
+            Arrays.fill(this.array, 0, this.numValues, 0.0);
+            this.scale = 1.0;
+            this.sumOfSquares = 0.0;
+            return;
+        }
+        this.scale *= multiplier;
+        if (Math.abs(this.scale) < MIN_SCALE) {
+            foldScale();
+        }
+    }
+
+    /**
+     * Returns the sum of the squares of the values.
+     */
+    public double sumOfSquares() {
+        return this.scale * this.scale * this.sumOfSquares;
+    }
+
+    /**
+     * Returns the dot product of the values with the values of an instance,
+     * ignoring the class and the missing values.
+     *
+     * @param inst the instance
+     * @return the dot product
+     */
+    public double dotProduct(Instance inst) {
+        int classIndex = inst.classIndex();
+        double result = 0.0;
+        for (int p = 0, n = inst.numValues(); p < n; p++) {
+            int i = inst.index(p);
+            if (i < this.numValues && i != classIndex && !inst.isMissingSparse(p)) {
+                result += inst.valueSparse(p) * this.array[i];
+            }
+        }
+        return this.scale * result;
+    }
+
+    /**
+     * Adds the values of an instance times a factor, ignoring the class and
+     * the missing values.
+     *
+     * @param inst the instance
+     * @param factor the factor of the values of the instance
+     */
+    public void addInstance(Instance inst, double factor) {
+        int classIndex = inst.classIndex();
+        int n = inst.numValues();
+        for (int p = n - 1; p >= 0; p--) {
+            if (inst.index(p) != classIndex && !inst.isMissingSparse(p)) {
+                ensureNumValues(inst.index(p) + 1);
+                break;
+            }
+        }
+        double scaledFactor = factor / this.scale;
+        double sumOfSquaresChange = 0.0;
+        for (int p = 0; p < n; p++) {
+            int i = inst.index(p);
+            if (i != classIndex && !inst.isMissingSparse(p)) {
+                double old = this.array[i];
+                double value = old + scaledFactor * inst.valueSparse(p);
+                sumOfSquaresChange += value * value - old * old;
+                this.array[i] = value;
+            }
+        }
+        this.sumOfSquares += sumOfSquaresChange;
+    }
+
+    protected void foldScale() {
+        double sum = 0.0;
+        for (int i = 0; i < this.numValues; i++) {
+            this.array[i] *= this.scale;
+            sum += this.array[i] * this.array[i];
+        }
+        this.scale = 1.0;
+        this.sumOfSquares = sum;
+    }
+
+    protected void ensureNumValues(int n) {
+        if (n > this.array.length) {
+            double[] newArray = new double[Math.max(n, 2 * this.array.length)];
+            System.arraycopy(this.array, 0, newArray, 0, this.numValues);
+            this.array = newArray;
+        }
+        if (n > this.numValues) {
+            this.numValues = n;
+        }
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        sb.append("{");
+        for (int i = 0; i < this.numValues; i++) {
+            if (i > 0) {
+                sb.append("|");
+            }
+            sb.append(StringUtils.doubleToString(getValue(i), 3));
+        }
+        sb.append("}");
+    }
+}
@@ -27,10 +27,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -84,16 +89,126 @@ public class SerializeUtils {
         return obj;
     }
 
+    /**
+     * Placeholder written in a copy stream instead of an object that was
+     * copied directly.
+     */
+    protected static class DirectCopyIndex implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected int index;
+
+        public DirectCopyIndex(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * Stream that copies directly the objects that can be, writing their
+     * index in the list of copies instead of them.
+     */
+    protected static class DirectCopyOutputStream extends ObjectOutputStream {
+
+        protected Object root;
+
+        protected List<Object> copies = new ArrayList<Object>();
+
+        protected Map<Object, DirectCopyIndex> indexes = new IdentityHashMap<Object, DirectCopyIndex>();
+
+        protected Map<Object, Object> directCopies = new IdentityHashMap<Object, Object>();
+
+        public DirectCopyOutputStream(OutputStream out, Object root)
+                throws IOException {
+            super(out);
+            this.root = root;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if (obj == this.root || !(obj instanceof DirectCopyable)) {
+                return obj;
+            }
+            DirectCopyIndex index = this.indexes.get(obj);
+            if (index == null) {
+                Object copy = copyDirectly(obj, this.directCopies);
+                if (copy == null) {
+                    return obj;
+                }
+                index = new DirectCopyIndex(this.copies.size());
+                this.copies.add(copy);
+                this.indexes.put(obj, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Stream that puts back the direct copies in place of their indexes.
+     */
+    protected static class DirectCopyInputStream extends ObjectInputStream {
+
+        protected List<Object> copies;
+
+        public DirectCopyInputStream(InputStream in, List<Object> copies)
+                throws IOException {
+            super(in);
+            this.copies = copies;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof DirectCopyIndex) {
+                return this.copies.get(((DirectCopyIndex) obj).index);
+            }
+            return obj;
+        }
+    }
+
+    /**
+     * Copies an object directly, unless a copy of it was already made.
+     *
+     * @param obj the object to copy
+     * @param copies the copies made so far, by identity of the original, to
+     * which the copy is added
+     * @return the copy of the object, or null if it can not be copied
+     * directly
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T copyDirectly(T obj, Map<Object, Object> copies) {
+        Object copy = copies.get(obj);
+        if (copy == null && obj instanceof DirectCopyable) {
+            copy = ((DirectCopyable) obj).copyDirectly(copies);
+            if (copy != null) {
+                copies.put(obj, copy);
+            }
+        }
+        return (T) copy;
+    }
+
+    /**
+     * Copies an object by serializing it and reading it back. The objects of
+     * the graph that implement {@link DirectCopyable} are copied directly
+     * instead, along with everything they refer to. An object the graph
+     * refers to more than once, also from within a direct copy, is copied
+     * once.
+     *
+     * @param obj the object to copy
+     * @return the copy
+     * @throws Exception if the object can not be serialized
+     */
     public static Object copyObject(Serializable obj) throws Exception {
         ByteArrayOutputStream baoStream = new ByteArrayOutputStream();
-        ObjectOutputStream out = new ObjectOutputStream(
-                new BufferedOutputStream(baoStream));
+        DirectCopyOutputStream out = new DirectCopyOutputStream(
+                new BufferedOutputStream(baoStream), obj);
         out.writeObject(obj);
         out.flush();
         out.close();
         byte[] byteArray = baoStream.toByteArray();
-        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
-                new ByteArrayInputStream(byteArray)));
+        ObjectInputStream in = new DirectCopyInputStream(new BufferedInputStream(
+                new ByteArrayInputStream(byteArray)), out.copies);
         Object copy = in.readObject();
         in.close();
         return copy;
@@ -30,6 +30,18 @@ import sizeof.agent.SizeOfAgent;
  */
 public class SizeOf {
 
+    /** the size of an object header, with compressed references. */
+    public static final int OBJECT_HEADER_BYTES = 12;
+
+    /** the size of an array header, with compressed references. */
+    public static final int ARRAY_HEADER_BYTES = 16;
+
+    /** the size of a reference, with compressed references. */
+    public static final int REFERENCE_BYTES = 4;
+
+    /** the alignment of objects in memory. */
+    public static final int OBJECT_ALIGNMENT = 8;
+
     /** whether the agent is present. */
     protected static Boolean m_Present;
 
@@ -78,4 +90,64 @@ public class SizeOf {
             return -1;
         }
     }
+
+    /**
+     * Estimates the full size of an object that can estimate its own size,
+     * and else measures it with the agent.
+     *
+     * @param o	the object to get the size for
+     * @return the size of the object, or 0 if it is null or can not estimate
+     * its own size and the agent isn't present
+     */
+    public static long estimateFullSizeOf(Object o) {
+        if (o instanceof ByteSizeEstimable) {
+            return ((ByteSizeEstimable) o).estimateByteSize();
+        }
+        return o != null && isPresent() ? SizeOfAgent.fullSizeOf(o) : 0;
+    }
+
+    /**
+     * Estimates the size of an object from its fields, as laid out by a 64
+     * bit JVM with compressed references, without the agent.
+     *
+     * @param numReferences	the number of reference fields
+     * @param numPrimitiveBytes	the total size of the primitive fields
+     * @return the estimated size of the object
+     */
+    public static long estimateObjectSize(int numReferences, int numPrimitiveBytes) {
+        return align(OBJECT_HEADER_BYTES + (long) numReferences * REFERENCE_BYTES
+                + numPrimitiveBytes);
+    }
+
+    /**
+     * Estimates the size of an array, without the agent.
+     *
+     * @param length	the length of the array
+     * @param elementBytes	the size of an element, REFERENCE_BYTES for objects
+     * @return the estimated size of the array
+     */
+    public static long estimateArraySize(int length, int elementBytes) {
+        return align(ARRAY_HEADER_BYTES + (long) length * elementBytes);
+    }
+
+    /**
+     * Estimates the size of an ArrayList and of its array of elements, but
+     * not of the elements, without the agent.
+     *
+     * @param capacity	the length of the array of elements
+     * @return the estimated size of the list
+     */
+    public static long estimateListSize(int capacity) {
+        return estimateObjectSize(1, 8) + estimateArraySize(capacity, REFERENCE_BYTES);
+    }
+
+    /**
+     * Rounds a size up to the alignment of objects.
+     *
+     * @param size	the size to align
+     * @return the aligned size
+     */
+    protected static long align(long size) {
+        return (size + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+    }
 }
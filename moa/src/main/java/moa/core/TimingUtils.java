@@ -29,10 +29,25 @@ public class TimingUtils {
 
     protected static boolean preciseThreadTimesAvailable = false;
 
+    /**
+     * The thread bean, looked up once as the lookup allocates far more than
+     * reading the times.
+     */
+    protected static volatile java.lang.management.ThreadMXBean threadMXBean;
+
+    protected static java.lang.management.ThreadMXBean getThreadMXBean() {
+        java.lang.management.ThreadMXBean tmxb = threadMXBean;
+        if (tmxb == null) {
+            tmxb = java.lang.management.ManagementFactory.getThreadMXBean();
+            threadMXBean = tmxb;
+        }
+        return tmxb;
+    }
+
     public static boolean enablePreciseTiming() {
         if (!preciseThreadTimesAvailable) {
             try {
-                java.lang.management.ThreadMXBean tmxb = java.lang.management.ManagementFactory.getThreadMXBean();
+                java.lang.management.ThreadMXBean tmxb = getThreadMXBean();
                 if (tmxb.isCurrentThreadCpuTimeSupported()) {
                     tmxb.setThreadCpuTimeEnabled(true);
                     preciseThreadTimesAvailable = true;
@@ -50,7 +65,7 @@ public class TimingUtils {
 
     public static long getNanoCPUTimeOfThread(long threadID) {
         if (preciseThreadTimesAvailable) {
-            long time = java.lang.management.ManagementFactory.getThreadMXBean().getThreadCpuTime(threadID);
+            long time = getThreadMXBean().getThreadCpuTime(threadID);
             if (time != -1) {
                 return time;
             }
@@ -58,6 +73,23 @@ public class TimingUtils {
         return System.nanoTime();
     }
 
+    /**
+     * Gets the number of bytes allocated on the heap by the current thread,
+     * or -1 if the virtual machine does not measure it.
+     */
+    public static long getAllocatedBytesOfCurrentThread() {
+        try {
+            java.lang.management.ThreadMXBean tmxb = getThreadMXBean();
+            if (tmxb instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) tmxb).getThreadAllocatedBytes(
+                        Thread.currentThread().getId());
+            }
+        } catch (Throwable e) {
+            // not available on this virtual machine
+        }
+        return -1;
+    }
+
     public static double nanoTimeToSeconds(long nanoTime) {
         return nanoTime / 1000000000.0;
     }
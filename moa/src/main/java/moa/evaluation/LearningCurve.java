@@ -20,15 +20,19 @@
 package moa.evaluation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import moa.AbstractMOAObject;
-import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.StringUtils;
 
 /**
  * Class that stores and keeps the history of evaluation measurements.
+ * Every entry is stored as an array of values, ordered as the names of the
+ * measurements.
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
@@ -41,6 +45,9 @@ public class LearningCurve extends AbstractMOAObject {
 
     protected List<double[]> measurementValues = new ArrayList<double[]>();
 
+    /** The indices of the measurement names. */
+    protected transient Map<String, Integer> measurementIndices;
+
     public LearningCurve(String orderingMeasurementName) {
         this.measurementNames.add(orderingMeasurementName);
     }
@@ -50,24 +57,49 @@ public class LearningCurve extends AbstractMOAObject {
     }
 
     public void insertEntry(LearningEvaluation learningEvaluation) {
-        Measurement[] measurements = learningEvaluation.getMeasurements();
-        Measurement orderMeasurement = Measurement.getMeasurementNamed(
-                getOrderingMeasurementName(), measurements);
-        if (orderMeasurement == null) {
+        insertEntry(learningEvaluation.getMeasurements());
+    }
+
+    /**
+     * Inserts an entry made of groups of measurements, such as the ones of
+     * the task, of the evaluator and of the model, without gathering them
+     * into a single array first.
+     *
+     * @param measurementGroups the groups of measurements, null groups being
+     * skipped
+     */
+    public void insertEntry(Measurement[]... measurementGroups) {
+        double[] entryVals = new double[this.measurementNames.size()];
+        int numVals = 0;
+        boolean hasOrderingMeasurement = false;
+        for (Measurement[] measurements : measurementGroups) {
+            if (measurements == null) {
+                continue;
+            }
+            for (Measurement measurement : measurements) {
+                int index = addMeasurementName(measurement.getName());
+                if (index >= entryVals.length) {
+                    entryVals = Arrays.copyOf(entryVals, Math.max(index + 1, 2 * entryVals.length));
+                }
+                numVals = Math.max(numVals, index + 1);
+                entryVals[index] = measurement.getValue();
+                hasOrderingMeasurement |= index == 0;
+            }
+        }
+        if (!hasOrderingMeasurement) {
             throw new IllegalArgumentException();
         }
-        DoubleVector entryVals = new DoubleVector();
-        for (Measurement measurement : measurements) {
-            entryVals.setValue(addMeasurementName(measurement.getName()),
-                    measurement.getValue());
+        if (numVals < entryVals.length) {
+            entryVals = Arrays.copyOf(entryVals, numVals);
         }
-        double orderVal = orderMeasurement.getValue();
-        int index = 0;
-        while ((index < this.measurementValues.size())
-                && (orderVal > this.measurementValues.get(index)[0])) {
-            index++;
+        // entries mostly come in order, so look for the position from the end
+        double orderVal = entryVals[0];
+        int index = this.measurementValues.size();
+        while ((index > 0)
+                && (orderVal <= this.measurementValues.get(index - 1)[0])) {
+            index--;
         }
-        this.measurementValues.add(index, entryVals.getArrayRef());
+        this.measurementValues.add(index, entryVals);
     }
 
     public int numEntries() {
@@ -75,10 +107,19 @@ public class LearningCurve extends AbstractMOAObject {
     }
 
     protected int addMeasurementName(String name) {
-        int index = this.measurementNames.indexOf(name);
-        if (index < 0) {
+        if (this.measurementIndices == null) {
+            this.measurementIndices = new HashMap<String, Integer>();
+            for (int i = 0; i < this.measurementNames.size(); i++) {
+                if (!this.measurementIndices.containsKey(this.measurementNames.get(i))) {
+                    this.measurementIndices.put(this.measurementNames.get(i), i);
+                }
+            }
+        }
+        Integer index = this.measurementIndices.get(name);
+        if (index == null) {
             index = this.measurementNames.size();
             this.measurementNames.add(name);
+            this.measurementIndices.put(name, index);
         }
         return index;
     }
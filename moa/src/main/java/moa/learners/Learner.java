@@ -54,6 +54,16 @@ public interface Learner<E extends Example> extends MOAObject, OptionHandler, AW
      */
     public void setRandomSeed(int s);
 
+    /**
+     * Gets whether this learner keeps references to the instances it is
+     * given after training or predicting returns, as a window of instances
+     * does. Streams may only reuse their instance objects for learners
+     * that do not.
+     *
+     * @return true if the learner keeps references to instances
+     */
+    public boolean retainsInstances();
+
     /**
      * Gets whether training has started.
      *
@@ -53,6 +53,9 @@ import moa.tasks.TaskMonitor;
  *      regularization</li>
  * <li> i: iterations - the number of iterations to be used when retraining
  *      user and item features (online training). </li>
+ * <li> c: cores - the number of cores used by the batch training, split
+ *      into blocks of users and items trained in parallel. The blocks hold
+ *      a copy of the training ratings, about 16 bytes per rating. </li>
  * </lu>
  * 
  */
@@ -77,6 +80,11 @@ public class BRISMFPredictor extends AbstractOptionHandler implements RatingPred
             "How many iterations to use.",
             100, 0, Integer.MAX_VALUE);
 
+    public IntOption numCoresOption = new IntOption("numCores", 'c',
+            "The number of cores used by the batch training (1 = sequential, 0 = all available)."
+            + " More than one copies the training ratings into blocks, about 16 bytes per rating.",
+            1, 0, Integer.MAX_VALUE);
+
     public ClassOption dataOption = new ClassOption("data", 'd',
             "Data", RecommenderData.class, "moa.recommender.data.MemRecommenderData");
      
@@ -86,6 +94,7 @@ public class BRISMFPredictor extends AbstractOptionHandler implements RatingPred
         RecommenderData data = (RecommenderData) getPreparedClassOption(this.dataOption);
         rp = new moa.recommender.rc.predictor.impl.BRISMFPredictor(featuresOption.getValue(), data.getData(), lRateOption.getValue(), rFactorOption.getValue(), false);
         rp.setNIterations(iterationsOption.getValue());
+        rp.setNumThreads(numCoresOption.getValue());
     }
 
     @Override
@@ -111,6 +120,11 @@ public class BRISMFPredictor extends AbstractOptionHandler implements RatingPred
         return rp.predictRatings(userID, itemIDS);
     }
 
+    @Override
+    public List<Integer> recommend(int userID, int n) {
+        return rp.recommend(userID, n);
+    }
+
     @Override
     public void train() {
         rp.train();
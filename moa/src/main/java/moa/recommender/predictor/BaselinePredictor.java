@@ -68,6 +68,11 @@ public class BaselinePredictor extends AbstractOptionHandler implements moa.reco
         return rp.predictRatings(userID, itemIDS);
     }
 
+    @Override
+    public List<Integer> recommend(int userID, int n) {
+        return rp.recommend(userID, n);
+    }
+
     @Override
     public void train() {
         rp.train();
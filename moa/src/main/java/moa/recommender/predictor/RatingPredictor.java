@@ -28,12 +28,15 @@ import moa.recommender.rc.data.RecommenderData;
  * Rating predicting algorithm. The core of any recommender system is its 
  * rating prediction algorithm. Its purpose is to estimate the rating
  * (a numeric score) that a certain user would give to a certain item,
- * based on previous ratings given of the user and the item.
+ * based on previous ratings given of the user and the item. The items
+ * with the highest estimated ratings that a user has not rated yet are
+ * the ones recommended to the user.
  * 
  */
 public interface RatingPredictor extends Serializable {
 	public double predictRating(int userID, int itemID);
 	public List<Double> predictRatings(int userID, List<Integer> itemIDS);
+	public List<Integer> recommend(int userID, int n);
 	public RecommenderData getData();
 	public void train();
 }
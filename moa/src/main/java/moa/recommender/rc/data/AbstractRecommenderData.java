@@ -23,6 +23,9 @@ package moa.recommender.rc.data;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import moa.recommender.rc.utils.Pair;
+import moa.recommender.rc.utils.RatingList;
+import moa.recommender.rc.utils.SparseVector;
 import moa.recommender.rc.utils.Updatable;
 
 
@@ -96,6 +99,29 @@ public abstract class AbstractRecommenderData implements RecommenderData {
         }
     }
 
+    /**
+     * Fills a list with the ratings of a user, replacing its contents.
+     */
+    public void getRatingsUser(int userID, RatingList ratings) {
+        fill(getRatingsUser(userID), ratings);
+    }
+
+    /**
+     * Fills a list with the ratings of an item, replacing its contents.
+     */
+    public void getRatingsItem(int itemID, RatingList ratings) {
+        fill(getRatingsItem(itemID), ratings);
+    }
+
+    private static void fill(SparseVector vector, RatingList ratings) {
+        ratings.clear();
+        Iterator<Pair<Integer, Double>> it = vector.iterator();
+        while (it.hasNext()) {
+            Pair<Integer, Double> p = it.next();
+            ratings.add(p.getFirst(), p.getSecond());
+        }
+    }
+
     public void attachUpdatable(Updatable obj) {
         updatables.add(obj);
     }
@@ -25,6 +25,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import moa.recommender.rc.utils.Rating;
+import moa.recommender.rc.utils.RatingList;
 import moa.recommender.rc.utils.SparseVector;
 import moa.recommender.rc.utils.Updatable;
 
@@ -39,6 +40,8 @@ public interface RecommenderData extends Serializable {
     public void removeRating(int userID, int itemID);
     public SparseVector getRatingsUser(int userID); //TODO:Iterator version for this?
     public SparseVector getRatingsItem(int itemID); //TODO:Iterator version for this?
+    public void getRatingsUser(int userID, RatingList ratings);
+    public void getRatingsItem(int itemID, RatingList ratings);
     public double getRating(int userID, int itemID);
     public int getNumItems();
     public int getNumUsers();
@@ -0,0 +1,507 @@
+/*
+ *    PrimitiveRecommenderData.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.recommender.rc.data.impl;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import moa.recommender.rc.data.AbstractRecommenderData;
+import moa.recommender.rc.utils.IntIntHashMap;
+import moa.recommender.rc.utils.Rating;
+import moa.recommender.rc.utils.RatingList;
+import moa.recommender.rc.utils.SparseVector;
+
+/**
+ * Recommender data kept in primitive arrays, as MemRecommenderData without
+ * boxing. Users and items get dense indices from open addressing maps, and
+ * the ratings of every user and of every item are kept in a block of ids
+ * sorted in increasing order and a block of ratings, both growing by
+ * doubling. Ratings are stored as floats, which holds the usual ratings,
+ * such as whole or half stars, exactly.
+ */
+public class PrimitiveRecommenderData extends AbstractRecommenderData {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The ratings of the users, or of the items, indexed by dense indices.
+     */
+    protected static class Ratings implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected IntIntHashMap indices = new IntIntHashMap();
+
+        /** The ids of the dense indices, of removed entities too. */
+        protected int[] ids = new int[16];
+
+        /** The sorted ids rated by, or rating, every entity. */
+        protected int[][] ratedIds = new int[16][];
+
+        protected float[][] ratings = new float[16][];
+
+        protected int[] numRatings = new int[16];
+
+        protected double[] sums = new double[16];
+
+        protected int numIndices;
+
+        protected Set<Integer> idSet = new IdSet();
+
+        public int indexOf(int id) {
+            return this.indices.get(id);
+        }
+
+        /**
+         * Gets the dense index of an entity, adding the entity without
+         * ratings if needed.
+         */
+        public int add(int id) {
+            int index = this.indices.get(id);
+            if (index == IntIntHashMap.NO_VALUE) {
+                if (this.numIndices == this.ids.length) {
+                    int capacity = 2 * this.numIndices;
+                    this.ids = Arrays.copyOf(this.ids, capacity);
+                    this.ratedIds = Arrays.copyOf(this.ratedIds, capacity);
+                    this.ratings = Arrays.copyOf(this.ratings, capacity);
+                    this.numRatings = Arrays.copyOf(this.numRatings, capacity);
+                    this.sums = Arrays.copyOf(this.sums, capacity);
+                }
+                index = this.numIndices++;
+                this.ids[index] = id;
+                this.indices.put(id, index);
+                this.ratedIds[index] = new int[2];
+                this.ratings[index] = new float[2];
+            }
+            return index;
+        }
+
+        /**
+         * Removes the ratings of an entity, and the entity unless asked to
+         * keep it.
+         */
+        public void remove(int id, boolean keep) {
+            int index = keep ? this.indices.get(id) : this.indices.remove(id);
+            if (index != IntIntHashMap.NO_VALUE) {
+                this.ratedIds[index] = keep ? new int[2] : null;
+                this.ratings[index] = keep ? new float[2] : null;
+                this.numRatings[index] = 0;
+                this.sums[index] = 0;
+            }
+        }
+
+        protected int position(int index, int ratedId) {
+            return Arrays.binarySearch(this.ratedIds[index], 0, this.numRatings[index], ratedId);
+        }
+
+        /**
+         * Gets a rating, or NaN if there is none.
+         */
+        public double get(int index, int ratedId) {
+            int position = position(index, ratedId);
+            return position >= 0 ? this.ratings[index][position] : Double.NaN;
+        }
+
+        public void set(int index, int ratedId, float rating) {
+            int position = position(index, ratedId);
+            if (position >= 0) {
+                this.sums[index] += rating - this.ratings[index][position];
+                this.ratings[index][position] = rating;
+                return;
+            }
+            position = -position - 1;
+            int n = this.numRatings[index];
+            if (n == this.ratedIds[index].length) {
+                this.ratedIds[index] = Arrays.copyOf(this.ratedIds[index], 2 * n);
+                this.ratings[index] = Arrays.copyOf(this.ratings[index], 2 * n);
+            }
+            System.arraycopy(this.ratedIds[index], position, this.ratedIds[index], position + 1, n - position);
+            System.arraycopy(this.ratings[index], position, this.ratings[index], position + 1, n - position);
+            this.ratedIds[index][position] = ratedId;
+            this.ratings[index][position] = rating;
+            this.numRatings[index]++;
+            this.sums[index] += rating;
+        }
+
+        public void removeRating(int index, int ratedId) {
+            int position = position(index, ratedId);
+            if (position >= 0) {
+                int n = this.numRatings[index];
+                this.sums[index] -= this.ratings[index][position];
+                System.arraycopy(this.ratedIds[index], position + 1, this.ratedIds[index], position, n - position - 1);
+                System.arraycopy(this.ratings[index], position + 1, this.ratings[index], position, n - position - 1);
+                this.numRatings[index]--;
+            }
+        }
+
+        public SparseVector getRatings(int id) {
+            int index = this.indices.get(id);
+            if (index == IntIntHashMap.NO_VALUE) {
+                return new SparseVector();
+            }
+            int n = this.numRatings[index];
+            Map<Integer, Double> map = new HashMap<Integer, Double>(2 * n);
+            for (int i = 0; i < n; i++) {
+                map.put(this.ratedIds[index][i], (double) this.ratings[index][i]);
+            }
+            return new SparseVector(map);
+        }
+
+        public void getRatings(int id, RatingList ratings) {
+            ratings.clear();
+            int index = this.indices.get(id);
+            if (index != IntIntHashMap.NO_VALUE) {
+                for (int i = 0; i < this.numRatings[index]; i++) {
+                    ratings.add(this.ratedIds[index][i], this.ratings[index][i]);
+                }
+            }
+        }
+
+        /** Whether a dense index is the one of an entity in the data. */
+        protected boolean isActive(int index) {
+            return this.ratedIds[index] != null && this.indices.get(this.ids[index]) == index;
+        }
+
+        public void clear() {
+            this.indices.clear();
+            Arrays.fill(this.ratedIds, 0, this.numIndices, null);
+            Arrays.fill(this.ratings, 0, this.numIndices, null);
+            Arrays.fill(this.numRatings, 0, this.numIndices, 0);
+            Arrays.fill(this.sums, 0, this.numIndices, 0);
+            this.numIndices = 0;
+        }
+
+        /** Live view of the ids of the entities. */
+        protected class IdSet extends AbstractSet<Integer> implements Serializable {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public int size() {
+                return indices.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer && indices.containsKey((Integer) o);
+            }
+
+            @Override
+            public Iterator<Integer> iterator() {
+                return new Iterator<Integer>() {
+
+                    private int next = nextActive(0);
+
+                    private int nextActive(int index) {
+                        while (index < numIndices && !isActive(index)) {
+                            index++;
+                        }
+                        return index;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.next < numIndices;
+                    }
+
+                    @Override
+                    public Integer next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int id = ids[this.next];
+                        this.next = nextActive(this.next + 1);
+                        return id;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        }
+    }
+
+    protected Ratings ratingsUser = new Ratings();
+
+    protected Ratings ratingsItem = new Ratings();
+
+    protected int nItems = 0;
+    protected int nUsers = 0;
+    protected double sumRatings = 0;
+    protected int nRatings = 0;
+    protected double minRating = 0;
+    protected double maxRating = 0;
+
+    @Override
+    public void addUser(int userID, List<Integer> ratedItems, List<Double> ratings) {
+        super.addUser(userID, ratedItems, ratings);
+        this.ratingsUser.add(userID);
+        this.ratingsUser.remove(userID, true);
+        int n = ratedItems.size();
+        for (int i = 0; i < n; ++i) {
+            auxSetRating(userID, ratedItems.get(i), ratings.get(i));
+        }
+    }
+
+    //FIXME: have to update item stats!!! (as in MemRecommenderData)
+    @Override
+    public void removeUser(int userID) {
+        super.removeUser(userID);
+        this.ratingsUser.remove(userID, false);
+    }
+
+    @Override
+    public void addItem(int itemID, List<Integer> ratingUsers, List<Double> ratings) {
+        super.addItem(itemID, ratingUsers, ratings);
+        this.ratingsItem.add(itemID);
+        this.ratingsItem.remove(itemID, true);
+        int n = ratingUsers.size();
+        for (int i = 0; i < n; ++i) {
+            auxSetRating(ratingUsers.get(i), itemID, ratings.get(i));
+        }
+    }
+
+    //FIXME: have to update user stats!!! (as in MemRecommenderData)
+    @Override
+    public void removeItem(int itemID) {
+        super.removeItem(itemID);
+        this.ratingsItem.remove(itemID, false);
+    }
+
+    private void auxSetRating(int userID, int itemID, double value) {
+        float rating = (float) value;
+        if (this.nRatings == 0) {
+            this.minRating = rating;
+            this.maxRating = rating;
+        } else {
+            this.minRating = Math.min(this.minRating, rating);
+            this.maxRating = Math.max(this.maxRating, rating);
+        }
+        int user = this.ratingsUser.indexOf(userID);
+        if (user == IntIntHashMap.NO_VALUE) {
+            ++this.nUsers;
+            user = this.ratingsUser.add(userID);
+        }
+        int item = this.ratingsItem.indexOf(itemID);
+        if (item == IntIntHashMap.NO_VALUE) {
+            ++this.nItems;
+            item = this.ratingsItem.add(itemID);
+        }
+        double old = this.ratingsUser.get(user, itemID);
+        if (!Double.isNaN(old)) {
+            this.sumRatings -= old;
+            --this.nRatings;
+        }
+        this.sumRatings += rating;
+        ++this.nRatings;
+        this.ratingsUser.set(user, itemID, rating);
+        this.ratingsItem.set(item, userID, rating);
+    }
+
+    @Override
+    public void setRating(int userID, int itemID, double rating) {
+        super.setRating(userID, itemID, rating);
+        auxSetRating(userID, itemID, rating);
+    }
+
+    @Override
+    public void removeRating(int userID, int itemID) {
+        super.removeRating(userID, itemID);
+        int user = this.ratingsUser.indexOf(userID);
+        if (user == IntIntHashMap.NO_VALUE) {
+            return;
+        }
+        double old = this.ratingsUser.get(user, itemID);
+        if (!Double.isNaN(old)) {
+            this.sumRatings -= old;
+            --this.nRatings;
+            this.ratingsUser.removeRating(user, itemID);
+            int item = this.ratingsItem.indexOf(itemID);
+            if (item != IntIntHashMap.NO_VALUE) {
+                this.ratingsItem.removeRating(item, userID);
+            }
+        }
+    }
+
+    @Override
+    public SparseVector getRatingsUser(int userID) {
+        return this.ratingsUser.getRatings(userID);
+    }
+
+    @Override
+    public SparseVector getRatingsItem(int itemID) {
+        return this.ratingsItem.getRatings(itemID);
+    }
+
+    @Override
+    public void getRatingsUser(int userID, RatingList ratings) {
+        this.ratingsUser.getRatings(userID, ratings);
+    }
+
+    @Override
+    public void getRatingsItem(int itemID, RatingList ratings) {
+        this.ratingsItem.getRatings(itemID, ratings);
+    }
+
+    @Override
+    public double getRating(int userID, int itemID) {
+        int user = this.ratingsUser.indexOf(userID);
+        double rating = user != IntIntHashMap.NO_VALUE ? this.ratingsUser.get(user, itemID) : Double.NaN;
+        return Double.isNaN(rating) ? 0 : rating;
+    }
+
+    @Override
+    public int getNumItems() {
+        return this.nItems;
+    }
+
+    @Override
+    public int getNumUsers() {
+        return this.nUsers;
+    }
+
+    @Override
+    public int getNumRatings() {
+        return this.nRatings;
+    }
+
+    private double getAvgRating(Ratings ratings, int id) {
+        int index = ratings.indexOf(id);
+        double sum = (index != IntIntHashMap.NO_VALUE ? ratings.sums[index] : 0);
+        double num = (index != IntIntHashMap.NO_VALUE ? ratings.numRatings[index] : 0);
+        return (getGlobalMean()*25 + sum)/(25 + num);
+    }
+
+    @Override
+    public double getAvgRatingUser(int userID) {
+        return getAvgRating(this.ratingsUser, userID);
+    }
+
+    @Override
+    public double getAvgRatingItem(int itemID) {
+        return getAvgRating(this.ratingsItem, itemID);
+    }
+
+    @Override
+    public double getMinRating() {
+        return this.minRating;
+    }
+
+    @Override
+    public double getMaxRating() {
+        return this.maxRating;
+    }
+
+    @Override
+    public Set<Integer> getUsers() {
+        return this.ratingsUser.idSet;
+    }
+
+    @Override
+    public Set<Integer> getItems() {
+        return this.ratingsItem.idSet;
+    }
+
+    @Override
+    public double getGlobalMean() {
+        return (this.nRatings > 0 ? this.sumRatings/(double)this.nRatings : (this.minRating + this.maxRating)/2.0);
+    }
+
+    @Override
+    public int countRatingsUser(int userID) {
+        int user = this.ratingsUser.indexOf(userID);
+        return (user != IntIntHashMap.NO_VALUE ? this.ratingsUser.numRatings[user] : 0);
+    }
+
+    @Override
+    public int countRatingsItem(int itemID) {
+        int item = this.ratingsItem.indexOf(itemID);
+        return (item != IntIntHashMap.NO_VALUE ? this.ratingsItem.numRatings[item] : 0);
+    }
+
+    @Override
+    public Iterator<Rating> ratingIterator() {
+        return new Iterator<Rating>() {
+
+            private int user = -1;
+
+            private int position;
+
+            private boolean advance() {
+                while (this.user < 0 || this.position >= ratingsUser.numRatings[this.user]
+                        || !ratingsUser.isActive(this.user)) {
+                    if (++this.user >= ratingsUser.numIndices) {
+                        return false;
+                    }
+                    this.position = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.user < ratingsUser.numIndices && advance();
+            }
+
+            @Override
+            public Rating next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Rating rating = new Rating(ratingsUser.ids[this.user],
+                        ratingsUser.ratedIds[this.user][this.position],
+                        ratingsUser.ratings[this.user][this.position]);
+                this.position++;
+                return rating;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public boolean userExists(int userID) {
+        return this.ratingsUser.indexOf(userID) != IntIntHashMap.NO_VALUE;
+    }
+
+    @Override
+    public boolean itemExists(int itemID) {
+        return this.ratingsItem.indexOf(itemID) != IntIntHashMap.NO_VALUE;
+    }
+
+    @Override
+    public void clear() {
+        this.ratingsUser.clear();
+        this.ratingsItem.clear();
+        this.minRating = this.maxRating = this.nItems = this.nUsers = 0;
+        this.sumRatings = this.nRatings = 0;
+    }
+}
@@ -27,6 +27,7 @@ import moa.recommender.rc.data.RecommenderData;
 public interface RatingPredictor extends Serializable {
 	public double predictRating(int userID, int itemID);
 	public List<Double> predictRatings(int userID, List<Integer> itemIDS);
+	public List<Integer> recommend(int userID, int n);
 	public RecommenderData getData();
 	public void train();
 }
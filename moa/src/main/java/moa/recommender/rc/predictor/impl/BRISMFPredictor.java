@@ -21,14 +21,20 @@
 package moa.recommender.rc.predictor.impl;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import moa.core.ParallelUtils;
+import java.io.Serializable;
 import moa.recommender.rc.data.RecommenderData;
-import moa.recommender.rc.utils.Pair;
+import moa.recommender.rc.predictor.RatingPredictor;
+import moa.recommender.rc.utils.IntIntHashMap;
 import moa.recommender.rc.utils.Rating;
-import moa.recommender.rc.utils.SparseVector;
+import moa.recommender.rc.utils.RatingList;
+import moa.recommender.rc.utils.TopItems;
 import moa.recommender.rc.utils.Updatable;
 
 /**
@@ -46,6 +52,25 @@ import moa.recommender.rc.utils.Updatable;
  * by retraining only the affected user and item vectors when 
  * a new rating is inserted.
  * 
+ * <p>The feature vectors are the rows of two float matrices, one for the
+ * users and one for the items, stored contiguously and indexed by dense
+ * indices of the ids.</p>
+ * 
+ * <p>The batch training can run on several threads with stratified
+ * stochastic gradient descent (Gemulla et al., Large-Scale Matrix
+ * Factorization with Distributed Stochastic Gradient Descent): the users
+ * and the items are split into as many blocks as threads, and every sweep
+ * is made of steps where each thread trains on the ratings of a different
+ * pair of user and item blocks, so that no two threads update the same
+ * features. The result depends on the number of threads, but not on the
+ * scheduling of the threads.</p>
+ * 
+ * <p>The items are also kept in decreasing order of the norms of their
+ * features, so that the items with the highest predicted ratings for a user
+ * are found by scanning the items in this order until the product of the
+ * norm of the user features and of the item features, which bounds the dot
+ * product, falls below the lowest selected prediction.</p>
+ * 
  * <p>Parameters:</p>
  * <ul>
  * <li> features - the number of features to be trained for each user and 
@@ -59,16 +84,233 @@ import moa.recommender.rc.utils.Updatable;
  * 
  */
 
-public class BRISMFPredictor implements Updatable {
+
+public class BRISMFPredictor implements RatingPredictor, Updatable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Feature vectors stored as the rows of a matrix, in a single array
+     * that doubles its capacity when full. The rows of removed ids are
+     * reused for the next ids.
+     */
+    protected static class FeatureMatrix implements Serializable {
+        
+        private static final long serialVersionUID = 1L;
+        
+        protected final int nFeatures;
+        protected IntIntHashMap rows = new IntIntHashMap();
+        protected float[] values;
+        protected int[] ids = new int[16];
+        protected int nRows;
+        protected int[] freeRows = new int[16];
+        protected int nFreeRows;
+        
+        public FeatureMatrix(int nFeatures) {
+            this.nFeatures = nFeatures;
+            this.values = new float[16 * nFeatures];
+        }
+        
+        /**
+         * Gets the row of the features of an id, or -1 if it has none.
+         */
+        public int row(int id) {
+            return rows.get(id);
+        }
+        
+        /**
+         * Gets the offset of the features of an id, or -1 if it has none.
+         */
+        public int offset(int id) {
+            int row = rows.get(id);
+            return row == IntIntHashMap.NO_VALUE ? -1 : row * nFeatures;
+        }
+        
+        /**
+         * Gets the offset of the features of an id, adding a row for it
+         * if needed.
+         */
+        public int add(int id) {
+            int row = rows.get(id);
+            if (row == IntIntHashMap.NO_VALUE) {
+                if (nFreeRows > 0) {
+                    row = freeRows[--nFreeRows];
+                } else {
+                    if ((nRows + 1) * nFeatures > values.length) {
+                        values = Arrays.copyOf(values, Math.max(2 * values.length, (nRows + 1) * nFeatures));
+                    }
+                    if (nRows == ids.length) {
+                        ids = Arrays.copyOf(ids, 2 * nRows);
+                    }
+                    row = nRows++;
+                }
+                rows.put(id, row);
+                ids[row] = id;
+            }
+            return row * nFeatures;
+        }
+        
+        /**
+         * Removes the features of an id, returning their row or -1 if it
+         * had none.
+         */
+        public int remove(int id) {
+            int row = rows.remove(id);
+            if (row != IntIntHashMap.NO_VALUE) {
+                if (nFreeRows == freeRows.length) {
+                    freeRows = Arrays.copyOf(freeRows, 2 * nFreeRows);
+                }
+                freeRows[nFreeRows++] = row;
+            }
+            return row;
+        }
+        
+        public void clear() {
+            rows.clear();
+            nRows = 0;
+            nFreeRows = 0;
+        }
+    }
+    
+    /**
+     * Rows of the item feature matrix in decreasing order of the norms of
+     * their features but the first two, which are the ones fixed to 1 for
+     * the users and the items. These two features are kept with the norms,
+     * in the order of the rows, so that the bounds of the predictions are
+     * computed while scanning contiguous arrays. A row whose norm changes
+     * is moved to its new position by swaps with its neighbours, which are
+     * few for the small changes made by retraining.
+     */
+    protected static class NormOrder implements Serializable {
+        
+        private static final long serialVersionUID = 1L;
+        
+        protected int[] order = new int[16];
+        protected int[] positions = new int[16];
+        protected double[] norms = new double[16];
+        protected float[] heads = new float[32];
+        /** Upper bounds of the absolute values of the first two features. */
+        protected double[] maxHeads = new double[2];
+        protected int size;
+        
+        public NormOrder() {
+            Arrays.fill(positions, -1);
+        }
+        
+        protected void ensureCapacity(int nRows) {
+            if (nRows > positions.length) {
+                int oldCapacity = positions.length;
+                int capacity = Math.max(nRows, 2 * oldCapacity);
+                positions = Arrays.copyOf(positions, capacity);
+                Arrays.fill(positions, oldCapacity, capacity, -1);
+                order = Arrays.copyOf(order, capacity);
+                norms = Arrays.copyOf(norms, capacity);
+                heads = Arrays.copyOf(heads, 2 * capacity);
+            }
+        }
+        
+        protected void set(int position, int row, double norm, float head0, float head1) {
+            order[position] = row;
+            positions[row] = position;
+            norms[position] = norm;
+            heads[2 * position] = head0;
+            heads[2 * position + 1] = head1;
+        }
+        
+        protected void set(int position, FeatureMatrix matrix, int row) {
+            int offset = row * matrix.nFeatures;
+            float head0 = matrix.values[offset];
+            float head1 = matrix.values[offset + 1];
+            maxHeads[0] = Math.max(maxHeads[0], Math.abs(head0));
+            maxHeads[1] = Math.max(maxHeads[1], Math.abs(head1));
+            set(position, row, norm(matrix.values, offset + 2, matrix.nFeatures - 2), head0, head1);
+        }
+        
+        protected void swap(int position1, int position2) {
+            int row = order[position1];
+            double norm = norms[position1];
+            float head0 = heads[2 * position1];
+            float head1 = heads[2 * position1 + 1];
+            set(position1, order[position2], norms[position2], heads[2 * position2], heads[2 * position2 + 1]);
+            set(position2, row, norm, head0, head1);
+        }
+        
+        public void update(FeatureMatrix matrix, int row) {
+            ensureCapacity(row + 1);
+            int position = positions[row];
+            if (position < 0) {
+                position = size++;
+            }
+            set(position, matrix, row);
+            double norm = norms[position];
+            while (position > 0 && norms[position - 1] < norm) {
+                swap(position - 1, position);
+                position--;
+            }
+            while (position < size - 1 && norms[position + 1] > norm) {
+                swap(position, position + 1);
+                position++;
+            }
+        }
+        
+        public void remove(int row) {
+            if (row < 0 || row >= positions.length || positions[row] < 0) {
+                return;
+            }
+            for (int position = positions[row]; position < size - 1; ++position)
+                swap(position, position + 1);
+            positions[row] = -1;
+            size--;
+        }
+        
+        /**
+         * Sorts the rows of a matrix again, after all of them may have
+         * changed.
+         */
+        public void rebuild(final FeatureMatrix matrix) {
+            ensureCapacity(matrix.nRows);
+            Arrays.fill(positions, -1);
+            Arrays.fill(maxHeads, 0);
+            final double[] rowNorms = new double[matrix.nRows];
+            Integer[] rows = new Integer[matrix.rows.size()];
+            for (int row = 0, i = 0; row < matrix.nRows; ++row)
+                if (matrix.row(matrix.ids[row]) == row) {
+                    rowNorms[row] = norm(matrix.values, row * matrix.nFeatures + 2, matrix.nFeatures - 2);
+                    rows[i++] = row;
+                }
+            Arrays.sort(rows, new Comparator<Integer>() {
+
+                @Override
+                public int compare(Integer row1, Integer row2) {
+                    return Double.compare(rowNorms[row2], rowNorms[row1]);
+                }
+            });
+            size = rows.length;
+            for (int i = 0; i < size; ++i)
+                set(i, matrix, rows[i]);
+        }
+    }
     
     protected RecommenderData data;
     protected int nFeatures;
-    protected HashMap<Integer, float[]> userFeature;
-    protected HashMap<Integer, float[]> itemFeature;
+    protected FeatureMatrix userFeature;
+    protected FeatureMatrix itemFeature;
     protected Random rnd;
     protected double lRate = 0.01;
     protected double rFactor = 0.02;
     protected int nIterations = 30;
+    protected int numThreads = 1;
+    protected int numSweeps;
+    
+    protected NormOrder itemNorms = new NormOrder();
+    
+    //Buffers reused by the online updates
+    protected RatingList ratingBuffer = new RatingList();
+    protected int[] offsetBuffer = new int[16];
+    
+    //Marks of the rows of the items rated by the user of the current query
+    protected int[] ratedMarks = new int[16];
+    protected int nQueries;
     
     public void setLRate(double lRate) {
         this.lRate = lRate;
@@ -82,6 +324,25 @@ public class BRISMFPredictor implements Updatable {
         this.nIterations = nIterations; 
     }
     
+    /**
+     * Sets the number of threads of the batch training, 1 being sequential
+     * and 0 all available processors. With more than one thread, the
+     * training ratings are copied into strata for the whole training,
+     * which takes about 16 more bytes per rating: two int offsets and a
+     * double rating.
+     */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+    
+    /**
+     * Gets the number of sweeps over the training ratings of the last batch
+     * training.
+     */
+    public int getNumSweeps() {
+        return numSweeps;
+    }
+    
     public RecommenderData getData() {
     	return data;
     }
@@ -89,8 +350,8 @@ public class BRISMFPredictor implements Updatable {
     public BRISMFPredictor(int nFeatures, RecommenderData data, boolean train) {
         this.data = data;
         this.nFeatures = nFeatures;
-        this.userFeature = new HashMap<Integer, float[]>();
-        this.itemFeature = new HashMap<Integer, float[]>();
+        this.userFeature = new FeatureMatrix(nFeatures);
+        this.itemFeature = new FeatureMatrix(nFeatures);
         this.rnd = new Random(12345);
         data.attachUpdatable(this);
         if (train) train();
@@ -99,8 +360,8 @@ public class BRISMFPredictor implements Updatable {
     public BRISMFPredictor(int nFeatures, RecommenderData data, double lRate, double rFactor, boolean train) {
         this.data = data;
         this.nFeatures = nFeatures;
-        this.userFeature = new HashMap<Integer, float[]>();
-        this.itemFeature = new HashMap<Integer, float[]>();
+        this.userFeature = new FeatureMatrix(nFeatures);
+        this.itemFeature = new FeatureMatrix(nFeatures);
         this.rnd = new Random(12345);
         this.lRate = lRate;
         this.rFactor = rFactor;
@@ -108,25 +369,32 @@ public class BRISMFPredictor implements Updatable {
         if (train) train();
     }
     
-    private void resetFeatures(float[] feats, boolean userFeats) {
-        int n = feats.length;
-        for (int i = 0; i < n; ++i)
-            feats[i] = (float)0.01*(rnd.nextFloat()*2 - 1);
-        if (userFeats) feats[0] = 1;
-        else feats[1] = 1;
+    private void resetFeatures(float[] feats, int offset, boolean userFeats) {
+        for (int i = 0; i < nFeatures; ++i)
+            feats[offset + i] = (float)0.01*(rnd.nextFloat()*2 - 1);
+        if (userFeats) feats[offset] = 1;
+        else feats[offset + 1] = 1;
     }
     
     public double predictRating(int userID, int itemID) {
-        float[] userFeats = userFeature.get(userID);
-        float[] itemFeats = itemFeature.get(itemID);
-        return predictRating(userFeats, itemFeats);
+        int userOffset = userFeature.offset(userID);
+        int itemOffset = itemFeature.offset(itemID);
+        return predictRating(userFeature.values, userOffset, itemFeature.values, itemOffset);
     }
     
     public double predictRating(float userFeats[], float itemFeats[]) {
+        return predictRating(userFeats, userFeats != null ? 0 : -1, itemFeats, itemFeats != null ? 0 : -1);
+    }
+    
+    /**
+     * Predicts a rating from features stored from the given offsets, an
+     * offset of -1 meaning that there are no features.
+     */
+    protected double predictRating(float userFeats[], int userOffset, float itemFeats[], int itemOffset) {
         double ret = data.getGlobalMean();
-        if (userFeats != null && itemFeats != null)
+        if (userOffset >= 0 && itemOffset >= 0)
             for (int i = 0; i < nFeatures; ++i)
-                ret += userFeats[i]*itemFeats[i];
+                ret += userFeats[userOffset + i]*itemFeats[itemOffset + i];
 
         if (ret < data.getMinRating()) ret = data.getMinRating();
         else if (ret > data.getMaxRating()) ret = data.getMaxRating();
@@ -134,143 +402,257 @@ public class BRISMFPredictor implements Updatable {
         return ret;
     }
     
-    public float[] trainUserFeats(List<Integer> itm, List<Double> rat, int nIts) {
-        float[] userFeats = new float[nFeatures];
-        resetFeatures(userFeats, true);
+    /**
+     * Gets the offsets of the features of the ids of a list, or -1 for the
+     * ids without features, so that they are looked up once per retraining.
+     */
+    private int[] offsets(FeatureMatrix matrix, RatingList ratings) {
+        int n = ratings.size();
+        if (offsetBuffer.length < n) {
+            offsetBuffer = new int[Math.max(n, 2 * offsetBuffer.length)];
+        }
+        for (int i = 0; i < n; ++i)
+            offsetBuffer[i] = matrix.offset(ratings.getID(i));
+        return offsetBuffer;
+    }
+    
+    private void toRatingList(List<Integer> ids, List<Double> rat) {
+        ratingBuffer.clear();
+        int n = ids.size();
+        for (int i = 0; i < n; ++i)
+            ratingBuffer.add(ids.get(i), rat.get(i));
+    }
+    
+    /**
+     * Trains the features of a user, stored in the given array from the
+     * given offset, on the ratings of the user.
+     */
+    protected void trainUserFeats(float[] userFeats, int userOffset, RatingList ratings, int nIts) {
+        resetFeatures(userFeats, userOffset, true);
         
-        int n = itm.size();
+        int n = ratings.size();
+        int[] itemOffsets = offsets(itemFeature, ratings);
+        float[] itemFeats = itemFeature.values;
         for (int k = 0; k < nIts; ++k) {
             for (int i = 0; i < n; ++i) {
-                int itemID = itm.get(i);
-                float[] itemFeats = itemFeature.get(itemID);
-                double rating = rat.get(i);
-                double pred = predictRating(userFeats, itemFeats);
+                int itemOffset = itemOffsets[i];
+                double rating = ratings.getRating(i);
+                double pred = predictRating(userFeats, userOffset, itemFeats, itemOffset);
                 double err = rating - pred;
                 
-                if (itemFeats != null)
+                if (itemOffset >= 0)
                     for (int j = 1; j < nFeatures; ++j) 
-                        userFeats[j] += lRate*(err*itemFeats[j] - rFactor*userFeats[j]);
+                        userFeats[userOffset + j] += lRate*(err*itemFeats[itemOffset + j] - rFactor*userFeats[userOffset + j]);
             }
         }
-        
-        return userFeats;
     }
     
-    public float[] trainItemFeats(int itemID, List<Integer> usr, List<Double> rat, int nIts) {
-        float[] itemFeats = new float[nFeatures];
-        resetFeatures(itemFeats, false);
+    /**
+     * Trains the features of an item, stored in the given array from the
+     * given offset, on the ratings of the item.
+     */
+    protected void trainItemFeats(float[] itemFeats, int itemOffset, RatingList ratings, int nIts) {
+        resetFeatures(itemFeats, itemOffset, false);
         
-        int n = usr.size();
+        int n = ratings.size();
+        int[] userOffsets = offsets(userFeature, ratings);
+        float[] userFeats = userFeature.values;
         for (int k = 0; k < nIts; ++k) {
             for (int i = 0; i < n; ++i) {
-                int userID = usr.get(i);
-                float[] userFeats = userFeature.get(userID);
-                double rating = rat.get(i);
-                double pred = predictRating(userFeats, itemFeats);
+                int userOffset = userOffsets[i];
+                double rating = ratings.getRating(i);
+                double pred = predictRating(userFeats, userOffset, itemFeats, itemOffset);
                 double err = rating - pred;
                 
-                if (userFeats != null) {
-                    itemFeats[0] += lRate*(err*userFeats[0] - rFactor*itemFeats[0]);
+                if (userOffset >= 0) {
+                    itemFeats[itemOffset] += lRate*(err*userFeats[userOffset] - rFactor*itemFeats[itemOffset]);
                     for (int j = 2; j < nFeatures; ++j)
-                        itemFeats[j] += lRate*(err*userFeats[j] - rFactor*itemFeats[j]);
+                        itemFeats[itemOffset + j] += lRate*(err*userFeats[userOffset + j] - rFactor*itemFeats[itemOffset + j]);
                 }
             }
         }
-        
+    }
+    
+    public float[] trainUserFeats(List<Integer> itm, List<Double> rat, int nIts) {
+        float[] userFeats = new float[nFeatures];
+        toRatingList(itm, rat);
+        trainUserFeats(userFeats, 0, ratingBuffer, nIts);
+        return userFeats;
+    }
+    
+    public float[] trainItemFeats(int itemID, List<Integer> usr, List<Double> rat, int nIts) {
+        float[] itemFeats = new float[nFeatures];
+        toRatingList(usr, rat);
+        trainItemFeats(itemFeats, 0, ratingBuffer, nIts);
         return itemFeats;
     }
     
+    protected void trainUser(int userID, RatingList ratings, int nIts) {
+        int offset = userFeature.add(userID);
+        trainUserFeats(userFeature.values, offset, ratings, nIts);
+    }
+    
+    protected void trainItem(int itemID, RatingList ratings, int nIts) {
+        int offset = itemFeature.add(itemID);
+        trainItemFeats(itemFeature.values, offset, ratings, nIts);
+        itemNorms.update(itemFeature, offset/nFeatures);
+    }
+    
     public void trainUser(int userID, List<Integer> itm, List<Double> rat, int nIts) {
-        userFeature.put(userID, trainUserFeats(itm, rat, nIts));
+        toRatingList(itm, rat);
+        trainUser(userID, ratingBuffer, nIts);
     }
     
     public void trainUser(int userID, int nIts) {
-        SparseVector usrRats = data.getRatingsUser(userID);
-        ArrayList<Integer> itm = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = usrRats.iterator();
-        
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            itm.add(p.getFirst());
-            rat.add(p.getSecond());
-        }
-        trainUser(userID, itm, rat, nIts);
+        data.getRatingsUser(userID, ratingBuffer);
+        trainUser(userID, ratingBuffer, nIts);
     }
     
     public void trainUser(int userID, List<Integer> itm, List<Double> rat) {
-        userFeature.put(userID, trainUserFeats(itm, rat, nIterations));
+        trainUser(userID, itm, rat, nIterations);
     }
     
     public void trainItem(int itemID) {
-        SparseVector itmRats = data.getRatingsItem(itemID);
-        ArrayList<Integer> usr = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = itmRats.iterator();
-        
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            usr.add(p.getFirst());
-            rat.add(p.getSecond());
-        }
-        trainItem(itemID, usr, rat);
+        trainItem(itemID, nIterations);
     }
     
     public void trainItem(int itemID, int nIts) {
-        SparseVector itmRats = data.getRatingsItem(itemID);
-        ArrayList<Integer> usr = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = itmRats.iterator();
+        data.getRatingsItem(itemID, ratingBuffer);
+        trainItem(itemID, ratingBuffer, nIts);
+    }
+    
+    public void trainUser(int userID) {
+        trainUser(userID, nIterations);
+    }
+    
+    public void trainItem(int itemID, List<Integer> usr, List<Double> rat) {
+        trainItem(itemID, usr, rat, nIterations);
+    }
+    
+    public void trainItem(int itemID, List<Integer> usr, List<Double> rat, int nIts) {
+        toRatingList(usr, rat);
+        trainItem(itemID, ratingBuffer, nIts);
+    }
+    
+    /**
+     * Makes a gradient descent step on the features of a user and of an
+     * item for one of their ratings.
+     */
+    protected void trainRating(float[] userFeats, int userOffset, float[] itemFeats, int itemOffset, double rating) {
+        double pred = predictRating(userFeats, userOffset, itemFeats, itemOffset);
+        double err = rating - pred;
         
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            usr.add(p.getFirst());
-            rat.add(p.getSecond());
+        itemFeats[itemOffset] += lRate*(err*userFeats[userOffset] - rFactor*itemFeats[itemOffset]);
+        userFeats[userOffset + 1] += lRate*(err*itemFeats[itemOffset + 1] - rFactor*userFeats[userOffset + 1]);
+        for (int j = 2; j < nFeatures; ++j) {
+            double uv = userFeats[userOffset + j];
+            userFeats[userOffset + j] += lRate*(err*itemFeats[itemOffset + j] - rFactor*userFeats[userOffset + j]);
+            itemFeats[itemOffset + j] += lRate*(err*uv - rFactor*itemFeats[itemOffset + j]);
         }
-        trainItem(itemID, usr, rat, nIts);
     }
     
-    public void trainUser(int userID) {
-        SparseVector usrRats = data.getRatingsUser(userID);
-        ArrayList<Integer> itm = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = usrRats.iterator();
+    /**
+     * The training ratings of a pair of user and item blocks, as the
+     * offsets of their features. The strata hold a copy of every training
+     * rating, so that each thread scans arrays instead of the maps of the
+     * data, at the cost of 16 bytes per rating.
+     */
+    protected static class Stratum {
         
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            itm.add(p.getFirst());
-            rat.add(p.getSecond());
+        protected int[] userOffsets = new int[16];
+        protected int[] itemOffsets = new int[16];
+        protected double[] ratings = new double[16];
+        protected int size;
+        
+        public void add(int userOffset, int itemOffset, double rating) {
+            if (size == ratings.length) {
+                userOffsets = Arrays.copyOf(userOffsets, 2 * size);
+                itemOffsets = Arrays.copyOf(itemOffsets, 2 * size);
+                ratings = Arrays.copyOf(ratings, 2 * size);
+            }
+            userOffsets[size] = userOffset;
+            itemOffsets[size] = itemOffset;
+            ratings[size] = rating;
+            size++;
         }
-        trainUser(userID, itm, rat);
     }
     
-    public void trainItem(int itemID, List<Integer> usr, List<Double> rat) {
-        itemFeature.put(itemID, trainItemFeats(itemID, usr, rat, nIterations));
+    /**
+     * Splits the training ratings into strata, stratum i * nBlocks + j
+     * holding the ratings of the users of block i and of the items of
+     * block j, and adds the test ratings to the given list.
+     */
+    protected Stratum[] stratify(int nBlocks, int trainDiv, List<Rating> ratTest) {
+        Stratum[] strata = new Stratum[nBlocks * nBlocks];
+        for (int i = 0; i < strata.length; ++i)
+            strata[i] = new Stratum();
+        Iterator<Rating> ratIt = data.ratingIterator();
+        int idx = 0;
+        while (ratIt.hasNext()) {
+            Rating rat = ratIt.next();
+            if (idx%trainDiv == 0) {
+                ratTest.add(rat);
+            }
+            else {
+                int userOffset = userFeature.offset(rat.userID);
+                int itemOffset = itemFeature.offset(rat.itemID);
+                int userBlock = (userOffset/nFeatures)%nBlocks;
+                int itemBlock = (itemOffset/nFeatures)%nBlocks;
+                strata[userBlock*nBlocks + itemBlock].add(userOffset, itemOffset, rat.rating);
+            }
+            ++idx;
+        }
+        return strata;
     }
     
-    public void trainItem(int itemID, List<Integer> usr, List<Double> rat, int nIts) {
-        itemFeature.put(itemID, trainItemFeats(itemID, usr, rat, nIts));
+    /**
+     * Sweeps once over the training ratings, in as many steps as blocks,
+     * the threads of a step training on strata without common users or
+     * items.
+     */
+    protected void trainStrata(final Stratum[] strata, int nBlocks) {
+        final float[] userFeats = userFeature.values;
+        final float[] itemFeats = itemFeature.values;
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(nBlocks);
+        for (int step = 0; step < nBlocks; ++step) {
+            tasks.clear();
+            for (int userBlock = 0; userBlock < nBlocks; ++userBlock) {
+                final Stratum stratum = strata[userBlock*nBlocks + (userBlock + step)%nBlocks];
+                tasks.add(new Callable<Void>() {
+
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < stratum.size; ++i)
+                            trainRating(userFeats, stratum.userOffsets[i],
+                                    itemFeats, stratum.itemOffsets[i], stratum.ratings[i]);
+                        return null;
+                    }
+                });
+            }
+            ParallelUtils.invokeAll(ParallelUtils.getSharedPool(nBlocks), tasks);
+        }
     }
     
     public void train() {
         userFeature.clear();
         itemFeature.clear();
+        itemNorms.rebuild(itemFeature);
         
         int n = data.getNumRatings();
         
         Iterator<Integer> it = data.getUsers().iterator();
         while (it.hasNext()) {
-            float[] feats = new float[nFeatures];
-            resetFeatures(feats, true);
-            userFeature.put(it.next(), feats);
+            int offset = userFeature.add(it.next());
+            resetFeatures(userFeature.values, offset, true);
         }
         
         it = data.getItems().iterator();
         while (it.hasNext()) {
-            float[] feats = new float[nFeatures];
-            resetFeatures(feats, false);
-            itemFeature.put(it.next(), feats);
+            int offset = itemFeature.add(it.next());
+            resetFeatures(itemFeature.values, offset, false);
         }
+        float[] userFeats = userFeature.values;
+        float[] itemFeats = itemFeature.values;
 
         int exit = 0;
         double lastRMSE = 1e20;
@@ -278,35 +660,27 @@ public class BRISMFPredictor implements Updatable {
         int count = 0;
         int trainDiv = Math.max(20, n/1000000);
         ArrayList<Rating> ratTest = new ArrayList<Rating>(n/trainDiv);
+        int nBlocks = ParallelUtils.resolveNumThreads(numThreads);
+        Stratum[] strata = nBlocks > 1 ? stratify(nBlocks, trainDiv, ratTest) : null;
         do {
             long start = System.currentTimeMillis();
-            Iterator<Rating> ratIt = data.ratingIterator();
-            int idx = 0;
-            
-            while (ratIt.hasNext()) {
-                Rating rat = ratIt.next();
-                if (idx%trainDiv == 0) {
-                    if (count == 0) ratTest.add(rat);
-                }
-                else {
-                    int userID = rat.userID;
-                    int itemID = rat.itemID;
-                    double rating = rat.rating;
-                    float[] userFeats = userFeature.get(userID);
-                    float[] itemFeats = itemFeature.get(itemID);
-                    
-                    double pred = predictRating(userFeats, itemFeats);
-                    double err = rating - pred;
-                    
-                    itemFeats[0] += lRate*(err*userFeats[0] - rFactor*itemFeats[0]);
-                    userFeats[1] += lRate*(err*itemFeats[1] - rFactor*userFeats[1]);
-                    for (int j = 2; j < nFeatures; ++j) {
-                        double uv = userFeats[j];
-                        userFeats[j] += lRate*(err*itemFeats[j] - rFactor*userFeats[j]);
-                        itemFeats[j] += lRate*(err*uv - rFactor*itemFeats[j]);
+            if (strata != null) {
+                trainStrata(strata, nBlocks);
+            }
+            else {
+                Iterator<Rating> ratIt = data.ratingIterator();
+                int idx = 0;
+                while (ratIt.hasNext()) {
+                    Rating rat = ratIt.next();
+                    if (idx%trainDiv == 0) {
+                        if (count == 0) ratTest.add(rat);
+                    }
+                    else {
+                        trainRating(userFeats, userFeature.offset(rat.userID),
+                                itemFeats, itemFeature.offset(rat.itemID), rat.rating);
                     }
+                    ++idx;
                 }
-                ++idx;
             }
             int nTest = ratTest.size();
 
@@ -328,14 +702,98 @@ public class BRISMFPredictor implements Updatable {
             ++count;
         }
         while (exit < 1);
+        numSweeps = count;
+        itemNorms.rebuild(itemFeature);
     }
     
+    protected static double norm(float[] feats, int offset, int nFeatures) {
+        double sum = 0;
+        for (int i = 0; i < nFeatures; ++i)
+            sum += feats[offset + i]*feats[offset + i];
+        return Math.sqrt(sum);
+    }
+    
+    /**
+     * Gets the n items with the highest predicted ratings, before clipping
+     * them to the range of the ratings, among the items with features that
+     * the user has not rated. Items with the same prediction are ranked by
+     * increasing id.
+     * 
+     * <p>The items are scanned in decreasing order of the norms of their
+     * features but the first two, and the scan stops once the product of
+     * this norm and of the one of the user bounds the prediction below the
+     * lowest selected one. The prediction of an item is only computed when
+     * its bound, made of this product and of the first two features, does
+     * not exclude it.</p>
+     * 
+     * @param userID the user
+     * @param n the number of items
+     * @return the ids of the items, from the highest prediction
+     */
+    @Override
+    public List<Integer> recommend(int userID, int n) {
+        TopItems top = new TopItems(n);
+        if (ratedMarks.length < itemFeature.nRows) {
+            ratedMarks = Arrays.copyOf(ratedMarks, Math.max(itemFeature.nRows, 2 * ratedMarks.length));
+        }
+        int mark = ++nQueries;
+        data.getRatingsUser(userID, ratingBuffer);
+        for (int i = 0; i < ratingBuffer.size(); ++i) {
+            int row = itemFeature.row(ratingBuffer.getID(i));
+            if (row >= 0) ratedMarks[row] = mark;
+        }
+        
+        int userOffset = userFeature.offset(userID);
+        if (userOffset < 0) {
+            // all the predictions are the global mean
+            for (int i = 0; i < itemNorms.size; ++i) {
+                int row = itemNorms.order[i];
+                if (ratedMarks[row] != mark) top.offer(itemFeature.ids[row], 0);
+            }
+            return top.poll();
+        }
+        float[] userFeats = userFeature.values;
+        float[] itemFeats = itemFeature.values;
+        float userHead0 = userFeats[userOffset];
+        float userHead1 = userFeats[userOffset + 1];
+        double userNorm = norm(userFeats, userOffset + 2, nFeatures - 2);
+        double maxHead = Math.abs(userHead0)*itemNorms.maxHeads[0] + Math.abs(userHead1)*itemNorms.maxHeads[1];
+        double[] norms = itemNorms.norms;
+        float[] heads = itemNorms.heads;
+        // the margin covers the rounding of the products of the features
+        // to floats, which is bounded by 2^-24 times the bounds
+        double margin = itemNorms.size > 0 ? 1e-6*(1 + maxHead + userNorm*norms[0]) : 0;
+        double threshold = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < itemNorms.size; ++i) {
+            double tail = userNorm*norms[i];
+            if (maxHead + tail < threshold) break;
+            if (userHead0*heads[2*i] + userHead1*heads[2*i + 1] + tail < threshold) continue;
+            int row = itemNorms.order[i];
+            if (ratedMarks[row] == mark) continue;
+            double score = 0;
+            int itemOffset = row*nFeatures;
+            for (int j = 0; j < nFeatures; ++j)
+                score += userFeats[userOffset + j]*itemFeats[itemOffset + j];
+            top.offer(itemFeature.ids[row], score);
+            if (top.isFull()) threshold = top.threshold() - margin;
+        }
+        return top.poll();
+    }
+    
+    /**
+     * Gets a copy of the features of a user, or null if it has none.
+     */
     public float[] getUserFeatures(int userID) {
-        return userFeature.get(userID);
+        int offset = userFeature.offset(userID);
+        return offset >= 0 ? Arrays.copyOfRange(userFeature.values, offset, offset + nFeatures) : null;
     }
 
+    /**
+     * Gets a copy of the features of an item, or null if it has none.
+     */
     public float[] getItemFeatures(int itemID) {
-        return itemFeature.get(itemID);
+        int offset = itemFeature.offset(itemID);
+        return offset >= 0 ? Arrays.copyOfRange(itemFeature.values, offset, offset + nFeatures) : null;
     }
 
     public int getNumFeatures() {
@@ -365,7 +823,7 @@ public class BRISMFPredictor implements Updatable {
 
     @Override
     public void updateRemoveItem(int itemID) {
-        itemFeature.remove(itemID);
+        itemNorms.remove(itemFeature.remove(itemID));
     }
     
     //We retrain the user/item separately, depending on a probability
@@ -379,50 +837,21 @@ public class BRISMFPredictor implements Updatable {
         double prob2 = Math.pow(0.99, nItm);
 
         if (nUsr < 5 || rnd.nextDouble() < prob1) {
-            SparseVector usrRats = data.getRatingsUser(userID);
-            ArrayList<Integer> itm = new ArrayList<Integer>();
-            ArrayList<Double> rat = new ArrayList<Double>();
-            
             //Train user
-            boolean found = false;
-            Iterator<Pair<Integer, Double>> it = usrRats.iterator();
-            while (it.hasNext()) {
-                Pair<Integer, Double> p = it.next();
-                itm.add(p.getFirst());
-                if (p.getFirst() == itemID) {
-                    found = true;
-                    rat.add(rating);
-                }
-                else rat.add(p.getSecond());
-            }
-            if (!found) {
-                itm.add(itemID);
-                rat.add(rating);
-            }
-            trainUser(userID, itm, rat);
+            data.getRatingsUser(userID, ratingBuffer);
+            int idx = ratingBuffer.indexOf(itemID);
+            if (idx >= 0) ratingBuffer.setRating(idx, rating);
+            else ratingBuffer.add(itemID, rating);
+            trainUser(userID, ratingBuffer, nIterations);
         }
         
         if (nItm < 5 || rnd.nextDouble() < prob2) {
-            SparseVector itmRats = data.getRatingsItem(itemID);
             //Train item
-            Iterator<Pair<Integer, Double>> it = itmRats.iterator();
-            boolean found = false;
-            ArrayList<Integer> usr = new ArrayList<Integer>();
-            ArrayList<Double> rat = new ArrayList<Double>();
-            while (it.hasNext()) {
-                Pair<Integer, Double> p = it.next();
-                usr.add(p.getFirst());
-                if (p.getFirst() == userID) {
-                    found = true;
-                    rat.add(rating);
-                }
-                else rat.add(p.getSecond());
-            }
-            if (!found) {
-                usr.add(itemID);
-                rat.add(rating);
-            }
-            trainItem(itemID, usr, rat);
+            data.getRatingsItem(itemID, ratingBuffer);
+            int idx = ratingBuffer.indexOf(userID);
+            if (idx >= 0) ratingBuffer.setRating(idx, rating);
+            else ratingBuffer.add(itemID, rating);
+            trainItem(itemID, ratingBuffer, nIterations);
         }
     }
 
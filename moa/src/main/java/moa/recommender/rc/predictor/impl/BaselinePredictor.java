@@ -24,6 +24,8 @@ import java.util.ArrayList;
 import java.util.List;
 import moa.recommender.rc.data.RecommenderData;
 import moa.recommender.rc.predictor.RatingPredictor;
+import moa.recommender.rc.utils.SparseVector;
+import moa.recommender.rc.utils.TopItems;
 
 public class BaselinePredictor implements RatingPredictor {
     /**
@@ -57,6 +59,24 @@ public class BaselinePredictor implements RatingPredictor {
         return ret;
     }
 
+    /**
+     * Gets the n items with the highest average ratings that the user has
+     * not rated, which are the ones with the highest predicted ratings
+     * before clipping. Items with the same average are ranked by increasing
+     * id.
+     */
+    @Override
+    public List<Integer> recommend(int userID, int n) {
+        TopItems top = new TopItems(n);
+        SparseVector rated = data.getRatingsUser(userID);
+        for (int itemID : data.getItems()) {
+            if (rated.get(itemID) == null) {
+                top.offer(itemID, data.getAvgRatingItem(itemID));
+            }
+        }
+        return top.poll();
+    }
+
     @Override
     public RecommenderData getData() {
         return data;
@@ -0,0 +1,154 @@
+/*
+ *    IntIntHashMap.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.recommender.rc.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Map from int keys to non-negative int values, stored in open addressing
+ * with linear probing, without boxing the keys or the values. It is used to
+ * map user and item ids to dense indices.
+ */
+public class IntIntHashMap implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The value of the empty slots, returned for keys not in the map. */
+    public static final int NO_VALUE = -1;
+
+    protected int[] keys;
+
+    protected int[] values;
+
+    protected int size;
+
+    public IntIntHashMap() {
+        this(16);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity *= 2;
+        }
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(this.values, NO_VALUE);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    protected int slot(int key) {
+        int mask = this.keys.length - 1;
+        int slot = Hash.hashCode(key) & mask;
+        while (this.values[slot] != NO_VALUE && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @return the value, or NO_VALUE if the key is not in the map
+     */
+    public int get(int key) {
+        return this.values[slot(key)];
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key the key
+     * @param value the value, not negative
+     */
+    public void put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        int slot = slot(key);
+        if (this.values[slot] == NO_VALUE) {
+            if ((this.size + 1) * 4 > this.keys.length * 3) {
+                rehash(this.keys.length * 2);
+                slot = slot(key);
+            }
+            this.size++;
+            this.keys[slot] = key;
+        }
+        this.values[slot] = value;
+    }
+
+    /**
+     * Removes a key, moving back the keys that follow it in its run of
+     * occupied slots so that no tombstones are needed.
+     *
+     * @return the value of the key, or NO_VALUE if the key was not in the map
+     */
+    public int remove(int key) {
+        int mask = this.keys.length - 1;
+        int slot = slot(key);
+        int value = this.values[slot];
+        if (value == NO_VALUE) {
+            return NO_VALUE;
+        }
+        this.size--;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (this.values[next] != NO_VALUE) {
+            int home = Hash.hashCode(this.keys[next]) & mask;
+            // the key can fill the hole unless its home lies in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.values[hole] = NO_VALUE;
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(this.values, NO_VALUE);
+        this.size = 0;
+    }
+
+    protected void rehash(int capacity) {
+        int[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(this.values, NO_VALUE);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                int slot = slot(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *    RatingList.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.recommender.rc.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Growable list of the ratings of a user or of an item, as parallel arrays
+ * of ids and ratings. It is meant to be reused, so that the ratings of a
+ * user or of an item can be read without boxing them.
+ */
+public class RatingList implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected int[] ids = new int[16];
+
+    protected double[] ratings = new double[16];
+
+    protected int size;
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getID(int index) {
+        return this.ids[index];
+    }
+
+    public double getRating(int index) {
+        return this.ratings[index];
+    }
+
+    public void setRating(int index, double rating) {
+        this.ratings[index] = rating;
+    }
+
+    /**
+     * Gets the position of an id, or -1 if it is not in the list.
+     */
+    public int indexOf(int id) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void add(int id, double rating) {
+        if (this.size == this.ids.length) {
+            this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+            this.ratings = Arrays.copyOf(this.ratings, 2 * this.size);
+        }
+        this.ids[this.size] = id;
+        this.ratings[this.size] = rating;
+        this.size++;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *    TopItems.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.recommender.rc.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selection of the n items with the highest scores, kept in a min-heap of
+ * primitive scores and ids so that an item is only compared with the worst
+ * of the selected ones. Items with the same score are ranked by increasing
+ * id, so the selection does not depend on the order of the offers.
+ */
+public class TopItems {
+
+    protected final int n;
+
+    protected double[] scores;
+
+    protected int[] ids;
+
+    protected int size;
+
+    public TopItems(int n) {
+        this.n = n;
+        this.scores = new double[n];
+        this.ids = new int[n];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isFull() {
+        return this.size == this.n;
+    }
+
+    /**
+     * Gets the lowest selected score, which an item must reach to be
+     * selected once the selection is full.
+     */
+    public double threshold() {
+        return this.n > 0 ? this.scores[0] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Whether the first item ranks below the second one. */
+    protected static boolean below(double score1, int id1, double score2, int id2) {
+        return score1 < score2 || (score1 == score2 && id1 > id2);
+    }
+
+    /**
+     * Offers an item, which is selected if it ranks above the lowest
+     * selected item or the selection is not full.
+     */
+    public void offer(int id, double score) {
+        if (this.size < this.n) {
+            int i = this.size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!below(score, id, this.scores[parent], this.ids[parent])) {
+                    break;
+                }
+                this.scores[i] = this.scores[parent];
+                this.ids[i] = this.ids[parent];
+                i = parent;
+            }
+            this.scores[i] = score;
+            this.ids[i] = id;
+        } else if (this.n > 0 && below(this.scores[0], this.ids[0], score, id)) {
+            siftDown(id, score, this.size);
+        }
+    }
+
+    /** Puts an item at the root of the heap of the given size and sifts it down. */
+    protected void siftDown(int id, double score, int heapSize) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize
+                    && below(this.scores[child + 1], this.ids[child + 1], this.scores[child], this.ids[child])) {
+                child++;
+            }
+            if (!below(this.scores[child], this.ids[child], score, id)) {
+                break;
+            }
+            this.scores[i] = this.scores[child];
+            this.ids[i] = this.ids[child];
+            i = child;
+        }
+        this.scores[i] = score;
+        this.ids[i] = id;
+    }
+
+    /**
+     * Gets the ids of the selected items, from the highest score, and
+     * empties the selection.
+     */
+    public List<Integer> poll() {
+        Integer[] ranked = new Integer[this.size];
+        while (this.size > 0) {
+            ranked[this.size - 1] = this.ids[0];
+            this.size--;
+            siftDown(this.ids[this.size], this.scores[this.size], this.size);
+        }
+        return new ArrayList<Integer>(Arrays.asList(ranked));
+    }
+}
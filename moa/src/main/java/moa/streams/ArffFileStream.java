@@ -20,7 +20,9 @@
 package moa.streams;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.FastArffLoader;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import java.io.BufferedReader;
@@ -38,6 +40,10 @@ import moa.tasks.TaskMonitor;
 /**
  * Stream reader of ARFF files.
  *
+ * <p>With the fast parser option, the file is parsed directly from its bytes
+ * by {@link FastArffLoader} instead of the StreamTokenizer based
+ * ArffLoader.</p>
+ *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
@@ -60,6 +66,9 @@ public class ArffFileStream extends AbstractOptionHandler implements
             "Class index of data. 0 for none or -1 for last attribute in file.",
             -1, -1, Integer.MAX_VALUE);
 
+    public FlagOption fastParserOption = new FlagOption("fastParser", 'p',
+            "Parse the file from its bytes, without a StreamTokenizer.");
+
     protected Instances instances;
 
     protected Reader fileReader;
@@ -127,10 +136,17 @@ public class ArffFileStream extends AbstractOptionHandler implements
             InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
             this.fileProgressMonitor = new InputStreamProgressMonitor(
                     fileStream);
-            this.fileReader = new BufferedReader(new InputStreamReader(
-                    this.fileProgressMonitor));
             int classIndex = this.classIndexOption.getValue();
-            this.instances = new Instances(this.fileReader, 1, classIndex);
+            if (this.fastParserOption.isSet()) {
+                // the loader buffers the bytes itself, the reader only closes the file
+                this.fileReader = new InputStreamReader(this.fileProgressMonitor);
+                this.instances = new Instances(new FastArffLoader(
+                        this.fileProgressMonitor, classIndex));
+            } else {
+                this.fileReader = new BufferedReader(new InputStreamReader(
+                        this.fileProgressMonitor));
+                this.instances = new Instances(this.fileReader, 1, classIndex);
+            }
             if (classIndex < 0) {
 		this.instances.setClassIndex(this.instances.numAttributes() - 1);
             } else if (this.classIndexOption.getValue() > 0) {
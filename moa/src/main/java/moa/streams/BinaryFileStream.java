@@ -0,0 +1,271 @@
+/*
+ *    BinaryFileStream.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.github.javacliparser.FileOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceImpl;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.MappedDenseInstanceData;
+import com.yahoo.labs.samoa.instances.SparseInstanceData;
+import moa.core.InstanceExample;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Stream reader of binary instance files written by
+ * {@link moa.tasks.WriteStreamToBinaryFile}.
+ *
+ * <p>The file is memory-mapped and dense instances are views over the mapped
+ * values, so reading costs no parsing and no copying. Sparse instances are
+ * copied into a {@link SparseInstanceData}.</p>
+ *
+ * <p>The file starts with the magic number, the format version and the length
+ * of the Java serialized {@link InstancesHeader} that follows, padded to a
+ * multiple of 8 bytes. Every instance is then written as the number of values
+ * ({@link #DENSE} for a dense instance), a reserved int and the weight,
+ * followed by the values for a dense instance, or by the indices, padded to a
+ * multiple of 8 bytes, and the values for a sparse one. Values are big-endian
+ * doubles.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class BinaryFileStream extends AbstractOptionHandler implements
+        InstanceStream {
+
+    @Override
+    public String getPurposeString() {
+        return "A stream read from a binary instance file.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /** The first int of a binary instance file. */
+    public static final int MAGIC = 0x4D4F4142;
+
+    public static final int VERSION = 1;
+
+    /** Number of values written for a dense instance. */
+    public static final int DENSE = -1;
+
+    /** Size of the fixed part of an instance record. */
+    public static final int RECORD_HEADER_SIZE = 16;
+
+    /** Size of the part of the file mapped at once. */
+    protected static final long WINDOW_SIZE = 1L << 30;
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Binary instance file to load.", null, "bin", false);
+
+    protected InstancesHeader header;
+
+    protected transient RandomAccessFile file;
+
+    protected transient FileChannel channel;
+
+    protected transient MappedByteBuffer window;
+
+    /** Position in the file of the start of the mapped window. */
+    protected long windowStart;
+
+    /** Position in the file of the next instance. */
+    protected long position;
+
+    protected long dataStart;
+
+    protected long fileSize;
+
+    protected int numInstancesRead;
+
+    public BinaryFileStream() {
+    }
+
+    public BinaryFileStream(String binaryFileName) {
+        this.binaryFileOption.setValue(binaryFileName);
+        restart();
+    }
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        restart();
+    }
+
+    /**
+     * Rounds a size up to a multiple of 8 bytes.
+     */
+    public static long pad(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.header;
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        if (this.numInstancesRead > 0) {
+            double bytesPerInstance = (double) (this.position - this.dataStart)
+                    / this.numInstancesRead;
+            return (long) ((this.fileSize - this.position) / bytesPerInstance);
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return this.position < this.fileSize;
+    }
+
+    @Override
+    public InstanceExample nextInstance() {
+        try {
+            ByteBuffer buffer = mapRecord(RECORD_HEADER_SIZE);
+            int offset = (int) (this.position - this.windowStart);
+            int numValues = buffer.getInt(offset);
+            double weight = buffer.getDouble(offset + 8);
+            int numAttributes = this.header.numAttributes();
+            Instance inst;
+            if (numValues == DENSE) {
+                buffer = mapRecord(RECORD_HEADER_SIZE + 8L * numAttributes);
+                offset = (int) (this.position - this.windowStart);
+                inst = new InstanceImpl(weight, new MappedDenseInstanceData(
+                        buffer, offset + RECORD_HEADER_SIZE, numAttributes));
+                this.position += RECORD_HEADER_SIZE + 8L * numAttributes;
+            } else {
+                long indicesSize = pad(4L * numValues);
+                buffer = mapRecord(RECORD_HEADER_SIZE + indicesSize + 8L * numValues);
+                offset = (int) (this.position - this.windowStart) + RECORD_HEADER_SIZE;
+                int[] indexValues = new int[numValues];
+                double[] attributeValues = new double[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    indexValues[i] = buffer.getInt(offset + 4 * i);
+                }
+                offset += (int) indicesSize;
+                for (int i = 0; i < numValues; i++) {
+                    attributeValues[i] = buffer.getDouble(offset + 8 * i);
+                }
+                inst = new InstanceImpl(weight, new SparseInstanceData(
+                        attributeValues, indexValues, numAttributes));
+                this.position += RECORD_HEADER_SIZE + indicesSize + 8L * numValues;
+            }
+            inst.setDataset(this.header);
+            this.numInstancesRead++;
+            return new InstanceExample(inst);
+        } catch (IOException ioe) {
+            throw new RuntimeException(
+                    "BinaryFileStream failed to read instance from stream.", ioe);
+        }
+    }
+
+    /**
+     * Makes sure the record starting at the current position is mapped,
+     * mapping a new window starting at the record if it is not.
+     *
+     * @param recordSize the size of the record
+     * @return the mapped window
+     */
+    protected ByteBuffer mapRecord(long recordSize) throws IOException {
+        if (this.position + recordSize > this.fileSize) {
+            throw new IOException("Unexpected end of file at " + this.position);
+        }
+        if (this.window == null || this.position < this.windowStart
+                || this.position + recordSize > this.windowStart + this.window.capacity()) {
+            long size = Math.min(Math.max(WINDOW_SIZE, recordSize),
+                    this.fileSize - this.position);
+            if (size > Integer.MAX_VALUE) {
+                size = Integer.MAX_VALUE;
+            }
+            this.window = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                    this.position, size);
+            this.windowStart = this.position;
+        }
+        return this.window;
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    @Override
+    public void restart() {
+        try {
+            if (this.file != null) {
+                this.file.close();
+            }
+            this.file = new RandomAccessFile(this.binaryFileOption.getFile(), "r");
+            this.channel = this.file.getChannel();
+            this.fileSize = this.channel.size();
+            this.window = null;
+            this.position = 0;
+            ByteBuffer buffer = mapRecord(12);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary instance file: "
+                        + this.binaryFileOption.getFile());
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported binary instance file version: "
+                        + buffer.getInt(4));
+            }
+            int headerLength = buffer.getInt(8);
+            this.position = 12;
+            buffer = mapRecord(headerLength);
+            byte[] headerBytes = new byte[headerLength];
+            // through Buffer, as ByteBuffer.position(int) only exists from Java 9
+            ((Buffer) buffer).position((int) (this.position - this.windowStart));
+            buffer.get(headerBytes);
+            ObjectInputStream in = new ObjectInputStream(
+                    new ByteArrayInputStream(headerBytes));
+            this.header = (InstancesHeader) in.readObject();
+            in.close();
+            this.dataStart = pad(12 + headerLength);
+            this.position = this.dataStart;
+            this.numInstancesRead = 0;
+        } catch (IOException ioe) {
+            throw new RuntimeException("BinaryFileStream restart failed.", ioe);
+        } catch (ClassNotFoundException cnfe) {
+            throw new RuntimeException("BinaryFileStream restart failed.", cnfe);
+        }
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        sb.append("Binary instance file ");
+        sb.append(this.binaryFileOption.getValue());
+        if (this.header != null) {
+            sb.append(" of relation ");
+            sb.append(this.header.getRelationName());
+            sb.append(" with ");
+            sb.append(this.header.numAttributes());
+            sb.append(" attributes");
+        }
+    }
+}
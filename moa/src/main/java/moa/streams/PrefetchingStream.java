@@ -0,0 +1,273 @@
+/*
+ *    PrefetchingStream.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.core.Example;
+import moa.core.InstanceExample;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.options.ClassOption;
+import moa.streams.generators.InstancePool;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Stream that reads ahead of its consumer. The instances of the wrapped stream
+ * are read, parsed or generated on a background thread into a bounded buffer,
+ * so reading overlaps with learning. The background thread blocks when the
+ * buffer is full.
+ *
+ * <p>The wrapped stream must not be used by anyone else while this stream is
+ * in use. It must not reuse its instances either, as the instances read ahead
+ * would be overwritten before being consumed.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class PrefetchingStream extends AbstractOptionHandler implements
+        InstanceStream {
+
+    @Override
+    public String getPurposeString() {
+        return "A stream that reads instances ahead on a background thread.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to read ahead.", ExampleStream.class,
+            "ArffFileStream");
+
+    public IntOption bufferSizeOption = new IntOption("bufferSize", 'b',
+            "Maximum number of instances read ahead.", 1000, 1, Integer.MAX_VALUE);
+
+    /** Marks the end of the wrapped stream in the buffer. */
+    protected static final Example END_OF_STREAM = new InstanceExample(null);
+
+    protected ExampleStream source;
+
+    protected InstancesHeader header;
+
+    protected transient BlockingQueue<Example> buffer;
+
+    protected transient Thread producer;
+
+    protected transient Example next;
+
+    protected transient volatile Throwable producerError;
+
+    protected transient volatile long sourceRemaining;
+
+    protected transient volatile boolean endBuffered;
+
+    protected transient volatile long producerNanos;
+
+    protected transient long consumerWaitNanos;
+
+    public PrefetchingStream() {
+    }
+
+    public PrefetchingStream(ExampleStream source, int bufferSize) {
+        this.bufferSizeOption.setValue(bufferSize);
+        this.source = source;
+    }
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        this.source = (ExampleStream) getPreparedClassOption(this.streamOption);
+    }
+
+    /**
+     * Starts reading ahead on a new background thread. The header is taken
+     * before, as the wrapped stream is only touched by that thread afterwards.
+     */
+    protected void startProducer() {
+        final ExampleStream stream = this.source;
+        InstancePool.checkNotReused(stream, "read ahead");
+        this.header = stream.getHeader();
+        final BlockingQueue<Example> queue = new ArrayBlockingQueue<>(
+                this.bufferSizeOption.getValue());
+        this.buffer = queue;
+        this.next = null;
+        this.producerError = null;
+        this.sourceRemaining = stream.estimatedRemainingInstances();
+        this.endBuffered = false;
+        this.producerNanos = 0;
+        this.consumerWaitNanos = 0;
+        this.producer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    while (stream.hasMoreInstances()) {
+                        long start = System.nanoTime();
+                        Example example = stream.nextInstance();
+                        producerNanos += System.nanoTime() - start;
+                        sourceRemaining = stream.estimatedRemainingInstances();
+                        queue.put(example);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Throwable e) {
+                    producerError = e;
+                }
+                try {
+                    queue.put(END_OF_STREAM);
+                    endBuffered = true;
+                } catch (InterruptedException e) {
+                    // stopped while finishing, nobody is waiting
+                }
+            }
+        }, "moa-prefetch");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    /**
+     * Stops the background thread. It is started again on the next use of
+     * this stream, or by {@link #restart()}.
+     */
+    public void stopPrefetching() {
+        if (this.producer != null) {
+            this.producer.interrupt();
+            try {
+                this.producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.producer = null;
+            this.buffer = null;
+        }
+    }
+
+    /**
+     * Takes the next example from the buffer if it has not been taken yet,
+     * waiting for the background thread if the buffer is empty.
+     */
+    protected Example peek() {
+        if (this.buffer == null) {
+            startProducer();
+        }
+        if (this.next == null) {
+            Example example = this.buffer.poll();
+            if (example == null) {
+                long start = System.nanoTime();
+                try {
+                    example = this.buffer.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for instances.", e);
+                }
+                this.consumerWaitNanos += System.nanoTime() - start;
+            }
+            if (example == END_OF_STREAM && this.producerError != null) {
+                throw new RuntimeException("Error reading stream.", this.producerError);
+            }
+            this.next = example;
+        }
+        return this.next;
+    }
+
+    /**
+     * Gets the time in nanoseconds spent by the background thread reading
+     * instances from the wrapped stream.
+     */
+    public long getProducerNanos() {
+        return this.producerNanos;
+    }
+
+    /**
+     * Gets the time in nanoseconds the consumer spent waiting for instances.
+     * The difference with {@link #getProducerNanos()} is the reading time
+     * that was hidden behind the work of the consumer.
+     */
+    public long getConsumerWaitNanos() {
+        return this.consumerWaitNanos;
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        if (this.buffer == null) {
+            startProducer();
+        }
+        return this.header;
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        if (this.buffer == null) {
+            startProducer();
+        }
+        if (this.next == END_OF_STREAM) {
+            return 0;
+        }
+        long remaining = this.sourceRemaining;
+        if (remaining < 0) {
+            return -1;
+        }
+        // the mark of the end of the stream is not an instance
+        int numBuffered = this.buffer.size() - (this.endBuffered ? 1 : 0);
+        return remaining + numBuffered + (this.next != null ? 1 : 0);
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return peek() != END_OF_STREAM;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Example<Instance> nextInstance() {
+        Example example = peek();
+        if (example == END_OF_STREAM) {
+            return null;
+        }
+        this.next = null;
+        return example;
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return this.source.isRestartable();
+    }
+
+    @Override
+    public void restart() {
+        stopPrefetching();
+        this.source.restart();
+        startProducer();
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        sb.append("Reads up to ");
+        sb.append(this.bufferSizeOption.getValue());
+        sb.append(" instances ahead of ");
+        if (this.source != null) {
+            sb.append(ClassOption.objectToCLIString(this.source, ExampleStream.class));
+        } else {
+            sb.append(this.streamOption.getValueAsCLIString());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ *    FeatureHashingFilter.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams.filters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.IntOption;
+import moa.core.InstanceExample;
+import moa.streams.InstanceStream;
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+
+/**
+ * Filter for hashing the attributes of the instances of a stream into a
+ * fixed number of numeric attributes (the hashing trick).
+ *
+ * <p>The value of a numeric attribute is added to the attribute given by a
+ * hash of its index, and a nominal attribute adds one to the attribute given
+ * by a hash of its index and of the label of its value. As in sparse
+ * instances, zeros and the first values of nominal attributes are left out,
+ * so that only the values present in the instances are visited. The filtered
+ * instances are sparse, with the class as last attribute, and the header only
+ * stores the class attribute, so that learners downstream take the same
+ * memory whatever the number of attributes of the stream.</p>
+ *
+ * <p>Signed hashing multiplies every value by a sign given by the hash, which
+ * makes the collisions cancel out in expectation for linear models, but
+ * gives negative values that multinomial naive Bayes can not count.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class FeatureHashingFilter extends AbstractStreamFilter {
+
+    @Override
+    public String getPurposeString() {
+        return "Hashes the attributes of a stream into a fixed number of sparse numeric attributes.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numBitsOption = new IntOption("numBits", 'b',
+            "The number of bits of the hash, giving 2^numBits attributes.", 18,
+            1, 30);
+
+    public IntOption hashSeedOption = new IntOption("hashSeed", 's',
+            "Seed of the hash function.", 1);
+
+    public FlagOption signedHashingOption = new FlagOption("signedHashing", 'g',
+            "Multiply the values by a sign given by the hash.");
+
+    protected InstancesHeader streamHeader;
+
+    @Override
+    protected void restartImpl() {
+        // filters are prepared again once their input stream is set
+        if (this.inputStream == null) {
+            return;
+        }
+        int numBuckets = 1 << this.numBitsOption.getValue();
+        List<Attribute> attributes = new ArrayList<Attribute>(1);
+        attributes.add(this.inputStream.getHeader().classAttribute());
+        List<Integer> indexValues = new ArrayList<Integer>(1);
+        indexValues.add(numBuckets);
+        this.streamHeader = new InstancesHeader(new Instances(
+                getCLICreationString(InstanceStream.class), attributes,
+                indexValues, numBuckets + 1, 0));
+        this.streamHeader.setClassIndex(numBuckets);
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.streamHeader;
+    }
+
+    @Override
+    public InstanceExample nextInstance() {
+        // the instance is not copied, as a new one is made
+        Instance inst = (Instance) this.inputStream.nextInstance().getData();
+        return new InstanceExample(filterInstance(inst));
+    }
+
+    @Override
+    public Instance filterInstance(Instance inst) {
+        int numBuckets = 1 << this.numBitsOption.getValue();
+        boolean signed = this.signedHashingOption.isSet();
+        int classIndex = inst.classIndex();
+        int numValues = inst.numValues();
+        // buckets in the high bits and positions in the low bits, so that
+        // sorting the keys sorts the values by bucket
+        long[] keys = new long[numValues];
+        double[] hashedValues = new double[numValues];
+        int numHashed = 0;
+        for (int p = 0; p < numValues; p++) {
+            int index = inst.index(p);
+            double value = inst.valueSparse(p);
+            if (index == classIndex || inst.isMissingSparse(p) || value == 0.0) {
+                continue;
+            }
+            Attribute attribute = inst.attribute(index);
+            int hash;
+            if (attribute.isNominal()) {
+                hash = hashToken(index, attribute.value((int) value));
+                value = 1.0;
+            } else {
+                hash = hashIndex(index);
+            }
+            if (signed && hash < 0) {
+                value = -value;
+            }
+            keys[numHashed] = ((long) (hash & (numBuckets - 1)) << 32) | numHashed;
+            hashedValues[numHashed] = value;
+            numHashed++;
+        }
+        Arrays.sort(keys, 0, numHashed);
+        int[] indexValues = new int[numHashed + 1];
+        double[] attributeValues = new double[numHashed + 1];
+        int count = 0;
+        for (int k = 0; k < numHashed; k++) {
+            int bucket = (int) (keys[k] >>> 32);
+            double value = hashedValues[(int) keys[k]];
+            if (count > 0 && indexValues[count - 1] == bucket) {
+                attributeValues[count - 1] += value;
+            } else {
+                indexValues[count] = bucket;
+                attributeValues[count] = value;
+                count++;
+            }
+        }
+        indexValues[count] = numBuckets;
+        attributeValues[count] = inst.classValue();
+        count++;
+        if (count < indexValues.length) {
+            indexValues = Arrays.copyOf(indexValues, count);
+            attributeValues = Arrays.copyOf(attributeValues, count);
+        }
+        Instance hashedInst = new SparseInstance(inst.weight(), attributeValues,
+                indexValues, numBuckets + 1);
+        hashedInst.setDataset(this.streamHeader);
+        return hashedInst;
+    }
+
+    protected int hashIndex(int index) {
+        return mix(this.hashSeedOption.getValue() + 0x9e3779b9 * (index + 1));
+    }
+
+    protected int hashToken(int index, String token) {
+        return mix(hashIndex(index) ^ token.hashCode());
+    }
+
+    /** Finalisation step of MurmurHash3, spreading every bit over the hash. */
+    protected static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+}
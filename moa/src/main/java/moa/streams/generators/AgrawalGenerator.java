@@ -85,6 +85,8 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
     public FlagOption balanceClassesOption = new FlagOption("balanceClasses",
             'b', "Balance the number of instances of each class.");
 
+    public IntOption instancePoolSizeOption = InstancePool.newPoolSizeOption();
+
     protected interface ClassFunction {
 
         public int determineClass(double salary, double commission, int age,
@@ -276,6 +278,8 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
 
     protected boolean nextClassShouldBeZero;
 
+    protected InstancePool instancePool;
+
     @Override
     protected void prepareForUseImpl(TaskMonitor monitor,
             ObjectRepository repository) {
@@ -380,7 +384,16 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
         }
         // construct instance
         InstancesHeader header = getHeader();
-        Instance inst = new DenseInstance(header.numAttributes());
+        InstanceExample example;
+        Instance inst;
+        if (this.instancePool != null) {
+            example = this.instancePool.nextExample(header);
+            inst = example.getData();
+        } else {
+            inst = new DenseInstance(header.numAttributes());
+            inst.setDataset(header);
+            example = new InstanceExample(inst);
+        }
         inst.setValue(0, salary);
         inst.setValue(1, commission);
         inst.setValue(2, age);
@@ -390,9 +403,8 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
         inst.setValue(6, hvalue);
         inst.setValue(7, hyears);
         inst.setValue(8, loan);
-        inst.setDataset(header);
         inst.setClassValue(group);
-        return new InstanceExample(inst);
+        return example;
     }
 
     protected double perturbValue(double val, double min, double max) {
@@ -415,6 +427,8 @@ public class AgrawalGenerator extends AbstractOptionHandler implements
     public void restart() {
         this.instanceRandom = new Random(this.instanceRandomSeedOption.getValue());
         this.nextClassShouldBeZero = false;
+        this.instancePool = this.instancePoolSizeOption.getValue() > 0
+                ? new InstancePool(this.instancePoolSizeOption.getValue()) : null;
     }
 
     @Override
@@ -72,6 +72,8 @@ public class HyperplaneGenerator extends AbstractOptionHandler implements
     public IntOption sigmaPercentageOption = new IntOption("sigmaPercentage",
             's', "Percentage of probability that the direction of change is reversed.", 10, 0, 100);
 
+    public IntOption instancePoolSizeOption = InstancePool.newPoolSizeOption();
+
     protected InstancesHeader streamHeader;
 
     protected Random instanceRandom;
@@ -82,6 +84,11 @@ public class HyperplaneGenerator extends AbstractOptionHandler implements
 
     public int numberInstance;
 
+    protected InstancePool instancePool;
+
+    /** The values of the next instance, when instances are reused. */
+    protected double[] pooledValues;
+
     @Override
     protected void prepareForUseImpl(TaskMonitor monitor,
             ObjectRepository repository) {
@@ -130,7 +137,8 @@ public class HyperplaneGenerator extends AbstractOptionHandler implements
     public InstanceExample nextInstance() {
 
         int numAtts = this.numAttsOption.getValue();
-        double[] attVals = new double[numAtts + 1];
+        double[] attVals = this.instancePool != null ? this.pooledValues
+                : new double[numAtts + 1];
         double sum = 0.0;
         double sumWeights = 0.0;
         for (int i = 0; i < numAtts; i++) {
@@ -149,6 +157,12 @@ public class HyperplaneGenerator extends AbstractOptionHandler implements
             classLabel = (classLabel == 0 ? 1 : 0);
         }
 
+        if (this.instancePool != null) {
+            InstanceExample example = this.instancePool.nextExample(getHeader(), attVals);
+            example.getData().setClassValue(classLabel);
+            addDrift();
+            return example;
+        }
         Instance inst = new DenseInstance(1.0, attVals);
         inst.setDataset(getHeader());
         inst.setClassValue(classLabel);
@@ -175,6 +189,12 @@ public class HyperplaneGenerator extends AbstractOptionHandler implements
             this.weights[i] = this.instanceRandom.nextDouble();
             this.sigma[i] = (i < this.numDriftAttsOption.getValue() ? 1 : 0);
         }
+        if (this.instancePoolSizeOption.getValue() > 0) {
+            this.instancePool = new InstancePool(this.instancePoolSizeOption.getValue());
+            this.pooledValues = new double[this.numAttsOption.getValue() + 1];
+        } else {
+            this.instancePool = null;
+        }
     }
 
     @Override
@@ -0,0 +1,173 @@
+/*
+ *    InstancePool.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams.generators;
+
+import java.io.Serializable;
+
+import com.github.javacliparser.IntOption;
+import com.github.javacliparser.Option;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.core.InstanceExample;
+import moa.learners.Learner;
+import moa.options.AbstractClassOption;
+import moa.options.OptionHandler;
+import moa.streams.ExampleStream;
+
+/**
+ * Small pool of dense instances that a generator reuses in turn instead of
+ * creating a new instance for every example. An instance returned by the pool
+ * is overwritten after the size of the pool more examples, so it may only be
+ * used with learners that do not retain instances.
+ *
+ * @see moa.learners.Learner#retainsInstances()
+ * @version $Revision: 7 $
+ */
+public class InstancePool implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Name of the option of the generators that sets the size of the pool. */
+    public static final String POOL_SIZE_OPTION_NAME = "instancePoolSize";
+
+    protected InstanceExample[] examples;
+
+    protected int nextIndex;
+
+    public InstancePool(int size) {
+        this.examples = new InstanceExample[size];
+    }
+
+    /**
+     * Creates the option for the size of the pool of a generator.
+     */
+    public static IntOption newPoolSizeOption() {
+        return new IntOption(POOL_SIZE_OPTION_NAME, 'P',
+                "Number of instances reused in turn, 0 to create a new instance every time."
+                + " Only for learners that do not retain instances.",
+                0, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the number of instances a stream reuses in turn, looking through
+     * the streams it wraps in its class options.
+     *
+     * @param stream the stream
+     * @return the largest pool size of the stream and of the streams it
+     * wraps, 0 if none of them reuses instances
+     */
+    public static int getPoolSize(ExampleStream stream) {
+        int poolSize = 0;
+        if (stream instanceof OptionHandler) {
+            for (Option option : ((OptionHandler) stream).getOptions().getOptionArray()) {
+                if (option instanceof IntOption
+                        && POOL_SIZE_OPTION_NAME.equals(option.getName())) {
+                    poolSize = Math.max(poolSize, ((IntOption) option).getValue());
+                } else if (option instanceof AbstractClassOption) {
+                    Object wrapped = ((AbstractClassOption) option).getPreMaterializedObject();
+                    if (wrapped instanceof ExampleStream && wrapped != stream) {
+                        poolSize = Math.max(poolSize, getPoolSize((ExampleStream) wrapped));
+                    }
+                }
+            }
+        }
+        return poolSize;
+    }
+
+    /**
+     * Checks that the instances of a stream can be trained on by a learner.
+     *
+     * @param stream the stream
+     * @param learner the learner, or null if it trains on copies
+     * @param numInstancesKept the number of instances of the stream kept at
+     * once outside the learner
+     * @throws IllegalArgumentException if the stream reuses its instances and
+     * the learner retains them, or the stream reuses fewer instances than are
+     * kept
+     */
+    public static void checkLearner(ExampleStream stream, Learner learner,
+            int numInstancesKept) {
+        int poolSize = getPoolSize(stream);
+        if (poolSize > 0) {
+            if (learner != null && learner.retainsInstances()) {
+                throw new IllegalArgumentException("The stream reuses its instances,"
+                        + " but the learner retains them: " + learner.getClass().getName());
+            }
+            if (poolSize < numInstancesKept) {
+                throw new IllegalArgumentException("The stream reuses " + poolSize
+                        + " instances, fewer than the " + numInstancesKept + " kept at once");
+            }
+        }
+    }
+
+    /**
+     * Checks that a stream does not reuse its instances, for uses that keep
+     * its instances for an unbounded time.
+     *
+     * @param stream the stream
+     * @param use what is done with the instances, completing "they can not be"
+     * @throws IllegalArgumentException if the stream reuses its instances
+     */
+    public static void checkNotReused(ExampleStream stream, String use) {
+        if (getPoolSize(stream) > 0) {
+            throw new IllegalArgumentException(
+                    "The stream reuses its instances, so they can not be " + use + ".");
+        }
+    }
+
+    /**
+     * Gets the next example of the pool, with weight one.
+     *
+     * @param header the header of the stream
+     * @return the example to overwrite
+     */
+    public InstanceExample nextExample(InstancesHeader header) {
+        InstanceExample example = this.examples[this.nextIndex];
+        if (example == null) {
+            Instance inst = new DenseInstance(header.numAttributes());
+            inst.setDataset(header);
+            example = new InstanceExample(inst);
+            this.examples[this.nextIndex] = example;
+        } else {
+            example.getData().setWeight(1.0);
+        }
+        this.nextIndex++;
+        if (this.nextIndex == this.examples.length) {
+            this.nextIndex = 0;
+        }
+        return example;
+    }
+
+    /**
+     * Gets the next example of the pool, with weight one and the given values.
+     *
+     * @param header the header of the stream
+     * @param values the values of the attributes
+     * @return the example
+     */
+    public InstanceExample nextExample(InstancesHeader header, double[] values) {
+        InstanceExample example = nextExample(header);
+        Instance inst = example.getData();
+        for (int i = 0; i < values.length; i++) {
+            inst.setValue(i, values[i]);
+        }
+        return example;
+    }
+}
@@ -69,6 +69,8 @@ public class RandomRBFGenerator extends AbstractOptionHandler implements
     public IntOption numCentroidsOption = new IntOption("numCentroids", 'n',
             "The number of centroids in the model.", 50, 1, Integer.MAX_VALUE);
 
+    public IntOption instancePoolSizeOption = InstancePool.newPoolSizeOption();
+
     protected static class Centroid implements Serializable {
 
         private static final long serialVersionUID = 1L;
@@ -88,6 +90,11 @@ public class RandomRBFGenerator extends AbstractOptionHandler implements
 
     protected Random instanceRandom;
 
+    protected InstancePool instancePool;
+
+    /** The values of the next instance, when instances are reused. */
+    protected double[] pooledValues;
+
     @Override
     public void prepareForUseImpl(TaskMonitor monitor,
             ObjectRepository repository) {
@@ -120,6 +127,12 @@ public class RandomRBFGenerator extends AbstractOptionHandler implements
     @Override
     public void restart() {
         this.instanceRandom = new Random(this.instanceRandomSeedOption.getValue());
+        if (this.instancePoolSizeOption.getValue() > 0) {
+            this.instancePool = new InstancePool(this.instancePoolSizeOption.getValue());
+            this.pooledValues = new double[this.numAttsOption.getValue() + 1];
+        } else {
+            this.instancePool = null;
+        }
     }
 
     @Override
@@ -127,7 +140,8 @@ public class RandomRBFGenerator extends AbstractOptionHandler implements
         Centroid centroid = this.centroids[MiscUtils.chooseRandomIndexBasedOnWeights(this.centroidWeights,
                 this.instanceRandom)];
         int numAtts = this.numAttsOption.getValue();
-        double[] attVals = new double[numAtts + 1];
+        double[] attVals = this.instancePool != null ? this.pooledValues
+                : new double[numAtts + 1];
         for (int i = 0; i < numAtts; i++) {
             attVals[i] = (this.instanceRandom.nextDouble() * 2.0) - 1.0;
         }
@@ -142,6 +156,11 @@ public class RandomRBFGenerator extends AbstractOptionHandler implements
         for (int i = 0; i < numAtts; i++) {
             attVals[i] = centroid.centre[i] + attVals[i] * scale;
         }
+        if (this.instancePool != null) {
+            InstanceExample example = this.instancePool.nextExample(getHeader(), attVals);
+            example.getData().setClassValue(centroid.classLabel);
+            return example;
+        }
         Instance inst = new DenseInstance(1.0, attVals);
         inst.setDataset(getHeader());
         inst.setClassValue(centroid.classLabel);
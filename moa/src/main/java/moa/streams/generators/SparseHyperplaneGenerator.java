@@ -0,0 +1,196 @@
+/*
+ *    SparseHyperplaneGenerator.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams.generators;
+
+import java.util.Arrays;
+import java.util.Random;
+import com.github.javacliparser.FloatOption;
+import com.github.javacliparser.IntOption;
+import moa.core.FastVector;
+import moa.core.InstanceExample;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.streams.InstanceStream;
+import moa.tasks.TaskMonitor;
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+
+/**
+ * Stream generator for sparse, text-like data labelled by a hyperplane.
+ *
+ * <p>Every instance counts the occurrences of words drawn from a Zipf
+ * distribution over the attributes, and is stored as a sparse instance
+ * holding the counts of the words drawn only. The class tells on which side
+ * of a random hyperplane through the origin the instance lies.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class SparseHyperplaneGenerator extends AbstractOptionHandler implements
+        InstanceStream {
+
+    @Override
+    public String getPurposeString() {
+        return "Generates a problem of predicting the class of sparse word counts from a hyperplane.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption instanceRandomSeedOption = new IntOption(
+            "instanceRandomSeed", 'i',
+            "Seed for random generation of instances.", 1);
+
+    public IntOption numAttsOption = new IntOption("numAtts", 'a',
+            "The number of attributes (words) to generate.", 100000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption numWordsOption = new IntOption("numWords", 'w',
+            "The number of words drawn for every instance.", 50, 1,
+            Integer.MAX_VALUE);
+
+    public FloatOption zipfExponentOption = new FloatOption("zipfExponent", 'z',
+            "Exponent of the Zipf distribution of the words.", 1.0, 0.0,
+            Double.MAX_VALUE);
+
+    public IntOption noisePercentageOption = new IntOption("noisePercentage",
+            'n', "Percentage of noise to add to the data.", 5, 0, 100);
+
+    protected InstancesHeader streamHeader;
+
+    protected Random instanceRandom;
+
+    protected double[] weights;
+
+    /** The cumulative probabilities of the words. */
+    protected double[] wordDistribution;
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        monitor.setCurrentActivity("Preparing sparse hyperplane...", -1.0);
+        generateHeader();
+        restart();
+    }
+
+    protected void generateHeader() {
+        FastVector attributes = new FastVector();
+        for (int i = 0; i < this.numAttsOption.getValue(); i++) {
+            attributes.addElement(new Attribute("att" + (i + 1)));
+        }
+
+        FastVector classLabels = new FastVector();
+        classLabels.addElement("class1");
+        classLabels.addElement("class2");
+        attributes.addElement(new Attribute("class", classLabels));
+        this.streamHeader = new InstancesHeader(new Instances(
+                getCLICreationString(InstanceStream.class), attributes, 0));
+        this.streamHeader.setClassIndex(this.streamHeader.numAttributes() - 1);
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        return -1;
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.streamHeader;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return true;
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    @Override
+    public InstanceExample nextInstance() {
+        int numAtts = this.numAttsOption.getValue();
+        int[] words = new int[this.numWordsOption.getValue()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = nextWord();
+        }
+        Arrays.sort(words);
+        int numDistinctWords = 0;
+        for (int i = 0; i < words.length; i++) {
+            if (i == 0 || words[i] != words[i - 1]) {
+                numDistinctWords++;
+            }
+        }
+        int[] indexValues = new int[numDistinctWords + 1];
+        double[] attVals = new double[numDistinctWords + 1];
+        int numValues = 0;
+        for (int i = 0; i < words.length; i++) {
+            if (i == 0 || words[i] != words[i - 1]) {
+                indexValues[numValues++] = words[i];
+            }
+            attVals[numValues - 1]++;
+        }
+        double sum = 0.0;
+        for (int i = 0; i < numDistinctWords; i++) {
+            sum += this.weights[indexValues[i]] * attVals[i];
+        }
+        int classLabel = sum >= 0.0 ? 1 : 0;
+        //Add Noise
+        if ((1 + (this.instanceRandom.nextInt(100))) <= this.noisePercentageOption.getValue()) {
+            classLabel = (classLabel == 0 ? 1 : 0);
+        }
+        indexValues[numDistinctWords] = numAtts;
+        attVals[numDistinctWords] = classLabel;
+        Instance inst = new SparseInstance(1.0, attVals, indexValues, numAtts + 1);
+        inst.setDataset(getHeader());
+        return new InstanceExample(inst);
+    }
+
+    protected int nextWord() {
+        int index = Arrays.binarySearch(this.wordDistribution,
+                this.instanceRandom.nextDouble());
+        int word = index >= 0 ? index + 1 : -index - 1;
+        return Math.min(word, this.wordDistribution.length - 1);
+    }
+
+    @Override
+    public void restart() {
+        this.instanceRandom = new Random(this.instanceRandomSeedOption.getValue());
+        int numAtts = this.numAttsOption.getValue();
+        this.weights = new double[numAtts];
+        for (int i = 0; i < numAtts; i++) {
+            this.weights[i] = this.instanceRandom.nextGaussian();
+        }
+        this.wordDistribution = new double[numAtts];
+        double sum = 0.0;
+        for (int i = 0; i < numAtts; i++) {
+            sum += Math.pow(i + 1, -this.zipfExponentOption.getValue());
+            this.wordDistribution[i] = sum;
+        }
+        for (int i = 0; i < numAtts; i++) {
+            this.wordDistribution[i] /= sum;
+        }
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+}
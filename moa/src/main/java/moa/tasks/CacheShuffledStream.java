@@ -21,9 +21,12 @@ package moa.tasks;
 
 import java.util.Random;
 
+import com.yahoo.labs.samoa.instances.CompactDenseInstanceData;
+import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import moa.core.ObjectRepository;
 import moa.options.ClassOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.CachedInstancesStream;
 import moa.streams.InstanceStream;
@@ -55,14 +58,21 @@ public class CacheShuffledStream extends AbstractTask {
             "shuffleRandomSeed", 'r',
             "Seed for random shuffling of instances.", 1);
 
+    public FlagOption compactInstancesOption = new FlagOption(
+            "compactInstances", 'c',
+            "Store nominal values in bytes and numeric values in floats.");
+
     @Override
     protected Object doTaskImpl(TaskMonitor monitor, ObjectRepository repository) {
         InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
         Instances cache = new Instances(stream.getHeader(), 0);
+        CompactDenseInstanceData.Layout layout = this.compactInstancesOption.isSet()
+                ? new CompactDenseInstanceData.Layout(stream.getHeader()) : null;
         monitor.setCurrentActivity("Caching instances...", -1.0);
         while ((cache.numInstances() < this.maximumCacheSizeOption.getValue())
                 && stream.hasMoreInstances()) {
-            cache.add(stream.nextInstance().getData());
+            Instance inst = stream.nextInstance().getData();
+            cache.add(layout != null ? layout.compact(inst) : inst);
             if (cache.numInstances()
                     % MainTask.INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
                 if (monitor.taskShouldAbort()) {
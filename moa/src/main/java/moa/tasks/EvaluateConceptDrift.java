@@ -37,6 +37,7 @@ import moa.learners.ChangeDetectorLearner;
 import moa.options.ClassOption;
 
 import moa.streams.clustering.ClusterEvent;
+import moa.streams.generators.InstancePool;
 import moa.streams.generators.cd.ConceptDriftGenerator;
 
 
@@ -103,6 +104,7 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
     protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
         ChangeDetectorLearner learner = (ChangeDetectorLearner) getPreparedClassOption(this.learnerOption);
         ConceptDriftGenerator stream = (ConceptDriftGenerator) getPreparedClassOption(this.streamOption);
+        InstancePool.checkLearner(stream, learner, 1);
         this.setEventsList(stream.getEventsList());
         LearningPerformanceEvaluator evaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
         LearningCurve learningCurve = new LearningCurve(
@@ -34,9 +34,12 @@ import moa.evaluation.LearningPerformanceEvaluator;
 import moa.learners.Learner;
 import moa.options.ClassOption;
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
+import moa.streams.generators.InstancePool;
 import moa.streams.InstanceStream;
+import com.yahoo.labs.samoa.instances.CompactDenseInstanceData;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 
@@ -120,6 +123,12 @@ public class EvaluateInterleavedChunks extends MainTask {
 	public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
 			"File to append intermediate csv reslts to.", null, "csv", true);
 
+	/**
+	 * Allows to store the instances of the chunks compactly.
+	 */
+	public FlagOption compactChunksOption = new FlagOption("compactChunks", 'x',
+			"Store nominal values in bytes and numeric values in floats in the chunks.");
+
 	/**
 	 * Defines the task's result type.
 	 */
@@ -135,6 +144,12 @@ public class EvaluateInterleavedChunks extends MainTask {
 		learner.setModelContext(stream.getHeader());
 		int maxInstances = this.instanceLimitOption.getValue();
 		int chunkSize = this.chunkSizeOption.getValue();
+		CompactDenseInstanceData.Layout chunkLayout = this.compactChunksOption.isSet()
+				? new CompactDenseInstanceData.Layout(stream.getHeader()) : null;
+		if (chunkLayout == null) {
+			// compact chunks hold copies of the instances
+			InstancePool.checkLearner(stream, learner, chunkSize);
+		}
 		long instancesProcessed = 0;
 		int maxSeconds = this.timeLimitOption.getValue();
 		int secondsElapsed = 0;
@@ -172,7 +187,8 @@ public class EvaluateInterleavedChunks extends MainTask {
 			Instances chunkInstances = new Instances(stream.getHeader(), chunkSize);
 			
 			while (stream.hasMoreInstances() && chunkInstances.numInstances() < chunkSize) {
-				chunkInstances.add((Instance) stream.nextInstance().getData());
+				Instance inst = (Instance) stream.nextInstance().getData();
+				chunkInstances.add(chunkLayout != null ? chunkLayout.compact(inst) : inst);
 				if (chunkInstances.numInstances()
 						% INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
 					if (monitor.taskShouldAbort()) {
@@ -29,7 +29,6 @@ import moa.core.Measurement;
 import moa.core.ObjectRepository;
 import moa.core.TimingUtils;
 import moa.evaluation.LearningCurve;
-import moa.evaluation.LearningEvaluation;
 import moa.evaluation.LearningPerformanceEvaluator;
 import moa.learners.Learner;
 import moa.options.ClassOption;
@@ -37,6 +36,7 @@ import com.github.javacliparser.FileOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
 import moa.streams.InstanceStream;
+import moa.streams.generators.InstancePool;
 import com.yahoo.labs.samoa.instances.Instance;
 
 /**
@@ -110,6 +110,7 @@ public class EvaluateInterleavedTestThenTrain extends MainTask {
             learner.resetLearning();
         }
         ExampleStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        InstancePool.checkLearner(stream, learner, 1);
         
         LearningPerformanceEvaluator evaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
         learner.setModelContext(stream.getHeader());
@@ -138,6 +139,8 @@ public class EvaluateInterleavedTestThenTrain extends MainTask {
         }
         boolean firstDump = true;
         boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
+        String evaluationTimeName = "evaluation time ("
+                + (preciseCPUTiming ? "cpu " : "") + "seconds)";
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
         double RAMHours = 0.0;
@@ -163,21 +166,20 @@ public class EvaluateInterleavedTestThenTrain extends MainTask {
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
-                learningCurve.insertEntry(new LearningEvaluation(
+                learningCurve.insertEntry(
                         new Measurement[]{
                             new Measurement(
                             "learning evaluation instances",
                             instancesProcessed),
                             new Measurement(
-                            "evaluation time ("
-                            + (preciseCPUTiming ? "cpu "
-                            : "") + "seconds)",
+                            evaluationTimeName,
                             time),
                             new Measurement(
                             "model cost (RAM-Hours)",
                             RAMHours)
                         },
-                        evaluator, learner));
+                        evaluator.getPerformanceMeasurements(),
+                        learner.getModelMeasurements());
                 if (immediateResultStream != null) {
                     if (firstDump) {
                         immediateResultStream.print("Learner,stream,randomSeed,");
@@ -19,10 +19,10 @@
  */
 package moa.tasks;
 
+import java.util.List;
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
 import moa.evaluation.LearningCurve;
-import moa.evaluation.LearningEvaluation;
 import moa.options.ClassOption;
 import com.github.javacliparser.IntOption;
 import moa.recommender.dataset.Dataset;
@@ -38,8 +38,16 @@ import moa.recommender.rc.data.RecommenderData;
  * <ul>  
  * <li> d: dataset - the dataset to be used to train/test the rating predictor.</li>
  * <li> f: sample frequency - the frequency in which a rating from the dataset will be used to test the model </li>
+ * <li> n: top N - the number of items recommended to the user before every rating, 0 for no recommendations </li>
  * </ul>
  *
+ * <p>Besides the RMSE and the times, the learning curve reports the rating
+ * updates per second of training time and the heap in use, in megabytes.
+ * When recommending, it also reports the fraction of the ratings whose item
+ * was among the recommended ones (recall), the mean reciprocal rank of the
+ * item in the recommendations and the mean time taken by a recommendation,
+ * in microseconds.</p>
+ *
  * @author Alex Catarineu (a.catarineu@gmail.com)
  * @version $Revision: 7 $
  */
@@ -64,6 +72,11 @@ public class EvaluateOnlineRecommender extends MainTask {
             "How many instances between samples of the learning performance.",
             100, 0, Integer.MAX_VALUE);
 
+    public IntOption topNOption = new IntOption("topN",
+            'n',
+            "How many items to recommend to the user before every rating (0 = no recommendations).",
+            0, 0, Integer.MAX_VALUE);
+
     public EvaluateOnlineRecommender() {
     }
 
@@ -87,6 +100,10 @@ public class EvaluateOnlineRecommender extends MainTask {
         int n = 0;
         //ArrayList<TestMetric> metrics = new ArrayList<TestMetric>();
         int sampleFrequency = this.sampleFrequencyOption.getValue();
+        int topN = this.topNOption.getValue();
+        long recommendationTime = 0;
+        int hits = 0;
+        double sumReciprocalRanks = 0;
         int count = 0;
         while (d.next())
           ++count;
@@ -99,6 +116,16 @@ public class EvaluateOnlineRecommender extends MainTask {
             double pred = rp.predictRating(user, item);
             sum += Math.pow(pred - rating, 2);
             evalTime += System.currentTimeMillis() - startPredTime;
+            if (topN > 0) {
+                long startRecommendationTime = System.nanoTime();
+                List<Integer> items = rp.recommend(user, topN);
+                recommendationTime += System.nanoTime() - startRecommendationTime;
+                int rank = items.indexOf(item);
+                if (rank >= 0) {
+                    hits++;
+                    sumReciprocalRanks += 1.0/(rank + 1);
+                }
+            }
             data.setRating(user, item, rating);
             //System.out.println(data.countRatingsItem(item) + " " + data.countRatingsUser(user));
             //if (n++%100 == 99) metrics.add(new TestMetric("RMSE (" + n +")", Math.sqrt(sum/(double)n)));
@@ -108,7 +135,9 @@ public class EvaluateOnlineRecommender extends MainTask {
                     return null;
                 }
                 monitor.setCurrentActivityFractionComplete((double)n/(double)count);
-                learningCurve.insertEntry(new LearningEvaluation(
+                long trainingTime = System.currentTimeMillis() - start - evalTime - recommendationTime/1000000;
+                Runtime runtime = Runtime.getRuntime();
+                learningCurve.insertEntry(
                         new Measurement[]{
                             new Measurement(
                             "n",
@@ -118,12 +147,28 @@ public class EvaluateOnlineRecommender extends MainTask {
                             Math.sqrt(sum/(double)n)),
                             new Measurement(
                             "trainingTime",
-                            (int)((System.currentTimeMillis() - start - evalTime)/1000)),
+                            (int)(trainingTime/1000)),
                             new Measurement(
                             "evalTime",
-                            (int)(evalTime/1000))
-                        }
-                         ));
+                            (int)(evalTime/1000)),
+                            new Measurement(
+                            "updatesPerSecond",
+                            trainingTime > 0 ? 1000.0*n/trainingTime : 0),
+                            new Measurement(
+                            "heapUsedMB",
+                            (runtime.totalMemory() - runtime.freeMemory())/(1024.0*1024.0))
+                        },
+                        topN == 0 ? null : new Measurement[]{
+                            new Measurement(
+                            "recall@" + topN,
+                            (double)hits/(double)n),
+                            new Measurement(
+                            "MRR@" + topN,
+                            sumReciprocalRanks/(double)n),
+                            new Measurement(
+                            "recommendationMicros",
+                            recommendationTime/1000.0/(double)n)
+                        });
                 if (monitor.resultPreviewRequested()) {
                     monitor.setLatestResultPreview(learningCurve.headerToString() + "\n" +
                       learningCurve.entryToString(learningCurve.numEntries() - 1));
@@ -41,6 +41,7 @@ import moa.learners.Learner;
 import moa.options.ClassOption;
 import moa.streams.CachedInstancesStream;
 import moa.streams.ExampleStream;
+import moa.streams.generators.InstancePool;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 
@@ -99,6 +100,10 @@ public class EvaluatePeriodicHeldOutTest extends MainTask {
         ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
         LearningPerformanceEvaluator evaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
         learner.setModelContext(stream.getHeader());
+        if (this.cacheTestOption.isSet()) {
+            InstancePool.checkNotReused(stream, "cached for testing");
+        }
+        InstancePool.checkLearner(stream, learner, 1);
         long instancesProcessed = 0;
         LearningCurve learningCurve = new LearningCurve("evaluation instances");
         File dumpFile = this.dumpFileOption.getFile();
@@ -33,7 +33,6 @@ import moa.evaluation.WindowClassificationPerformanceEvaluator;
 import moa.evaluation.EWMAClassificationPerformanceEvaluator;
 import moa.evaluation.FadingFactorClassificationPerformanceEvaluator;
 import moa.evaluation.LearningCurve;
-import moa.evaluation.LearningEvaluation;
 import moa.evaluation.LearningPerformanceEvaluator;
 import moa.learners.Learner;
 import moa.options.ClassOption;
@@ -43,12 +42,18 @@ import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
 import moa.streams.InstanceStream;
+import moa.streams.generators.InstancePool;
 import com.yahoo.labs.samoa.instances.Instance;
 import moa.core.Utils;
 
 /**
  * Task for evaluating a classifier on a stream by testing then training with each example in sequence.
  *
+ * <p>With a batch size larger than one, blocks of instances are pulled from
+ * the stream, tested on as a whole and then trained on as a whole, using the
+ * block entry points of the classifier. Blocks never cross a sample point, so
+ * the learning curve is sampled at the same instances.</p>
+ *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
@@ -98,6 +103,10 @@ public class EvaluatePrequential extends MainTask {
     public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 'o',
             "File to append output predictions to.", null, "pred", true);
 
+    public IntOption batchSizeOption = new IntOption("batchSize", 'b',
+            "Number of instances to test on as a block before training on them (1 = one instance at a time).",
+            1, 1, Integer.MAX_VALUE);
+
     //New for prequential method DEPRECATED
     public IntOption widthOption = new IntOption("width",
             'w', "Size of Window", 1000);
@@ -185,27 +194,59 @@ public class EvaluatePrequential extends MainTask {
         }
         boolean firstDump = true;
         boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
+        String evaluationTimeName = "evaluation time ("
+                + (preciseCPUTiming ? "cpu " : "") + "seconds)";
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
         double RAMHours = 0.0;
+        int batchSize = learner instanceof Classifier ? this.batchSizeOption.getValue() : 1;
+        Classifier batchLearner = batchSize > 1 ? (Classifier) learner : null;
+        InstancePool.checkLearner(stream, learner, batchSize);
+        Example[] batch = new Example[batchSize];
+        Instance[] batchInstances = new Instance[batchSize];
+        double[][] batchPredictions = null;
         while (stream.hasMoreInstances()
                 && ((maxInstances < 0) || (instancesProcessed < maxInstances))
                 && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
-            Example trainInst = stream.nextInstance();
-            Example testInst = (Example) trainInst; //.copy();
-            //testInst.setClassMissing();
-            double[] prediction = learner.getVotesForInstance(testInst);
-            // Output prediction
-            if (outputPredictionFile != null) {
-                int trueClass = (int) ((Instance) trainInst.getData()).classValue();
-                outputPredictionResultStream.println(Utils.maxIndex(prediction) + "," + (
-                 ((Instance) testInst.getData()).classIsMissing() == true ? " ? " : trueClass));
+            // a block never crosses a sample point or the instance limit
+            long blockLimit = Math.min(batchSize, this.sampleFrequencyOption.getValue()
+                    - instancesProcessed % this.sampleFrequencyOption.getValue());
+            if (maxInstances >= 0) {
+                blockLimit = Math.min(blockLimit, maxInstances - instancesProcessed);
+            }
+            int blockSize = 0;
+            while (blockSize < blockLimit && stream.hasMoreInstances()) {
+                batch[blockSize] = stream.nextInstance();
+                batchInstances[blockSize] = (Instance) batch[blockSize].getData();
+                blockSize++;
+            }
+            if (batchLearner != null) {
+                batchPredictions = batchLearner.getVotesForInstances(batchInstances, blockSize);
             }
+            for (int i = 0; i < blockSize; i++) {
+                Example trainInst = batch[i];
+                Example testInst = (Example) trainInst; //.copy();
+                //testInst.setClassMissing();
+                double[] prediction = batchLearner != null ? batchPredictions[i]
+                        : learner.getVotesForInstance(testInst);
+                // Output prediction
+                if (outputPredictionFile != null) {
+                    int trueClass = (int) batchInstances[i].classValue();
+                    outputPredictionResultStream.println(Utils.maxIndex(prediction) + "," + (
+                     batchInstances[i].classIsMissing() == true ? " ? " : trueClass));
+                }
 
-            //evaluator.addClassificationAttempt(trueClass, prediction, testInst.weight());
-            evaluator.addResult(testInst, prediction);
-            learner.trainOnInstance(trainInst);
-            instancesProcessed++;
+                //evaluator.addClassificationAttempt(trueClass, prediction, testInst.weight());
+                evaluator.addResult(testInst, prediction);
+                if (batchLearner == null) {
+                    learner.trainOnInstance(trainInst);
+                }
+            }
+            if (batchLearner != null) {
+                batchLearner.trainOnInstances(batchInstances, blockSize);
+            }
+            long blockStart = instancesProcessed;
+            instancesProcessed += blockSize;
             if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
                     || stream.hasMoreInstances() == false) {
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
@@ -215,21 +256,20 @@ public class EvaluatePrequential extends MainTask {
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
-                learningCurve.insertEntry(new LearningEvaluation(
+                learningCurve.insertEntry(
                         new Measurement[]{
                             new Measurement(
                             "learning evaluation instances",
                             instancesProcessed),
                             new Measurement(
-                            "evaluation time ("
-                            + (preciseCPUTiming ? "cpu "
-                            : "") + "seconds)",
+                            evaluationTimeName,
                             time),
                             new Measurement(
                             "model cost (RAM-Hours)",
                             RAMHours)
                         },
-                        evaluator, learner));
+                        evaluator.getPerformanceMeasurements(),
+                        learner.getModelMeasurements());
 
                 if (immediateResultStream != null) {
                     if (firstDump) {
@@ -240,7 +280,8 @@ public class EvaluatePrequential extends MainTask {
                     immediateResultStream.flush();
                 }
             }
-            if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+            if (instancesProcessed / INSTANCES_BETWEEN_MONITOR_UPDATES
+                    != blockStart / INSTANCES_BETWEEN_MONITOR_UPDATES) {
                 if (monitor.taskShouldAbort()) {
                     return null;
                 }
@@ -31,6 +31,7 @@ import moa.evaluation.*;
 import moa.learners.Learner;
 import moa.options.ClassOption;
 import moa.streams.ExampleStream;
+import moa.streams.generators.InstancePool;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -123,6 +124,8 @@ public class EvaluatePrequentialCV extends MainTask {
         Learner[] learners = new Learner[this.ensembleSizeOption.getValue()];
         Learner baseLearner = (Learner) getPreparedClassOption(this.learnerOption);
         baseLearner.resetLearning();
+        // the learners train on copies of the instances
+        InstancePool.checkLearner(stream, null, 1);
 
         LearningPerformanceEvaluator[] evaluators = new LearningPerformanceEvaluator[this.ensembleSizeOption.getValue()];
         LearningPerformanceEvaluator baseEvaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
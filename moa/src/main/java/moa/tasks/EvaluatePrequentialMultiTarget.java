@@ -49,6 +49,7 @@ import moa.learners.Learner;
 import moa.options.ClassOption;
 import moa.streams.ExampleStream;
 import moa.streams.MultiTargetInstanceStream;
+import moa.streams.generators.InstancePool;
 
 /**
  * Task for evaluating a classifier on a stream by testing then training with each example in sequence.
@@ -119,6 +120,7 @@ public class EvaluatePrequentialMultiTarget extends MultiTargetMainTask {
     protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
         Learner learner = (Learner) getPreparedClassOption(this.learnerOption);
         ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        InstancePool.checkLearner(stream, learner, 1);
         LearningPerformanceEvaluator evaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
         LearningCurve learningCurve = new LearningCurve(
                 "learning evaluation instances");
@@ -43,6 +43,7 @@ import com.github.javacliparser.IntOption;
 
 import moa.classifiers.Regressor;
 import moa.streams.ExampleStream;
+import moa.streams.generators.InstancePool;
 
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.InstanceData;
@@ -119,6 +120,7 @@ public class EvaluatePrequentialRegression extends RegressionMainTask {
     protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
         Learner learner = (Learner) getPreparedClassOption(this.learnerOption);
         ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        InstancePool.checkLearner(stream, learner, 1);
         LearningPerformanceEvaluator evaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
         LearningCurve learningCurve = new LearningCurve(
                 "learning evaluation instances");
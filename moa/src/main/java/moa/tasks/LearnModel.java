@@ -26,6 +26,7 @@ import moa.options.ClassOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
 import moa.streams.InstanceStream;
+import moa.streams.generators.InstancePool;
 
 /**
  * Task for learning a model without any evaluation.
@@ -82,6 +83,7 @@ public class LearnModel extends MainTask {
     public Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
         Learner learner = (Learner) getPreparedClassOption(this.learnerOption);
         ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        InstancePool.checkLearner(stream, learner, 1);
         learner.setModelContext(stream.getHeader());
         int numPasses = this.numPassesOption.getValue();
         int maxInstances = this.maxInstancesOption.getValue();
@@ -28,6 +28,7 @@ import moa.options.ClassOption;
 import moa.streams.ExampleStream;
 import moa.streams.InstanceStream;
 import moa.streams.MultiTargetInstanceStream;
+import moa.streams.generators.InstancePool;
 
 /**
  * Task for learning a model without any evaluation.
@@ -84,6 +85,7 @@ public class LearnModelMultiTarget extends MultiTargetMainTask {
     public Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
         Learner learner = (Learner) getPreparedClassOption(this.learnerOption);
         ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        InstancePool.checkLearner(stream, learner, 1);
         learner.setModelContext(stream.getHeader());
         int numPasses = this.numPassesOption.getValue();
         int maxInstances = this.maxInstancesOption.getValue();
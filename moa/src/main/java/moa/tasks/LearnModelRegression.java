@@ -27,6 +27,7 @@ import com.github.javacliparser.IntOption;
 import moa.classifiers.Regressor;
 import moa.streams.ExampleStream;
 import moa.streams.InstanceStream;
+import moa.streams.generators.InstancePool;
 
 /**
  * Task for learning a model without any evaluation.
@@ -83,6 +84,7 @@ public class LearnModelRegression extends RegressionMainTask {
     public Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
         Learner learner = (Learner) getPreparedClassOption(this.learnerOption);
         ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        InstancePool.checkLearner(stream, learner, 1);
         learner.setModelContext(stream.getHeader());
         int numPasses = this.numPassesOption.getValue();
         int maxInstances = this.maxInstancesOption.getValue();
@@ -0,0 +1,118 @@
+/*
+ *    MeasureADWINSpeed.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.Random;
+
+import com.github.javacliparser.FloatOption;
+import com.github.javacliparser.IntOption;
+import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.ArrayADWIN;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningEvaluation;
+
+/**
+ * Task for measuring the speed of {@link ArrayADWIN} against {@link ADWIN}.
+ *
+ * <p>Both are fed the same stream of errors, a Bernoulli variable whose mean
+ * changes at regular intervals, and are checked to detect the same changes
+ * with the same estimations.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureADWINSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the speed of the array based ADWIN against ADWIN.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numInputsOption = new IntOption("numInputs", 'n',
+            "Number of values to input.", 10000000, 1, Integer.MAX_VALUE);
+
+    public IntOption changeIntervalOption = new IntOption("changeInterval", 'c',
+            "Number of values between changes of the mean.", 100000, 1, Integer.MAX_VALUE);
+
+    public FloatOption deltaAdwinOption = new FloatOption("deltaAdwin", 'a',
+            "Delta of Adwin change detection", 0.002, 0.0, 1.0);
+
+    public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
+            "Seed for random generation of the values.", 1);
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        int numInputs = this.numInputsOption.getValue();
+        double[] inputs = new double[numInputs];
+        Random random = new Random(this.randomSeedOption.getValue());
+        double mean = 0.2;
+        for (int i = 0; i < numInputs; i++) {
+            if (i % this.changeIntervalOption.getValue() == 0) {
+                mean = 0.05 + 0.5 * random.nextDouble();
+            }
+            inputs[i] = random.nextDouble() < mean ? 1 : 0;
+        }
+        double delta = this.deltaAdwinOption.getValue();
+
+        monitor.setCurrentActivity("Measuring ADWIN...", -1.0);
+        boolean[] changes = new boolean[numInputs];
+        double[] estimations = new double[numInputs];
+        ADWIN adwin = new ADWIN(delta);
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int i = 0; i < numInputs; i++) {
+            changes[i] = adwin.setInput(inputs[i]);
+            estimations[i] = adwin.getEstimation();
+        }
+        double adwinTime = TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Measuring ArrayADWIN...", -1.0);
+        ADWIN arrayAdwin = new ArrayADWIN(delta);
+        int numDifferences = 0;
+        startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int i = 0; i < numInputs; i++) {
+            boolean change = arrayAdwin.setInput(inputs[i]);
+            if (change != changes[i] || arrayAdwin.getEstimation() != estimations[i]) {
+                numDifferences++;
+            }
+        }
+        double arrayAdwinTime = TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+        return new LearningEvaluation(
+                new Measurement[]{
+                    new Measurement("Number of inputs", numInputs),
+                    new Measurement("Number of detections", adwin.getNumberDetections()),
+                    new Measurement("ADWIN time", adwinTime),
+                    new Measurement("ArrayADWIN time", arrayAdwinTime),
+                    new Measurement("Speedup", adwinTime / arrayAdwinTime),
+                    new Measurement("Number of different outputs", numDifferences)});
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+}
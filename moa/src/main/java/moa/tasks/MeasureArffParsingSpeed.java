@@ -0,0 +1,108 @@
+/*
+ *    MeasureArffParsingSpeed.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.evaluation.LearningEvaluation;
+import moa.streams.ArffFileStream;
+
+/**
+ * Task for comparing the speed of the StreamTokenizer based ARFF parser with
+ * the byte based one. The file is read several times with each parser,
+ * alternating them so both see the same file cache, and the parsed values are
+ * compared through a checksum.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureArffParsingSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Compares the speed of the ARFF parsers.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public FileOption arffFileOption = new FileOption("arffFile", 'f',
+            "ARFF file to parse.", null, "arff", false);
+
+    public IntOption classIndexOption = new IntOption("classIndex", 'c',
+            "Class index of data. 0 for none or -1 for last attribute in file.",
+            -1, -1, Integer.MAX_VALUE);
+
+    public IntOption repetitionsOption = new IntOption("repetitions", 'r',
+            "Number of times the file is parsed with each parser.", 3, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        long numInstances = 0;
+        double[] times = new double[2];
+        double[] checksums = new double[2];
+        for (int r = 0; r < this.repetitionsOption.getValue(); r++) {
+            for (int parser = 0; parser < 2; parser++) {
+                monitor.setCurrentActivity("Parsing with the "
+                        + (parser == 0 ? "tokenizer" : "fast") + " parser...", -1.0);
+                ArffFileStream stream = new ArffFileStream();
+                stream.arffFileOption.setValue(this.arffFileOption.getValue());
+                stream.classIndexOption.setValue(this.classIndexOption.getValue());
+                stream.fastParserOption.setValue(parser == 1);
+                long startTime = System.nanoTime();
+                stream.prepareForUse();
+                numInstances = 0;
+                double checksum = 0.0;
+                while (stream.hasMoreInstances()) {
+                    Instance inst = stream.nextInstance().getData();
+                    for (int i = 0; i < inst.numValues(); i++) {
+                        double value = inst.valueSparse(i);
+                        if (!Double.isNaN(value)) {
+                            checksum += value;
+                        }
+                    }
+                    numInstances++;
+                }
+                times[parser] += (System.nanoTime() - startTime) / 1000000000.0;
+                checksums[parser] = checksum;
+                if (monitor.taskShouldAbort()) {
+                    return null;
+                }
+            }
+        }
+        return new LearningEvaluation(
+                new Measurement[]{
+                    new Measurement("Number of instances", numInstances),
+                    new Measurement("Tokenizer parser time", times[0]),
+                    new Measurement("Fast parser time", times[1]),
+                    new Measurement("Tokenizer parser instances per second",
+                    numInstances * this.repetitionsOption.getValue() / times[0]),
+                    new Measurement("Fast parser instances per second",
+                    numInstances * this.repetitionsOption.getValue() / times[1]),
+                    new Measurement("Speedup", times[0] / times[1]),
+                    new Measurement("Checksums equal", checksums[0] == checksums[1] ? 1 : 0)});
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+}
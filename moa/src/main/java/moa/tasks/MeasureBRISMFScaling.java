@@ -0,0 +1,174 @@
+/*
+ *    MeasureBRISMFScaling.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.Random;
+
+import com.github.javacliparser.IntOption;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.recommender.rc.data.RecommenderData;
+import moa.recommender.rc.data.impl.PrimitiveRecommenderData;
+import moa.recommender.rc.predictor.impl.BRISMFPredictor;
+
+/**
+ * Task for measuring the throughput of the batch training of BRISMF as the
+ * number of cores grows.
+ *
+ * <p>The ratings are generated once from random user and item factors, and
+ * the predictor is trained from scratch on them for every number of cores
+ * 1, 2, 4, ... up to the maximum. The training stops when the error on its
+ * held-out ratings stops decreasing, so the throughput counts every sweep
+ * over the ratings, and the error is measured on other ratings drawn from
+ * the same factors. Wall clock time is used, as the work is spread over
+ * several threads.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureBRISMFScaling extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the throughput of the batch training of BRISMF from 1 to N cores.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numUsersOption = new IntOption("numUsers", 'u',
+            "Number of users.", 20000, 1, Integer.MAX_VALUE);
+
+    public IntOption numItemsOption = new IntOption("numItems", 'm',
+            "Number of items.", 5000, 1, Integer.MAX_VALUE);
+
+    public IntOption numRatingsOption = new IntOption("numRatings", 'n',
+            "Number of ratings to generate.", 1000000, 1, Integer.MAX_VALUE);
+
+    public IntOption numFactorsOption = new IntOption("numFactors", 'k',
+            "Number of hidden factors of the generated ratings.", 5, 1, Integer.MAX_VALUE);
+
+    public IntOption featuresOption = new IntOption("features", 'f',
+            "How many features to use.", 20, 2, Integer.MAX_VALUE);
+
+    public IntOption maxCoresOption = new IntOption("maxCores", 'c',
+            "Maximum number of cores to measure (0 = all available).",
+            0, 0, Integer.MAX_VALUE);
+
+    public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
+            "Seed for the random generation of the ratings.", 1);
+
+    protected float[][] userFactors;
+
+    protected float[][] itemFactors;
+
+    /** Rates an item from the dot product of the factors, between 1 and 5. */
+    protected double rating(int user, int item) {
+        double dot = 0;
+        for (int i = 0; i < userFactors[user].length; i++) {
+            dot += userFactors[user][i] * itemFactors[item][i];
+        }
+        return Math.max(1, Math.min(5, Math.round(3 + dot)));
+    }
+
+    protected static float[][] newFactors(Random random, int n, int numFactors) {
+        float[][] factors = new float[n][numFactors];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < numFactors; j++) {
+                factors[i][j] = (float) (random.nextGaussian() / Math.sqrt(numFactors));
+            }
+        }
+        return factors;
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        int numUsers = this.numUsersOption.getValue();
+        int numItems = this.numItemsOption.getValue();
+        int maxCores = this.maxCoresOption.getValue() < 1
+                ? Runtime.getRuntime().availableProcessors()
+                : this.maxCoresOption.getValue();
+
+        monitor.setCurrentActivity("Generating ratings...", -1.0);
+        Random random = new Random(this.randomSeedOption.getValue());
+        this.userFactors = newFactors(random, numUsers, this.numFactorsOption.getValue());
+        this.itemFactors = newFactors(random, numItems, this.numFactorsOption.getValue());
+        RecommenderData data = new PrimitiveRecommenderData();
+        for (int i = 0; i < this.numRatingsOption.getValue(); i++) {
+            int user = random.nextInt(numUsers);
+            int item = random.nextInt(numItems);
+            data.setRating(user, item, rating(user, item));
+        }
+        data.disableUpdates(true);
+        int numRatings = data.getNumRatings();
+        int numTest = Math.min(100000, numRatings);
+        int[] testUsers = new int[numTest];
+        int[] testItems = new int[numTest];
+        for (int i = 0; i < numTest; i++) {
+            testUsers[i] = random.nextInt(numUsers);
+            testItems[i] = random.nextInt(numItems);
+        }
+
+        LearningCurve learningCurve = new LearningCurve("cores");
+        double sequentialSweepSeconds = 0.0;
+        for (int cores = 1; ; cores = Math.min(2 * cores, maxCores)) {
+            monitor.setCurrentActivity("Measuring " + cores + " cores...",
+                    (double) cores / maxCores);
+            BRISMFPredictor predictor = new BRISMFPredictor(
+                    this.featuresOption.getValue(), data, false);
+            predictor.setNumThreads(cores);
+            long startTime = System.nanoTime();
+            predictor.train();
+            double seconds = (System.nanoTime() - startTime) / 1000000000.0;
+            int sweeps = predictor.getNumSweeps();
+            if (cores == 1) {
+                sequentialSweepSeconds = seconds / sweeps;
+            }
+            double sum = 0;
+            for (int i = 0; i < numTest; i++) {
+                double error = predictor.predictRating(testUsers[i], testItems[i])
+                        - rating(testUsers[i], testItems[i]);
+                sum += error * error;
+            }
+            learningCurve.insertEntry(new LearningEvaluation(
+                    new Measurement[]{
+                        new Measurement("cores", cores),
+                        new Measurement("time elapsed (wall seconds)", seconds),
+                        new Measurement("sweeps", sweeps),
+                        new Measurement("ratings per second", (double) sweeps * numRatings / seconds),
+                        new Measurement("speedup per sweep", sequentialSweepSeconds * sweeps / seconds),
+                        new Measurement("RMSE", Math.sqrt(sum / numTest))}));
+            if (monitor.resultPreviewRequested()) {
+                monitor.setLatestResultPreview(learningCurve.copy());
+            }
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+            if (cores >= maxCores) {
+                break;
+            }
+        }
+        return learningCurve;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *    MeasureCopySpeed.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.javacliparser.IntOption;
+import moa.classifiers.Classifier;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.streams.ExampleStream;
+import moa.streams.generators.InstancePool;
+
+/**
+ * Task for measuring the time taken to copy a learner as its model grows,
+ * with {@link moa.MOAObject#copy()} against a copy made by serialization
+ * only.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureCopySpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the time taken to copy a learner as its model grows.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Learner to copy.", Classifier.class, "trees.HoeffdingTree");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Number of instances to learn from.", 100000, 1, Integer.MAX_VALUE);
+
+    public IntOption sampleFrequencyOption = new IntOption("sampleFrequency",
+            'f', "How many instances between copy measurements.", 10000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption numCopiesOption = new IntOption("numCopies", 'c',
+            "Number of copies made by every measurement.", 10, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        Classifier learner = (Classifier) getPreparedClassOption(this.learnerOption);
+        ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        InstancePool.checkLearner(stream, learner, 1);
+        learner.setModelContext(stream.getHeader());
+        LearningCurve learningCurve = new LearningCurve(
+                "learning evaluation instances");
+        int numCopies = this.numCopiesOption.getValue();
+        long instancesProcessed = 0;
+        monitor.setCurrentActivity("Measuring copy speed...", -1.0);
+        while (instancesProcessed < this.instanceLimitOption.getValue()
+                && stream.hasMoreInstances()) {
+            learner.trainOnInstance(stream.nextInstance());
+            instancesProcessed++;
+            if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
+                    || instancesProcessed == this.instanceLimitOption.getValue()) {
+                long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+                for (int i = 0; i < numCopies; i++) {
+                    learner.copy();
+                }
+                double copyTime = TimingUtils.nanoTimeToSeconds(
+                        TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime) / numCopies;
+                startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+                try {
+                    for (int i = 0; i < numCopies; i++) {
+                        serializedCopy(learner);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to serialize learner", e);
+                }
+                double serializationTime = TimingUtils.nanoTimeToSeconds(
+                        TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime) / numCopies;
+                List<Measurement> measurements = new ArrayList<Measurement>();
+                measurements.add(new Measurement("learning evaluation instances",
+                        instancesProcessed));
+                measurements.add(new Measurement("copy time (cpu seconds)", copyTime));
+                measurements.add(new Measurement("serialization copy time (cpu seconds)",
+                        serializationTime));
+                measurements.add(new Measurement("speedup", serializationTime / copyTime));
+                measurements.addAll(Arrays.asList(learner.getModelMeasurements()));
+                learningCurve.insertEntry(new LearningEvaluation(
+                        measurements.toArray(new Measurement[measurements.size()])));
+                if (monitor.taskShouldAbort()) {
+                    return null;
+                }
+                if (monitor.resultPreviewRequested()) {
+                    monitor.setLatestResultPreview(learningCurve.copy());
+                }
+            }
+        }
+        return learningCurve;
+    }
+
+    /**
+     * Copies an object by serialization only, as copies were made before
+     * {@link moa.core.DirectCopyable}.
+     */
+    protected static Object serializedCopy(Serializable obj) throws Exception {
+        ByteArrayOutputStream baoStream = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(baoStream);
+        out.writeObject(obj);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+                baoStream.toByteArray()));
+        Object copy = in.readObject();
+        in.close();
+        return copy;
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *    MeasureDistanceSpeed.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import moa.classifiers.lazy.neighboursearch.EuclideanDistance;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningEvaluation;
+
+/**
+ * Task for measuring the speed of the distances computed from normalized
+ * values with {@link EuclideanDistance#squaredDistance} against the ones
+ * computed by the distance function from the instances.
+ *
+ * <p>Every query computes its distances to all instances, as a linear nearest
+ * neighbour search does, and both ways are checked to give the same
+ * distances.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureDistanceSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the speed of distances computed from normalized values.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numAttributesOption = new IntOption("numAttributes", 'a',
+            "Number of numeric attributes.", 100, 1, Integer.MAX_VALUE);
+
+    public IntOption numInstancesOption = new IntOption("numInstances", 'n',
+            "Number of instances to compute distances to.", 10000, 1, Integer.MAX_VALUE);
+
+    public IntOption numQueriesOption = new IntOption("numQueries", 'q',
+            "Number of instances to compute distances from.", 200, 1, Integer.MAX_VALUE);
+
+    public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
+            "Seed for random generation of the values.", 1);
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        int numAttributes = this.numAttributesOption.getValue();
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        for (int i = 0; i < numAttributes; i++) {
+            attributes.add(new Attribute("att" + (i + 1)));
+        }
+        List<String> classValues = new ArrayList<String>();
+        classValues.add("class1");
+        classValues.add("class2");
+        attributes.add(new Attribute("class", classValues));
+        int numInstances = this.numInstancesOption.getValue();
+        Instances instances = new Instances("data", attributes, numInstances);
+        instances.setClassIndex(numAttributes);
+        Random random = new Random(this.randomSeedOption.getValue());
+        for (int i = 0; i < numInstances; i++) {
+            instances.add(randomInstance(instances, random));
+        }
+        int numQueries = this.numQueriesOption.getValue();
+        Instance[] queries = new Instance[numQueries];
+        for (int i = 0; i < numQueries; i++) {
+            queries[i] = randomInstance(instances, random);
+        }
+        EuclideanDistance distance = new EuclideanDistance(instances);
+
+        monitor.setCurrentActivity("Measuring distance function...", -1.0);
+        double[] distances = new double[numQueries * numInstances];
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int q = 0; q < numQueries; q++) {
+            for (int i = 0; i < numInstances; i++) {
+                distances[q * numInstances + i] = distance.distance(queries[q],
+                        instances.instance(i), Double.POSITIVE_INFINITY);
+            }
+        }
+        double functionTime = TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Measuring normalized values...", -1.0);
+        int numDifferences = 0;
+        int length = instances.numAttributes();
+        startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        double[] values = distance.normalizeValues(instances);
+        double[] target = new double[length];
+        for (int q = 0; q < numQueries; q++) {
+            distance.normalizeValues(queries[q], target, 0);
+            for (int i = 0; i < numInstances; i++) {
+                double d = EuclideanDistance.squaredDistance(target, 0, values,
+                        i * length, length, Double.POSITIVE_INFINITY);
+                if (d != distances[q * numInstances + i]) {
+                    numDifferences++;
+                }
+            }
+        }
+        double normalizedTime = TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+        return new LearningEvaluation(
+                new Measurement[]{
+                    new Measurement("Number of attributes", numAttributes),
+                    new Measurement("Number of distances", (double) numQueries * numInstances),
+                    new Measurement("Distance function time", functionTime),
+                    new Measurement("Normalized values time", normalizedTime),
+                    new Measurement("Speedup", functionTime / normalizedTime),
+                    new Measurement("Number of different distances", numDifferences)});
+    }
+
+    protected static Instance randomInstance(Instances header, Random random) {
+        Instance inst = new DenseInstance(header.numAttributes());
+        inst.setDataset(header);
+        for (int i = 0; i < header.numAttributes() - 1; i++) {
+            inst.setValue(i, random.nextDouble());
+        }
+        inst.setValue(header.numAttributes() - 1, random.nextInt(2));
+        return inst;
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+}
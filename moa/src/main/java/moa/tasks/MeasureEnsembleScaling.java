@@ -0,0 +1,136 @@
+/*
+ *    MeasureEnsembleScaling.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import com.github.javacliparser.IntOption;
+import com.github.javacliparser.Option;
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.Classifier;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.streams.ExampleStream;
+import moa.streams.generators.InstancePool;
+
+/**
+ * Task for measuring the throughput of a parallel ensemble as the number of
+ * cores grows.
+ *
+ * <p>The instances are generated once and replayed test-then-train for every
+ * number of cores 1, 2, 4, ... up to the maximum, setting the numCores option
+ * of the learner. Wall clock time is used, as the work is spread over several
+ * threads.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureEnsembleScaling extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the throughput of a parallel ensemble from 1 to N cores.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Ensemble to measure, it must have a numCores option.", Classifier.class,
+            "meta.OzaBag -s 32");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Number of instances to test/train on for every number of cores.",
+            100000, 1, Integer.MAX_VALUE);
+
+    public IntOption maxCoresOption = new IntOption("maxCores", 'c',
+            "Maximum number of cores to measure (0 = all available).",
+            0, 0, Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        Classifier learner = (Classifier) getPreparedClassOption(this.learnerOption);
+        ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        InstancePool.checkNotReused(stream, "cached for every number of cores");
+        Option coresOption = learner.getOptions().getOption("numCores");
+        if (coresOption == null) {
+            throw new IllegalArgumentException(
+                    "Learner has no numCores option: " + learner.getClass().getName());
+        }
+        int maxCores = this.maxCoresOption.getValue() < 1
+                ? Runtime.getRuntime().availableProcessors()
+                : this.maxCoresOption.getValue();
+
+        monitor.setCurrentActivity("Generating instances...", -1.0);
+        Instance[] instances = new Instance[this.instanceLimitOption.getValue()];
+        int numInstances = 0;
+        while (numInstances < instances.length && stream.hasMoreInstances()) {
+            instances[numInstances++] = (Instance) stream.nextInstance().getData();
+        }
+
+        LearningCurve learningCurve = new LearningCurve("cores");
+        double sequentialSeconds = 0.0;
+        for (int cores = 1; ; cores = Math.min(2 * cores, maxCores)) {
+            monitor.setCurrentActivity("Measuring " + cores + " cores...",
+                    (double) cores / maxCores);
+            coresOption.setValueViaCLIString(Integer.toString(cores));
+            Classifier ensemble = learner.copy();
+            ensemble.setModelContext(stream.getHeader());
+            ensemble.resetLearning();
+            long correct = 0;
+            long startTime = System.nanoTime();
+            for (int i = 0; i < numInstances; i++) {
+                if (ensemble.correctlyClassifies(instances[i])) {
+                    correct++;
+                }
+                ensemble.trainOnInstance(instances[i]);
+                if (i % INSTANCES_BETWEEN_MONITOR_UPDATES == 0 && monitor.taskShouldAbort()) {
+                    return null;
+                }
+            }
+            double seconds = (System.nanoTime() - startTime) / 1000000000.0;
+            if (cores == 1) {
+                sequentialSeconds = seconds;
+            }
+            learningCurve.insertEntry(new LearningEvaluation(
+                    new Measurement[]{
+                        new Measurement("cores", cores),
+                        new Measurement("time elapsed (wall seconds)", seconds),
+                        new Measurement("instances per second", numInstances / seconds),
+                        new Measurement("speedup", sequentialSeconds / seconds),
+                        new Measurement("classifications correct (percent)",
+                        100.0 * correct / numInstances)}));
+            if (monitor.resultPreviewRequested()) {
+                monitor.setLatestResultPreview(learningCurve.copy());
+            }
+            if (cores >= maxCores) {
+                break;
+            }
+        }
+        return learningCurve;
+    }
+}
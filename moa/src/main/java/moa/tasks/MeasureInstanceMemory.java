@@ -0,0 +1,155 @@
+/*
+ *    MeasureInstanceMemory.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.CompactDenseInstanceData;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.streams.ExampleStream;
+import moa.streams.generators.InstancePool;
+
+/**
+ * Task for measuring the memory taken by a cache of instances, with the
+ * instances of the stream and with {@link CompactDenseInstanceData}. The
+ * memory is the growth of the heap after garbage collection, so the heap
+ * should be large enough for both caches, and no other task should run at
+ * the same time. The two caches are then scanned in turn several times, and
+ * the fastest scan of each is kept, so that both are measured once the code
+ * reading the values is compiled for both kinds of instances.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureInstanceMemory extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the memory taken by a cache of instances, with and without compact instances.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to cache.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Number of instances to cache.", 1000000, 1, Integer.MAX_VALUE);
+
+    public IntOption numScansOption = new IntOption("numScans", 'n',
+            "Number of scans of each cache.", 10, 1, Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        InstancePool.checkNotReused(stream, "cached");
+        int instanceLimit = this.instanceLimitOption.getValue();
+        Instances[] caches = new Instances[2];
+        long[] memory = new long[2];
+        double[] cachingTime = new double[2];
+        for (int compact = 0; compact < 2; compact++) {
+            monitor.setCurrentActivity(compact == 0 ? "Caching instances..."
+                    : "Caching compact instances...", compact / 4.0);
+            stream.restart();
+            CompactDenseInstanceData.Layout layout = compact == 1
+                    ? new CompactDenseInstanceData.Layout(stream.getHeader()) : null;
+            Instances cache = new Instances(stream.getHeader(), instanceLimit);
+            long memoryBefore = usedMemory();
+            long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            while (cache.numInstances() < instanceLimit && stream.hasMoreInstances()) {
+                Instance inst = (Instance) stream.nextInstance().getData();
+                cache.add(layout != null ? layout.compact(inst) : inst);
+                if (cache.numInstances() % INSTANCES_BETWEEN_MONITOR_UPDATES == 0
+                        && monitor.taskShouldAbort()) {
+                    return null;
+                }
+            }
+            cachingTime[compact] = TimingUtils.nanoTimeToSeconds(
+                    TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+            memory[compact] = usedMemory() - memoryBefore;
+            caches[compact] = cache;
+        }
+        int numScans = this.numScansOption.getValue();
+        double[] scanningTime = {Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] sumOfValues = new double[2];
+        for (int scan = 0; scan < numScans; scan++) {
+            monitor.setCurrentActivity("Scanning instances...", 0.5 + scan / (2.0 * numScans));
+            for (int compact = 0; compact < 2; compact++) {
+                long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+                sumOfValues[compact] = sumOfValues(caches[compact]);
+                scanningTime[compact] = Math.min(scanningTime[compact],
+                        TimingUtils.nanoTimeToSeconds(
+                        TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime));
+            }
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+        }
+        LearningCurve learningCurve = new LearningCurve("compact");
+        for (int compact = 0; compact < 2; compact++) {
+            int numInstances = caches[compact].numInstances();
+            learningCurve.insertEntry(new LearningEvaluation(
+                    new Measurement[]{
+                        new Measurement("compact", compact),
+                        new Measurement("instances", numInstances),
+                        new Measurement("bytes per instance", (double) memory[compact] / numInstances),
+                        new Measurement("caching time (cpu seconds)", cachingTime[compact]),
+                        new Measurement("fastest scanning time (cpu seconds)", scanningTime[compact]),
+                        new Measurement("sum of values", sumOfValues[compact])}));
+        }
+        return learningCurve;
+    }
+
+    /**
+     * Sums all the values of the instances of a cache.
+     */
+    protected static double sumOfValues(Instances cache) {
+        double sum = 0.0;
+        for (int i = 0; i < cache.numInstances(); i++) {
+            Instance inst = cache.instance(i);
+            for (int j = 0; j < inst.numValues(); j++) {
+                sum += inst.valueSparse(j);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Gets the memory used by the heap after garbage collection.
+     */
+    protected static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
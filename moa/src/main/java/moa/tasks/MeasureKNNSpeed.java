@@ -0,0 +1,119 @@
+/*
+ *    MeasureKNNSpeed.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.Classifier;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.core.Utils;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.streams.ExampleStream;
+
+/**
+ * Task for measuring the speed of the predictions of a nearest neighbour
+ * learner over its sliding window.
+ *
+ * <p>The instances are tested then trained on, and the time taken by
+ * getVotesForInstance is measured apart from the time taken by training, so
+ * that all the work of a prediction is measured, including the one the
+ * search does on the window before computing the distances.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureKNNSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the speed of the predictions of a nearest neighbour learner.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Nearest neighbour learner to measure.", Classifier.class, "lazy.kNN");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", ExampleStream.class,
+            "generators.RandomRBFGenerator");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Number of instances to test/train on.", 20000, 1, Integer.MAX_VALUE);
+
+    public IntOption sampleFrequencyOption = new IntOption("sampleFrequency",
+            'f', "How many instances between samples of the speed.", 5000, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        Classifier learner = (Classifier) getPreparedClassOption(this.learnerOption);
+        ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        learner.setModelContext(stream.getHeader());
+        int instanceLimit = this.instanceLimitOption.getValue();
+        LearningCurve learningCurve = new LearningCurve("learning evaluation instances");
+        long predictionTime = 0;
+        long trainingTime = 0;
+        long numPredictions = 0;
+        long numCorrect = 0;
+        while (numPredictions < instanceLimit && stream.hasMoreInstances()) {
+            Instance inst = (Instance) stream.nextInstance().getData();
+            long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            double[] votes = learner.getVotesForInstance(inst);
+            predictionTime += TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime;
+            if (Utils.maxIndex(votes) == (int) inst.classValue()) {
+                numCorrect++;
+            }
+            startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            learner.trainOnInstance(inst);
+            trainingTime += TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime;
+            numPredictions++;
+            if (numPredictions % this.sampleFrequencyOption.getValue() == 0
+                    || numPredictions == instanceLimit) {
+                double predictionSeconds = TimingUtils.nanoTimeToSeconds(predictionTime);
+                learningCurve.insertEntry(new LearningEvaluation(
+                        new Measurement[]{
+                            new Measurement("learning evaluation instances", numPredictions),
+                            new Measurement("prediction time (cpu seconds)", predictionSeconds),
+                            new Measurement("predictions per second", numPredictions / predictionSeconds),
+                            new Measurement("training time (cpu seconds)",
+                            TimingUtils.nanoTimeToSeconds(trainingTime)),
+                            new Measurement("classifications correct (percent)",
+                            100.0 * numCorrect / numPredictions)}));
+                if (monitor.resultPreviewRequested()) {
+                    monitor.setLatestResultPreview(learningCurve.copy());
+                }
+            }
+            if (numPredictions % INSTANCES_BETWEEN_MONITOR_UPDATES == 0
+                    && monitor.taskShouldAbort()) {
+                return null;
+            }
+        }
+        return learningCurve;
+    }
+}
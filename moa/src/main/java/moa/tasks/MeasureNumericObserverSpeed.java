@@ -0,0 +1,151 @@
+/*
+ *    MeasureNumericObserverSpeed.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.attributeclassobservers.NumericAttributeClassObserver;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.SizeOf;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.streams.ExampleStream;
+
+/**
+ * Task for measuring the memory and split evaluation time of the numeric
+ * attribute observers of a leaf, as the leaf observes more instances.
+ *
+ * <p>The leaf has one observer for every numeric attribute of the stream.
+ * The bytes of an observer are its own estimate if it can estimate its
+ * size, and else are measured with the agent, so they are 0 without it.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureNumericObserverSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the memory per leaf and split evaluation time of a numeric attribute observer.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption observerOption = new ClassOption("observer", 'o',
+            "Numeric attribute observer to measure.", NumericAttributeClassObserver.class,
+            "GaussianNumericAttributeClassObserver");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to observe.", ExampleStream.class,
+            "generators.RandomRBFGenerator");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Number of instances observed by the leaf.", 100000, 1, Integer.MAX_VALUE);
+
+    public IntOption sampleFrequencyOption = new IntOption("sampleFrequency",
+            'f', "How many instances between measurements.", 10000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption numEvaluationsOption = new IntOption("numEvaluations", 'e',
+            "Number of times the splits are evaluated by every measurement.", 10, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        NumericAttributeClassObserver observer = (NumericAttributeClassObserver) getPreparedClassOption(this.observerOption);
+        ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        InstancesHeader header = stream.getHeader();
+        NumericAttributeClassObserver[] observers = new NumericAttributeClassObserver[header.numAttributes()];
+        for (int i = 0; i < observers.length; i++) {
+            if (i != header.classIndex() && header.attribute(i).isNumeric()) {
+                observers[i] = (NumericAttributeClassObserver) observer.copy();
+            }
+        }
+        double[] classDistribution = new double[header.numClasses()];
+        SplitCriterion criterion = new InfoGainSplitCriterion();
+        LearningCurve learningCurve = new LearningCurve("instances observed");
+        int numEvaluations = this.numEvaluationsOption.getValue();
+        long observationTime = 0;
+        long instancesObserved = 0;
+        monitor.setCurrentActivity("Measuring numeric observer...", -1.0);
+        while (instancesObserved < this.instanceLimitOption.getValue()
+                && stream.hasMoreInstances()) {
+            Instance inst = (Instance) stream.nextInstance().getData();
+            int classValue = (int) inst.classValue();
+            long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            classDistribution[classValue] += inst.weight();
+            for (int i = 0; i < observers.length; i++) {
+                if (observers[i] != null) {
+                    observers[i].observeAttributeClass(inst.value(i), classValue, inst.weight());
+                }
+            }
+            observationTime += TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime;
+            instancesObserved++;
+            if (instancesObserved % this.sampleFrequencyOption.getValue() == 0
+                    || instancesObserved == this.instanceLimitOption.getValue()) {
+                long bytes = 0;
+                for (NumericAttributeClassObserver obs : observers) {
+                    bytes += SizeOf.estimateFullSizeOf(obs);
+                }
+                double bestMerit = Double.NEGATIVE_INFINITY;
+                startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+                for (int n = 0; n < numEvaluations; n++) {
+                    for (int i = 0; i < observers.length; i++) {
+                        if (observers[i] != null) {
+                            AttributeSplitSuggestion suggestion = observers[i].getBestEvaluatedSplitSuggestion(
+                                    criterion, classDistribution, i, true);
+                            if (suggestion != null && suggestion.merit > bestMerit) {
+                                bestMerit = suggestion.merit;
+                            }
+                        }
+                    }
+                }
+                double evaluationTime = TimingUtils.nanoTimeToSeconds(
+                        TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime) / numEvaluations;
+                learningCurve.insertEntry(new LearningEvaluation(
+                        new Measurement[]{
+                            new Measurement("instances observed", instancesObserved),
+                            new Measurement("bytes per leaf", bytes),
+                            new Measurement("observation time (cpu seconds)",
+                            TimingUtils.nanoTimeToSeconds(observationTime)),
+                            new Measurement("split evaluation time (cpu seconds)", evaluationTime),
+                            new Measurement("best split merit", bestMerit)}));
+                if (monitor.taskShouldAbort()) {
+                    return null;
+                }
+                if (monitor.resultPreviewRequested()) {
+                    monitor.setLatestResultPreview(learningCurve.copy());
+                }
+            }
+        }
+        return learningCurve;
+    }
+}
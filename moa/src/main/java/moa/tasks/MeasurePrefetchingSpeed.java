@@ -0,0 +1,129 @@
+/*
+ *    MeasurePrefetchingSpeed.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import moa.core.Example;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.evaluation.LearningEvaluation;
+import moa.learners.Learner;
+import moa.options.ClassOption;
+import com.github.javacliparser.IntOption;
+import moa.streams.ExampleStream;
+import moa.streams.generators.InstancePool;
+import moa.streams.PrefetchingStream;
+
+/**
+ * Task for measuring how much of the reading time of a stream is hidden by
+ * reading it ahead on a background thread while a learner trains.
+ *
+ * <p>The stream is first read and learned from on a single thread, then
+ * restarted and read through a {@link PrefetchingStream}. Wall clock time is
+ * used, as the work is spread over two threads.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasurePrefetchingSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the speed of a stream read ahead while training a learner.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to measure, it must be restartable.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Learner to train while reading.", Learner.class,
+            "moa.classifiers.bayes.NaiveBayes");
+
+    public IntOption generateSizeOption = new IntOption("generateSize", 'g',
+            "Number of examples.", 1000000, 0, Integer.MAX_VALUE);
+
+    public IntOption bufferSizeOption = new IntOption("bufferSize", 'b',
+            "Maximum number of instances read ahead.", 1000, 1, Integer.MAX_VALUE);
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        Learner learner = (Learner) getPreparedClassOption(this.learnerOption);
+        if (!stream.isRestartable()) {
+            throw new IllegalArgumentException("Stream must be restartable.");
+        }
+        InstancePool.checkNotReused(stream, "read ahead");
+
+        monitor.setCurrentActivity("Reading on a single thread...", -1.0);
+        learner.setModelContext(stream.getHeader());
+        learner.resetLearning();
+        int numInstances = 0;
+        long readNanos = 0;
+        long startTime = System.nanoTime();
+        while (numInstances < this.generateSizeOption.getValue()
+                && stream.hasMoreInstances()) {
+            long readStartTime = System.nanoTime();
+            Example example = stream.nextInstance();
+            readNanos += System.nanoTime() - readStartTime;
+            learner.trainOnInstance(example);
+            numInstances++;
+        }
+        double syncTime = (System.nanoTime() - startTime) / 1000000000.0;
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Reading ahead...", -1.0);
+        stream.restart();
+        learner.resetLearning();
+        startTime = System.nanoTime();
+        PrefetchingStream prefetching = new PrefetchingStream(stream,
+                this.bufferSizeOption.getValue());
+        int numPrefetched = 0;
+        while (numPrefetched < numInstances && prefetching.hasMoreInstances()) {
+            learner.trainOnInstance(prefetching.nextInstance());
+            numPrefetched++;
+        }
+        double prefetchTime = (System.nanoTime() - startTime) / 1000000000.0;
+        prefetching.stopPrefetching();
+        double producerTime = prefetching.getProducerNanos() / 1000000000.0;
+        double waitTime = prefetching.getConsumerWaitNanos() / 1000000000.0;
+        double hiddenTime = Math.max(0.0, producerTime - waitTime);
+        return new LearningEvaluation(
+                new Measurement[]{
+                    new Measurement("Number of instances", numInstances),
+                    new Measurement("Time elapsed", syncTime),
+                    new Measurement("Read time", readNanos / 1000000000.0),
+                    new Measurement("Time elapsed reading ahead", prefetchTime),
+                    new Measurement("Read time on background thread", producerTime),
+                    new Measurement("Time waiting for instances", waitTime),
+                    new Measurement("Read time hidden", hiddenTime),
+                    new Measurement("Read time hidden (percent)", producerTime > 0.0
+                    ? 100.0 * hiddenTime / producerTime : 0.0),
+                    new Measurement("Instances per second", numInstances / syncTime),
+                    new Measurement("Instances per second reading ahead",
+                    numPrefetched / prefetchTime)});
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *    MeasureSnapshotPause.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.SnapshotClassifier;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.streams.ExampleStream;
+
+/**
+ * Task for measuring the pause of the training thread when a snapshot
+ * classifier publishes a snapshot, as its model grows.
+ *
+ * <p>The learner is trained on the stream and publishes a snapshot every
+ * snapshot period. At every sample point, the size of the model is measured
+ * with the SizeOf agent along with the mean and the largest pauses since the
+ * previous sample point. Wall clock time is used, as the pause is the time
+ * the training thread does not train.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureSnapshotPause extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the pause of training when publishing snapshots, as the model grows.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Learner to measure.", SnapshotClassifier.class, "trees.HoeffdingTree");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Number of instances to train on.", 1000000, 1, Integer.MAX_VALUE);
+
+    public IntOption sampleFrequencyOption = new IntOption("sampleFrequency",
+            'f', "How many instances between samples of the pauses.", 100000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption snapshotPeriodOption = new IntOption("snapshotPeriod", 'w',
+            "The number of instances between snapshots.", 1000, 1, Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        SnapshotClassifier learner = (SnapshotClassifier) getPreparedClassOption(this.learnerOption);
+        ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        learner.setModelContext(stream.getHeader());
+        learner.prepareForUse();
+        int instanceLimit = this.instanceLimitOption.getValue();
+        LearningCurve learningCurve = new LearningCurve("learning evaluation instances");
+        long numInstances = 0;
+        long numPublications = 0;
+        long totalPause = 0;
+        long maxPause = 0;
+        while (numInstances < instanceLimit && stream.hasMoreInstances()) {
+            learner.trainOnInstance((Instance) stream.nextInstance().getData());
+            numInstances++;
+            if (numInstances % this.snapshotPeriodOption.getValue() == 0) {
+                long startTime = System.nanoTime();
+                learner.publishSnapshot();
+                long pause = System.nanoTime() - startTime;
+                numPublications++;
+                totalPause += pause;
+                maxPause = Math.max(maxPause, pause);
+            }
+            if (numInstances % this.sampleFrequencyOption.getValue() == 0
+                    || numInstances == instanceLimit) {
+                monitor.setCurrentActivityDescription("Measuring model size...");
+                learningCurve.insertEntry(new LearningEvaluation(
+                        new Measurement[]{
+                            new Measurement("learning evaluation instances", numInstances),
+                            new Measurement("model size (bytes)", learner.measureByteSize()),
+                            new Measurement("snapshots published", numPublications),
+                            new Measurement("mean pause (ms)", numPublications > 0
+                            ? totalPause / 1000000.0 / numPublications : 0.0),
+                            new Measurement("max pause (ms)", maxPause / 1000000.0)}));
+                numPublications = 0;
+                totalPause = 0;
+                maxPause = 0;
+                monitor.setCurrentActivity("Training...", (double) numInstances / instanceLimit);
+                if (monitor.resultPreviewRequested()) {
+                    monitor.setLatestResultPreview(learningCurve.copy());
+                }
+            }
+            if (numInstances % INSTANCES_BETWEEN_MONITOR_UPDATES == 0
+                    && monitor.taskShouldAbort()) {
+                return null;
+            }
+        }
+        return learningCurve;
+    }
+}
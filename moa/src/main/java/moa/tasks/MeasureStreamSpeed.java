@@ -55,6 +55,7 @@ public class MeasureStreamSpeed extends MainTask {
         TimingUtils.enablePreciseTiming();
         int numInstances = 0;
         ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        long allocatedStart = TimingUtils.getAllocatedBytesOfCurrentThread();
         long genStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         while (numInstances < this.generateSizeOption.getValue()) {
             stream.nextInstance();
@@ -62,13 +63,16 @@ public class MeasureStreamSpeed extends MainTask {
         }
         double genTime = TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
                 - genStartTime);
+        long allocated = TimingUtils.getAllocatedBytesOfCurrentThread() - allocatedStart;
         return new LearningEvaluation(
                 new Measurement[]{
                     new Measurement("Number of instances generated",
                     numInstances),
                     new Measurement("Time elapsed", genTime),
                     new Measurement("Instances per second", numInstances
-                    / genTime)});
+                    / genTime),
+                    new Measurement("Bytes allocated per instance", allocatedStart < 0
+                    ? -1 : (double) allocated / numInstances)});
     }
 
     @Override
@@ -0,0 +1,149 @@
+/*
+ *    WriteStreamToBinaryFile.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import moa.core.ObjectRepository;
+import moa.options.ClassOption;
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.streams.BinaryFileStream;
+import moa.streams.InstanceStream;
+
+/**
+ * Task to output a stream to a binary instance file, to be read back without
+ * parsing by {@link BinaryFileStream}.
+ *
+ * @version $Revision: 7 $
+ */
+public class WriteStreamToBinaryFile extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Outputs a stream to a binary instance file.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to write.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Destination binary instance file.", null, "bin", true);
+
+    public IntOption maxInstancesOption = new IntOption("maxInstances", 'm',
+            "Maximum number of instances to write to file.", 10000000, 0,
+            Integer.MAX_VALUE);
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        File destFile = this.binaryFileOption.getFile();
+        if (destFile != null) {
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(destFile), 1 << 16));
+                monitor.setCurrentActivityDescription("Writing stream to binary file");
+                ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+                ObjectOutputStream headerOut = new ObjectOutputStream(headerBytes);
+                headerOut.writeObject(stream.getHeader());
+                headerOut.close();
+                out.writeInt(BinaryFileStream.MAGIC);
+                out.writeInt(BinaryFileStream.VERSION);
+                out.writeInt(headerBytes.size());
+                headerBytes.writeTo(out);
+                writePadding(out, 12 + headerBytes.size());
+                int numWritten = 0;
+                while ((numWritten < this.maxInstancesOption.getValue())
+                        && stream.hasMoreInstances()) {
+                    writeInstance(out, stream.nextInstance().getData());
+                    numWritten++;
+                    if (numWritten % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+                        if (monitor.taskShouldAbort()) {
+                            out.close();
+                            return null;
+                        }
+                        monitor.setCurrentActivityFractionComplete(
+                                (double) numWritten / this.maxInstancesOption.getValue());
+                    }
+                }
+                out.close();
+            } catch (Exception ex) {
+                throw new RuntimeException(
+                        "Failed writing to file " + destFile, ex);
+            }
+            return "Stream written to binary file " + destFile;
+        }
+        throw new IllegalArgumentException("No destination file to write to.");
+    }
+
+    /**
+     * Writes an instance record, dense unless the instance has fewer values
+     * than attributes.
+     */
+    protected static void writeInstance(DataOutputStream out, Instance inst)
+            throws IOException {
+        int numAttributes = inst.numAttributes();
+        int numValues = inst.numValues();
+        if (numValues < numAttributes) {
+            out.writeInt(numValues);
+            out.writeInt(0);
+            out.writeDouble(inst.weight());
+            for (int i = 0; i < numValues; i++) {
+                out.writeInt(inst.index(i));
+            }
+            writePadding(out, 4L * numValues);
+            for (int i = 0; i < numValues; i++) {
+                out.writeDouble(inst.valueSparse(i));
+            }
+        } else {
+            out.writeInt(BinaryFileStream.DENSE);
+            out.writeInt(0);
+            out.writeDouble(inst.weight());
+            for (int i = 0; i < numAttributes; i++) {
+                out.writeDouble(inst.value(i));
+            }
+        }
+    }
+
+    /**
+     * Writes the zero bytes padding a block of the given size to a multiple
+     * of 8 bytes.
+     */
+    protected static void writePadding(DataOutputStream out, long size)
+            throws IOException {
+        for (long i = size; i < BinaryFileStream.pad(size); i++) {
+            out.writeByte(0);
+        }
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return String.class;
+    }
+}
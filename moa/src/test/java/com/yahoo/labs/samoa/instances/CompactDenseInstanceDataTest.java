@@ -0,0 +1,126 @@
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import moa.classifiers.lazy.kNN;
+import moa.streams.CachedInstancesStream;
+import moa.streams.generators.RandomTreeGenerator;
+import moa.tasks.CacheShuffledStream;
+
+public class CompactDenseInstanceDataTest {
+
+	private static RandomTreeGenerator newStream() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.prepareForUse();
+		return stream;
+	}
+
+	private static void assertSameValues(Instance expected, Instance actual) {
+		assertEquals(expected.numAttributes(), actual.numAttributes());
+		assertEquals(expected.weight(), actual.weight(), 0.0);
+		assertSame(expected.dataset(), actual.dataset());
+		for (int i = 0; i < expected.numAttributes(); i++) {
+			assertEquals(expected.isMissing(i), actual.isMissing(i));
+			assertEquals((float) expected.value(i), actual.value(i), 0.0);
+			assertEquals(actual.value(i), actual.valueSparse(i), 0.0);
+		}
+		assertEquals(expected.classValue(), actual.classValue(), 0.0);
+	}
+
+	@Test
+	public void testValues() {
+		RandomTreeGenerator stream = newStream();
+		CompactDenseInstanceData.Layout layout = new CompactDenseInstanceData.Layout(stream.getHeader());
+		for (int i = 0; i < 1000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			if (i % 3 == 0) {
+				inst.setMissing(i % inst.numAttributes());
+			}
+			Instance compact = layout.compact(inst);
+			assertSameValues(inst, compact);
+			assertSameValues(compact, compact.copy());
+		}
+	}
+
+	@Test
+	public void testSetValue() {
+		RandomTreeGenerator stream = newStream();
+		CompactDenseInstanceData.Layout layout = new CompactDenseInstanceData.Layout(stream.getHeader());
+		Instance inst = stream.nextInstance().getData();
+		Instance compact = layout.compact(inst);
+		Instance copy = compact.copy();
+		// the first attributes are nominal, and the next ones numeric
+		assertTrue(inst.attribute(0).isNominal());
+		assertFalse(inst.attribute(5).isNominal());
+		compact.setValue(0, 4);
+		compact.setValue(5, 0.25);
+		compact.setMissing(6);
+		assertEquals(4, compact.value(0), 0.0);
+		assertEquals(0.25, compact.value(5), 0.0);
+		assertTrue(compact.isMissing(6));
+		assertEquals(inst.value(0), copy.value(0), 0.0);
+		assertEquals((float) inst.value(5), copy.value(5), 0.0);
+		// values that do not fit in a byte are kept exactly
+		compact.setValue(1, 300);
+		compact.setValue(2, 0.5);
+		assertEquals(300, compact.value(1), 0.0);
+		assertEquals(0.5, compact.value(2), 0.0);
+		assertEquals(4, compact.value(0), 0.0);
+		assertEquals(0.25, compact.value(5), 0.0);
+		assertTrue(compact.isMissing(6));
+		double[] values = compact.toDoubleArray();
+		compact.deleteAttributeAt(3);
+		assertEquals(values.length - 1, compact.numAttributes());
+		assertEquals(values[4], compact.value(3), 0.0);
+	}
+
+	@Test
+	public void testCache() {
+		CacheShuffledStream task = new CacheShuffledStream();
+		task.maximumCacheSizeOption.setValue(1000);
+		task.prepareForUse();
+		CachedInstancesStream expected = (CachedInstancesStream) task.doTask();
+		task.compactInstancesOption.set();
+		task.prepareForUse();
+		CachedInstancesStream compact = (CachedInstancesStream) task.doTask();
+		while (expected.hasMoreInstances()) {
+			assertTrue(compact.hasMoreInstances());
+			Instance inst = expected.nextInstance().getData();
+			Instance compactInst = compact.nextInstance().getData();
+			assertEquals(inst.numAttributes(), compactInst.numAttributes());
+			for (int i = 0; i < inst.numAttributes(); i++) {
+				assertEquals((float) inst.value(i), compactInst.value(i), 0.0);
+			}
+		}
+		assertFalse(compact.hasMoreInstances());
+	}
+
+	@Test
+	public void testCompactWindow() {
+		kNN expected = new kNN();
+		kNN compact = new kNN();
+		compact.compactWindowOption.set();
+		RandomTreeGenerator stream = newStream();
+		expected.setModelContext(stream.getHeader());
+		expected.prepareForUse();
+		compact.setModelContext(stream.getHeader());
+		compact.prepareForUse();
+		int numAgreements = 0;
+		for (int i = 0; i < 2000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			if (expected.correctlyClassifies(inst) == compact.correctlyClassifies(inst)) {
+				numAgreements++;
+			}
+			expected.trainOnInstance(inst);
+			compact.trainOnInstance(inst);
+		}
+		// distances are rounded to float precision, which seldom changes
+		// the neighbours
+		assertTrue(numAgreements > 1990);
+	}
+}
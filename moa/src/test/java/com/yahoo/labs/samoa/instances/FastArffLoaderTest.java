@@ -0,0 +1,229 @@
+/*
+ *    FastArffLoaderTest.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that FastArffLoader reads the same headers and instances as
+ * ArffLoader.
+ */
+public class FastArffLoaderTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final String HEADER = "@relation test\n"
+			+ "\n"
+			+ "@attribute num1 numeric\n"
+			+ "@attribute nom1 {a,b,c}\n"
+			+ "@attribute num2 real\n"
+			+ "@attribute class {yes,no}\n"
+			+ "\n"
+			+ "@data\n";
+
+	private static FastArffLoader fastLoader(String arff, int classAttribute) {
+		return new FastArffLoader(new ByteArrayInputStream(arff.getBytes(UTF8)), classAttribute);
+	}
+
+	private static void assertSameHeader(InstanceInformation expected, InstanceInformation actual) {
+		assertEquals(expected.getRelationName(), actual.getRelationName());
+		assertEquals(expected.numAttributes(), actual.numAttributes());
+		assertEquals(expected.classIndex(), actual.classIndex());
+		for (int i = 0; i < expected.numAttributes(); i++) {
+			Attribute expectedAttribute = expected.attribute(i);
+			Attribute actualAttribute = actual.attribute(i);
+			assertEquals(expectedAttribute.name(), actualAttribute.name());
+			assertEquals(expectedAttribute.isNominal(), actualAttribute.isNominal());
+			if (expectedAttribute.isNominal()) {
+				assertEquals(expectedAttribute.getAttributeValues(), actualAttribute.getAttributeValues());
+			}
+		}
+	}
+
+	private static void assertSameInstance(Instance expected, Instance actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.weight(), actual.weight(), 0.0);
+		assertEquals(expected.numValues(), actual.numValues());
+		for (int i = 0; i < expected.numValues(); i++) {
+			assertEquals(expected.index(i), actual.index(i));
+			assertEquals(expected.valueSparse(i), actual.valueSparse(i), 0.0);
+		}
+	}
+
+	private static void assertSameInstances(ArffLoader expected, ArffLoader actual) {
+		assertSameHeader(expected.getStructure(), actual.getStructure());
+		int numInstances = 0;
+		Instance expectedInst;
+		while ((expectedInst = expected.readInstance()) != null) {
+			assertSameInstance(expectedInst, actual.readInstance());
+			numInstances++;
+		}
+		assertNull(actual.readInstance());
+		assertTrue(numInstances > 0);
+	}
+
+	private static void assertSameInstances(String arff, int classAttribute) {
+		assertSameInstances(new ArffLoader(new StringReader(arff), 0, classAttribute),
+				fastLoader(arff, classAttribute));
+	}
+
+	@Test
+	public void testDense() {
+		assertSameInstances(HEADER
+				+ "1.5,a,-3,yes\n"
+				+ "0,c,2.5e3,no\n"
+				+ "-0.25,b,.5,yes\n"
+				+ "1234567.875,a,1E-7,no\n", -1);
+	}
+
+	@Test
+	public void testClassIndex() {
+		String arff = HEADER + "1,a,2,yes\n";
+		assertSameInstances(arff, 2);
+		assertEquals(1, fastLoader(arff, 2).getStructure().classIndex());
+	}
+
+	@Test
+	public void testSparse() {
+		assertSameInstances(HEADER
+				+ "{0 1.5,1 b,3 no}\n"
+				+ "{2 -7.25}\n"
+				+ "{1 c,3 yes}\n"
+				+ "{}\n", -1);
+	}
+
+	@Test
+	public void testMissingValues() {
+		assertSameInstances(HEADER
+				+ "?,a,1,yes\n"
+				+ "2,?,?,no\n"
+				+ "?,?,?,?\n", -1);
+		// ArffLoader can not read missing sparse values
+		Instance inst = fastLoader(HEADER + "{0 ?,1 c}\n", -1).readInstance();
+		assertEquals(2, inst.numValues());
+		assertTrue(Double.isNaN(inst.valueSparse(0)));
+		assertEquals(2, inst.valueSparse(1), 0.0);
+	}
+
+	@Test
+	public void testQuotesCommentsAndBlankLines() {
+		assertSameInstances("% a comment\n"
+				+ "@relation 'quoted relation'\n"
+				+ "@attribute 'first value' numeric\n"
+				+ "@attribute \"nominal, quoted\" {'a b',\"c,d\",e}\n"
+				+ "@attribute class {'yes please',no}\n"
+				+ "@data\n"
+				+ "% another comment\n"
+				+ "1,\"a b\",\"yes please\"\n"
+				+ "\n"
+				+ "\"2.5\",\"c,d\",no\n"
+				+ "3 , e , no\n"
+				+ "{0 4,1 \"a b\"}\n", -1);
+	}
+
+	@Test
+	public void testSingleQuotes() {
+		// ArffLoader only reads double quoted values
+		String header = "@relation test\n"
+				+ "@attribute num numeric\n"
+				+ "@attribute nom {'a b',\"c,d\",e}\n"
+				+ "@data\n";
+		assertSameInstances(new ArffLoader(new StringReader(header + "\"2.5\",\"a b\"\n1,\"c,d\"\n"), 0, -1),
+				fastLoader(header + "'2.5','a b'\n1,'c,d'\n", -1));
+	}
+
+	@Test
+	public void testRandomDenseAndSparse() {
+		Random random = new Random(1);
+		StringBuilder arff = new StringBuilder(HEADER);
+		String[] nominal = {"a", "b", "c"};
+		for (int i = 0; i < 2000; i++) {
+			double num1 = random.nextGaussian() * Math.pow(10, random.nextInt(12) - 6);
+			double num2 = random.nextInt(1000) / 8.0;
+			if (random.nextBoolean()) {
+				arff.append(num1).append(',').append(nominal[random.nextInt(3)]).append(',')
+						.append(random.nextInt(10) == 0 ? "?" : Double.toString(num2)).append(',')
+						.append(random.nextBoolean() ? "yes" : "no").append('\n');
+			} else {
+				arff.append("{0 ").append(num1).append(",2 ").append(num2).append(",3 no}\n");
+			}
+		}
+		assertSameInstances(arff.toString(), -1);
+	}
+
+	@Test
+	public void testFile() throws IOException {
+		String path = ClassLoader.getSystemResource("moa/classifiers/data/regression.arff").getPath();
+		InputStream fastInput = new FileInputStream(path);
+		try {
+			assertSameInstances(new ArffLoader(new BufferedReader(new InputStreamReader(
+					new FileInputStream(path))), 0, -1), new FastArffLoader(fastInput, -1));
+		} finally {
+			fastInput.close();
+		}
+	}
+
+	@Test
+	public void testRange() throws IOException {
+		String path = ClassLoader.getSystemResource("moa/classifiers/data/small_regression.arff").getPath();
+		ArffLoader expected = new MultiTargetArffLoader(new BufferedReader(new InputStreamReader(
+				new FileInputStream(path))), new Range("4-6"));
+		InputStream fastInput = new FileInputStream(path);
+		try {
+			FastArffLoader actual = new FastArffLoader(fastInput, new Range("4-6"));
+			assertEquals(3, actual.range.getStart());
+			assertEquals(5, actual.range.getEnd());
+			InstanceInformation information = actual.getStructure();
+			assertEquals(3, information.numOutputAttributes());
+			assertEquals("R1", information.outputAttribute(0).name());
+			assertEquals("R3", information.outputAttribute(2).name());
+			assertEquals("F3", information.inputAttribute(3).name());
+			Instance expectedInst;
+			while ((expectedInst = expected.readInstance()) != null) {
+				Instance actualInst = actual.readInstance();
+				assertSameInstance(expectedInst, actualInst);
+				expectedInst.setDataset(new Instances(expected));
+				actualInst.setDataset(new Instances(actual));
+				for (int i = 0; i < information.numOutputAttributes(); i++) {
+					assertEquals(expectedInst.valueOutputAttribute(i), actualInst.valueOutputAttribute(i), 0.0);
+				}
+				for (int i = 0; i < information.numInputAttributes(); i++) {
+					assertEquals(expectedInst.valueInputAttribute(i), actualInst.valueInputAttribute(i), 0.0);
+				}
+			}
+			assertNull(actual.readInstance());
+		} finally {
+			fastInput.close();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package moa.classifiers.bayes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.core.AutoExpandVector;
+import moa.core.DoubleVector;
+import moa.core.Utils;
+import moa.streams.generators.RandomTreeGenerator;
+
+public class NaiveBayesScorerTest {
+
+	private static class TestNaiveBayes extends NaiveBayes {
+
+		private static final long serialVersionUID = 1L;
+
+		DoubleVector getObservedClassDistribution() {
+			return this.observedClassDistribution;
+		}
+
+		AutoExpandVector<AttributeClassObserver> getAttributeObservers() {
+			return this.attributeObservers;
+		}
+	}
+
+	private static void assertVotesEqual(double[] expected, double[] votes) {
+		assertEquals(expected.length, votes.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], votes[i], Math.abs(expected[i]) * 1e-9);
+		}
+	}
+
+	@Test
+	public void testVotesOfNaiveBayes() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.numNominalsOption.setValue(5);
+		stream.numNumericsOption.setValue(5);
+		stream.numClassesOption.setValue(4);
+		stream.prepareForUse();
+		TestNaiveBayes learner = new TestNaiveBayes();
+		learner.setModelContext(stream.getHeader());
+		learner.prepareForUse();
+		NaiveBayesScorer scorer = new NaiveBayesScorer();
+		for (int i = 0; i < 2000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			if (i % 3 == 0) {
+				inst.setMissing(i % 10 < 5 ? 1 : 7);
+			}
+			if (i > 0) {
+				double[] expected = NaiveBayes.doNaiveBayesPrediction(inst,
+						learner.getObservedClassDistribution(), learner.getAttributeObservers());
+				assertVotesEqual(expected, scorer.getVotesForInstance(inst,
+						learner.getObservedClassDistribution(), learner.getAttributeObservers()));
+				assertVotesEqual(expected, learner.getVotesForInstance(inst));
+			}
+			learner.trainOnInstance(inst);
+		}
+		assertTrue(scorer.estimateByteSize() > 0);
+	}
+
+	@Test
+	public void testUnderflowingVotes() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.numNominalsOption.setValue(0);
+		stream.numNumericsOption.setValue(400);
+		stream.prepareForUse();
+		TestNaiveBayes learner = new TestNaiveBayes();
+		learner.setModelContext(stream.getHeader());
+		learner.prepareForUse();
+		for (int i = 0; i < 1000; i++) {
+			learner.trainOnInstance(stream.nextInstance().getData());
+		}
+		Instance inst = stream.nextInstance().getData();
+		for (int i = 0; i < inst.numAttributes() - 1; i++) {
+			inst.setValue(i, 2.0);
+		}
+		double[] expected = NaiveBayes.doNaiveBayesPrediction(inst,
+				learner.getObservedClassDistribution(), learner.getAttributeObservers());
+		assertEquals(0.0, Utils.sum(expected), 0.0);
+		double[] votes = learner.getVotesForInstance(inst);
+		assertEquals(1.0, votes[Utils.maxIndex(votes)], 0.0);
+	}
+
+	@Test
+	public void testZeroWeightInstancesWithNewValues() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("nom", Arrays.asList("a", "b", "c", "d")));
+		attributes.add(new Attribute("num"));
+		attributes.add(new Attribute("class", Arrays.asList("yes", "no")));
+		Instances header = new Instances("zero weights", attributes, 0);
+		header.setClassIndex(2);
+		TestNaiveBayes learner = new TestNaiveBayes();
+		learner.setModelContext(new InstancesHeader(header));
+		learner.prepareForUse();
+		NaiveBayesScorer scorer = new NaiveBayesScorer();
+		double[][] training = {
+				{0, 1.0, 0, 1}, {1, 2.0, 0, 1}, {0, 1.5, 0, 1},
+				// the class is observed without any nominal value
+				{Double.NaN, 3.0, 1, 1},
+				// new values of zero weight only grow the distributions
+				{3, 1.0, 0, 0}, {2, 2.0, 1, 0}, {1, 5.0, 1, 2}};
+		for (double[] row : training) {
+			Instance inst = new DenseInstance(row[3], Arrays.copyOf(row, 3));
+			inst.setDataset(header);
+			// trainOnInstance skips instances of zero weight, other callers
+			// of the observers may not
+			learner.trainOnInstanceImpl(inst);
+			for (int value = 0; value < 4; value++) {
+				Instance test = new DenseInstance(1, new double[]{value, 2.0, 0});
+				test.setDataset(header);
+				double[] expected = NaiveBayes.doNaiveBayesPrediction(test,
+						learner.getObservedClassDistribution(), learner.getAttributeObservers());
+				assertVotesEqual(expected, scorer.getVotesForInstance(test,
+						learner.getObservedClassDistribution(), learner.getAttributeObservers()));
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package moa.classifiers.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.AbstractClassifier;
+import moa.classifiers.trees.FIMTDD;
+import moa.classifiers.trees.HoeffdingAdaptiveTree;
+import moa.classifiers.trees.HoeffdingOptionTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.core.Measurement;
+import moa.streams.generators.RandomRBFGenerator;
+
+public class ParallelSplitEvaluatorTest {
+
+	private static RandomRBFGenerator stream() {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.numAttsOption.setValue(40);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	/**
+	 * Checks that a learner evaluating splits on several cores predicts
+	 * exactly as the same learner evaluating them sequentially.
+	 */
+	private void assertSameAsSequential(AbstractClassifier sequential, AbstractClassifier parallel) {
+		RandomRBFGenerator stream = stream();
+		sequential.setModelContext(stream.getHeader());
+		sequential.prepareForUse();
+		parallel.setModelContext(stream.getHeader());
+		parallel.prepareForUse();
+		for (int i = 0; i < 20000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			assertArrayEquals(sequential.getVotesForInstance(inst), parallel.getVotesForInstance(inst), 0.0);
+			sequential.trainOnInstance(inst);
+			parallel.trainOnInstance(inst);
+		}
+		StringBuilder expected = new StringBuilder();
+		sequential.getModelDescription(expected, 0);
+		StringBuilder actual = new StringBuilder();
+		parallel.getModelDescription(actual, 0);
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void testHoeffdingTree() {
+		HoeffdingTree parallel = new HoeffdingTree();
+		parallel.splitEvaluationCoresOption.setValue(4);
+		parallel.measureSplitLatencyOption.set();
+		assertSameAsSequential(new HoeffdingTree(), parallel);
+		Measurement attempts = Measurement.getMeasurementNamed("split attempt latency count",
+				parallel.getModelMeasurements());
+		assertTrue(attempts.getValue() > 0);
+		double median = Measurement.getMeasurementNamed("split attempt latency median (ms)",
+				parallel.getModelMeasurements()).getValue();
+		double max = Measurement.getMeasurementNamed("split attempt latency max (ms)",
+				parallel.getModelMeasurements()).getValue();
+		assertTrue(median > 0.0 && median <= max);
+	}
+
+	@Test
+	public void testHoeffdingAdaptiveTree() {
+		HoeffdingAdaptiveTree parallel = new HoeffdingAdaptiveTree();
+		parallel.splitEvaluationCoresOption.setValue(4);
+		assertSameAsSequential(new HoeffdingAdaptiveTree(), parallel);
+	}
+
+	@Test
+	public void testHoeffdingOptionTree() {
+		HoeffdingOptionTree parallel = new HoeffdingOptionTree();
+		parallel.splitEvaluationCoresOption.setValue(4);
+		assertSameAsSequential(new HoeffdingOptionTree(), parallel);
+	}
+
+	@Test
+	public void testFIMTDD() {
+		FIMTDD parallel = new FIMTDD();
+		parallel.splitEvaluationCoresOption.setValue(4);
+		assertSameAsSequential(new FIMTDD(), parallel);
+	}
+}
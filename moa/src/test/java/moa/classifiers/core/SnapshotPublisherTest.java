@@ -0,0 +1,152 @@
+package moa.classifiers.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.SnapshotClassifier;
+import moa.classifiers.meta.OzaBag;
+import moa.classifiers.trees.HoeffdingAdaptiveTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.generators.RandomTreeGenerator;
+
+public class SnapshotPublisherTest {
+
+	private static RandomTreeGenerator newStream() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.prepareForUse();
+		return stream;
+	}
+
+	private static void prepare(Classifier classifier, RandomTreeGenerator stream) {
+		classifier.setModelContext(stream.getHeader());
+		classifier.prepareForUse();
+	}
+
+	private static List<Instance> instances(RandomTreeGenerator stream, int numInstances) {
+		List<Instance> instances = new ArrayList<Instance>();
+		for (int i = 0; i < numInstances; i++) {
+			instances.add(stream.nextInstance().getData());
+		}
+		return instances;
+	}
+
+	private static void assertSnapshotOf(Classifier expected, SnapshotClassifier classifier,
+			List<Instance> testInstances) {
+		Classifier snapshot = classifier.getSnapshot();
+		assertNotNull(snapshot);
+		assertNotSame(classifier, snapshot);
+		for (Instance inst : testInstances) {
+			assertArrayEquals(expected.getVotesForInstance(inst), snapshot.getVotesForInstance(inst), 0.0);
+		}
+	}
+
+	private static void testPeriodicSnapshots(SnapshotClassifier classifier) {
+		RandomTreeGenerator stream = newStream();
+		prepare(classifier, stream);
+		List<Instance> testInstances = instances(newStream(), 200);
+		for (int i = 0; i < 99; i++) {
+			classifier.trainOnInstance(stream.nextInstance().getData());
+		}
+		assertNull(classifier.getSnapshot());
+		for (int n = 0; n < 20; n++) {
+			classifier.trainOnInstance(stream.nextInstance().getData());
+			Classifier expected = classifier.copy();
+			Classifier snapshot = classifier.getSnapshot();
+			// the snapshot does not change while the classifier trains
+			for (int i = 0; i < 99; i++) {
+				classifier.trainOnInstance(stream.nextInstance().getData());
+			}
+			assertSame(snapshot, classifier.getSnapshot());
+			assertSnapshotOf(expected, classifier, testInstances);
+		}
+		classifier.resetLearning();
+		assertNull(classifier.getSnapshot());
+	}
+
+	@Test
+	public void testHoeffdingTree() {
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.gracePeriodOption.setValue(50);
+		tree.snapshotPeriodOption.setValue(100);
+		testPeriodicSnapshots(tree);
+		tree.compiledPredictionOption.set();
+		tree.leafpredictionOption.setChosenIndex(1);
+		testPeriodicSnapshots(tree);
+	}
+
+	@Test
+	public void testHoeffdingAdaptiveTree() {
+		HoeffdingAdaptiveTree tree = new HoeffdingAdaptiveTree();
+		tree.gracePeriodOption.setValue(50);
+		tree.snapshotPeriodOption.setValue(100);
+		testPeriodicSnapshots(tree);
+	}
+
+	@Test
+	public void testOzaBag() {
+		OzaBag bag = new OzaBag();
+		bag.ensembleSizeOption.setValue(5);
+		bag.snapshotPeriodOption.setValue(100);
+		testPeriodicSnapshots(bag);
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception {
+		final OzaBag bag = new OzaBag();
+		bag.ensembleSizeOption.setValue(5);
+		bag.baseLearnerOption.setValueViaCLIString("trees.HoeffdingTree -g 50");
+		bag.snapshotPeriodOption.setValue(200);
+		final RandomTreeGenerator stream = newStream();
+		prepare(bag, stream);
+		final List<Instance> testInstances = instances(newStream(), 100);
+		final AtomicBoolean trained = new AtomicBoolean();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int t = 0; t < 3; t++) {
+			readers.add(new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						while (!trained.get()) {
+							Classifier snapshot = bag.getSnapshot();
+							if (snapshot != null) {
+								for (Instance inst : testInstances) {
+									snapshot.getVotesForInstance(inst);
+								}
+							}
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+		}
+		for (Thread reader : readers) {
+			reader.start();
+		}
+		for (int i = 0; i < 5000; i++) {
+			bag.trainOnInstance(stream.nextInstance().getData());
+		}
+		trained.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertNull(failure.get());
+		assertTrue(bag.getSnapshot().getVotesForInstance(testInstances.get(0)).length > 0);
+	}
+}
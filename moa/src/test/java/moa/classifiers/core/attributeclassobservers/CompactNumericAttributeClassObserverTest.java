@@ -0,0 +1,103 @@
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+public class CompactNumericAttributeClassObserverTest {
+
+	private static final int NUM_CLASSES = 4;
+
+	private static void observe(NumericAttributeClassObserver observer, Random random,
+			int numInstances, int numDistinctValues, double[] classDist) {
+		for (int i = 0; i < numInstances; i++) {
+			int classVal = random.nextInt(NUM_CLASSES);
+			double value = random.nextInt(numDistinctValues) * 0.5 + classVal;
+			double weight = random.nextInt(3);
+			observer.observeAttributeClass(value, classVal, weight);
+			observer.observeAttributeClass(Double.NaN, classVal, weight);
+			classDist[classVal] += weight;
+		}
+	}
+
+	@Test
+	public void testPackedGaussian() {
+		GaussianNumericAttributeClassObserver expected = new GaussianNumericAttributeClassObserver();
+		PackedGaussianNumericAttributeClassObserver packed = new PackedGaussianNumericAttributeClassObserver();
+		double[] classDist = new double[NUM_CLASSES];
+		observe(expected, new Random(1), 5000, 1000, classDist);
+		observe(packed, new Random(1), 5000, 1000, new double[NUM_CLASSES]);
+		// a class seen with a single value
+		expected.observeAttributeClass(3.0, NUM_CLASSES, 1.0);
+		packed.observeAttributeClass(3.0, NUM_CLASSES, 1.0);
+		for (double value = -2.0; value < 600.0; value += 0.7) {
+			for (int c = 0; c <= NUM_CLASSES + 1; c++) {
+				assertEquals(expected.probabilityOfAttributeValueGivenClass(value, c),
+						packed.probabilityOfAttributeValueGivenClass(value, c), 0.0);
+			}
+		}
+		assertArrayEquals(expected.getSplitPointSuggestions(), packed.getSplitPointSuggestions(), 0.0);
+		for (double splitValue : expected.getSplitPointSuggestions()) {
+			double[][] expectedDists = expected.getClassDistsResultingFromBinarySplit(splitValue);
+			double[][] dists = packed.getClassDistsResultingFromBinarySplit(splitValue);
+			assertArrayEquals(expectedDists[0], dists[0], 0.0);
+			assertArrayEquals(expectedDists[1], dists[1], 0.0);
+		}
+		SplitCriterion criterion = new InfoGainSplitCriterion();
+		AttributeSplitSuggestion expectedSplit = expected.getBestEvaluatedSplitSuggestion(
+				criterion, classDist, 0, true);
+		AttributeSplitSuggestion split = packed.getBestEvaluatedSplitSuggestion(
+				criterion, classDist, 0, true);
+		assertEquals(expectedSplit.merit, split.merit, 0.0);
+		assertEquals(((NumericAttributeBinaryTest) expectedSplit.splitTest).getSplitValue(),
+				((NumericAttributeBinaryTest) split.splitTest).getSplitValue(), 0.0);
+	}
+
+	@Test
+	public void testHistogramWithoutMerges() {
+		BinaryTreeNumericAttributeClassObserver expected = new BinaryTreeNumericAttributeClassObserver();
+		HistogramNumericAttributeClassObserver histogram = new HistogramNumericAttributeClassObserver();
+		double[] classDist = new double[NUM_CLASSES];
+		observe(expected, new Random(2), 5000, 90, classDist);
+		observe(histogram, new Random(2), 5000, 90, new double[NUM_CLASSES]);
+		assertTrue(histogram.getNumBins() <= histogram.numBinsOption.getValue());
+		SplitCriterion criterion = new InfoGainSplitCriterion();
+		assertEquals(expected.getBestEvaluatedSplitSuggestion(criterion, classDist, 0, true).merit,
+				histogram.getBestEvaluatedSplitSuggestion(criterion, classDist, 0, true).merit, 0.0);
+	}
+
+	@Test
+	public void testHistogramBounded() {
+		HistogramNumericAttributeClassObserver histogram = new HistogramNumericAttributeClassObserver();
+		histogram.numBinsOption.setValue(20);
+		double[] classDist = new double[NUM_CLASSES];
+		observe(histogram, new Random(3), 5000, 1000, classDist);
+		assertEquals(20, histogram.getNumBins());
+		AttributeSplitSuggestion split = histogram.getBestEvaluatedSplitSuggestion(
+				new InfoGainSplitCriterion(), classDist, 0, true);
+		double[][] dists = split.resultingClassDistributions;
+		for (int c = 0; c < NUM_CLASSES; c++) {
+			assertEquals(classDist[c], dists[0][c] + dists[1][c], 1e-9);
+		}
+		double sum = 0.0;
+		for (int c = 0; c < NUM_CLASSES; c++) {
+			double probability = histogram.probabilityOfAttributeValueGivenClass(c + 100.0, c);
+			assertTrue(probability > 0.0 && probability <= 1.0);
+			sum += probability;
+		}
+		assertTrue(sum > 0.0);
+		HistogramNumericAttributeClassObserver copy = (HistogramNumericAttributeClassObserver) histogram.copy();
+		observe(copy, new Random(4), 100, 1000, new double[NUM_CLASSES]);
+		assertEquals(split.merit, histogram.getBestEvaluatedSplitSuggestion(
+				new InfoGainSplitCriterion(), classDist, 0, true).merit, 0.0);
+	}
+}
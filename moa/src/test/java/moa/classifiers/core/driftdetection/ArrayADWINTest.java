@@ -0,0 +1,62 @@
+package moa.classifiers.core.driftdetection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ArrayADWINTest {
+
+	/**
+	 * Feeds the same values to both implementations and checks that every
+	 * output is the same.
+	 */
+	private void assertSameAsADWIN(double delta, int changeInterval, int numInputs) {
+		ADWIN adwin = new ADWIN(delta);
+		ADWIN arrayAdwin = new ArrayADWIN(delta);
+		Random random = new Random(1);
+		double mean = 0.2;
+		for (int i = 0; i < numInputs; i++) {
+			if (i % changeInterval == 0) {
+				mean = 0.05 + 0.5 * random.nextDouble();
+			}
+			double value = random.nextDouble() < mean ? 1 : 0;
+			assertEquals("change at " + i, adwin.setInput(value), arrayAdwin.setInput(value));
+			assertEquals("estimation at " + i, adwin.getEstimation(), arrayAdwin.getEstimation(), 0.0);
+			assertEquals("variance at " + i, adwin.getVariance(), arrayAdwin.getVariance(), 0.0);
+			assertEquals("width at " + i, adwin.getWidth(), arrayAdwin.getWidth());
+		}
+		assertEquals(adwin.getNumberDetections(), arrayAdwin.getNumberDetections());
+		assertEquals(adwin.getBucketsUsed(), arrayAdwin.getBucketsUsed());
+	}
+
+	@Test
+	public void testFrequentChanges() {
+		assertSameAsADWIN(0.002, 1000, 200000);
+	}
+
+	@Test
+	public void testRareChanges() {
+		assertSameAsADWIN(0.002, 100000, 300000);
+	}
+
+	@Test
+	public void testLargeDelta() {
+		assertSameAsADWIN(0.5, 500, 100000);
+	}
+
+	@Test
+	public void testCopy() {
+		ADWIN arrayAdwin = new ArrayADWIN();
+		for (int i = 0; i < 1000; i++) {
+			arrayAdwin.setInput(i % 3 == 0 ? 1 : 0);
+		}
+		ADWIN copy = (ADWIN) arrayAdwin.copy();
+		assertEquals(arrayAdwin.getWidth(), copy.getWidth());
+		assertEquals(arrayAdwin.getEstimation(), copy.getEstimation(), 0.0);
+		arrayAdwin.setInput(1);
+		copy.setInput(1);
+		assertEquals(arrayAdwin.getEstimation(), copy.getEstimation(), 0.0);
+	}
+}
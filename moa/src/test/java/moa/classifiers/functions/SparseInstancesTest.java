@@ -0,0 +1,76 @@
+package moa.classifiers.functions;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.Classifier;
+import moa.streams.generators.SparseHyperplaneGenerator;
+
+public class SparseInstancesTest {
+
+	/**
+	 * Checks that a learner trained on sparse instances predicts as the same
+	 * learner trained on the dense versions of the instances.
+	 */
+	private static void assertSameAsDense(Classifier learner) {
+		SparseHyperplaneGenerator stream = new SparseHyperplaneGenerator();
+		stream.numAttsOption.setValue(300);
+		stream.numWordsOption.setValue(10);
+		stream.prepareForUse();
+		Classifier sparseLearner = learner.copy();
+		Classifier denseLearner = learner.copy();
+		sparseLearner.setModelContext(stream.getHeader());
+		sparseLearner.prepareForUse();
+		denseLearner.setModelContext(stream.getHeader());
+		denseLearner.prepareForUse();
+		for (int i = 0; i < 3000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			Instance denseInst = new DenseInstance(1.0, inst.toDoubleArray());
+			denseInst.setDataset(stream.getHeader());
+			assertArrayEquals(denseLearner.getVotesForInstance(denseInst),
+					sparseLearner.getVotesForInstance(inst), 1e-12);
+			sparseLearner.trainOnInstance(inst);
+			denseLearner.trainOnInstance(denseInst);
+		}
+	}
+
+	@Test
+	public void testSGD() {
+		SGD sgd = new SGD();
+		sgd.lossFunctionOption.setChosenIndex(1);
+		sgd.learningRateOption.setValue(0.01);
+		sgd.lambdaRegularizationOption.setValue(0.01);
+		assertSameAsDense(sgd);
+	}
+
+	@Test
+	public void testSGDMultiClass() {
+		SGDMultiClass sgd = new SGDMultiClass();
+		sgd.lossFunctionOption.setChosenIndex(1);
+		sgd.learningRateOption.setValue(0.01);
+		assertSameAsDense(sgd);
+	}
+
+	@Test
+	public void testSPegasos() {
+		assertSameAsDense(new SPegasos());
+	}
+
+	@Test
+	public void testAdaGrad() {
+		AdaGrad adaGrad = new AdaGrad();
+		adaGrad.lossFunctionOption.setChosenIndex(1);
+		assertSameAsDense(adaGrad);
+		adaGrad.lambdaRegularizationOption.setValue(0.0);
+		assertSameAsDense(adaGrad);
+	}
+
+	@Test
+	public void testPerceptron() {
+		assertSameAsDense(new Perceptron());
+	}
+}
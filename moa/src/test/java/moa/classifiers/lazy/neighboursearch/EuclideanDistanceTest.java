@@ -0,0 +1,129 @@
+package moa.classifiers.lazy.neighboursearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+public class EuclideanDistanceTest {
+
+	private static Instances numericInstances(int numAttributes, int numInstances, Random random) {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		for (int i = 0; i < numAttributes; i++) {
+			attributes.add(new Attribute("num" + i));
+		}
+		List<String> classValues = new ArrayList<String>();
+		classValues.add("a");
+		classValues.add("b");
+		attributes.add(new Attribute("class", classValues));
+		Instances instances = new Instances("test", attributes, numInstances);
+		instances.setClassIndex(numAttributes);
+		for (int i = 0; i < numInstances; i++) {
+			instances.add(randomInstance(instances, random));
+		}
+		return instances;
+	}
+
+	private static Instance randomInstance(Instances header, Random random) {
+		Instance inst = new DenseInstance(header.numAttributes());
+		inst.setDataset(header);
+		for (int j = 0; j < header.numAttributes() - 1; j++) {
+			inst.setValue(j, j % 3 == 0 ? 5.0 : random.nextGaussian() * (j + 1));
+		}
+		inst.setValue(header.numAttributes() - 1, random.nextInt(2));
+		return inst;
+	}
+
+	/**
+	 * Checks that the distances between normalized values are exactly those
+	 * of the distance function, with and without cut off value.
+	 */
+	private void assertSameDistances(int numAttributes) {
+		Random random = new Random(numAttributes);
+		Instances instances = numericInstances(numAttributes, 200, random);
+		EuclideanDistance distance = new EuclideanDistance(instances);
+		assertTrue(distance.canNormalizeValues());
+		double[] values = distance.normalizeValues(instances);
+		int length = instances.numAttributes();
+		double[] target = new double[length];
+		for (int q = 0; q < 20; q++) {
+			Instance query = randomInstance(instances, random);
+			assertTrue(distance.normalizeValues(query, target, 0));
+			for (int i = 0; i < instances.numInstances(); i++) {
+				double expected = distance.distance(query, instances.instance(i), Double.POSITIVE_INFINITY);
+				double actual = EuclideanDistance.squaredDistance(target, 0, values, i * length, length,
+						Double.POSITIVE_INFINITY);
+				assertEquals(expected, actual, 0.0);
+				double cutOff = expected * random.nextDouble() * 2;
+				assertEquals(distance.distance(query, instances.instance(i), cutOff),
+						EuclideanDistance.squaredDistance(target, 0, values, i * length, length, cutOff), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testFewAttributes() {
+		assertSameDistances(10);
+	}
+
+	@Test
+	public void testManyAttributes() {
+		assertSameDistances(1000);
+	}
+
+	@Test
+	public void testMissingValues() {
+		Instances instances = numericInstances(5, 10, new Random(1));
+		EuclideanDistance distance = new EuclideanDistance(instances);
+		Instance query = randomInstance(instances, new Random(2));
+		query.setMissing(2);
+		assertFalse(distance.normalizeValues(query, new double[instances.numAttributes()], 0));
+		instances.instance(3).setMissing(1);
+		assertNull(distance.normalizeValues(instances));
+	}
+
+	@Test
+	public void testNominalAttributes() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("num"));
+		List<String> values = new ArrayList<String>();
+		values.add("x");
+		values.add("y");
+		attributes.add(new Attribute("nom", values));
+		attributes.add(new Attribute("class", values));
+		Instances instances = new Instances("test", attributes, 0);
+		instances.setClassIndex(2);
+		assertFalse(new EuclideanDistance(instances).canNormalizeValues());
+	}
+
+	@Test
+	public void testSearchesUseSameNeighbours() throws Exception {
+		Random random = new Random(3);
+		Instances instances = numericInstances(30, 500, random);
+		for (int q = 0; q < 20; q++) {
+			Instance query = randomInstance(instances, random);
+			LinearNNSearch linear = new LinearNNSearch(instances);
+			Instances neighbours = linear.kNearestNeighbours(query, 5);
+			double[] distances = linear.getDistances();
+			KDTree tree = new KDTree();
+			tree.setInstances(instances);
+			Instances treeNeighbours = tree.kNearestNeighbours(query, 5);
+			assertEquals(neighbours.numInstances(), treeNeighbours.numInstances());
+			EuclideanDistance distance = new EuclideanDistance(instances);
+			for (int i = 0; i < neighbours.numInstances(); i++) {
+				assertEquals(distance.distance(query, neighbours.instance(i)), distances[i], 0.0);
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package moa.classifiers.lazy.neighboursearch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+public class SlidingWindowKDTreeTest {
+
+	private static final int NUM_NUMERIC = 4;
+
+	private static Instances header(boolean nominal) {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		for (int i = 0; i < NUM_NUMERIC; i++) {
+			attributes.add(new Attribute("num" + i));
+		}
+		attributes.add(nominal ? new Attribute("nom", values(5)) : new Attribute("num" + NUM_NUMERIC));
+		attributes.add(new Attribute("class", values(3)));
+		Instances header = new Instances("test", attributes, 0);
+		header.setClassIndex(attributes.size() - 1);
+		return header;
+	}
+
+	private static List<String> values(int numValues) {
+		List<String> values = new ArrayList<String>();
+		for (int i = 0; i < numValues; i++) {
+			values.add("v" + i);
+		}
+		return values;
+	}
+
+	/**
+	 * Creates an instance with few distinct values, so that there are ties,
+	 * and some missing values.
+	 */
+	private static Instance randomInstance(Instances header, Random random, double missing) {
+		Instance inst = new DenseInstance(header.numAttributes());
+		inst.setDataset(header);
+		for (int i = 0; i < NUM_NUMERIC; i++) {
+			inst.setValue(i, random.nextInt(20) * (i + 1));
+		}
+		inst.setValue(NUM_NUMERIC, random.nextInt(5));
+		inst.setValue(NUM_NUMERIC + 1, random.nextInt(3));
+		for (int i = 0; i < NUM_NUMERIC + 1; i++) {
+			if (random.nextDouble() < missing) {
+				inst.setMissing(i);
+			}
+		}
+		return inst;
+	}
+
+	private static List<String> sorted(Instances instances) {
+		List<String> list = new ArrayList<String>();
+		for (int i = 0; i < instances.numInstances(); i++) {
+			list.add(instances.instance(i).toString());
+		}
+		Collections.sort(list);
+		return list;
+	}
+
+	/**
+	 * Maintains the same sliding window in a SlidingWindowKDTree, or in a
+	 * SlidingWindowLinearNNSearch, and in Instances, and checks that the
+	 * neighbours are those found by LinearNNSearch.
+	 */
+	private void assertSameAsLinearSearch(int windowSize, int k, double missing, boolean nominal,
+			boolean linear) throws Exception {
+		Instances header = header(nominal);
+		Random random = new Random(1);
+		SlidingWindowKDTree tree = linear ? new SlidingWindowLinearNNSearch(header)
+				: new SlidingWindowKDTree(header);
+		Instances window = new Instances(header, 0);
+		for (int i = 0; i < 3000; i++) {
+			Instance inst = randomInstance(header, random, missing);
+			if (window.numInstances() >= windowSize) {
+				tree.delete(0);
+				window.delete(0);
+			}
+			if (window.numInstances() > 1 && random.nextDouble() < 0.1) {
+				int index = random.nextInt(window.numInstances());
+				tree.delete(index);
+				window.delete(index);
+			}
+			tree.add(inst);
+			window.add(inst);
+			assertEquals(window.numInstances(), tree.numInstances());
+			Instance target = randomInstance(header, random, missing);
+			int numNeighbours = Math.min(k, window.numInstances());
+			Instances expected = new LinearNNSearch(window).kNearestNeighbours(target, numNeighbours);
+			Instances actual = tree.kNearestNeighbours(target, numNeighbours);
+			assertEquals("neighbours at " + i, sorted(expected), sorted(actual));
+		}
+	}
+
+	@Test
+	public void testSmallWindow() throws Exception {
+		assertSameAsLinearSearch(50, 5, 0.0, true, false);
+	}
+
+	@Test
+	public void testLargeWindow() throws Exception {
+		assertSameAsLinearSearch(1000, 10, 0.0, true, false);
+	}
+
+	@Test
+	public void testMissingValues() throws Exception {
+		assertSameAsLinearSearch(500, 10, 0.1, true, false);
+	}
+
+	@Test
+	public void testNumericAttributes() throws Exception {
+		assertSameAsLinearSearch(1000, 10, 0.0, false, false);
+		assertSameAsLinearSearch(500, 10, 0.05, false, false);
+	}
+
+	@Test
+	public void testSlidingWindowLinearNNSearch() throws Exception {
+		assertSameAsLinearSearch(1000, 10, 0.0, true, true);
+		assertSameAsLinearSearch(500, 10, 0.1, true, true);
+		assertSameAsLinearSearch(500, 10, 0.05, false, true);
+	}
+
+	@Test
+	public void testPositions() {
+		Instances header = header(true);
+		Random random = new Random(2);
+		SlidingWindowKDTree tree = new SlidingWindowKDTree(header);
+		Instances window = new Instances(header, 0);
+		for (int i = 0; i < 200; i++) {
+			Instance inst = randomInstance(header, random, 0.0);
+			tree.add(inst);
+			window.add(inst);
+			if (i % 3 == 0) {
+				tree.delete(0);
+				window.delete(0);
+			}
+			if (i % 7 == 1) {
+				tree.delete(tree.size() / 2);
+				window.delete(window.size() / 2);
+			}
+		}
+		assertEquals(window.size(), tree.size());
+		for (int i = 0; i < window.size(); i++) {
+			assertEquals(window.instance(i).toString(), tree.instance(i).toString());
+		}
+	}
+}
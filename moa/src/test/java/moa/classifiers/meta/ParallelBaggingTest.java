@@ -0,0 +1,86 @@
+/*
+ *    ParallelBaggingTest.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+package moa.classifiers.meta;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.Classifier;
+import moa.streams.generators.RandomTreeGenerator;
+
+public class ParallelBaggingTest {
+
+	private static RandomTreeGenerator newStream() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.prepareForUse();
+		return stream;
+	}
+
+	private static OzaBag newOzaBag(int numCores) {
+		OzaBag bag = new OzaBag();
+		bag.numCoresOption.setValue(numCores);
+		return bag;
+	}
+
+	private static LeveragingBag newLeveragingBag(int numCores, int algorithm) {
+		LeveragingBag bag = new LeveragingBag();
+		bag.numCoresOption.setValue(numCores);
+		bag.leveraginBagAlgorithmOption.setChosenIndex(algorithm);
+		return bag;
+	}
+
+	/**
+	 * Trains both classifiers test-then-train on the same stream, checking
+	 * that they always give the same votes.
+	 */
+	private static void assertSameVotes(Classifier expected, Classifier actual) {
+		RandomTreeGenerator stream = newStream();
+		expected.setModelContext(stream.getHeader());
+		expected.prepareForUse();
+		actual.setModelContext(stream.getHeader());
+		actual.prepareForUse();
+		for (int i = 0; i < 2000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			assertArrayEquals(expected.getVotesForInstance(inst), actual.getVotesForInstance(inst), 0.0);
+			expected.trainOnInstance(inst);
+			actual.trainOnInstance(inst);
+		}
+	}
+
+	@Test
+	public void testOzaBagVotesDoNotDependOnNumCores() {
+		assertSameVotes(newOzaBag(2), newOzaBag(4));
+	}
+
+	@Test
+	public void testLeveragingBagVotesDoNotDependOnNumCores() {
+		for (int algorithm = 0; algorithm < 5; algorithm++) {
+			assertSameVotes(newLeveragingBag(2, algorithm), newLeveragingBag(4, algorithm));
+		}
+	}
+
+	@Test
+	public void testSequentialVotesAreReproducible() {
+		assertSameVotes(newOzaBag(1), newOzaBag(1));
+		assertSameVotes(newLeveragingBag(1, 0), newLeveragingBag(1, 0));
+	}
+}
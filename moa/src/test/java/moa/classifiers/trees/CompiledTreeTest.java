@@ -0,0 +1,88 @@
+package moa.classifiers.trees;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.streams.ConceptDriftStream;
+import moa.streams.ExampleStream;
+import moa.streams.generators.RandomTreeGenerator;
+
+public class CompiledTreeTest {
+
+	private static ExampleStream driftingStream() {
+		ConceptDriftStream stream = new ConceptDriftStream();
+		stream.streamOption.setValueViaCLIString("generators.RandomTreeGenerator -r 1 -i 1");
+		stream.driftstreamOption.setValueViaCLIString("generators.RandomTreeGenerator -r 2 -i 2");
+		stream.positionOption.setValue(20000);
+		stream.widthOption.setValue(1000);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	/**
+	 * Checks that the votes of the compiled tree are those of the tree as it
+	 * learns, including for instances with missing values.
+	 */
+	private void assertSameVotes(HoeffdingTree tree, ExampleStream stream) {
+		tree.setModelContext(stream.getHeader());
+		tree.prepareForUse();
+		for (int i = 0; i < 40000; i++) {
+			Instance inst = (Instance) stream.nextInstance().getData();
+			if (i % 10 == 0) {
+				Instance missing = inst.copy();
+				for (int att = 0; att < missing.numAttributes(); att += 2) {
+					if (att != missing.classIndex()) {
+						missing.setMissing(att);
+					}
+				}
+				assertCompiledVotes(tree, missing);
+			}
+			assertCompiledVotes(tree, inst);
+			tree.trainOnInstance(inst);
+		}
+		assertTrue(tree.decisionNodeCount > 0);
+	}
+
+	private void assertCompiledVotes(HoeffdingTree tree, Instance inst) {
+		tree.compiledPredictionOption.unset();
+		double[] votes = tree.getVotesForInstance(inst);
+		tree.compiledPredictionOption.set();
+		assertArrayEquals(votes, tree.getVotesForInstance(inst), 0.0);
+	}
+
+	@Test
+	public void testHoeffdingTree() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.prepareForUse();
+		assertSameVotes(new HoeffdingTree(), stream);
+	}
+
+	@Test
+	public void testBinarySplits() {
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.binarySplitsOption.set();
+		tree.gracePeriodOption.setValue(50);
+		assertSameVotes(tree, driftingStream());
+	}
+
+	@Test
+	public void testMemoryLimit() {
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.maxByteSizeOption.setValue(100000);
+		tree.memoryEstimatePeriodOption.setValue(1000);
+		assertSameVotes(tree, driftingStream());
+		assertTrue(tree.inactiveLeafNodeCount > 0);
+	}
+
+	@Test
+	public void testHoeffdingAdaptiveTree() {
+		HoeffdingAdaptiveTree tree = new HoeffdingAdaptiveTree();
+		tree.gracePeriodOption.setValue(50);
+		assertSameVotes(tree, driftingStream());
+		assertTrue(tree.alternateTrees > 0);
+	}
+}
@@ -0,0 +1,112 @@
+package moa.classifiers.trees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import moa.classifiers.trees.HoeffdingTree.FoundNode;
+import moa.classifiers.trees.HoeffdingTree.LearningNode;
+import moa.classifiers.trees.HoeffdingTree.Node;
+import moa.classifiers.trees.HoeffdingTree.SplitNode;
+import moa.core.AutoExpandVector;
+import moa.core.DoubleVector;
+import moa.core.SizeOf;
+import moa.streams.generators.RandomTreeGenerator;
+
+public class HoeffdingTreeByteSizeTest {
+
+	private static HoeffdingTree train(int maxByteSize) {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.numClassesOption.setValue(5);
+		stream.numNominalsOption.setValue(10);
+		stream.numNumericsOption.setValue(10);
+		stream.prepareForUse();
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.maxByteSizeOption.setValue(maxByteSize);
+		tree.memoryEstimatePeriodOption.setValue(10000);
+		tree.setModelContext(stream.getHeader());
+		tree.prepareForUse();
+		for (int i = 0; i < 100000; i++) {
+			tree.trainOnInstance(stream.nextInstance().getData());
+		}
+		return tree;
+	}
+
+	private static void splitNodes(Node node, List<SplitNode> found) {
+		if (node instanceof SplitNode) {
+			SplitNode split = (SplitNode) node;
+			found.add(split);
+			for (int i = 0; i < split.numChildren(); i++) {
+				splitNodes(split.getChild(i), found);
+			}
+		}
+	}
+
+	/**
+	 * Checks that the sizes summed up as the tree grows are those of its
+	 * nodes, and that the sizes of the leaves are close to up to date.
+	 */
+	private void assertConsistentEstimates(HoeffdingTree tree) {
+		long active = 0;
+		long inactive = 0;
+		long current = 0;
+		for (FoundNode found : tree.findLearningNodes()) {
+			LearningNode node = (LearningNode) found.node;
+			if (node instanceof HoeffdingTree.ActiveLearningNode) {
+				active += node.byteSizeEstimate;
+			} else {
+				inactive += node.byteSizeEstimate;
+			}
+			current += node.estimateByteSize();
+		}
+		assertEquals(active, tree.estimatedActiveLeafBytes);
+		assertEquals(inactive, tree.estimatedInactiveLeafBytes);
+		assertEquals(current, active + inactive, current * 0.05);
+		List<SplitNode> splits = new ArrayList<SplitNode>();
+		splitNodes(tree.treeRoot, splits);
+		long splitBytes = 0;
+		for (SplitNode split : splits) {
+			splitBytes += split.estimateByteSize();
+		}
+		assertEquals(splitBytes, tree.estimatedSplitNodeBytes);
+	}
+
+	@Test
+	public void testGrowingTree() {
+		HoeffdingTree tree = train(33554432);
+		assertTrue(tree.estimatedSplitNodeBytes > 0);
+		assertEquals(0, tree.estimatedInactiveLeafBytes);
+		assertConsistentEstimates(tree);
+	}
+
+	@Test
+	public void testMemoryLimit() {
+		HoeffdingTree tree = train(300000);
+		assertTrue(tree.estimatedInactiveLeafBytes > 0);
+		assertConsistentEstimates(tree);
+	}
+
+	@Test
+	public void testCopy() {
+		HoeffdingTree tree = train(300000);
+		HoeffdingTree copy = (HoeffdingTree) tree.copy();
+		assertEquals(tree.estimateByteSize(), copy.estimateByteSize());
+		assertConsistentEstimates(copy);
+	}
+
+	@Test
+	public void testUnknownSizesAreNotSubtracted() {
+		DoubleVector vector = new DoubleVector(new double[]{1.0, 2.0});
+		AutoExpandVector<Object> list = new AutoExpandVector<Object>();
+		list.add("measured only with the agent");
+		list.add(vector);
+		assertTrue(list.estimateByteSize() >= SizeOf.estimateListSize(2) + vector.estimateByteSize());
+		HoeffdingTree tree = train(33554432);
+		assertTrue(tree.estimateByteSize() >= tree.estimatedSplitNodeBytes
+				+ tree.estimatedActiveLeafBytes + tree.estimatedInactiveLeafBytes);
+	}
+}
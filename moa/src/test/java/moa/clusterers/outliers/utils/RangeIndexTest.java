@@ -0,0 +1,148 @@
+package moa.clusterers.outliers.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.clusterers.outliers.MCOD.MCOD;
+import moa.clusterers.outliers.MCOD.StreamObj;
+import moa.clusterers.outliers.SimpleCOD.SimpleCOD;
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions;
+import moa.clusterers.outliers.utils.mtree.MTree;
+import moa.streams.clustering.RandomRBFGeneratorEvents;
+
+public class RangeIndexTest {
+
+	private static StreamObj randomObj(Random random, int dimensions) {
+		double[] values = new double[dimensions];
+		for (int i = 0; i < dimensions; i++) {
+			// coarse values, so that some objects lie exactly at the range
+			values[i] = random.nextInt(40) / 20.0 - 1;
+		}
+		return new StreamObj(values);
+	}
+
+	private static Map<StreamObj, Double> query(RangeIndex<StreamObj> index, StreamObj query, double range) {
+		RangeResults<StreamObj> results = new RangeResults<StreamObj>();
+		index.rangeQuery(query, range, results);
+		Map<StreamObj, Double> found = new HashMap<StreamObj, Double>();
+		for (int i = 0; i < results.size(); i++) {
+			assertTrue(found.put(results.get(i), results.getDistance(i)) == null);
+		}
+		return found;
+	}
+
+	private static void checkAgainstScan(RangeIndex<StreamObj> index, int dimensions, double cellSize) {
+		Random random = new Random(dimensions);
+		List<StreamObj> window = new ArrayList<StreamObj>();
+		for (int step = 0; step < 3000; step++) {
+			StreamObj obj = randomObj(random, dimensions);
+			if (!window.contains(obj)) {
+				index.add(obj);
+				window.add(obj);
+			}
+			if (window.size() > 300) {
+				// mostly the oldest object, as a sliding window does
+				int removed = random.nextInt(4) == 0 ? random.nextInt(window.size()) : 0;
+				assertTrue(index.remove(window.remove(removed)));
+			}
+			if (step % 10 == 0) {
+				StreamObj query = randomObj(random, dimensions);
+				double range = cellSize * (0.5 + 2 * random.nextDouble());
+				if (step % 20 == 0) {
+					range = cellSize;
+				}
+				Map<StreamObj, Double> found = query(index, query, range);
+				int expected = 0;
+				for (StreamObj obj2 : window) {
+					double distance = DistanceFunctions.euclidean(query, obj2);
+					if (distance <= range) {
+						expected++;
+						assertEquals(distance, found.get(obj2), 0.0);
+					}
+				}
+				assertEquals(expected, found.size());
+			}
+		}
+	}
+
+	@Test
+	public void testGrid() {
+		for (int dimensions = 1; dimensions <= 4; dimensions++) {
+			GridRangeIndex<StreamObj> grid = new GridRangeIndex<StreamObj>(0.1);
+			checkAgainstScan(grid, dimensions, 0.1);
+		}
+		GridRangeIndex<StreamObj> grid = new GridRangeIndex<StreamObj>(0.1);
+		assertFalse(grid.remove(new StreamObj(0.5, 0.5)));
+		grid.add(new StreamObj(0.5, 0.5));
+		assertTrue(grid.remove(new StreamObj(0.5, 0.5)));
+		assertEquals(0, grid.size());
+		assertEquals(0, grid.numCells());
+	}
+
+	@Test
+	public void testMTree() {
+		for (int dimensions = 1; dimensions <= 3; dimensions++) {
+			MTree<StreamObj> mtree = new MTree<StreamObj>(2, DistanceFunctions.EUCLIDEAN, null);
+			checkAgainstScan(new MTreeRangeIndex<StreamObj>(mtree), dimensions, 0.1);
+			// the query iterator fetches the same objects, by increasing distance
+			StreamObj query = new StreamObj(new double[dimensions]);
+			Map<StreamObj, Double> found = query(new MTreeRangeIndex<StreamObj>(mtree), query, 0.2);
+			double last = 0;
+			int count = 0;
+			for (MTree<StreamObj>.ResultItem item : mtree.getNearestByRange(query, 0.2)) {
+				assertTrue(item.distance >= last);
+				assertEquals(found.get(item.data), item.distance, 0.0);
+				last = item.distance;
+				count++;
+			}
+			assertEquals(found.size(), count);
+		}
+		MTree<StreamObj> mtree = new MTree<StreamObj>(2, DistanceFunctions.EUCLIDEAN, null);
+		assertFalse(mtree.remove(new StreamObj(0.5, 0.5)));
+		mtree.add(new StreamObj(0.5, 0.5));
+		assertTrue(mtree.remove(new StreamObj(0.5, 0.5)));
+		assertFalse(mtree.getNearest(new StreamObj(0.5, 0.5)).iterator().hasNext());
+	}
+
+	private static Set<Long> outliers(MyBaseOutlierDetector detector) {
+		RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
+		stream.prepareForUse();
+		detector.windowSizeOption.setValue(200);
+		detector.setModelContext(stream.getHeader());
+		detector.prepareForUse();
+		Set<Long> ids = new TreeSet<Long>();
+		for (int i = 0; i < 600; i++) {
+			detector.processNewInstanceImpl(stream.nextInstance().getData());
+			for (MyBaseOutlierDetector.Outlier outlier : detector.GetOutliersFound()) {
+				// the outliers of each step
+				ids.add(outlier.id * 1000 + i);
+			}
+		}
+		return ids;
+	}
+
+	@Test
+	public void testDetectorsAgree() {
+		MCOD mcod = new MCOD();
+		MCOD mcodGrid = new MCOD();
+		mcodGrid.rangeIndexOption.setChosenLabel("Grid");
+		assertEquals(outliers(mcod), outliers(mcodGrid));
+
+		SimpleCOD scod = new SimpleCOD();
+		SimpleCOD scodGrid = new SimpleCOD();
+		scodGrid.rangeIndexOption.setChosenLabel("Grid");
+		assertEquals(outliers(scod), outliers(scodGrid));
+	}
+}
@@ -0,0 +1,65 @@
+package moa.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.streams.generators.SparseHyperplaneGenerator;
+
+public class ScaledDoubleVectorTest {
+
+	private static void assertSameValues(double[] expected, ScaledDoubleVector vector) {
+		double sumOfSquares = 0.0;
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], vector.getValue(i), Math.abs(expected[i]) * 1e-9);
+			sumOfSquares += expected[i] * expected[i];
+		}
+		assertEquals(sumOfSquares, vector.sumOfSquares(), sumOfSquares * 1e-9);
+	}
+
+	@Test
+	public void testScaledUpdates() {
+		SparseHyperplaneGenerator stream = new SparseHyperplaneGenerator();
+		stream.numAttsOption.setValue(500);
+		stream.numWordsOption.setValue(20);
+		stream.prepareForUse();
+		Random random = new Random(1);
+		double[] expected = new double[stream.getHeader().numAttributes()];
+		ScaledDoubleVector vector = new ScaledDoubleVector();
+		for (int n = 0; n < 5000; n++) {
+			Instance inst = stream.nextInstance().getData();
+			double dotProduct = 0.0;
+			for (int p = 0; p < inst.numValues(); p++) {
+				if (inst.index(p) != inst.classIndex()) {
+					dotProduct += inst.valueSparse(p) * expected[inst.index(p)];
+				}
+			}
+			assertEquals(dotProduct, vector.dotProduct(inst), 1e-9 * (1.0 + Math.abs(dotProduct)));
+			// shrinks the vector below the scale factor where it is folded
+			double multiplier = n % 1000 == 999 ? 1e-6 : 1.0 - 0.01 * random.nextDouble();
+			vector.scaleValues(multiplier);
+			for (int i = 0; i < expected.length; i++) {
+				expected[i] *= multiplier;
+			}
+			double factor = random.nextGaussian();
+			vector.addInstance(inst, factor);
+			for (int p = 0; p < inst.numValues(); p++) {
+				if (inst.index(p) != inst.classIndex()) {
+					expected[inst.index(p)] += factor * inst.valueSparse(p);
+				}
+			}
+			int i = random.nextInt(expected.length - 1);
+			vector.addToValue(i, 1.0);
+			expected[i] += 1.0;
+		}
+		assertSameValues(expected, vector);
+		assertEquals(expected.length - 1, vector.numValues());
+		assertSameValues(expected, new ScaledDoubleVector(vector));
+		vector.scaleValues(0.0);
+		assertSameValues(new double[expected.length], vector);
+	}
+}
@@ -0,0 +1,200 @@
+package moa.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.AbstractMOAObject;
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.ArrayADWIN;
+import moa.classifiers.meta.OzaBagAdwin;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.generators.RandomTreeGenerator;
+
+public class SerializeUtilsTest {
+
+	/**
+	 * Copies an object by serialization only, as done before direct copies.
+	 */
+	private static Object serializedCopy(Serializable obj) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(obj);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		Object copy = in.readObject();
+		in.close();
+		return copy;
+	}
+
+	private static RandomTreeGenerator stream(int seed) {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.instanceRandomSeedOption.setValue(seed);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	private static void train(Classifier learner, RandomTreeGenerator stream, int numInstances) {
+		for (int i = 0; i < numInstances; i++) {
+			learner.trainOnInstance(stream.nextInstance().getData());
+		}
+	}
+
+	/**
+	 * Checks that the copies predict and keep learning exactly as a copy made
+	 * by serialization, and independently of the original, without taking
+	 * more memory.
+	 */
+	private void assertSameAsSerializedCopy(Classifier learner) throws Exception {
+		RandomTreeGenerator stream = stream(1);
+		learner.setModelContext(stream.getHeader());
+		learner.prepareForUse();
+		train(learner, stream, 20000);
+		Classifier expected = (Classifier) serializedCopy(learner);
+		Classifier copy = learner.copy();
+		Classifier serialized = (Classifier) SerializeUtils.copyObject(learner);
+		train(learner, stream(2), 5000);
+		RandomTreeGenerator test = stream(3);
+		for (int i = 0; i < 5000; i++) {
+			Instance inst = test.nextInstance().getData();
+			double[] votes = expected.getVotesForInstance(inst);
+			assertArrayEquals(votes, copy.getVotesForInstance(inst), 0.0);
+			assertArrayEquals(votes, serialized.getVotesForInstance(inst), 0.0);
+			expected.trainOnInstance(inst);
+			copy.trainOnInstance(inst);
+			serialized.trainOnInstance(inst);
+		}
+		// the size agent interns the strings it meets, so that the strings of
+		// whichever copy is measured first would be skipped
+		learner.measureByteSize();
+		assertTrue(copy.measureByteSize() <= expected.measureByteSize());
+	}
+
+	@Test
+	public void testHoeffdingTree() throws Exception {
+		assertSameAsSerializedCopy(new HoeffdingTree());
+	}
+
+	@Test
+	public void testHoeffdingTreeMajorityClass() throws Exception {
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.leafpredictionOption.setChosenIndex(0);
+		tree.gracePeriodOption.setValue(50);
+		assertSameAsSerializedCopy(tree);
+	}
+
+	@Test
+	public void testNaiveBayes() throws Exception {
+		assertSameAsSerializedCopy(new NaiveBayes());
+	}
+
+	@Test
+	public void testOzaBagAdwin() throws Exception {
+		assertSameAsSerializedCopy(new OzaBagAdwin());
+	}
+
+	private void assertSameDetection(ADWIN adwin) {
+		Random random = new Random(1);
+		for (int i = 0; i < 3000; i++) {
+			adwin.setInput(random.nextDouble() < (i < 2000 ? 0.2 : 0.8) ? 1 : 0);
+		}
+		ADWIN copy = (ADWIN) AbstractMOAObject.copy(adwin);
+		assertSame(adwin.getClass(), copy.getClass());
+		assertEquals(adwin.getWidth(), copy.getWidth());
+		for (int i = 0; i < 3000; i++) {
+			double value = random.nextDouble() < (i < 1000 ? 0.8 : 0.3) ? 1 : 0;
+			assertEquals(adwin.setInput(value), copy.setInput(value));
+			assertEquals(adwin.getWidth(), copy.getWidth());
+			assertEquals(adwin.getEstimation(), copy.getEstimation(), 0.0);
+		}
+	}
+
+	@Test
+	public void testADWIN() {
+		assertSameDetection(new ADWIN());
+		assertSameDetection(new ArrayADWIN());
+	}
+
+	@Test
+	public void testSharedObjects() throws Exception {
+		DoubleVector vector = new DoubleVector(new double[]{1.0, 2.0});
+		AutoExpandVector<Object> list = new AutoExpandVector<Object>();
+		list.add(vector);
+		list.add("not copyable");
+		list.add(vector);
+		@SuppressWarnings("unchecked")
+		AutoExpandVector<Object> copy = (AutoExpandVector<Object>) SerializeUtils.copyObject(list);
+		assertEquals(3, copy.size());
+		assertNotSame(vector, copy.get(0));
+		assertSame(copy.get(0), copy.get(2));
+		((DoubleVector) copy.get(0)).setValue(0, 5.0);
+		assertEquals(1.0, vector.getValue(0), 0.0);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testObjectsSharedWithinDirectCopies() throws Exception {
+		DoubleVector vector = new DoubleVector(new double[]{1.0, 2.0});
+		AutoExpandVector<Object> inner = new AutoExpandVector<Object>();
+		inner.add(vector);
+		AutoExpandVector<Object> outer = new AutoExpandVector<Object>();
+		outer.add(inner);
+		outer.add(vector);
+		AutoExpandVector<Object> copy = (AutoExpandVector<Object>) AbstractMOAObject.copy(outer);
+		AutoExpandVector<Object> innerCopy = (AutoExpandVector<Object>) copy.get(0);
+		assertNotSame(vector, copy.get(1));
+		assertSame(copy.get(1), innerCopy.get(0));
+
+		// met by the copy stream before and after the object containing it
+		for (int order = 0; order < 2; order++) {
+			List<Object> graph = new ArrayList<Object>();
+			graph.add(order == 0 ? inner : vector);
+			graph.add(order == 0 ? vector : inner);
+			List<Object> graphCopy = (List<Object>) SerializeUtils.copyObject((Serializable) graph);
+			innerCopy = (AutoExpandVector<Object>) graphCopy.get(order == 0 ? 0 : 1);
+			Object vectorCopy = graphCopy.get(order == 0 ? 1 : 0);
+			assertNotSame(vector, vectorCopy);
+			assertSame(vectorCopy, innerCopy.get(0));
+		}
+	}
+
+	@Test
+	public void testNodesSharedWithinDirectCopies() throws Exception {
+		HoeffdingTree.SplitNode root = new HoeffdingTree.SplitNode(
+				new NumericAttributeBinaryTest(0, 0.5, true), new double[]{3.0, 4.0}, 2);
+		HoeffdingTree.Node left = new HoeffdingTree.Node(new double[]{3.0, 1.0});
+		HoeffdingTree.ActiveLearningNode right = new HoeffdingTree.ActiveLearningNode(new double[]{0.0, 3.0});
+		root.setChild(0, left);
+		root.setChild(1, right);
+		List<Object> graph = new ArrayList<Object>();
+		graph.add(root);
+		graph.add(right);
+		graph.add(left);
+		@SuppressWarnings("unchecked")
+		List<Object> copy = (List<Object>) SerializeUtils.copyObject((Serializable) graph);
+		HoeffdingTree.SplitNode rootCopy = (HoeffdingTree.SplitNode) copy.get(0);
+		assertNotSame(root, rootCopy);
+		assertNotSame(right, copy.get(1));
+		assertSame(rootCopy.getChild(1), copy.get(1));
+		assertSame(rootCopy.getChild(0), copy.get(2));
+		assertArrayEquals(new double[]{3.0, 1.0}, rootCopy.getChild(0).getObservedClassDistribution(), 0.0);
+	}
+}
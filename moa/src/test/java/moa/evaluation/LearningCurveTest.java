@@ -0,0 +1,58 @@
+package moa.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import moa.core.Measurement;
+
+public class LearningCurveTest {
+
+	private static Measurement[] measurements(double instances, double accuracy) {
+		return new Measurement[]{
+			new Measurement("instances", instances),
+			new Measurement("accuracy", accuracy)
+		};
+	}
+
+	@Test
+	public void testEntries() {
+		LearningCurve curve = new LearningCurve("instances");
+		curve.insertEntry(measurements(10, 0.5), new Measurement[]{new Measurement("size", 3)});
+		curve.insertEntry(new LearningEvaluation(measurements(30, 0.7)));
+		// out of order, and without the last measurement
+		curve.insertEntry(measurements(20, 0.6), null);
+		assertEquals(3, curve.numEntries());
+		assertEquals("instances,accuracy,size", curve.headerToString());
+		assertEquals("10.0,0.5,3.0", curve.entryToString(0));
+		assertEquals("20.0,0.6,?", curve.entryToString(1));
+		assertEquals("30.0,0.7,?", curve.entryToString(2));
+		assertEquals(0.6, curve.getMeasurement(1, 1), 0.0);
+		assertEquals("size", curve.getMeasurementName(2));
+	}
+
+	@Test
+	public void testNewMeasurementsAfterCopy() {
+		LearningCurve curve = new LearningCurve("instances");
+		curve.insertEntry(measurements(10, 0.5));
+		LearningCurve copy = (LearningCurve) curve.copy();
+		copy.insertEntry(measurements(20, 0.6), new Measurement[]{new Measurement("size", 3)});
+		copy.insertEntry(new Measurement[]{new Measurement("size", 4), new Measurement("instances", 5)});
+		assertEquals("instances,accuracy,size", copy.headerToString());
+		assertEquals("5.0,0.0,4.0", copy.entryToString(0));
+		assertEquals("20.0,0.6,3.0", copy.entryToString(2));
+		assertEquals(1, curve.numEntries());
+		assertEquals("instances,accuracy", curve.headerToString());
+	}
+
+	@Test
+	public void testMissingOrderingMeasurement() {
+		try {
+			new LearningCurve("instances").insertEntry(new Measurement[]{new Measurement("accuracy", 1)});
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package moa.recommender.rc.data.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import moa.recommender.rc.data.RecommenderData;
+import moa.recommender.rc.predictor.impl.BRISMFPredictor;
+import moa.recommender.rc.utils.Rating;
+import moa.recommender.rc.utils.RatingList;
+
+public class PrimitiveRecommenderDataTest {
+
+	private static void assertSameData(RecommenderData expected, RecommenderData actual) {
+		assertEquals(expected.getNumUsers(), actual.getNumUsers());
+		assertEquals(expected.getNumItems(), actual.getNumItems());
+		assertEquals(expected.getNumRatings(), actual.getNumRatings());
+		assertEquals(expected.getGlobalMean(), actual.getGlobalMean(), 1e-9);
+		assertEquals(expected.getMinRating(), actual.getMinRating(), 0.0);
+		assertEquals(expected.getMaxRating(), actual.getMaxRating(), 0.0);
+		assertEquals(expected.getUsers(), actual.getUsers());
+		assertEquals(expected.getItems(), actual.getItems());
+		RatingList ratings = new RatingList();
+		for (int user : expected.getUsers()) {
+			assertEquals(expected.countRatingsUser(user), actual.countRatingsUser(user));
+			assertEquals(expected.getAvgRatingUser(user), actual.getAvgRatingUser(user), 1e-9);
+			actual.getRatingsUser(user, ratings);
+			assertEquals(expected.countRatingsUser(user), ratings.size());
+			for (int i = 0; i < ratings.size(); i++) {
+				assertEquals(expected.getRating(user, ratings.getID(i)), ratings.getRating(i), 0.0);
+			}
+		}
+		for (int item : expected.getItems()) {
+			assertEquals(expected.countRatingsItem(item), actual.countRatingsItem(item));
+			assertEquals(expected.getAvgRatingItem(item), actual.getAvgRatingItem(item), 1e-9);
+			assertEquals(expected.getRatingsItem(item).getIdxs(), actual.getRatingsItem(item).getIdxs());
+		}
+	}
+
+	@Test
+	public void testSameAsMemRecommenderData() {
+		MemRecommenderData expected = new MemRecommenderData();
+		PrimitiveRecommenderData actual = new PrimitiveRecommenderData();
+		Random random = new Random(1);
+		for (int i = 0; i < 5000; i++) {
+			int user = random.nextInt(200) * 7919;
+			int item = random.nextInt(300) - 150;
+			if (i % 10 == 9 && expected.userExists(user)) {
+				expected.removeRating(user, item);
+				actual.removeRating(user, item);
+			} else {
+				double rating = 1 + random.nextInt(9) / 2.0;
+				expected.setRating(user, item, rating);
+				actual.setRating(user, item, rating);
+			}
+		}
+		assertSameData(expected, actual);
+		int numRatings = 0;
+		Iterator<Rating> it = actual.ratingIterator();
+		while (it.hasNext()) {
+			Rating rating = it.next();
+			assertEquals(expected.getRating(rating.userID, rating.itemID), rating.rating, 0.0);
+			numRatings++;
+		}
+		assertEquals(expected.getNumRatings(), numRatings);
+	}
+
+	@Test
+	public void testRemoveUser() {
+		PrimitiveRecommenderData data = new PrimitiveRecommenderData();
+		for (int user = 0; user < 100; user++) {
+			data.setRating(user, user % 10, 3);
+		}
+		for (int user = 0; user < 100; user += 2) {
+			data.removeUser(user);
+		}
+		assertFalse(data.userExists(42));
+		assertTrue(data.userExists(43));
+		assertEquals(0, data.countRatingsUser(42));
+		Set<Integer> users = new HashSet<Integer>();
+		for (int user = 1; user < 100; user += 2) {
+			users.add(user);
+		}
+		assertEquals(users, data.getUsers());
+		data.setRating(42, 1, 5);
+		assertTrue(data.userExists(42));
+		assertEquals(5, data.getRating(42, 1), 0.0);
+	}
+
+	@Test
+	public void testSamePredictions() {
+		// with few ids the ratings of MemRecommenderData are iterated in
+		// increasing order of the ids too, so the models are trained alike
+		MemRecommenderData memData = new MemRecommenderData();
+		PrimitiveRecommenderData primitiveData = new PrimitiveRecommenderData();
+		BRISMFPredictor expected = new BRISMFPredictor(10, memData, false);
+		BRISMFPredictor actual = new BRISMFPredictor(10, primitiveData, false);
+		Random random = new Random(2);
+		for (int i = 0; i < 500; i++) {
+			int user = random.nextInt(16);
+			int item = random.nextInt(16);
+			double rating = 1 + random.nextInt(5);
+			assertEquals(expected.predictRating(user, item), actual.predictRating(user, item), 0.0);
+			memData.setRating(user, item, rating);
+			primitiveData.setRating(user, item, rating);
+		}
+	}
+}
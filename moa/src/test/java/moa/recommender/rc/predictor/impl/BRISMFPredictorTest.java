@@ -0,0 +1,132 @@
+package moa.recommender.rc.predictor.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import moa.recommender.rc.data.RecommenderData;
+import moa.recommender.rc.data.impl.PrimitiveRecommenderData;
+
+public class BRISMFPredictorTest {
+
+	private static final int NUM_USERS = 300;
+
+	private static final int NUM_ITEMS = 200;
+
+	/** Ratings of users and items with two hidden factors. */
+	private static double rating(int user, int item) {
+		double userFactor = (user % 7) / 7.0;
+		double itemFactor = (item % 5) / 5.0;
+		return 1 + Math.round(4 * (userFactor * itemFactor + (1 - userFactor) * (1 - itemFactor)));
+	}
+
+	private static RecommenderData newData(Random random, int numRatings) {
+		PrimitiveRecommenderData data = new PrimitiveRecommenderData();
+		for (int i = 0; i < numRatings; i++) {
+			int user = random.nextInt(NUM_USERS);
+			int item = random.nextInt(NUM_ITEMS);
+			data.setRating(user, item, rating(user, item));
+		}
+		return data;
+	}
+
+	private static BRISMFPredictor train(int numThreads) {
+		RecommenderData data = newData(new Random(1), 20000);
+		data.disableUpdates(true);
+		BRISMFPredictor predictor = new BRISMFPredictor(10, data, false);
+		predictor.setNumThreads(numThreads);
+		predictor.train();
+		return predictor;
+	}
+
+	private static double rmse(BRISMFPredictor predictor) {
+		Random random = new Random(2);
+		double sum = 0;
+		for (int i = 0; i < 5000; i++) {
+			int user = random.nextInt(NUM_USERS);
+			int item = random.nextInt(NUM_ITEMS);
+			double error = predictor.predictRating(user, item) - rating(user, item);
+			sum += error * error;
+		}
+		return Math.sqrt(sum / 5000);
+	}
+
+	@Test
+	public void testParallelTraining() {
+		BRISMFPredictor sequential = train(1);
+		BRISMFPredictor parallel = train(4);
+		double sequentialRMSE = rmse(sequential);
+		double parallelRMSE = rmse(parallel);
+		double baselineRMSE = rmse(new BRISMFPredictor(10, newData(new Random(1), 20000), false));
+		assertTrue(sequentialRMSE < 0.95 * baselineRMSE);
+		assertEquals(sequentialRMSE, parallelRMSE, 0.05 * sequentialRMSE);
+		// the strata do not depend on the scheduling of the threads
+		BRISMFPredictor again = train(4);
+		for (int user = 0; user < NUM_USERS; user++) {
+			assertTrue(Arrays.equals(parallel.getUserFeatures(user), again.getUserFeatures(user)));
+		}
+	}
+
+	/** Ranks all the items not rated by a user by their predictions. */
+	private static List<Integer> bruteForceRecommend(BRISMFPredictor predictor, int user, int n) {
+		final float[] userFeats = predictor.getUserFeatures(user);
+		final List<Integer> items = new ArrayList<Integer>();
+		final List<Double> scores = new ArrayList<Double>();
+		for (int item = 0; item < NUM_ITEMS; item++) {
+			float[] itemFeats = predictor.getItemFeatures(item);
+			if (itemFeats != null && predictor.getData().getRatingsUser(user).get(item) == null) {
+				double score = 0;
+				for (int j = 0; j < itemFeats.length; j++) {
+					score += userFeats[j] * itemFeats[j];
+				}
+				items.add(item);
+				scores.add(score);
+			}
+		}
+		List<Integer> ranked = new ArrayList<Integer>(items);
+		Collections.sort(ranked, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer item1, Integer item2) {
+				int cmp = Double.compare(scores.get(items.indexOf(item2)), scores.get(items.indexOf(item1)));
+				return cmp != 0 ? cmp : item1.compareTo(item2);
+			}
+		});
+		return ranked.subList(0, Math.min(n, ranked.size()));
+	}
+
+	@Test
+	public void testRecommend() {
+		BRISMFPredictor predictor = train(1);
+		for (int user = 0; user < 50; user++) {
+			assertEquals(bruteForceRecommend(predictor, user, 10), predictor.recommend(user, 10));
+		}
+		// online updates move the items in the order of the norms
+		RecommenderData data = predictor.getData();
+		data.disableUpdates(false);
+		Random random = new Random(3);
+		for (int i = 0; i < 2000; i++) {
+			int user = random.nextInt(NUM_USERS);
+			int item = random.nextInt(NUM_ITEMS);
+			data.setRating(user, item, rating(user, item));
+		}
+		for (int item = 0; item < NUM_ITEMS; item += 3) {
+			data.removeItem(item);
+		}
+		for (int user = 0; user < 50; user++) {
+			List<Integer> expected = bruteForceRecommend(predictor, user, 10);
+			assertEquals(expected, predictor.recommend(user, 10));
+			assertEquals(expected.subList(0, 3), predictor.recommend(user, 3));
+		}
+		assertTrue(predictor.recommend(0, 0).isEmpty());
+		assertEquals(10, predictor.recommend(NUM_USERS + 1, 10).size());
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ *    BinaryFileStreamTest.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+package moa.streams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceImpl;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+import moa.tasks.WriteStreamToBinaryFile;
+
+/**
+ * Writes instances with WriteStreamToBinaryFile and checks that
+ * BinaryFileStream reads them back unchanged.
+ */
+public class BinaryFileStreamTest {
+
+	private static Instances header() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("num1"));
+		attributes.add(new Attribute("nom1", Arrays.asList("a", "b", "c")));
+		attributes.add(new Attribute("num2"));
+		attributes.add(new Attribute("nom2", Arrays.asList("d", "e")));
+		attributes.add(new Attribute("class", Arrays.asList("yes", "no")));
+		Instances header = new Instances("binary test", attributes, 0);
+		header.setClassIndex(attributes.size() - 1);
+		return header;
+	}
+
+	/**
+	 * Creates dense and sparse instances with random weights and some
+	 * missing values.
+	 */
+	private static Instances randomInstances(int numInstances) {
+		Random random = new Random(1);
+		Instances instances = header();
+		for (int i = 0; i < numInstances; i++) {
+			double weight = random.nextInt(4) == 0 ? 0 : random.nextDouble() * 10;
+			Instance inst;
+			if (random.nextBoolean()) {
+				double[] values = {random.nextGaussian(), random.nextInt(3),
+						random.nextGaussian() * 1e6, random.nextInt(2), random.nextInt(2)};
+				for (int j = 0; j < values.length; j++) {
+					if (random.nextInt(5) == 0) {
+						values[j] = Double.NaN;
+					}
+				}
+				inst = new DenseInstance(weight, values);
+			} else {
+				// an odd number of values exercises the padding of the indices
+				inst = new InstanceImpl(weight, new double[]{random.nextInt(3),
+						random.nextBoolean() ? Double.NaN : random.nextGaussian(), 1},
+						new int[]{1, 2, 4}, instances.numAttributes());
+			}
+			inst.setDataset(instances);
+			instances.add(inst);
+		}
+		return instances;
+	}
+
+	private static File write(Instances instances) throws IOException {
+		File file = File.createTempFile("BinaryFileStreamTest", ".bin");
+		file.deleteOnExit();
+		WriteStreamToBinaryFile task = new WriteStreamToBinaryFile();
+		task.streamOption.setCurrentObject(new CachedInstancesStream(instances));
+		task.binaryFileOption.setValue(file.getPath());
+		task.prepareForUse();
+		task.doTask();
+		return file;
+	}
+
+	private static void assertSameInstance(Instance expected, Instance actual) {
+		assertEquals(expected.weight(), actual.weight(), 0.0);
+		assertEquals(expected.numAttributes(), actual.numAttributes());
+		assertEquals(expected.numValues(), actual.numValues());
+		for (int i = 0; i < expected.numValues(); i++) {
+			assertEquals(expected.index(i), actual.index(i));
+			assertEquals(expected.valueSparse(i), actual.valueSparse(i), 0.0);
+			assertEquals(expected.isMissingSparse(i), actual.isMissingSparse(i));
+		}
+		assertEquals(expected.classValue(), actual.classValue(), 0.0);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Instances instances = randomInstances(1000);
+		File file = write(instances);
+		BinaryFileStream stream = new BinaryFileStream(file.getPath());
+		InstancesHeader header = stream.getHeader();
+		assertEquals("binary test", header.getRelationName());
+		assertEquals(instances.numAttributes(), header.numAttributes());
+		assertEquals(instances.classIndex(), header.classIndex());
+		for (int i = 0; i < instances.numAttributes(); i++) {
+			assertEquals(instances.attribute(i).name(), header.attribute(i).name());
+			assertEquals(instances.attribute(i).isNominal(), header.attribute(i).isNominal());
+		}
+		assertEquals("c", header.attribute(1).value(2));
+		for (int n = 0; n < 2; n++) {
+			for (int i = 0; i < instances.numInstances(); i++) {
+				assertTrue(stream.hasMoreInstances());
+				Instance actual = stream.nextInstance().getData();
+				assertSameInstance(instances.instance(i), actual);
+				assertEquals("nom1", actual.attribute(1).name());
+			}
+			assertFalse(stream.hasMoreInstances());
+			assertEquals(0, stream.estimatedRemainingInstances());
+			stream.restart();
+		}
+		file.delete();
+	}
+
+	@Test
+	public void testChangedValuesDoNotChangeTheFile() throws IOException {
+		Instances instances = randomInstances(10);
+		File file = write(instances);
+		BinaryFileStream stream = new BinaryFileStream(file.getPath());
+		for (int i = 0; i < instances.numInstances(); i++) {
+			Instance inst = stream.nextInstance().getData();
+			if (inst.numValues() == inst.numAttributes()) {
+				// dense instances are views over the mapped file
+				inst.setValue(0, 42);
+			}
+			inst.setWeight(3);
+		}
+		stream.restart();
+		for (int i = 0; i < instances.numInstances(); i++) {
+			assertSameInstance(instances.instance(i), stream.nextInstance().getData());
+		}
+		file.delete();
+	}
+
+	@Test
+	public void testDescription() throws IOException {
+		File file = write(randomInstances(1));
+		BinaryFileStream stream = new BinaryFileStream(file.getPath());
+		StringBuilder sb = new StringBuilder();
+		stream.getDescription(sb, 0);
+		assertEquals("Binary instance file " + file.getPath()
+				+ " of relation binary test with 5 attributes", sb.toString());
+		file.delete();
+	}
+}
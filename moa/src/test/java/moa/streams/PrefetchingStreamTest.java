@@ -0,0 +1,161 @@
+/*
+ *    PrefetchingStreamTest.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+package moa.streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+import moa.core.InstanceExample;
+import moa.streams.generators.RandomRBFGenerator;
+import moa.streams.generators.RandomTreeGenerator;
+
+public class PrefetchingStreamTest {
+
+	/** Generator that fails after a number of instances. */
+	private static class FailingGenerator extends RandomTreeGenerator {
+
+		private static final long serialVersionUID = 1L;
+
+		static final IllegalStateException ERROR = new IllegalStateException("read error");
+
+		int numInstancesBeforeError;
+
+		FailingGenerator(int numInstancesBeforeError) {
+			this.numInstancesBeforeError = numInstancesBeforeError;
+		}
+
+		@Override
+		public InstanceExample nextInstance() {
+			if (this.numInstancesBeforeError-- == 0) {
+				throw ERROR;
+			}
+			return super.nextInstance();
+		}
+	}
+
+	private static RandomTreeGenerator newGenerator() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.prepareForUse();
+		return stream;
+	}
+
+	private static void assertSameInstances(ExampleStream expected, ExampleStream actual, int numInstances) {
+		for (int i = 0; i < numInstances; i++) {
+			assertTrue(actual.hasMoreInstances());
+			Instance expectedInst = (Instance) expected.nextInstance().getData();
+			Instance actualInst = (Instance) actual.nextInstance().getData();
+			assertArrayEquals(expectedInst.toDoubleArray(), actualInst.toDoubleArray(), 0.0);
+		}
+	}
+
+	@Test
+	public void testOrder() {
+		PrefetchingStream prefetching = new PrefetchingStream(newGenerator(), 3);
+		assertEquals(newGenerator().getHeader().toString(), prefetching.getHeader().toString());
+		assertSameInstances(newGenerator(), prefetching, 1000);
+		prefetching.stopPrefetching();
+	}
+
+	@Test
+	public void testEndOfStreamAndRestart() {
+		RandomTreeGenerator generator = newGenerator();
+		Instances instances = new Instances(generator.getHeader(), 10);
+		for (int i = 0; i < 10; i++) {
+			instances.add((Instance) generator.nextInstance().getData());
+		}
+		PrefetchingStream prefetching = new PrefetchingStream(new CachedInstancesStream(instances), 4);
+		for (int n = 0; n < 2; n++) {
+			for (int i = 0; i < 10; i++) {
+				assertTrue(prefetching.hasMoreInstances());
+				assertSame(instances.instance(i), prefetching.nextInstance().getData());
+			}
+			assertFalse(prefetching.hasMoreInstances());
+			assertNull(prefetching.nextInstance());
+			assertEquals(0, prefetching.estimatedRemainingInstances());
+			prefetching.restart();
+		}
+		prefetching.stopPrefetching();
+	}
+
+	@Test
+	public void testErrorIsPropagatedAfterTheInstancesReadBefore() {
+		PrefetchingStream prefetching = new PrefetchingStream(new FailingGenerator(50), 10);
+		FailingGenerator expected = new FailingGenerator(50);
+		expected.prepareForUse();
+		((FailingGenerator) prefetching.source).prepareForUse();
+		assertSameInstances(expected, prefetching, 50);
+		try {
+			prefetching.hasMoreInstances();
+			fail("The error of the wrapped stream was not propagated.");
+		} catch (RuntimeException e) {
+			assertSame(FailingGenerator.ERROR, e.getCause());
+		}
+		prefetching.stopPrefetching();
+	}
+
+	@Test
+	public void testStopPrefetching() throws InterruptedException {
+		PrefetchingStream prefetching = new PrefetchingStream(newGenerator(), 5);
+		RandomTreeGenerator expected = newGenerator();
+		assertSameInstances(expected, prefetching, 20);
+		Thread producer = prefetching.producer;
+		assertTrue(producer.isAlive());
+		prefetching.stopPrefetching();
+		assertFalse(producer.isAlive());
+		assertNull(prefetching.producer);
+		// the instances read ahead are lost, but reading starts again
+		assertTrue(prefetching.hasMoreInstances());
+		assertTrue(prefetching.producer.isAlive());
+		prefetching.stopPrefetching();
+	}
+
+	@Test
+	public void testRefusesReusedInstances() {
+		RandomRBFGenerator generator = new RandomRBFGenerator();
+		generator.instancePoolSizeOption.setValue(4);
+		generator.prepareForUse();
+		PrefetchingStream prefetching = new PrefetchingStream(generator, 10);
+		try {
+			prefetching.hasMoreInstances();
+			fail("A stream reusing its instances was read ahead.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testDescription() {
+		PrefetchingStream prefetching = new PrefetchingStream();
+		prefetching.bufferSizeOption.setValue(20);
+		prefetching.streamOption.setValueViaCLIString("generators.RandomTreeGenerator");
+		StringBuilder sb = new StringBuilder();
+		prefetching.getDescription(sb, 0);
+		assertEquals("Reads up to 20 instances ahead of generators.RandomTreeGenerator", sb.toString());
+	}
+}
@@ -0,0 +1,142 @@
+package moa.streams.filters;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayesMultinomial;
+import moa.classifiers.functions.SGD;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.generators.RandomTreeGenerator;
+import moa.streams.generators.SparseHyperplaneGenerator;
+
+public class FeatureHashingFilterTest {
+
+	private static FeatureHashingFilter filter(int numBits, boolean signed, SparseHyperplaneGenerator stream) {
+		FeatureHashingFilter filter = new FeatureHashingFilter();
+		filter.numBitsOption.setValue(numBits);
+		if (signed) {
+			filter.signedHashingOption.set();
+		}
+		filter.setInputStream(stream);
+		return filter;
+	}
+
+	private static SparseHyperplaneGenerator sparseStream() {
+		SparseHyperplaneGenerator stream = new SparseHyperplaneGenerator();
+		stream.numAttsOption.setValue(10000);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	private static void assertSortedIndices(Instance inst) {
+		for (int p = 1; p < inst.numValues(); p++) {
+			assertTrue(inst.index(p - 1) < inst.index(p));
+		}
+	}
+
+	@Test
+	public void testHeader() {
+		FeatureHashingFilter filter = filter(10, false, sparseStream());
+		InstancesHeader header = filter.getHeader();
+		assertEquals(1025, header.numAttributes());
+		assertEquals(1024, header.classIndex());
+		assertEquals(2, header.numClasses());
+		assertTrue(header.attribute(0).isNumeric());
+		assertTrue(header.attribute(1023).isNumeric());
+		assertTrue(header.classAttribute().isNominal());
+	}
+
+	@Test
+	public void testCountsAndClass() {
+		SparseHyperplaneGenerator stream = sparseStream();
+		FeatureHashingFilter filter = filter(6, false, sparseStream());
+		for (int i = 0; i < 1000; i++) {
+			Instance original = stream.nextInstance().getData();
+			Instance inst = filter.nextInstance().getData();
+			assertEquals(65, inst.numAttributes());
+			assertSortedIndices(inst);
+			double sum = 0.0;
+			for (int p = 0; p < inst.numValues() - 1; p++) {
+				assertTrue(inst.index(p) < 64);
+				sum += inst.valueSparse(p);
+			}
+			// all the words are counted, whatever the collisions
+			assertEquals(stream.numWordsOption.getValue(), sum, 0.0);
+			assertEquals(original.classValue(), inst.classValue(), 0.0);
+		}
+	}
+
+	@Test
+	public void testNominalTokens() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.prepareForUse();
+		FeatureHashingFilter filter = new FeatureHashingFilter();
+		filter.numBitsOption.setValue(24);
+		filter.signedHashingOption.set();
+		filter.setInputStream(stream);
+		RandomTreeGenerator original = new RandomTreeGenerator();
+		original.prepareForUse();
+		for (int i = 0; i < 1000; i++) {
+			Instance inst = filter.nextInstance().getData();
+			Instance originalInst = original.nextInstance().getData();
+			assertSortedIndices(inst);
+			double expected = 0.0;
+			int numNonZeros = 0;
+			for (int j = 0; j < originalInst.numAttributes() - 1; j++) {
+				double value = originalInst.value(j);
+				if (value != 0.0) {
+					expected += originalInst.attribute(j).isNominal() ? 1.0 : Math.abs(value);
+					numNonZeros++;
+				}
+			}
+			double sum = 0.0;
+			for (int p = 0; p < inst.numValues() - 1; p++) {
+				sum += Math.abs(inst.valueSparse(p));
+			}
+			// no collisions among so few attributes in 2^24 buckets
+			assertEquals(numNonZeros, inst.numValues() - 1);
+			assertEquals(expected, sum, 1e-12);
+			assertEquals(originalInst.classValue(), inst.classValue(), 0.0);
+		}
+	}
+
+	@Test
+	public void testRestart() {
+		FeatureHashingFilter filter = filter(8, true, sparseStream());
+		Instance first = filter.nextInstance().getData();
+		filter.nextInstance();
+		filter.restart();
+		Instance restarted = filter.nextInstance().getData();
+		assertArrayEquals(first.toDoubleArray(), restarted.toDoubleArray(), 0.0);
+	}
+
+	private static double accuracy(Classifier learner, FeatureHashingFilter filter, int numInstances) {
+		learner.setModelContext(filter.getHeader());
+		learner.prepareForUse();
+		int numCorrect = 0;
+		for (int i = 0; i < numInstances; i++) {
+			Instance inst = filter.nextInstance().getData();
+			if (learner.correctlyClassifies(inst)) {
+				numCorrect++;
+			}
+			learner.trainOnInstance(inst);
+		}
+		return numCorrect / (double) numInstances;
+	}
+
+	@Test
+	public void testLearners() {
+		assertTrue(accuracy(new SGD(), filter(12, true, sparseStream()), 5000) > 0.6);
+		assertTrue(accuracy(new NaiveBayesMultinomial(), filter(12, false, sparseStream()), 5000) > 0.6);
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.gracePeriodOption.setValue(50);
+		assertTrue(accuracy(tree, filter(6, false, sparseStream()), 5000) > 0.55);
+	}
+}
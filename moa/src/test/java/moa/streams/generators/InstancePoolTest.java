@@ -0,0 +1,110 @@
+/*
+ *    InstancePoolTest.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+package moa.streams.generators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.lazy.kNN;
+import moa.streams.ConceptDriftStream;
+import moa.streams.ExampleStream;
+import moa.streams.FilteredStream;
+import moa.tasks.EvaluateInterleavedChunks;
+import moa.tasks.EvaluatePrequential;
+import moa.tasks.LearnModel;
+import moa.tasks.MainTask;
+
+public class InstancePoolTest {
+
+	private static RandomRBFGenerator pooledGenerator(int poolSize) {
+		RandomRBFGenerator generator = new RandomRBFGenerator();
+		generator.instancePoolSizeOption.setValue(poolSize);
+		return generator;
+	}
+
+	private static FilteredStream filtered(ExampleStream stream) {
+		FilteredStream filtered = new FilteredStream();
+		filtered.streamOption.setCurrentObject(stream);
+		return filtered;
+	}
+
+	private static void assertRefused(MainTask task) {
+		task.prepareForUse();
+		try {
+			task.doTask();
+			fail("A learner was trained on reused instances.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testPoolSizeOfWrappedStreams() {
+		assertEquals(0, InstancePool.getPoolSize(new RandomRBFGenerator()));
+		assertEquals(4, InstancePool.getPoolSize(pooledGenerator(4)));
+		assertEquals(4, InstancePool.getPoolSize(filtered(pooledGenerator(4))));
+		assertEquals(0, InstancePool.getPoolSize(filtered(new RandomRBFGenerator())));
+		ConceptDriftStream drift = new ConceptDriftStream();
+		drift.driftstreamOption.setCurrentObject(filtered(pooledGenerator(8)));
+		assertEquals(8, InstancePool.getPoolSize(drift));
+		assertEquals(8, InstancePool.getPoolSize(filtered(drift)));
+	}
+
+	@Test
+	public void testCheckLearner() {
+		ExampleStream stream = filtered(pooledGenerator(4));
+		InstancePool.checkLearner(stream, new NaiveBayes(), 4);
+		InstancePool.checkLearner(stream, null, 1);
+		InstancePool.checkLearner(new RandomRBFGenerator(), new kNN(), 100);
+		try {
+			InstancePool.checkLearner(stream, new kNN(), 1);
+			fail("A learner retaining instances was accepted.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			InstancePool.checkLearner(stream, new NaiveBayes(), 5);
+			fail("More instances were kept than the stream reuses.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testTasksRefuseReusedInstances() {
+		EvaluatePrequential prequential = new EvaluatePrequential();
+		prequential.learnerOption.setCurrentObject(new kNN());
+		prequential.streamOption.setCurrentObject(filtered(pooledGenerator(100)));
+		assertRefused(prequential);
+
+		LearnModel learn = new LearnModel();
+		learn.learnerOption.setCurrentObject(new kNN());
+		learn.streamOption.setCurrentObject(filtered(pooledGenerator(100)));
+		assertRefused(learn);
+
+		EvaluateInterleavedChunks chunks = new EvaluateInterleavedChunks();
+		chunks.learnerOption.setCurrentObject(new NaiveBayes());
+		chunks.streamOption.setCurrentObject(filtered(pooledGenerator(100)));
+		chunks.chunkSizeOption.setValue(1000);
+		assertRefused(chunks);
+	}
+}
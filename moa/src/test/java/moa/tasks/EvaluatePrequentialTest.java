@@ -0,0 +1,100 @@
+/*
+ *    EvaluatePrequentialTest.java
+ *    Copyright (C) 2017 University of Waikato, Hamilton, New Zealand
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+package moa.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instances;
+
+import moa.classifiers.bayes.NaiveBayes;
+import moa.evaluation.LearningCurve;
+import moa.streams.CachedInstancesStream;
+import moa.streams.ExampleStream;
+import moa.streams.generators.RandomTreeGenerator;
+
+/**
+ * Checks that EvaluatePrequential samples the same rows whether the learner
+ * is tested and trained one instance at a time or in blocks.
+ */
+public class EvaluatePrequentialTest {
+
+	private static LearningCurve evaluate(ExampleStream stream, int batchSize,
+			int sampleFrequency, int instanceLimit) {
+		EvaluatePrequential task = new EvaluatePrequential();
+		task.learnerOption.setCurrentObject(new NaiveBayes());
+		task.streamOption.setCurrentObject(stream);
+		task.batchSizeOption.setValue(batchSize);
+		task.sampleFrequencyOption.setValue(sampleFrequency);
+		task.instanceLimitOption.setValue(instanceLimit);
+		task.prepareForUse();
+		return (LearningCurve) task.doTask();
+	}
+
+	private static int measurementIndex(LearningCurve curve, String name) {
+		for (int i = 0; ; i++) {
+			if (curve.getMeasurementName(i).equals(name)) {
+				return i;
+			}
+		}
+	}
+
+	/**
+	 * Checks the instances of every row, and that every instance was
+	 * classified and trained on by then.
+	 */
+	private static void assertRows(long[] expectedInstances, LearningCurve curve) {
+		assertEquals(expectedInstances.length, curve.numEntries());
+		int classified = measurementIndex(curve, "classified instances");
+		int trained = measurementIndex(curve, "model training instances");
+		for (int i = 0; i < expectedInstances.length; i++) {
+			assertEquals(expectedInstances[i], curve.getMeasurement(i, 0), 0.0);
+			assertEquals(expectedInstances[i], curve.getMeasurement(i, classified), 0.0);
+			assertEquals(expectedInstances[i], curve.getMeasurement(i, trained), 0.0);
+		}
+	}
+
+	@Test
+	public void testBlocksStopAtSamplePointsAndInstanceLimit() {
+		long[] expected = {100, 200, 300, 400, 500, 600, 700, 800, 900, 1000};
+		for (int batchSize : new int[]{1, 7, 1000}) {
+			assertRows(expected, evaluate(new RandomTreeGenerator(), batchSize, 100, 1003));
+		}
+		// the last block is cut short by the limit
+		expected = new long[]{100, 200, 300};
+		for (int batchSize : new int[]{1, 7}) {
+			assertRows(expected, evaluate(new RandomTreeGenerator(), batchSize, 100, 300));
+		}
+	}
+
+	@Test
+	public void testEndOfStream() {
+		RandomTreeGenerator generator = new RandomTreeGenerator();
+		generator.prepareForUse();
+		Instances instances = new Instances(generator.getHeader(), 997);
+		for (int i = 0; i < 997; i++) {
+			instances.add(generator.nextInstance().getData());
+		}
+		long[] expected = {100, 200, 300, 400, 500, 600, 700, 800, 900, 997};
+		for (int batchSize : new int[]{1, 7}) {
+			assertRows(expected, evaluate(new CachedInstancesStream(instances), batchSize, 100, -1));
+		}
+	}
+}